@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo;
+import com.python.pydev.analysis.additionalinfo.IInfo;
+
+/**
+ * Searches for tokens in the additional info (as done for the global tokens completions and auto-import).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class AdditionalInfoBenchmark {
+
+    /**
+     * Qualifiers with different sizes (the first 3 chars are the ones indexed).
+     */
+    @Param({ "g", "get", "getTo", "Decimal", "_" })
+    public String qualifier;
+
+    private BenchmarkAdditionalInfo info;
+
+    @Setup
+    public void setUp() {
+        info = BenchmarkAdditionalInfo.create(20);
+    }
+
+    @Benchmark
+    public Collection<IInfo> getTokensStartingWithTopLevel() {
+        return info.getTokensStartingWith(qualifier, AbstractAdditionalTokensInfo.TOP_LEVEL);
+    }
+
+    @Benchmark
+    public Collection<IInfo> getTokensStartingWithAll() {
+        return info.getTokensStartingWith(qualifier, AbstractAdditionalTokensInfo.TOP_LEVEL
+                | AbstractAdditionalTokensInfo.INNER);
+    }
+
+    @Benchmark
+    public Collection<IInfo> getTokensEqualTo() {
+        return info.getTokensEqualTo(qualifier, AbstractAdditionalTokensInfo.TOP_LEVEL
+                | AbstractAdditionalTokensInfo.INNER);
+    }
+}
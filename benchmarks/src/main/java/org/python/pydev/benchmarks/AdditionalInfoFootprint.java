@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.python.pydev.analysis.additionalinfo.IInfo;
+
+/**
+ * Reports the heap retained by the additional info (this is not a JMH benchmark: it's a main which prints the
+ * memory used before and after creating the infos, so, runs with different versions of the code may be compared).
+ *
+ * Usage (from the benchmarks dir):
+ *   java -Xmx2g -cp target/benchmarks.jar org.python.pydev.benchmarks.AdditionalInfoFootprint [interpreters] [copies]
+ *
+ * Each interpreter has its own additional info with the corpus added 'copies' times (the module names are the
+ * same among the interpreters -- as it happens for the standard library in different interpreters).
+ */
+public final class AdditionalInfoFootprint {
+
+    private AdditionalInfoFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int interpreters = args.length > 0 ? Integer.parseInt(args[0]) : 3;
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        //create one which is discarded so that the memory used by the classes loaded isn't accounted.
+        BenchmarkAdditionalInfo.create(1);
+
+        long before = getUsedMemory();
+        List<BenchmarkAdditionalInfo> infos = new ArrayList<BenchmarkAdditionalInfo>();
+        for (int i = 0; i < interpreters; i++) {
+            infos.add(BenchmarkAdditionalInfo.create(copies));
+        }
+        long after = getUsedMemory();
+
+        int count = 0;
+        for (BenchmarkAdditionalInfo info : infos) {
+            count += count(info.getTopLevelInitialsToInfo().values());
+            count += count(info.getInnerInitialsToInfo().values());
+        }
+        long used = after - before;
+        System.out.println("Interpreters: " + interpreters + " Copies: " + copies);
+        System.out.println("Infos: " + count);
+        System.out.println("Retained heap: " + (used / 1024) + " KB");
+        System.out.println("Bytes per info: " + (count == 0 ? 0 : used / count));
+
+        //keep them alive until the measure is done
+        if (infos.size() != interpreters) {
+            throw new AssertionError();
+        }
+    }
+
+    private static int count(Iterable<Set<IInfo>> sets) {
+        int count = 0;
+        for (Set<IInfo> set : sets) {
+            count += set.size();
+        }
+        return count;
+    }
+
+    static long getUsedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        //gc a few times until the used memory is stable
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                return current;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,58 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IGrammarVersionProvider;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.PyParser.ParserInfo;
+
+/**
+ * Reports the heap retained by the ASTs of the corpus (this is not a JMH benchmark: it's a main which prints the
+ * memory used before and after parsing, so, the full and the compact ASTs may be compared).
+ *
+ * Usage (from the benchmarks dir):
+ *   java -Xmx2g -cp target/benchmarks.jar org.python.pydev.benchmarks.AstFootprint [compact] [copies]
+ *
+ * The corpus is parsed 'copies' times (as the same names appear in many modules of a real pythonpath).
+ */
+public final class AstFootprint {
+
+    private AstFootprint() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean compact = args.length > 0 ? Boolean.parseBoolean(args[0]) : false;
+        int copies = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<String> contents = Corpus.getContents(Corpus.getFiles(Corpus.PYTHON2));
+        int grammarVersion = IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_2_7;
+
+        //parse once before measuring so that the memory used by the classes loaded isn't accounted.
+        for (String s : contents) {
+            PyParser.reparseDocument(new ParserInfo(new Document(s), grammarVersion, null, null, true, compact));
+        }
+
+        long before = AdditionalInfoFootprint.getUsedMemory();
+        List<Object> asts = new ArrayList<Object>();
+        for (int i = 0; i < copies; i++) {
+            for (String s : contents) {
+                asts.add(PyParser.reparseDocument(new ParserInfo(new Document(s), grammarVersion, null, null, true,
+                        compact)).ast);
+            }
+        }
+        long after = AdditionalInfoFootprint.getUsedMemory();
+
+        long used = after - before;
+        System.out.println("Compact: " + compact + " Copies: " + copies);
+        System.out.println("ASTs: " + asts.size());
+        System.out.println("Retained heap: " + (used / 1024) + " KB");
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.parser.fastparser.FastDefinitionsParser;
+import org.python.pydev.shared_core.io.FileUtils;
+
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo;
+import com.python.pydev.analysis.additionalinfo.IInfo;
+
+/**
+ * Additional info filled with the definitions in the corpus (it's not persisted).
+ */
+public final class BenchmarkAdditionalInfo extends AbstractAdditionalTokensInfo {
+
+    /**
+     * @param copies the number of times that the corpus should be added (with different module names), so that
+     * the index has a size closer to the one of a real interpreter.
+     */
+    public static BenchmarkAdditionalInfo create(int copies) {
+        List<File> files = new ArrayList<File>(Corpus.getFiles(Corpus.PYTHON2));
+        files.addAll(Corpus.getFiles(Corpus.PYTHON3));
+
+        BenchmarkAdditionalInfo info = new BenchmarkAdditionalInfo();
+        for (File file : files) {
+            String contents = FileUtils.getFileContents(file);
+            String moduleName = Corpus.getModuleName(file);
+            for (int i = 0; i < copies; i++) {
+                String name = "pkg" + i + "." + moduleName;
+                info.addAstInfo(FastDefinitionsParser.parse(contents, name), new ModulesKey(name, file), false);
+            }
+        }
+        return info;
+    }
+
+    private BenchmarkAdditionalInfo() {
+    }
+
+    public SortedMap<String, Set<IInfo>> getTopLevelInitialsToInfo() {
+        return topLevelInitialsToInfo;
+    }
+
+    public SortedMap<String, Set<IInfo>> getInnerInitialsToInfo() {
+        return innerInitialsToInfo;
+    }
+
+    @Override
+    protected File getPersistingLocation() {
+        throw new UnsupportedOperationException("The benchmarks info is not persisted.");
+    }
+
+    @Override
+    protected File getPersistingFolder() {
+        throw new UnsupportedOperationException("The benchmarks info is not persisted.");
+    }
+
+    @Override
+    public List<ModulesKey> getModulesWithToken(IProject project, String token, IProgressMonitor monitor) {
+        throw new UnsupportedOperationException();
+    }
+}
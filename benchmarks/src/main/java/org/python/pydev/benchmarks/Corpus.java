@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Provides the python files used in the benchmarks (the files are checked in, so, runs done at different
+ * times are comparable -- the corpus files should not be changed, only new folders added if needed).
+ *
+ * Layout:
+ * - python2: files which are valid for all the python 2 grammars (2.4 onwards).
+ * - python3: files which are valid for the python 3 grammar.
+ * - predefined: predefined completions used instead of the compiled builtins (so, no shell is needed).
+ */
+public final class Corpus {
+
+    /**
+     * System property which may be used to point to the corpus dir (by default, the corpus is gotten from
+     * src/test/resources/corpus relative to the working dir).
+     */
+    public static final String CORPUS_DIR_PROPERTY = "pydev.benchmarks.corpus";
+
+    public static final String PYTHON2 = "python2";
+
+    public static final String PYTHON3 = "python3";
+
+    public static final String PREDEFINED = "predefined";
+
+    private Corpus() {
+    }
+
+    public static File getCorpusDir() {
+        String dir = System.getProperty(CORPUS_DIR_PROPERTY);
+        File corpusDir = dir != null ? new File(dir) : new File("src/test/resources/corpus");
+        if (!corpusDir.isDirectory()) {
+            throw new RuntimeException("Unable to find the benchmarks corpus at: " + corpusDir.getAbsolutePath()
+                    + " (run from the benchmarks dir or set -D" + CORPUS_DIR_PROPERTY + ").");
+        }
+        return corpusDir;
+    }
+
+    public static File getDir(String folder) {
+        return new File(getCorpusDir(), folder);
+    }
+
+    /**
+     * @return the .py files in the given folder of the corpus (sorted by name).
+     */
+    public static List<File> getFiles(String folder) {
+        File[] files = getDir(folder).listFiles(new FileFilter() {
+
+            @Override
+            public boolean accept(File pathname) {
+                return pathname.isFile() && pathname.getName().endsWith(".py");
+            }
+        });
+        if (files == null || files.length == 0) {
+            throw new RuntimeException("No files found in the corpus folder: " + folder);
+        }
+        Arrays.sort(files);
+        return Arrays.asList(files);
+    }
+
+    public static List<String> getContents(List<File> files) {
+        List<String> ret = new ArrayList<String>(files.size());
+        for (File file : files) {
+            ret.add(FileUtils.getFileContents(file));
+        }
+        return ret;
+    }
+
+    /**
+     * @return the biggest file in the given folder.
+     */
+    public static File getBiggestFile(String folder) {
+        File biggest = null;
+        for (File file : getFiles(folder)) {
+            if (biggest == null || file.length() > biggest.length()) {
+                biggest = file;
+            }
+        }
+        return biggest;
+    }
+
+    /**
+     * @return the name of the module for the given file (the corpus folders are always flat).
+     */
+    public static String getModuleName(File file) {
+        return StringUtils.stripExtension(file.getName());
+    }
+}
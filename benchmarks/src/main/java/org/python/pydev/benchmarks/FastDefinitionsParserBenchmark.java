@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.python.pydev.parser.fastparser.FastDefinitionsParser;
+import org.python.pydev.shared_core.io.FileUtils;
+
+/**
+ * Extracts the definitions of the whole corpus with the FastDefinitionsParser (which is what's used when
+ * indexing the interpreter and project modules).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class FastDefinitionsParserBenchmark {
+
+    private final List<char[]> contents = new ArrayList<char[]>();
+
+    private final List<String> moduleNames = new ArrayList<String>();
+
+    @Setup
+    public void setUp() {
+        List<File> files = new ArrayList<File>(Corpus.getFiles(Corpus.PYTHON2));
+        files.addAll(Corpus.getFiles(Corpus.PYTHON3));
+        for (File file : files) {
+            contents.add(FileUtils.getFileContents(file).toCharArray());
+            moduleNames.add(Corpus.getModuleName(file));
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        int size = contents.size();
+        for (int i = 0; i < size; i++) {
+            blackhole.consume(FastDefinitionsParser.parse(contents.get(i), moduleNames.get(i)));
+        }
+    }
+}
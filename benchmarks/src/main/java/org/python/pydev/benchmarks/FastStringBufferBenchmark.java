@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Common FastStringBuffer operations over the lines of a corpus file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class FastStringBufferBenchmark {
+
+    private String[] lines;
+
+    private String contents;
+
+    @Setup
+    public void setUp() {
+        contents = Corpus.getContents(Corpus.getFiles(Corpus.PYTHON2)).get(0);
+        List<String> split = StringUtils.splitInLines(contents, false);
+        lines = split.toArray(new String[split.size()]);
+    }
+
+    @Benchmark
+    public int appendLines() {
+        FastStringBuffer buf = new FastStringBuffer();
+        for (String line : lines) {
+            buf.append(line).append('\n');
+        }
+        return buf.length();
+    }
+
+    @Benchmark
+    public int appendMixed() {
+        FastStringBuffer buf = new FastStringBuffer();
+        int len = lines.length;
+        for (int i = 0; i < len; i++) {
+            buf.append(i).append(':').append(lines[i].length()).append(' ').append(lines[i]).append('\n');
+        }
+        return buf.length();
+    }
+
+    @Benchmark
+    public String insertAndDelete() {
+        FastStringBuffer buf = new FastStringBuffer();
+        for (String line : lines) {
+            buf.insert(0, line);
+            if (buf.length() > 512) {
+                buf.delete(256, buf.length());
+            }
+        }
+        return buf.toString();
+    }
+
+    @Benchmark
+    public int replaceAll() {
+        FastStringBuffer buf = new FastStringBuffer(contents, 0);
+        buf.replaceAll("self", "this");
+        buf.replaceAll("    ", "\t");
+        return buf.length();
+    }
+
+    @Benchmark
+    public int indexOf() {
+        FastStringBuffer buf = new FastStringBuffer(contents, 0);
+        int found = 0;
+        int i = buf.indexOf("def ");
+        while (i != -1) {
+            found++;
+            i = buf.indexOf("def ", i + 1);
+        }
+        return found;
+    }
+
+    @Benchmark
+    public String toStringAfterAppend() {
+        FastStringBuffer buf = new FastStringBuffer(64);
+        for (String line : lines) {
+            buf.clear();
+            buf.append(line);
+            buf.rightTrim();
+        }
+        return buf.toString();
+    }
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.jface.preference.PreferenceStore;
+import org.eclipse.jface.text.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.python.pydev.core.IInterpreterInfo;
+import org.python.pydev.editor.autoedit.TestIndentPrefs;
+import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
+import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
+import org.python.pydev.plugin.PydevPlugin;
+import org.python.pydev.plugin.nature.SystemPythonNature;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.ui.interpreters.PythonInterpreterManager;
+import org.python.pydev.ui.pythonpathconf.InterpreterInfo;
+
+import com.python.pydev.analysis.AbstractAnalysisPreferences;
+import com.python.pydev.analysis.IAnalysisPreferences;
+import com.python.pydev.analysis.OccurrencesAnalyzer;
+import com.python.pydev.analysis.messages.IMessage;
+
+/**
+ * Analyzes the biggest module of the corpus (with an interpreter whose pythonpath is the corpus -- the builtins
+ * are gotten from the predefined completions, so, no shell is needed).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class OccurrencesAnalyzerBenchmark {
+
+    private SystemPythonNature nature;
+
+    private SourceModule module;
+
+    private Document doc;
+
+    private final BenchmarkAnalysisPreferences prefs = new BenchmarkAnalysisPreferences();
+
+    private final TestIndentPrefs indentPrefs = new TestIndentPrefs(true, 4);
+
+    private File stateLocation;
+
+    @Setup
+    public void setUp() throws Exception {
+        //The interpreter info is saved in the state location (which must be set as there's no platform running).
+        stateLocation = File.createTempFile("pydev_benchmark", "");
+        stateLocation.delete();
+        stateLocation.mkdirs();
+        PydevPlugin.setStateLocationWithoutPlatform(stateLocation);
+        FileUtils.IN_TESTS = true; //There are no file buffers available.
+
+        File python2Dir = Corpus.getDir(Corpus.PYTHON2);
+        String executable = "python";
+        InterpreterInfo info = new InterpreterInfo("2.7", executable, Arrays.asList(FileUtils
+                .getFileAbsolutePath(python2Dir)));
+        info.addPredefinedCompletionsPath(FileUtils.getFileAbsolutePath(Corpus.getDir(Corpus.PREDEFINED)));
+
+        PythonInterpreterManager manager = new PythonInterpreterManager(new PreferenceStore());
+        manager.setInfos(new IInterpreterInfo[] { info }, null, new NullProgressMonitor());
+        nature = new SystemPythonNature(manager, manager.getInterpreterInfo(executable, new NullProgressMonitor()));
+        if (nature.getBuiltinMod() == null) {
+            throw new RuntimeException("Unable to get the builtins from the predefined completions.");
+        }
+
+        File file = Corpus.getBiggestFile(Corpus.PYTHON2);
+        doc = new Document(FileUtils.getFileContents(file));
+        module = AbstractModule.createModuleFromDoc(Corpus.getModuleName(file), file, doc, nature, true);
+        if (module.getAst() == null) {
+            throw new RuntimeException("Unable to parse: " + file);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectoryTree(stateLocation);
+    }
+
+    @Benchmark
+    public IMessage[] analyze() {
+        return new OccurrencesAnalyzer().analyzeDocument(nature, module, prefs, doc, new NullProgressMonitor(),
+                indentPrefs);
+    }
+
+    /**
+     * Default severities (pep8 is not run as it'd be dominated by the pep8 script execution).
+     */
+    private static final class BenchmarkAnalysisPreferences extends AbstractAnalysisPreferences {
+
+        public int getSeverityForType(int type) {
+            switch (type) {
+                case TYPE_UNDEFINED_VARIABLE:
+                case TYPE_DUPLICATED_SIGNATURE:
+                case TYPE_UNRESOLVED_IMPORT:
+                case TYPE_NO_SELF:
+                    return IMarker.SEVERITY_ERROR;
+
+                case TYPE_PEP8:
+                case TYPE_ARGUMENTS_MISATCH:
+                    return IMarker.SEVERITY_INFO;
+            }
+            return IMarker.SEVERITY_WARNING;
+        }
+
+        public boolean makeCodeAnalysis() {
+            return true;
+        }
+
+        public Set<String> getNamesIgnoredByUnusedVariable() {
+            return new HashSet<String>(Arrays.asList("dummy", "_", "unused"));
+        }
+
+        public Set<String> getModuleNamePatternsToBeIgnored() {
+            return new HashSet<String>(Arrays.asList("__init__"));
+        }
+
+        public Set<String> getTokensAlwaysInGlobals() {
+            return new HashSet<String>();
+        }
+
+        public int getWhenAnalyze() {
+            return IAnalysisPreferences.ANALYZE_ON_SUCCESFUL_PARSE;
+        }
+
+        public IAdaptable getProjectAdaptable() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.python.pydev.core.IGrammarVersionProvider;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+
+/**
+ * Parses the corpus with the full parser (generating the AST) for each grammar.
+ *
+ * parseCompact also compacts the generated AST (as done for the modules cached in the modules manager).
+ *
+ * The python 2 grammars parse the python2 folder and the python 3 grammar parses the python3 folder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class PyParserBenchmark {
+
+    @Param({ "2.4", "2.5", "2.6", "2.7", "3.0" })
+    public String grammar;
+
+    private int grammarVersion;
+
+    private List<IDocument> docs;
+
+    @Setup
+    public void setUp() {
+        grammarVersion = -1;
+        for (Entry<Integer, String> entry : IGrammarVersionProvider.grammarVersionToRep.entrySet()) {
+            if (entry.getValue().equals(grammar)) {
+                grammarVersion = entry.getKey();
+            }
+        }
+        if (grammarVersion == -1) {
+            throw new RuntimeException("Invalid grammar: " + grammar);
+        }
+
+        String folder = grammarVersion == IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_3_0 ? Corpus.PYTHON3
+                : Corpus.PYTHON2;
+        docs = new ArrayList<IDocument>();
+        for (String contents : Corpus.getContents(Corpus.getFiles(folder))) {
+            Document doc = new Document(contents);
+            //Check that the corpus is really valid for the grammar (otherwise we'd be benchmarking the error recovery).
+            ParseOutput output = PyParser.reparseDocument(new ParserInfo(doc, grammarVersion));
+            if (output.error != null) {
+                throw new RuntimeException("Corpus file not valid for grammar " + grammar + ".", output.error);
+            }
+            docs.add(doc);
+        }
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (IDocument doc : docs) {
+            blackhole.consume(PyParser.reparseDocument(new ParserInfo(doc, grammarVersion)).ast);
+        }
+    }
+
+    @Benchmark
+    public void parseCompact(Blackhole blackhole) {
+        for (IDocument doc : docs) {
+            blackhole.consume(PyParser.reparseDocument(new ParserInfo(doc, grammarVersion, null, null, true, true)).ast);
+        }
+    }
+
+    @Benchmark
+    public void parseWithoutTree(Blackhole blackhole) {
+        for (IDocument doc : docs) {
+            blackhole.consume(PyParser.reparseDocument(new ParserInfo(doc, grammarVersion, false)).error);
+        }
+    }
+}
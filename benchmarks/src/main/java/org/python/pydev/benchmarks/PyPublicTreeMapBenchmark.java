@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.benchmarks;
+
+import java.io.CharArrayReader;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.python.pydev.core.FastBufferedReader;
+import org.python.pydev.core.ObjectsInternPool.ObjectsPoolMap;
+import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+import com.python.pydev.analysis.additionalinfo.IInfo;
+import com.python.pydev.analysis.additionalinfo.TreeBinaryIO;
+import com.python.pydev.analysis.additionalinfo.TreeBinaryIO.LoadedTrees;
+import com.python.pydev.analysis.additionalinfo.TreeIO;
+
+/**
+ * Loads the PyPublicTreeMaps of the additional info (as done when PyDev starts) from the text and binary formats.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class PyPublicTreeMapBenchmark {
+
+    private static final long GENERATION = 1;
+
+    private char[] textContents;
+
+    private File binaryFile;
+
+    private BenchmarkAdditionalInfo info;
+
+    @Setup
+    public void setUp() throws IOException {
+        info = BenchmarkAdditionalInfo.create(20);
+
+        //Same layout used in AbstractAdditionalTokensInfo.saveTo
+        Map<String, Integer> dictionary = new HashMap<String, Integer>();
+        FastStringBuffer trees = new FastStringBuffer();
+        trees.append("-- START TREE 1\n");
+        TreeIO.dumpTreeToBuffer(info.getTopLevelInitialsToInfo(), trees, dictionary);
+        trees.append("-- START TREE 2\n");
+        TreeIO.dumpTreeToBuffer(info.getInnerInitialsToInfo(), trees, dictionary);
+
+        FastStringBuffer buf = new FastStringBuffer(trees.length() + 50 * (dictionary.size() + 4));
+        TreeIO.dumpDictToBuffer(dictionary, buf);
+        buf.append(trees);
+        textContents = buf.toCharArray();
+
+        binaryFile = File.createTempFile("pydev_benchmark", ".trees");
+        if (!TreeBinaryIO.dumpTrees(info.getTopLevelInitialsToInfo(), info.getInnerInitialsToInfo(), binaryFile,
+                GENERATION)) {
+            throw new IOException("Unable to write: " + binaryFile);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        binaryFile.delete();
+    }
+
+    @Benchmark
+    public Object loadText() throws IOException {
+        FastBufferedReader reader = new FastBufferedReader(new CharArrayReader(textContents));
+        ObjectsPoolMap objectsPoolMap = new ObjectsPoolMap();
+        FastStringBuffer tempBuf = new FastStringBuffer(1024);
+        Map<Integer, String> dictionary = null;
+        PyPublicTreeMap<String, Set<IInfo>> topLevel = null;
+        PyPublicTreeMap<String, Set<IInfo>> inner = null;
+
+        FastStringBuffer line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("-- START DICTIONARY")) {
+                dictionary = TreeIO.loadDictFrom(reader, tempBuf.clear(), objectsPoolMap);
+
+            } else if (line.startsWith("-- START TREE 1")) {
+                topLevel = TreeIO.loadTreeFrom(reader, dictionary, tempBuf.clear(), objectsPoolMap);
+
+            } else if (line.startsWith("-- START TREE 2")) {
+                inner = TreeIO.loadTreeFrom(reader, dictionary, tempBuf.clear(), objectsPoolMap);
+            }
+        }
+        return new Object[] { topLevel, inner };
+    }
+
+    /**
+     * Just maps the file (the values are created lazily).
+     */
+    @Benchmark
+    public LoadedTrees loadBinary() throws IOException {
+        return TreeBinaryIO.loadTrees(binaryFile, GENERATION);
+    }
+
+    /**
+     * Maps the file and accesses all the values.
+     */
+    @Benchmark
+    public void loadBinaryAndAccessAll(Blackhole blackhole) throws IOException {
+        LoadedTrees loadedTrees = TreeBinaryIO.loadTrees(binaryFile, GENERATION);
+        for (Entry<String, Set<IInfo>> entry : loadedTrees.topLevel.entrySet()) {
+            for (IInfo i : entry.getValue()) {
+                blackhole.consume(i);
+            }
+        }
+        for (Entry<String, Set<IInfo>> entry : loadedTrees.inner.entrySet()) {
+            for (IInfo i : entry.getValue()) {
+                blackhole.consume(i);
+            }
+        }
+    }
+
+    @Benchmark
+    public PyPublicTreeMap<String, Set<IInfo>> put() {
+        PyPublicTreeMap<String, Set<IInfo>> tree = new PyPublicTreeMap<String, Set<IInfo>>();
+        for (Entry<String, Set<IInfo>> entry : info.getTopLevelInitialsToInfo().entrySet()) {
+            tree.put(entry.getKey(), entry.getValue());
+        }
+        return tree;
+    }
+}
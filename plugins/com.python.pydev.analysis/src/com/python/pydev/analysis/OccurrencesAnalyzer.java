@@ -11,12 +11,14 @@ package com.python.pydev.analysis;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.IStatus;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jface.text.IDocument;
-import org.python.pydev.builder.pep8.Pep8Visitor;
+import org.python.pydev.builder.pep8.Pep8Executor;
 import org.python.pydev.core.IIndentPrefs;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.log.Log;
@@ -38,15 +40,8 @@ public class OccurrencesAnalyzer {
             final IAnalysisPreferences prefs,
             final IDocument document, final IProgressMonitor monitor, IIndentPrefs indentPrefs) {
 
-        //Do pep8 in a thread.
-        final List<IMessage> pep8Messages = new ArrayList<>();
-        Thread t = new Thread() {
-            @Override
-            public void run() {
-                pep8Messages.addAll(new Pep8Visitor().getMessages(module, document, monitor, prefs));
-            }
-        };
-        t.start();
+        //Do pep8 in another thread (while the occurrences are analyzed in this one).
+        Future<List<IMessage>> pep8Messages = Pep8Executor.submit(module, document, monitor, prefs);
         OccurrencesVisitor visitor = new OccurrencesVisitor(nature, module.getName(), module, prefs, document, monitor);
         try {
             SimpleNode ast = module.getAst();
@@ -77,11 +72,14 @@ public class OccurrencesAnalyzer {
 
         if (!monitor.isCanceled()) {
             try {
-                t.join();
-                messages.addAll(pep8Messages);
+                messages.addAll(pep8Messages.get());
             } catch (InterruptedException e) {
                 //If interrupted keep on going as it is.
+            } catch (ExecutionException e) {
+                Log.log(e);
             }
+        } else {
+            pep8Messages.cancel(false);
         }
 
         return messages.toArray(new IMessage[messages.size()]);
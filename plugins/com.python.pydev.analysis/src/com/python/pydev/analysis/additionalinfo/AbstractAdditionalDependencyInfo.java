@@ -48,7 +48,9 @@ import org.python.pydev.parser.jython.ast.Name;
 import org.python.pydev.parser.jython.ast.stmtType;
 import org.python.pydev.parser.jython.ast.factory.AdapterPrefs;
 import org.python.pydev.parser.jython.ast.factory.PyAstFactory;
+import org.python.pydev.shared_core.SharedCorePlugin;
 import org.python.pydev.shared_core.callbacks.CallbackWithListeners;
+import org.python.pydev.shared_core.callbacks.ICallback2;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
@@ -76,6 +78,12 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
      */
     public DiskCache completeIndex;
 
+    /**
+     * Indexes the bases of the classes in each module so that the subclasses of a class can be found without
+     * having to search the modules which contain its name (persisted along with the other info).
+     */
+    private ClassHierarchyIndex classHierarchyIndex = new ClassHierarchyIndex();
+
     private volatile IReferenceSearches referenceSearches;
     private final Object referenceSearchesLock = new Object();
 
@@ -90,6 +98,27 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         return referenceSearches;
     }
 
+    /**
+     * Lets the reference searches know that a module changed (if they're already created).
+     */
+    private void notifyReferenceSearchesModuleChanged(String moduleName) {
+        IReferenceSearches searches = this.referenceSearches;
+        if (searches != null) {
+            searches.moduleChanged(moduleName);
+        }
+    }
+
+    /**
+     * Starts indexing the modules for the reference searches in the background (called when the info is created or
+     * loaded, so that the first search doesn't have to wait for the whole index to be built).
+     */
+    public void startReferenceSearchesIndexing() {
+        if (SharedCorePlugin.inTestMode()) {
+            return;
+        }
+        getReferenceSearches().startIndexing();
+    }
+
     public void dispose() {
         if (this.referenceSearches != null) {
             this.referenceSearches.dispose();
@@ -144,6 +173,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
     public void clearAllInfo() {
         synchronized (lock) {
             super.clearAllInfo();
+            classHierarchyIndex.clear();
             try {
                 completeIndex.clear();
             } catch (NullPointerException e) {
@@ -165,9 +195,9 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
      * to index builtin modules we have to be a bit more careful, especially on changes (i.e.: when a builtin
      * becomes a source module and vice-versa).
      */
-    public void updateKeysIfNeededAndSave(PyPublicTreeMap<ModulesKey, ModulesKey> keysFound, InterpreterInfo info,
-            IProgressMonitor monitor) {
-        Map<CompleteIndexKey, CompleteIndexKey> keys = this.completeIndex.keys();
+    public void updateKeysIfNeededAndSave(PyPublicTreeMap<ModulesKey, ModulesKey> keysFound,
+            final InterpreterInfo info, final IProgressMonitor monitor) {
+        final Map<CompleteIndexKey, CompleteIndexKey> keys = this.completeIndex.keys();
 
         ArrayList<ModulesKey> newKeys = new ArrayList<ModulesKey>();
         ArrayList<ModulesKey> removedKeys = new ArrayList<ModulesKey>();
@@ -175,7 +205,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         //temporary
         CompleteIndexKey tempKey = new CompleteIndexKey((ModulesKey) null);
 
-        boolean isJython = info != null ? info.getInterpreterType() == IInterpreterManager.INTERPRETER_TYPE_JYTHON
+        final boolean isJython = info != null ? info.getInterpreterType() == IInterpreterManager.INTERPRETER_TYPE_JYTHON
                 : true;
 
         Iterator<ModulesKey> it = keysFound.values().iterator();
@@ -216,7 +246,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         boolean hasRemoved = removedKeys.size() != 0;
         modulesAddedAndRemoved.call(new Tuple(newKeys, removedKeys));
 
-        Set<File> ignoreFiles = new HashSet<File>();
+        final Set<File> ignoreFiles = new HashSet<File>();
 
         // Remove first!
         if (hasRemoved) {
@@ -228,48 +258,53 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
 
         // Add last (a module could be removed/added).
         if (hasNew) {
-            FastStringBuffer buffer = new FastStringBuffer();
-            int currI = 0;
-            int total = newKeys.size();
-            for (ModulesKey newKey : newKeys) {
-                currI += 1;
-                if (monitor.isCanceled()) {
-                    return;
-                }
-                if (PythonPathHelper.canAddAstInfoForSourceModule(newKey)) {
-                    buffer.clear().append("Indexing ").append(currI).append(" of ").append(total)
-                            .append(" (source module): ").append(newKey.name).append("  (")
-                            .append(currI).append(" of ").append(total).append(")");
-                    try {
-                        // Don't generate deltas (we'll save it in the end).
-                        this.addAstInfo(newKey, false);
-                    } catch (Exception e) {
-                        Log.log(e);
-                    }
-                } else {
-                    if (info != null) {
-                        if (isJython && ignoreFiles.contains(newKey.file)) {
-                            continue;
-                        }
+            // Source modules are parsed in parallel, but the info is added in this thread in the same order of the
+            // keys (builtin modules are also handled here as they need to connect through the shell).
+            final FastStringBuffer buffer = new FastStringBuffer();
+            final int total = newKeys.size();
+            parseForAstInfoInParallel(newKeys, new ICallback2<Object, ModulesKey, SimpleNode>() {
+
+                private int currI = 0;
+
+                public Object call(ModulesKey newKey, SimpleNode node) {
+                    currI += 1;
+                    if (PythonPathHelper.canAddAstInfoForSourceModule(newKey)) {
                         buffer.clear().append("Indexing ").append(currI).append(" of ").append(total)
-                                .append(" (builtin module): ").append(newKey.name);
-                        monitor.setTaskName(buffer.toString());
-                        IModule builtinModule = info.getModulesManager().getModule(newKey.name,
-                                info.getModulesManager().getNature(), true);
-                        if (builtinModule != null) {
-                            if (builtinModule instanceof AbstractJavaClassModule) {
-                                if (newKey.file != null) {
-                                    ignoreFiles.add(newKey.file);
-                                } else {
-                                    Log.log("Not expecting null file for java class module: " + newKey);
+                                .append(" (source module): ").append(newKey.name).append("  (")
+                                .append(currI).append(" of ").append(total).append(")");
+                        if (node != null) {
+                            // Don't generate deltas (we'll save it in the end).
+                            addAstInfo(node, newKey, false);
+                        }
+                    } else {
+                        if (info != null) {
+                            if (isJython && ignoreFiles.contains(newKey.file)) {
+                                return null;
+                            }
+                            buffer.clear().append("Indexing ").append(currI).append(" of ").append(total)
+                                    .append(" (builtin module): ").append(newKey.name);
+                            monitor.setTaskName(buffer.toString());
+                            IModule builtinModule = info.getModulesManager().getModule(newKey.name,
+                                    info.getModulesManager().getNature(), true);
+                            if (builtinModule != null) {
+                                if (builtinModule instanceof AbstractJavaClassModule) {
+                                    if (newKey.file != null) {
+                                        ignoreFiles.add(newKey.file);
+                                    } else {
+                                        Log.log("Not expecting null file for java class module: " + newKey);
+                                    }
+                                    return null;
                                 }
-                                continue;
+                                boolean removeFirst = keys.containsKey(newKey);
+                                addAstForCompiledModule(builtinModule, info, newKey, removeFirst);
                             }
-                            boolean removeFirst = keys.containsKey(newKey);
-                            addAstForCompiledModule(builtinModule, info, newKey, removeFirst);
                         }
                     }
+                    return null;
                 }
+            }, monitor);
+            if (monitor.isCanceled()) {
+                return;
             }
         }
 
@@ -368,6 +403,17 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         return search;
     }
 
+    /**
+     * @param className the name of the class whose subclasses are wanted (only its last part is considered).
+     * @return the names of the modules which have classes declaring a base with the given name (those are
+     * candidates: the bases still have to be resolved to check whether they're actually the given class).
+     */
+    public Set<String> getModulesWithSubclassesOf(String className) {
+        synchronized (lock) {
+            return classHierarchyIndex.getModulesWithSubclassesOf(className);
+        }
+    }
+
     protected abstract String getUIRepresentation();
 
     protected abstract Set<String> getPythonPathFolders();
@@ -387,6 +433,8 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                     completeIndexKey.lastModified = FileUtils.lastModified(key.file);
                 }
                 completeIndex.add(completeIndexKey);
+                classHierarchyIndex.add(key.name, node);
+                notifyReferenceSearchesModuleChanged(key.name);
 
             }
         } catch (Exception e) {
@@ -402,6 +450,8 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                 throw new AssertionError("The module name may not be null.");
             }
             completeIndex.remove(new CompleteIndexKey(moduleName));
+            classHierarchyIndex.remove(moduleName);
+            notifyReferenceSearchesModuleChanged(moduleName);
             super.removeInfoFromModule(moduleName, generateDelta);
         }
     }
@@ -410,6 +460,7 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
     protected void saveTo(OutputStreamWriter writer, FastStringBuffer tempBuf, File pathToSave) throws IOException {
         synchronized (lock) {
             completeIndex.writeTo(tempBuf);
+            classHierarchyIndex.writeTo(tempBuf);
             writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
             tempBuf.clear();
 
@@ -459,7 +510,11 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
             }
             if (file.exists() && file.isFile()) {
                 try {
-                    return loadContentsFromFile(file) != null;
+                    if (loadContentsFromFile(file) != null) {
+                        loadAccessStats(file);
+                        return true;
+                    }
+                    return false;
                 } catch (Throwable e) {
                     errorFound = new RuntimeException("Unable to read: " + file, e);
                 }
@@ -497,6 +552,8 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                         null);
                 Tuple3<Object, Object, Object> superTupWithResults = tupWithResults.o1;
                 //tupWithResults.o2 = DiskCache
+                boolean loadedTextTrees = false;
+                ClassHierarchyIndex loadedHierarchyIndex = null;
                 if (string.toString().equals(expected)) {
                     //OK, proceed with new I/O format!
                     try {
@@ -507,9 +564,18 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                             while ((line = bufferedReader.readLine()) != null) {
                                 if (line.startsWith("-- ")) {
 
-                                    if (line.startsWith("-- START TREE 1")) {
+                                    if (line.startsWith("-- START BINARY TREES ")) {
+                                        long generation = Long.parseLong(line.toString().substring(
+                                                "-- START BINARY TREES ".length()).trim());
+                                        TreeBinaryIO.LoadedTrees loadedTrees = TreeBinaryIO.loadTrees(
+                                                getBinaryTreesLocation(file), generation);
+                                        superTupWithResults.o1 = loadedTrees.topLevel;
+                                        superTupWithResults.o2 = loadedTrees.inner;
+
+                                    } else if (line.startsWith("-- START TREE 1")) {
                                         superTupWithResults.o1 = TreeIO.loadTreeFrom(bufferedReader, dictionary,
                                                 tempBuf.clear(), objectsPoolMap);
+                                        loadedTextTrees = true;
 
                                     } else if (line.startsWith("-- START TREE 2")) {
                                         superTupWithResults.o2 = TreeIO.loadTreeFrom(bufferedReader, dictionary,
@@ -525,6 +591,10 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                                         }
                                         tupWithResults.o2 = DiskCache.loadFrom(bufferedReader, objectsPoolMap);
 
+                                    } else if (line.startsWith("-- START CLASS HIERARCHY")) {
+                                        loadedHierarchyIndex = ClassHierarchyIndex.loadFrom(bufferedReader,
+                                                objectsPoolMap);
+
                                     } else if (line.startsWith("-- VERSION_")) {
                                         if (!line.endsWith(String.valueOf(AbstractAdditionalTokensInfo.version))) {
                                             throw new RuntimeException("Expected the version to be: "
@@ -544,8 +614,16 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
                         reader.close();
                     }
 
+                    if (loadedHierarchyIndex == null) {
+                        throw new RuntimeException(
+                                "Class hierarchy not available: the info must be regenerated (changed across versions).");
+                    }
+                    classHierarchyIndex = loadedHierarchyIndex;
                     restoreSavedInfo(tupWithResults);
                     //                    timer.printDiff("Time taken");
+                    if (loadedTextTrees && USE_BINARY_FORMAT) {
+                        save(); //Migrate from the text format to the binary format.
+                    }
                     return tupWithResults;
                 } else {
                     throw new RuntimeException("Version does not match. Found: " + string + ". Expected: " + expected);
@@ -578,6 +656,21 @@ public abstract class AbstractAdditionalDependencyInfo extends AbstractAdditiona
         }
 
         completeIndex.add(key);
+        notifyReferenceSearchesModuleChanged(data.o1.name);
+
+        //The delta only has the tokens: get the bases of the classes from the module itself (there are few deltas
+        //-- see: AbstractAdditionalInfoWithBuild.MAXIMUN_NUMBER_OF_DELTAS).
+        classHierarchyIndex.remove(data.o1.name);
+        if (data.o1.file != null && PythonPathHelper.canAddAstInfoForSourceModule(data.o1)) {
+            try {
+                SimpleNode node = parseForAstInfo(data.o1);
+                if (node != null) {
+                    classHierarchyIndex.add(data.o1.name, node);
+                }
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
 
         //current way (saves a list of iinfo)
         for (Iterator<IInfo> it = data.o2.iterator(); it.hasNext();) {
@@ -7,6 +7,7 @@
 package com.python.pydev.analysis.additionalinfo;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -23,6 +24,7 @@ import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
 import org.python.pydev.parser.PyParser;
 import org.python.pydev.parser.jython.SimpleNode;
 import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback2;
 import org.python.pydev.shared_core.model.ErrorDescription;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
@@ -218,56 +220,70 @@ public abstract class AbstractAdditionalInfoWithBuild extends AbstractAdditional
      * @return the info generated from the module manager
      */
     public static AbstractAdditionalTokensInfo restoreInfoForModuleManager(IProgressMonitor monitor, IModulesManager m,
-            String additionalFeedback, AbstractAdditionalTokensInfo info, IPythonNature nature, int grammarVersion) {
+            final String additionalFeedback, final AbstractAdditionalTokensInfo info, IPythonNature nature,
+            final int grammarVersion) {
         if (monitor == null) {
             monitor = new NullProgressMonitor();
         }
         //TODO: Check if keeping a zip file open makes things faster...
         //Timer timer = new Timer();
         ModulesKey[] allModules = m.getOnlyDirectModules();
-        int i = 0;
-
-        FastStringBuffer msgBuffer = new FastStringBuffer();
 
+        //Note: at this point (on the interpreter configuration), we only add the tokens for source modules
+        //but later on in InterpreterInfoBuilder, it'll actually go on and create the contents for compiled modules
+        //(which is a slower process as it has to connect through a shell).
+        List<ModulesKey> sourceModules = new ArrayList<ModulesKey>(allModules.length);
         for (ModulesKey key : allModules) {
-            if (monitor.isCanceled()) {
-                return null;
+            if (PythonPathHelper.canAddAstInfoForSourceModule(key)) {
+                sourceModules.add(key);
             }
-            i++;
+        }
 
-            if (PythonPathHelper.canAddAstInfoForSourceModule(key)) {
-                //Note: at this point (on the interpreter configuration), we only add the tokens for source modules
-                //but later on in InterpreterInfoBuilder, it'll actually go on and create the contents for compiled modules
-                //(which is a slower process as it has to connect through a shell).
-
-                if (i % 17 == 0) {
-                    msgBuffer.clear();
-                    msgBuffer.append("Creating ");
-                    msgBuffer.append(additionalFeedback);
-                    msgBuffer.append(" additional info (");
-                    msgBuffer.append(i);
-                    msgBuffer.append(" of ");
-                    msgBuffer.append(allModules.length);
-                    msgBuffer.append(") for ");
-                    msgBuffer.append(key.file.getName());
-                    monitor.setTaskName(msgBuffer.toString());
-                    monitor.worked(1);
-                }
+        //The modules are parsed in parallel but the info is added in this thread (in the order of the modules).
+        final IProgressMonitor finalMonitor = monitor;
+        final int total = sourceModules.size();
+        AbstractAdditionalTokensInfo.parseForAstInfoInParallel(sourceModules,
+                new ICallback2<Object, ModulesKey, SimpleNode>() {
+
+                    private final FastStringBuffer msgBuffer = new FastStringBuffer();
+
+                    private int i = 0;
+
+                    public Object call(ModulesKey key, SimpleNode node) {
+                        i++;
+                        if (i % 17 == 0) {
+                            msgBuffer.clear();
+                            msgBuffer.append("Creating ");
+                            msgBuffer.append(additionalFeedback);
+                            msgBuffer.append(" additional info (");
+                            msgBuffer.append(i);
+                            msgBuffer.append(" of ");
+                            msgBuffer.append(total);
+                            msgBuffer.append(") for ");
+                            msgBuffer.append(key.file.getName());
+                            finalMonitor.setTaskName(msgBuffer.toString());
+                            finalMonitor.worked(1);
+                        }
 
-                try {
-                    if (info.addAstInfo(key, false) == null) {
-                        String str = "Unable to generate ast -- using %s.\nError:%s";
-                        ErrorDescription errorDesc = null;
-                        throw new RuntimeException(StringUtils.format(str, PyParser
-                                .getGrammarVersionStr(grammarVersion),
-                                (errorDesc != null && errorDesc.message != null) ? errorDesc.message
-                                        : "unable to determine"));
+                        try {
+                            if (node == null || info.addAstInfo(node, key, false) == null) {
+                                String str = "Unable to generate ast -- using %s.\nError:%s";
+                                ErrorDescription errorDesc = null;
+                                throw new RuntimeException(StringUtils.format(str, PyParser
+                                        .getGrammarVersionStr(grammarVersion),
+                                        (errorDesc != null && errorDesc.message != null) ? errorDesc.message
+                                                : "unable to determine"));
+                            }
+
+                        } catch (Throwable e) {
+                            Log.log(IStatus.ERROR, "Problem parsing the file :" + key.file + ".", e);
+                        }
+                        return null;
                     }
+                }, monitor);
 
-                } catch (Throwable e) {
-                    Log.log(IStatus.ERROR, "Problem parsing the file :" + key.file + ".", e);
-                }
-            }
+        if (monitor.isCanceled()) {
+            return null;
         }
         //timer.printDiff("Time to restore additional info");
         return info;
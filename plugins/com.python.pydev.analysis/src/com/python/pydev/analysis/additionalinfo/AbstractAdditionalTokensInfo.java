@@ -19,6 +19,7 @@ import java.io.ObjectInputStream;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -30,6 +31,7 @@ import java.util.SortedMap;
 
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
 import org.eclipse.jface.text.IDocument;
 import org.python.pydev.core.FileUtilsFileBuffer;
 import org.python.pydev.core.FullRepIterable;
@@ -39,6 +41,7 @@ import org.python.pydev.core.ModulesKeyForZip;
 import org.python.pydev.core.ObjectsInternPool;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
+import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
 import org.python.pydev.logging.DebugSettings;
 import org.python.pydev.parser.fastparser.FastDefinitionsParser;
 import org.python.pydev.parser.jython.SimpleNode;
@@ -48,11 +51,14 @@ import org.python.pydev.parser.jython.ast.NameTok;
 import org.python.pydev.parser.visitors.NodeUtils;
 import org.python.pydev.parser.visitors.scope.ASTEntry;
 import org.python.pydev.parser.visitors.scope.DefinitionsASTIteratorVisitor;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback2;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.FastStack;
 import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_core.structure.Tuple3;
+import org.python.pydev.shared_core.utils.ParallelUtils;
 
 /**
  * This class contains additional information on an interpreter, so that we are able to make code-completion in
@@ -120,6 +126,84 @@ public abstract class AbstractAdditionalTokensInfo {
      */
     protected SortedMap<String, Set<IInfo>> innerInitialsToInfo = new PyPublicTreeMap<String, Set<IInfo>>();
 
+    /**
+     * Prefix index (created on demand from one of the maps above for queries which the initials can't narrow: short
+     * prefixes and camel-case) and the changes done in the map after it was created (which are only applied to the
+     * index when it's requested again -- so, a batch of changes, such as a build, updates it only once).
+     */
+    private static final class PrefixIndexHolder {
+
+        private TokensPrefixIndex index;
+        private final List<IInfo> pendingAdded = new ArrayList<IInfo>();
+        private final Set<String> pendingRemovedModules = new HashSet<String>();
+
+        private void invalidate() {
+            index = null;
+            pendingAdded.clear();
+            pendingRemovedModules.clear();
+        }
+
+        private void onAdded(IInfo info) {
+            if (index != null) {
+                pendingAdded.add(info);
+                checkPendingSize();
+            }
+        }
+
+        private void onModuleRemoved(String moduleName) {
+            if (index != null) {
+                Iterator<IInfo> it = pendingAdded.iterator();
+                while (it.hasNext()) {
+                    if (moduleName.equals(it.next().getDeclaringModuleName())) {
+                        it.remove();
+                    }
+                }
+                pendingRemovedModules.add(moduleName);
+                checkPendingSize();
+            }
+        }
+
+        /**
+         * When too many changes are pending, it's cheaper to create the index again than merging them.
+         */
+        private void checkPendingSize() {
+            if (pendingAdded.size() + pendingRemovedModules.size() > 1000 + index.size() / 2) {
+                invalidate();
+            }
+        }
+
+        private TokensPrefixIndex get(SortedMap<String, Set<IInfo>> initialsToInfo) {
+            if (index == null) {
+                index = TokensPrefixIndex.create(initialsToInfo.values());
+
+            } else if (pendingAdded.size() > 0 || pendingRemovedModules.size() > 0) {
+                index = index.update(pendingAdded, pendingRemovedModules);
+                pendingAdded.clear();
+                pendingRemovedModules.clear();
+            }
+            return index;
+        }
+    }
+
+    private final PrefixIndexHolder topLevelPrefixIndex = new PrefixIndexHolder();
+    private final PrefixIndexHolder innerPrefixIndex = new PrefixIndexHolder();
+
+    /**
+     * The last time the prefix indexes were accessed (while they're used, the infos can't be unloaded as the
+     * indexes reference all of them).
+     */
+    private long prefixIndexLastAccess;
+
+    /**
+     * How many times the infos for each initials were accessed (used to preload the hottest ones).
+     */
+    private final SegmentAccessStats accessStats = new SegmentAccessStats();
+
+    /**
+     * Number of segments (the infos for some initials) preloaded when the info is about to be used.
+     */
+    public static final int HOT_SEGMENTS_TO_PRELOAD = 300;
+
     /**
      * Should be used before re-creating the info, so that we have enough memory.
      */
@@ -131,7 +215,25 @@ public abstract class AbstractAdditionalTokensInfo {
             if (innerInitialsToInfo != null) {
                 innerInitialsToInfo.clear();
             }
+            invalidatePrefixIndexes();
+        }
+    }
+
+    /**
+     * Must be called (with the lock held) whenever the maps with the infos are replaced or cleared (changes
+     * to single infos or modules are applied incrementally to the indexes).
+     */
+    private void invalidatePrefixIndexes() {
+        topLevelPrefixIndex.invalidate();
+        innerPrefixIndex.invalidate();
+    }
+
+    private TokensPrefixIndex getPrefixIndex(int doOn) {
+        prefixIndexLastAccess = System.currentTimeMillis();
+        if (doOn == TOP_LEVEL) {
+            return topLevelPrefixIndex.get(topLevelInitialsToInfo);
         }
+        return innerPrefixIndex.get(innerInitialsToInfo);
     }
 
     protected Object lock = new Object();
@@ -176,8 +278,17 @@ public abstract class AbstractAdditionalTokensInfo {
     /**
      * 2: because we've removed some info (the hash is no longer saved)
      * 3: Changed from string-> list to string->set
+     * 5: Added the class hierarchy index
+     * 6: Import aliases resolved in the class hierarchy index
+     */
+    protected static final int version = 6;
+
+    /**
+     * If true, the trees are saved in the binary format from {@link TreeBinaryIO} (which is read lazily through
+     * a memory-mapped file). Files in the text format from {@link TreeIO} are still loaded (and are converted
+     * to the binary format on load).
      */
-    protected static final int version = 4;
+    public static boolean USE_BINARY_FORMAT = true;
 
     public AbstractAdditionalTokensInfo() {
     }
@@ -192,6 +303,7 @@ public abstract class AbstractAdditionalTokensInfo {
             String name = info.getName();
             String initials = getInitials(name);
             SortedMap<String, Set<IInfo>> initialsToInfo;
+            PrefixIndexHolder prefixIndex;
 
             if (doOn == TOP_LEVEL) {
                 if (info.getPath() != null && info.getPath().length() > 0) {
@@ -199,6 +311,7 @@ public abstract class AbstractAdditionalTokensInfo {
                             "Error: the info being added is added as an 'top level' info, but has path. Info:" + info);
                 }
                 initialsToInfo = topLevelInitialsToInfo;
+                prefixIndex = topLevelPrefixIndex;
 
             } else if (doOn == INNER) {
                 if (info.getPath() == null || info.getPath().length() == 0) {
@@ -207,12 +320,15 @@ public abstract class AbstractAdditionalTokensInfo {
                                     + info);
                 }
                 initialsToInfo = innerInitialsToInfo;
+                prefixIndex = innerPrefixIndex;
 
             } else {
                 throw new RuntimeException("List to add is invalid: " + doOn);
             }
             Set<IInfo> listForInitials = getAndCreateListForInitials(initials, initialsToInfo);
-            listForInitials.add(info);
+            if (listForInitials.add(info)) {
+                prefixIndex.onAdded(info);
+            }
         }
     }
 
@@ -235,7 +351,7 @@ public abstract class AbstractAdditionalTokensInfo {
     protected Set<IInfo> getAndCreateListForInitials(String initials, SortedMap<String, Set<IInfo>> initialsToInfo) {
         Set<IInfo> lInfo = initialsToInfo.get(initials);
         if (lInfo == null) {
-            lInfo = new HashSet<IInfo>();
+            lInfo = new InfoSet();
             initialsToInfo.put(initials, lInfo);
         }
         return lInfo;
@@ -250,16 +366,16 @@ public abstract class AbstractAdditionalTokensInfo {
                 if (parts.get(0).equals("self")) {
                     rep = parts.get(1);
                     //no intern construct (locked in the loop that calls this method)
-                    AttrInfo info = new AttrInfo(ObjectsInternPool.internUnsynched(rep), moduleName,
-                            ObjectsInternPool.internUnsynched(path), false);
+                    AttrInfo info = new AttrInfo(ObjectsInternPool.intern(rep), moduleName,
+                            ObjectsInternPool.intern(path), false);
                     add(info, doOn);
                     return info;
                 }
             }
         } else {
             //no intern construct (locked in the loop that calls this method)
-            AttrInfo info = new AttrInfo(ObjectsInternPool.internUnsynched(FullRepIterable.getFirstPart(rep)), moduleName,
-                    ObjectsInternPool.internUnsynched(path), false);
+            AttrInfo info = new AttrInfo(ObjectsInternPool.intern(FullRepIterable.getFirstPart(rep)), moduleName,
+                    ObjectsInternPool.intern(path), false);
             add(info, doOn);
             return info;
         }
@@ -267,6 +383,60 @@ public abstract class AbstractAdditionalTokensInfo {
     }
 
     public List<IInfo> addAstInfo(ModulesKey key, boolean generateDelta) throws Exception {
+        SimpleNode node = parseForAstInfo(key);
+        if (node == null) {
+            return null;
+        }
+
+        return addAstInfo(node, key, generateDelta);
+    }
+
+    /**
+     * Window of modules which are parsed in parallel (while the previous window is added to the info).
+     */
+    private static final int PARSE_WINDOW_SIZE = 256;
+
+    /**
+     * Parses the given source modules in parallel and passes the ast of each module to the consumer in the calling
+     * thread (in the same order of the keys, so, the info generated is the same regardless of the number of threads).
+     *
+     * The consumer is called with a null ast if the module could not be parsed (or if it's not a source module).
+     *
+     * @return the number of modules passed to the consumer (may be less than the number of keys if the monitor is
+     * cancelled).
+     */
+    public static int parseForAstInfoInParallel(List<ModulesKey> keys,
+            ICallback2<Object, ModulesKey, SimpleNode> consumer, IProgressMonitor monitor) {
+        long initialTime = System.currentTimeMillis();
+        int consumed = ParallelUtils.forEachOrdered(keys, new ICallback<SimpleNode, ModulesKey>() {
+
+            public SimpleNode call(ModulesKey key) {
+                if (!PythonPathHelper.canAddAstInfoForSourceModule(key)) {
+                    return null;
+                }
+                try {
+                    return parseForAstInfo(key);
+                } catch (Exception e) {
+                    Log.log(IStatus.ERROR, "Problem parsing the file :" + key.file + ".", e);
+                    return null;
+                }
+            }
+        }, consumer, PARSE_WINDOW_SIZE, ParallelUtils.createCancelOnlyMonitor(monitor));
+
+        if (DebugSettings.DEBUG_INTERPRETER_AUTO_UPDATE) {
+            long elapsed = Math.max(1, System.currentTimeMillis() - initialTime);
+            Log.toLogFile(StringUtils.format("Indexed %s modules in %s millis (%s modules/sec).", consumed,
+                    elapsed, (consumed * 1000L) / elapsed), AbstractAdditionalTokensInfo.class);
+        }
+        return consumed;
+    }
+
+    /**
+     * Reads the given module and parses it with the fast definitions parser (may be called from any thread).
+     *
+     * @return the ast for the module or null if it could not be parsed.
+     */
+    public static SimpleNode parseForAstInfo(ModulesKey key) throws Exception {
         boolean isZipModule = key instanceof ModulesKeyForZip;
         ModulesKeyForZip modulesKeyForZip = null;
         if (isZipModule) {
@@ -308,12 +478,7 @@ public abstract class AbstractAdditionalTokensInfo {
             throw new RuntimeException("Don't know how to handle: " + doc + " -- " + doc.getClass());
         }
 
-        SimpleNode node = FastDefinitionsParser.parse(charArray, key.file.getName(), len);
-        if (node == null) {
-            return null;
-        }
-
-        return addAstInfo(node, key, generateDelta);
+        return FastDefinitionsParser.parse(charArray, key.file.getName(), len);
     }
 
     /**
@@ -338,82 +503,79 @@ public abstract class AbstractAdditionalTokensInfo {
                 FastStack<SimpleNode> tempStack = new FastStack<SimpleNode>(10);
 
                 synchronized (this.lock) {
-                    synchronized (ObjectsInternPool.lock) {
-                        key.name = ObjectsInternPool.internUnsynched(key.name);
-
-                        while (entries.hasNext()) {
-                            ASTEntry entry = entries.next();
-                            IInfo infoCreated = null;
-
-                            if (entry.parent == null) { //we only want those that are in the global scope
-                                if (entry.node instanceof ClassDef) {
-                                    //no intern construct (locked in this loop)
-                                    ClassInfo info = new ClassInfo(
-                                            ObjectsInternPool.internUnsynched(((NameTok) ((ClassDef) entry.node).name).id),
-                                            key.name, null, false);
-                                    add(info, TOP_LEVEL);
-                                    infoCreated = info;
-
-                                } else if (entry.node instanceof FunctionDef) {
-                                    //no intern construct (locked in this loop)
-                                    FuncInfo info2 = new FuncInfo(
-                                            ObjectsInternPool.internUnsynched(((NameTok) ((FunctionDef) entry.node).name).id),
-                                            key.name, null, false);
-                                    add(info2, TOP_LEVEL);
-                                    infoCreated = info2;
-
-                                } else {
-                                    //it is an assign
-                                    infoCreated = this.addAssignTargets(entry, key.name, TOP_LEVEL, null, false);
+                    key.name = ObjectsInternPool.intern(key.name);
+
+                    while (entries.hasNext()) {
+                        ASTEntry entry = entries.next();
+                        IInfo infoCreated = null;
+
+                        if (entry.parent == null) { //we only want those that are in the global scope
+                            if (entry.node instanceof ClassDef) {
+                                //no intern construct (already interned)
+                                ClassInfo info = new ClassInfo(
+                                        ObjectsInternPool.intern(((NameTok) ((ClassDef) entry.node).name).id),
+                                        key.name, null, false);
+                                add(info, TOP_LEVEL);
+                                infoCreated = info;
+
+                            } else if (entry.node instanceof FunctionDef) {
+                                //no intern construct (already interned)
+                                FuncInfo info2 = new FuncInfo(
+                                        ObjectsInternPool.intern(((NameTok) ((FunctionDef) entry.node).name).id),
+                                        key.name, null, false);
+                                add(info2, TOP_LEVEL);
+                                infoCreated = info2;
 
-                                }
                             } else {
-                                if (entry.node instanceof ClassDef || entry.node instanceof FunctionDef) {
-                                    //ok, it has a parent, so, let's check to see if the path we got only has class definitions
-                                    //as the parent (and get that path)
-                                    Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, false, false,
-                                            tempStack);
-                                    if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
-                                        //if the root is not valid, it is not only classes in the path (could be a method inside
-                                        //a method, or something similar).
-
-                                        if (entry.node instanceof ClassDef) {
-                                            ClassInfo info = new ClassInfo(
-                                                    ObjectsInternPool
-                                                            .internUnsynched(((NameTok) ((ClassDef) entry.node).name).id),
-                                                    key.name, ObjectsInternPool.internUnsynched(pathToRoot.o1), false);
-                                            add(info, INNER);
-                                            infoCreated = info;
-
-                                        } else {
-                                            //FunctionDef
-                                            FuncInfo info2 = new FuncInfo(
-                                                    ObjectsInternPool
-                                                            .internUnsynched(((NameTok) ((FunctionDef) entry.node).name).id),
-                                                    key.name, ObjectsInternPool.internUnsynched(pathToRoot.o1), false);
-                                            add(info2, INNER);
-                                            infoCreated = info2;
-
-                                        }
-                                    }
-                                } else {
-                                    //it is an assign
-                                    Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, true, false,
-                                            tempStack);
-                                    if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
-                                        infoCreated = this.addAssignTargets(entry, key.name, INNER, pathToRoot.o1,
-                                                pathToRoot.o2);
-                                    }
-                                }
+                                //it is an assign
+                                infoCreated = this.addAssignTargets(entry, key.name, TOP_LEVEL, null, false);
+
                             }
+                        } else {
+                            if (entry.node instanceof ClassDef || entry.node instanceof FunctionDef) {
+                                //ok, it has a parent, so, let's check to see if the path we got only has class definitions
+                                //as the parent (and get that path)
+                                Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, false, false,
+                                        tempStack);
+                                if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
+                                    //if the root is not valid, it is not only classes in the path (could be a method inside
+                                    //a method, or something similar).
+
+                                    if (entry.node instanceof ClassDef) {
+                                        ClassInfo info = new ClassInfo(
+                                                ObjectsInternPool
+                                                        .intern(((NameTok) ((ClassDef) entry.node).name).id),
+                                                key.name, ObjectsInternPool.intern(pathToRoot.o1), false);
+                                        add(info, INNER);
+                                        infoCreated = info;
+
+                                    } else {
+                                        //FunctionDef
+                                        FuncInfo info2 = new FuncInfo(
+                                                ObjectsInternPool
+                                                        .intern(((NameTok) ((FunctionDef) entry.node).name).id),
+                                                key.name, ObjectsInternPool.intern(pathToRoot.o1), false);
+                                        add(info2, INNER);
+                                        infoCreated = info2;
 
-                            if (infoCreated != null) {
-                                createdInfos.add(infoCreated);
+                                    }
+                                }
+                            } else {
+                                //it is an assign
+                                Tuple<String, Boolean> pathToRoot = this.getPathToRoot(entry, true, false,
+                                        tempStack);
+                                if (pathToRoot != null && pathToRoot.o1 != null && pathToRoot.o1.length() > 0) {
+                                    infoCreated = this.addAssignTargets(entry, key.name, INNER, pathToRoot.o1,
+                                            pathToRoot.o2);
+                                }
                             }
+                        }
 
-                        } //end while
+                        if (infoCreated != null) {
+                            createdInfos.add(infoCreated);
+                        }
 
-                    }//end lock ObjectsPool.lock
+                    } //end while
 
                 }//end this.lock
 
@@ -542,6 +704,8 @@ public abstract class AbstractAdditionalTokensInfo {
         synchronized (lock) {
             removeInfoFromMap(moduleName, topLevelInitialsToInfo);
             removeInfoFromMap(moduleName, innerInitialsToInfo);
+            topLevelPrefixIndex.onModuleRemoved(moduleName);
+            innerPrefixIndex.onModuleRemoved(moduleName);
         }
 
     }
@@ -553,8 +717,13 @@ public abstract class AbstractAdditionalTokensInfo {
     private void removeInfoFromMap(String moduleName, SortedMap<String, Set<IInfo>> initialsToInfo) {
         Iterator<Set<IInfo>> itListOfInfo = initialsToInfo.values().iterator();
         while (itListOfInfo.hasNext()) {
+            Set<IInfo> set = itListOfInfo.next();
+            if (set instanceof LazyInfoSet && !((LazyInfoSet) set).mayContainModule(moduleName)) {
+                //Don't materialize infos which are still only in the mapped file.
+                continue;
+            }
 
-            Iterator<IInfo> it = itListOfInfo.next().iterator();
+            Iterator<IInfo> it = set.iterator();
             while (it.hasNext()) {
 
                 IInfo info = it.next();
@@ -574,14 +743,70 @@ public abstract class AbstractAdditionalTokensInfo {
      * @return a list of info, all starting with the given qualifier
      */
     public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat) {
+        return getTokensStartingWith(qualifier, getWhat, null, -1);
+    }
+
+    public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat, Collection<IInfo> result) {
+        return getTokensStartingWith(qualifier, getWhat, result, -1);
+    }
+
+    /**
+     * @param maxResults the maximum number of tokens to add to the result (<= 0 means no limit). When limited,
+     * the first tokens in alphabetical order are returned.
+     */
+    public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat, Collection<IInfo> result,
+            int maxResults) {
         synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, startingWithFilter, true, null);
+            if (qualifier.length() >= NUMBER_OF_INITIALS_TO_INDEX) {
+                //The initials already narrow the search (and only the infos with those initials are loaded).
+                if (maxResults <= 0) {
+                    return getWithFilter(qualifier, getWhat, startingWithFilter, true, result);
+                }
+                List<IInfo> found = new ArrayList<IInfo>();
+                getWithFilter(qualifier, getWhat, startingWithFilter, true, found);
+                if (found.size() > maxResults) {
+                    Collections.sort(found, TokensPrefixIndex.NAME_COMPARATOR);
+                    found = found.subList(0, maxResults);
+                }
+                if (result == null) {
+                    result = new ArrayList<IInfo>(found.size());
+                }
+                result.addAll(found);
+                return result;
+            }
+            if (result == null) {
+                result = new ArrayList<IInfo>();
+            }
+            int added = 0;
+            if ((getWhat & TOP_LEVEL) != 0) {
+                added += getPrefixIndex(TOP_LEVEL).getStartingWith(qualifier, result, maxResults);
+            }
+            if ((getWhat & INNER) != 0 && (maxResults <= 0 || added < maxResults)) {
+                getPrefixIndex(INNER).getStartingWith(qualifier, result, maxResults - added);
+            }
+            return result;
         }
     }
 
-    public Collection<IInfo> getTokensStartingWith(String qualifier, int getWhat, Collection<IInfo> result) {
+    /**
+     * @param abbreviation a camel-case abbreviation (i.e.: gTSW for getTokensStartingWith -- see
+     * {@link TokensPrefixIndex#matchesCamelCase(String, String)}).
+     * @param maxResults the maximum number of tokens to add to the result (<= 0 means no limit).
+     */
+    public Collection<IInfo> getTokensMatchingCamelCase(String abbreviation, int getWhat, Collection<IInfo> result,
+            int maxResults) {
         synchronized (lock) {
-            return getWithFilter(qualifier, getWhat, startingWithFilter, true, result);
+            if (result == null) {
+                result = new ArrayList<IInfo>();
+            }
+            int added = 0;
+            if ((getWhat & TOP_LEVEL) != 0) {
+                added += getPrefixIndex(TOP_LEVEL).getMatchingCamelCase(abbreviation, result, maxResults);
+            }
+            if ((getWhat & INNER) != 0 && (maxResults <= 0 || added < maxResults)) {
+                getPrefixIndex(INNER).getMatchingCamelCase(abbreviation, result, maxResults - added);
+            }
+            return result;
         }
     }
 
@@ -628,12 +853,15 @@ public abstract class AbstractAdditionalTokensInfo {
             qualToCompare = qualifier.toLowerCase();
         }
 
+        int doOn = initialsToInfo == topLevelInitialsToInfo ? TOP_LEVEL : INNER;
+
         //get until the end of the alphabet
         SortedMap<String, Set<IInfo>> subMap = initialsToInfo.subMap(initials, initials + "\uffff\uffff\uffff\uffff");
 
-        for (Set<IInfo> listForInitials : subMap.values()) {
+        for (Entry<String, Set<IInfo>> entry : subMap.entrySet()) {
+            accessStats.access(doOn, entry.getKey());
 
-            for (IInfo info : listForInitials) {
+            for (IInfo info : entry.getValue()) {
                 if (filter.doCompare(qualToCompare, info)) {
                     toks.add(info);
                 }
@@ -665,6 +893,67 @@ public abstract class AbstractAdditionalTokensInfo {
         }
     }
 
+    /**
+     * Discards the infos which were loaded on demand and were not accessed in the given time (they're loaded
+     * again if needed).
+     *
+     * @return the number of segments (infos for some initials) unloaded.
+     */
+    public int unloadIdleSegments(long idleMillis) {
+        synchronized (lock) {
+            long now = System.currentTimeMillis();
+            if (now - prefixIndexLastAccess < idleMillis) {
+                return 0;
+            }
+            invalidatePrefixIndexes();
+            return unloadIdleSegments(topLevelInitialsToInfo, now, idleMillis)
+                    + unloadIdleSegments(innerInitialsToInfo, now, idleMillis);
+        }
+    }
+
+    private int unloadIdleSegments(SortedMap<String, Set<IInfo>> initialsToInfo, long now, long idleMillis) {
+        int unloaded = 0;
+        for (Set<IInfo> set : initialsToInfo.values()) {
+            if (set instanceof LazyInfoSet && ((LazyInfoSet) set).unloadIfIdle(now, idleMillis)) {
+                unloaded++;
+            }
+        }
+        return unloaded;
+    }
+
+    /**
+     * Loads the infos for the segments (infos for some initials) which were most accessed (in this and in
+     * previous sessions).
+     */
+    public void preloadHotSegments() {
+        synchronized (lock) {
+            for (Tuple<Integer, String> segment : accessStats.getHottest(HOT_SEGMENTS_TO_PRELOAD)) {
+                Set<IInfo> set = (segment.o1 == TOP_LEVEL ? topLevelInitialsToInfo : innerInitialsToInfo)
+                        .get(segment.o2);
+                if (set instanceof LazyInfoSet) {
+                    ((LazyInfoSet) set).preload();
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the access stats saved along with the info in the given location.
+     */
+    protected void loadAccessStats(File persistingLocation) {
+        synchronized (lock) {
+            accessStats.loadFrom(getAccessStatsLocation(persistingLocation));
+        }
+    }
+
+    /**
+     * @return the file where the access stats are saved (it's always a sibling of the main file with the
+     * additional info).
+     */
+    public static File getAccessStatsLocation(File persistingLocation) {
+        return new File(persistingLocation.getParentFile(), persistingLocation.getName() + ".stats");
+    }
+
     /**
      * this can be used to save the file
      */
@@ -705,6 +994,9 @@ public abstract class AbstractAdditionalTokensInfo {
                     stream.close();
                 }
             }
+            synchronized (lock) {
+                accessStats.saveTo(getAccessStatsLocation(persistingLocation));
+            }
         } catch (Exception e) {
             Log.log(e);
         }
@@ -729,6 +1021,19 @@ public abstract class AbstractAdditionalTokensInfo {
                         + getAllTokens().size() + ") " + pathToSave);
             }
 
+            if (USE_BINARY_FORMAT && pathToSave != null) {
+                long generation = System.nanoTime();
+                if (TreeBinaryIO.dumpTrees(this.topLevelInitialsToInfo, this.innerInitialsToInfo,
+                        getBinaryTreesLocation(pathToSave), generation)) {
+                    tempBuf.append("-- START BINARY TREES ");
+                    tempBuf.append(generation);
+                    tempBuf.append('\n');
+                    writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
+                    return;
+                }
+                //Unable to write the binary version: fallback to the text format.
+            }
+
             Map<String, Integer> dictionary = new HashMap<String, Integer>();
             tempBuf.append("-- START TREE 1\n");
             TreeIO.dumpTreeToBuffer(this.topLevelInitialsToInfo, tempBuf, dictionary);
@@ -750,6 +1055,14 @@ public abstract class AbstractAdditionalTokensInfo {
         }
     }
 
+    /**
+     * @return the file where the trees are saved when the binary format is used (it's always a sibling of
+     * the main file with the additional info).
+     */
+    public static File getBinaryTreesLocation(File persistingLocation) {
+        return new File(persistingLocation.getParentFile(), persistingLocation.getName() + ".trees");
+    }
+
     /**
      * Restores the saved info in the object (if overridden, getInfoToSave should be overridden too)
      * @param o the read object from the file
@@ -770,6 +1083,7 @@ public abstract class AbstractAdditionalTokensInfo {
             }
             this.topLevelInitialsToInfo = o1;
             this.innerInitialsToInfo = o2;
+            invalidatePrefixIndexes();
             if (readFromFile.o3 != null) {
                 //may be null in new format (where that's checked during load time).
                 if (AbstractAdditionalTokensInfo.version != (Integer) readFromFile.o3) {
@@ -35,11 +35,9 @@ public abstract class AbstractInfo implements IInfo, Serializable {
     public final String moduleDeclared;
 
     public AbstractInfo(String name, String moduleDeclared, String path) {
-        synchronized (ObjectsInternPool.lock) {
-            this.name = ObjectsInternPool.internUnsynched(name);
-            this.moduleDeclared = ObjectsInternPool.internUnsynched(moduleDeclared);
-            this.path = ObjectsInternPool.internUnsynched(path);
-        }
+        this.name = ObjectsInternPool.intern(name);
+        this.moduleDeclared = ObjectsInternPool.intern(moduleDeclared);
+        this.path = ObjectsInternPool.intern(path);
     }
 
     /**
@@ -229,6 +229,7 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
             if (info == null) {
                 info = new AdditionalProjectInterpreterInfo(project);
                 additionalNatureInfo.put(name, info);
+                UnloadIdleSegmentsJob.scheduleIfNeeded();
 
                 if (!info.load()) {
                     recreateAllInfo(nature, new NullProgressMonitor());
@@ -251,6 +252,7 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
                     j.setPriority(Job.INTERACTIVE);
                     j.setSystem(true);
                     j.schedule();
+                    info.startReferenceSearchesIndexing();
                 }
 
             }
@@ -258,6 +260,15 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
         }
     }
 
+    /**
+     * @return the infos for the projects which are currently loaded.
+     */
+    static List<AbstractAdditionalDependencyInfo> getLoadedInfos() {
+        synchronized (additionalNatureInfoLock) {
+            return new ArrayList<AbstractAdditionalDependencyInfo>(additionalNatureInfo.values());
+        }
+    }
+
     //interfaces that iterate through all of them
     public static List<IInfo> getTokensEqualTo(String qualifier, IPythonNature nature, int getWhat)
             throws MisconfigurationException {
@@ -271,10 +282,37 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
 
     public static List<IInfo> getTokensStartingWith(String qualifier, IPythonNature nature, int getWhat)
             throws MisconfigurationException {
+        return getTokensStartingWith(qualifier, nature, getWhat, -1);
+    }
+
+    /**
+     * @param maxResults the maximum number of tokens returned from each additional info (the project, the
+     * referenced projects and the interpreter) -- <= 0 means no limit.
+     */
+    public static List<IInfo> getTokensStartingWith(String qualifier, IPythonNature nature, int getWhat,
+            int maxResults) throws MisconfigurationException {
+        ArrayList<IInfo> ret = new ArrayList<IInfo>();
+        List<AbstractAdditionalTokensInfo> additionalInfo = getAdditionalInfo(nature);
+        for (AbstractAdditionalTokensInfo info : additionalInfo) {
+            info.getTokensStartingWith(qualifier, getWhat, ret, maxResults);
+        }
+        return ret;
+    }
+
+    public static List<IInfo> getTokensMatchingCamelCase(String abbreviation, IPythonNature nature, int getWhat)
+            throws MisconfigurationException {
+        return getTokensMatchingCamelCase(abbreviation, nature, getWhat, -1);
+    }
+
+    /**
+     * @param maxResults the maximum number of tokens returned from each additional info -- <= 0 means no limit.
+     */
+    public static List<IInfo> getTokensMatchingCamelCase(String abbreviation, IPythonNature nature, int getWhat,
+            int maxResults) throws MisconfigurationException {
         ArrayList<IInfo> ret = new ArrayList<IInfo>();
         List<AbstractAdditionalTokensInfo> additionalInfo = getAdditionalInfo(nature);
         for (AbstractAdditionalTokensInfo info : additionalInfo) {
-            info.getTokensStartingWith(qualifier, getWhat, ret);
+            info.getTokensMatchingCamelCase(abbreviation, getWhat, ret, maxResults);
         }
         return ret;
     }
@@ -327,6 +365,7 @@ public class AdditionalProjectInterpreterInfo extends AbstractAdditionalInfoWith
                         //ok, set it and save it
                         additionalNatureInfo.put(FileUtilsFileBuffer.getValidProjectName(project), info);
                         info.save();
+                        info.startReferenceSearchesIndexing();
                     }
                 }
             }
@@ -12,8 +12,10 @@
 package com.python.pydev.analysis.additionalinfo;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -124,6 +126,15 @@ public class AdditionalSystemInterpreterInfo extends AbstractAdditionalInfoWithB
         return getAdditionalSystemInfo(manager, interpreter, false);
     }
 
+    /**
+     * @return the infos for the interpreters which are currently loaded.
+     */
+    static List<AbstractAdditionalTokensInfo> getLoadedInfos() {
+        synchronized (additionalSystemInfoLock) {
+            return new ArrayList<AbstractAdditionalTokensInfo>(additionalSystemInfo.values());
+        }
+    }
+
     /**
      * Should only be used in tests.
      */
@@ -149,6 +160,7 @@ public class AdditionalSystemInterpreterInfo extends AbstractAdditionalInfoWithB
                 //lazy-load.
                 info = new AdditionalSystemInterpreterInfo(manager, interpreter);
                 additionalSystemInfo.put(key, info);
+                UnloadIdleSegmentsJob.scheduleIfNeeded();
 
                 if (!info.load()) {
                     try {
@@ -0,0 +1,222 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.python.pydev.core.FastBufferedReader;
+import org.python.pydev.core.FullRepIterable;
+import org.python.pydev.core.ObjectsInternPool;
+import org.python.pydev.core.ObjectsInternPool.ObjectsPoolMap;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.ClassDef;
+import org.python.pydev.parser.jython.ast.Import;
+import org.python.pydev.parser.jython.ast.ImportFrom;
+import org.python.pydev.parser.jython.ast.NameTok;
+import org.python.pydev.parser.jython.ast.aliasType;
+import org.python.pydev.parser.jython.ast.exprType;
+import org.python.pydev.parser.visitors.NodeUtils;
+import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.parser.visitors.scope.EasyASTIteratorVisitor;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+
+/**
+ * Index from the name of a class to the modules which have classes declaring it as a base.
+ *
+ * Only the last part of the base is indexed (i.e.: for class Foo(models.Model), the base is indexed as 'Model'),
+ * so, the modules found are candidates which still have to be checked (the same happens with the names gotten
+ * from NodeUtils.getParentNames(def, true) when analyzing the hierarchy).
+ *
+ * Names imported with an alias are resolved before indexing (i.e.: with 'from m import Model as M', the base of
+ * class C(M) is indexed as 'Model'). Note that the FastDefinitionsParser already resolves those in the bases it
+ * creates (it has no import nodes).
+ *
+ * Not thread-safe: access is synchronized by the lock of the additional info which owns it.
+ */
+public final class ClassHierarchyIndex {
+
+    /**
+     * Module name -> names of the bases of the classes in the module.
+     */
+    private final Map<String, Set<String>> moduleToBases = new HashMap<String, Set<String>>();
+
+    /**
+     * Base name -> names of the modules with classes which have that base (computed from moduleToBases).
+     */
+    private final Map<String, Set<String>> baseToModules = new HashMap<String, Set<String>>();
+
+    /**
+     * Adds the bases of all the classes (including inner classes) in the given ast.
+     */
+    public void add(String moduleName, SimpleNode ast) {
+        Set<String> bases = new HashSet<String>();
+        EasyASTIteratorVisitor visitor = EasyASTIteratorVisitor.create(ast);
+        Map<String, String> aliases = getImportAliases(visitor);
+        Iterator<ASTEntry> it = visitor.getClassesIterator();
+        while (it.hasNext()) {
+            ClassDef def = (ClassDef) it.next().node;
+            if (def.bases != null) {
+                for (exprType base : def.bases) {
+                    String rep = NodeUtils.getFullRepresentationString(base);
+                    if (rep != null) {
+                        if (aliases != null && rep.indexOf('.') == -1) {
+                            String imported = aliases.get(rep);
+                            if (imported != null) {
+                                rep = imported;
+                            }
+                        }
+                        rep = FullRepIterable.getLastPart(rep);
+                        if (isValidName(rep)) {
+                            bases.add(rep);
+                        }
+                    }
+                }
+            }
+        }
+        add(moduleName, bases);
+    }
+
+    /**
+     * @return a map with alias -> imported name for the names imported with an alias (or null if there's none).
+     */
+    private static Map<String, String> getImportAliases(EasyASTIteratorVisitor visitor) {
+        Map<String, String> aliases = null;
+        Iterator<ASTEntry> it = visitor.getIterator(Import.class, ImportFrom.class);
+        while (it.hasNext()) {
+            SimpleNode node = it.next().node;
+            aliasType[] names = node instanceof Import ? ((Import) node).names : ((ImportFrom) node).names;
+            if (names == null) {
+                continue;
+            }
+            for (aliasType alias : names) {
+                if (alias != null && alias.asname != null) {
+                    if (aliases == null) {
+                        aliases = new HashMap<String, String>();
+                    }
+                    aliases.put(((NameTok) alias.asname).id, ((NameTok) alias.name).id);
+                }
+            }
+        }
+        return aliases;
+    }
+
+    private static boolean isValidName(String rep) {
+        int len = rep.length();
+        if (len == 0) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (!Character.isJavaIdentifierPart(rep.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(String moduleName, Set<String> bases) {
+        remove(moduleName);
+        if (bases.size() == 0) {
+            return;
+        }
+        moduleToBases.put(moduleName, bases);
+        for (String base : bases) {
+            Set<String> modules = baseToModules.get(base);
+            if (modules == null) {
+                modules = new HashSet<String>(2);
+                baseToModules.put(base, modules);
+            }
+            modules.add(moduleName);
+        }
+    }
+
+    public void remove(String moduleName) {
+        Set<String> bases = moduleToBases.remove(moduleName);
+        if (bases == null) {
+            return;
+        }
+        for (String base : bases) {
+            Set<String> modules = baseToModules.get(base);
+            if (modules != null) {
+                modules.remove(moduleName);
+                if (modules.size() == 0) {
+                    baseToModules.remove(base);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param className the name of the class (if it's a dotted name, only the last part is considered).
+     * @return the names of the modules which have a class with the given class as a base.
+     */
+    public Set<String> getModulesWithSubclassesOf(String className) {
+        int i = className.lastIndexOf('.');
+        if (i != -1) {
+            className = className.substring(i + 1);
+        }
+        Set<String> modules = baseToModules.get(className);
+        if (modules == null) {
+            return new HashSet<String>(0);
+        }
+        return new HashSet<String>(modules);
+    }
+
+    public void clear() {
+        moduleToBases.clear();
+        baseToModules.clear();
+    }
+
+    /**
+     * Writes this index in a format that may later be restored with loadFrom.
+     */
+    public void writeTo(FastStringBuffer tempBuf) {
+        tempBuf.append("-- START CLASS HIERARCHY\n");
+        for (Entry<String, Set<String>> entry : moduleToBases.entrySet()) {
+            tempBuf.append(entry.getKey());
+            for (String base : entry.getValue()) {
+                tempBuf.append('|');
+                tempBuf.append(base);
+            }
+            tempBuf.append('\n');
+        }
+        tempBuf.append("-- END CLASS HIERARCHY\n");
+    }
+
+    /**
+     * Loads from a reader the contents written by writeTo (after the START line).
+     */
+    public static ClassHierarchyIndex loadFrom(FastBufferedReader reader, ObjectsPoolMap objectsPoolMap)
+            throws IOException {
+        ClassHierarchyIndex index = new ClassHierarchyIndex();
+        while (true) {
+            FastStringBuffer line = reader.readLine();
+            if (line == null || line.startsWith("-- ")) {
+                if (line != null && line.startsWith("-- END CLASS HIERARCHY")) {
+                    return index;
+                }
+                throw new RuntimeException("Unexpected line: " + line);
+            }
+            List<String> split = StringUtils.split(line.toString(), '|');
+            if (split.size() < 2) {
+                throw new RuntimeException("Unexpected line: " + line);
+            }
+            Set<String> bases = new HashSet<String>(split.size());
+            for (int i = 1; i < split.size(); i++) {
+                bases.add(ObjectsInternPool.internLocal(objectsPoolMap, split.get(i)));
+            }
+            index.add(ObjectsInternPool.internLocal(objectsPoolMap, split.get(0)), bases);
+        }
+    }
+}
@@ -14,6 +14,16 @@ public interface IReferenceSearches {
 
     void dispose();
 
+    /**
+     * Starts keeping the index up to date in the background (so that the first search doesn't have to wait for it).
+     */
+    void startIndexing();
+
+    /**
+     * Notifies that the given module was added, changed or removed.
+     */
+    void moduleChanged(String moduleName);
+
     // These are the indexed fields we use.
     public static String FIELD_MODULES_KEY_IO = "modules_key";
     public static String FIELD_MODULE_NAME = "module_name";
@@ -0,0 +1,223 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.AbstractSet;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A compact set of infos (used for the sets in the initials -> infos maps, which hold all the infos in the
+ * additional info).
+ *
+ * The infos are kept directly in an array with open addressing (linear probing), so, each info costs a slot in
+ * the array instead of the entry a HashSet would need for it (which is actually bigger than the info itself).
+ *
+ * Removed infos leave a marker in their slot (which is reused on an add or discarded when the array is rehashed).
+ *
+ * Note: clients are expected to synchronize the access (in the additional info, all the accesses are done
+ * while holding its lock).
+ */
+final class InfoSet extends AbstractSet<IInfo> {
+
+    private static final Object REMOVED = new Object();
+
+    private static final Object[] EMPTY = new Object[0];
+
+    /**
+     * Slots with the infos (null for an empty slot and REMOVED for a removed info). The length is 0 or a power
+     * of 2.
+     */
+    private Object[] table;
+
+    private int size;
+
+    /**
+     * Number of slots used (infos and removed markers).
+     */
+    private int used;
+
+    private int modCount;
+
+    InfoSet() {
+        table = EMPTY;
+    }
+
+    InfoSet(int expectedSize) {
+        table = expectedSize <= 0 ? EMPTY : new Object[getCapacityFor(expectedSize)];
+    }
+
+    /**
+     * @return a power of 2 which keeps the load factor at most 0.75 for the given size.
+     */
+    private static int getCapacityFor(int size) {
+        int capacity = 4;
+        while (capacity - (capacity >> 2) < size) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int indexFor(Object o, int mask) {
+        int h = o.hashCode();
+        h ^= (h >>> 16);
+        return h & mask;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o != null && indexOf(o) >= 0;
+    }
+
+    private int indexOf(Object o) {
+        Object[] tab = table;
+        if (tab.length == 0) {
+            return -1;
+        }
+        int mask = tab.length - 1;
+        int i = indexFor(o, mask);
+        while (true) {
+            Object current = tab[i];
+            if (current == null) {
+                return -1;
+            }
+            if (current != REMOVED && current.equals(o)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+
+    @Override
+    public boolean add(IInfo info) {
+        if (info == null) {
+            throw new NullPointerException();
+        }
+        if (indexOf(info) >= 0) {
+            return false;
+        }
+        if (used + 1 > table.length - (table.length >> 2)) {
+            rehash(getCapacityFor(size + 1));
+        }
+        Object[] tab = table;
+        int mask = tab.length - 1;
+        int i = indexFor(info, mask);
+        while (tab[i] != null && tab[i] != REMOVED) {
+            i = (i + 1) & mask;
+        }
+        if (tab[i] == null) {
+            used++;
+        }
+        tab[i] = info;
+        size++;
+        modCount++;
+        return true;
+    }
+
+    private void rehash(int capacity) {
+        Object[] oldTable = table;
+        Object[] tab = new Object[capacity];
+        int mask = capacity - 1;
+        for (Object o : oldTable) {
+            if (o != null && o != REMOVED) {
+                int i = indexFor(o, mask);
+                while (tab[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                tab[i] = o;
+            }
+        }
+        table = tab;
+        used = size;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        int i = indexOf(o);
+        if (i < 0) {
+            return false;
+        }
+        removeAt(i);
+        return true;
+    }
+
+    private void removeAt(int i) {
+        table[i] = REMOVED;
+        size--;
+        modCount++;
+        if (size == 0) {
+            //no need to keep the markers around
+            table = EMPTY;
+            used = 0;
+        }
+    }
+
+    @Override
+    public void clear() {
+        table = EMPTY;
+        size = 0;
+        used = 0;
+        modCount++;
+    }
+
+    @Override
+    public Iterator<IInfo> iterator() {
+        return new Iterator<IInfo>() {
+
+            private final Object[] tab = table;
+            private int next = advance(0);
+            private int last = -1;
+            private int expectedModCount = modCount;
+
+            private int advance(int i) {
+                while (i < tab.length && (tab[i] == null || tab[i] == REMOVED)) {
+                    i++;
+                }
+                return i;
+            }
+
+            public boolean hasNext() {
+                return next < tab.length;
+            }
+
+            public IInfo next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= tab.length) {
+                    throw new NoSuchElementException();
+                }
+                last = next;
+                next = advance(next + 1);
+                return (IInfo) tab[last];
+            }
+
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount || tab != table) {
+                    throw new ConcurrentModificationException();
+                }
+                //note: the table is discarded when the last info is removed, but then, there's nothing else to
+                //iterate in the original table.
+                removeAt(last);
+                last = -1;
+                expectedModCount = modCount;
+            }
+        };
+    }
+}
@@ -0,0 +1,180 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+
+import com.python.pydev.analysis.additionalinfo.TreeBinaryIO.MappedInfoReader;
+
+/**
+ * A set of infos which is backed by the records in a file mapped by {@link TreeBinaryIO}.
+ *
+ * The infos are only created when the set is actually accessed (afterwards it works as a regular InfoSet).
+ *
+ * While it's not changed, the created infos may be discarded when the set is not accessed for some time (they're
+ * created again from the mapped file if it's accessed later on).
+ *
+ * Note: clients are expected to synchronize the access (in the additional info, all the accesses are done
+ * while holding its lock).
+ */
+final class LazyInfoSet extends AbstractSet<IInfo> {
+
+    private MappedInfoReader reader;
+    private final int firstInfo;
+    private final int infosCount;
+    private InfoSet delegate;
+
+    /**
+     * Whether the set was changed after it was materialized (in which case it may no longer be unloaded).
+     */
+    private boolean modified;
+
+    private long lastAccess;
+
+    LazyInfoSet(MappedInfoReader reader, int firstInfo, int infosCount) {
+        this.reader = reader;
+        this.firstInfo = firstInfo;
+        this.infosCount = infosCount;
+    }
+
+    private InfoSet materialize() {
+        lastAccess = System.currentTimeMillis();
+        if (delegate == null) {
+            InfoSet set = new InfoSet(infosCount);
+            int end = firstInfo + infosCount;
+            for (int i = firstInfo; i < end; i++) {
+                IInfo info = reader.createInfo(i);
+                if (info != null) {
+                    set.add(info);
+                }
+            }
+            delegate = set;
+        }
+        return delegate;
+    }
+
+    /**
+     * Creates the infos in this set (if still not created).
+     */
+    void preload() {
+        materialize();
+    }
+
+    /**
+     * Discards the created infos if the set was not accessed in the given time (and was not changed).
+     *
+     * @return true if the infos were discarded.
+     */
+    boolean unloadIfIdle(long now, long idleMillis) {
+        if (delegate != null && !modified && reader != null && now - lastAccess >= idleMillis) {
+            delegate = null;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return false if we're sure that no info in this set was declared in the given module (without
+     * having to materialize the set) and true otherwise.
+     */
+    boolean mayContainModule(String moduleName) {
+        if (delegate != null) {
+            return true;
+        }
+        int moduleId = reader.getStringId(moduleName);
+        if (moduleId < 0) {
+            return false;
+        }
+        int end = firstInfo + infosCount;
+        for (int i = firstInfo; i < end; i++) {
+            if (reader.getInfoModuleId(i) == moduleId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    boolean isMaterialized() {
+        return delegate != null;
+    }
+
+    /**
+     * Only valid while the set is not materialized (the records in the reader are only guaranteed to match
+     * the contents of the set while it's not changed).
+     */
+    MappedInfoReader getReader() {
+        return reader;
+    }
+
+    int getFirstInfo() {
+        return firstInfo;
+    }
+
+    @Override
+    public Iterator<IInfo> iterator() {
+        final Iterator<IInfo> it = materialize().iterator();
+        return new Iterator<IInfo>() {
+
+            public boolean hasNext() {
+                return it.hasNext();
+            }
+
+            public IInfo next() {
+                return it.next();
+            }
+
+            public void remove() {
+                it.remove();
+                modified = true;
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        if (delegate == null) {
+            return infosCount;
+        }
+        return delegate.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return materialize().contains(o);
+    }
+
+    @Override
+    public boolean add(IInfo e) {
+        if (materialize().add(e)) {
+            modified = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (materialize().remove(o)) {
+            modified = true;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        delegate = new InfoSet();
+        modified = true;
+        reader = null;
+    }
+}
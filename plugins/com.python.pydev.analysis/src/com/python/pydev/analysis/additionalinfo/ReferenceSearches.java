@@ -172,6 +172,16 @@ public class ReferenceSearches implements IReferenceSearches {
 
     }
 
+    @Override
+    public void startIndexing() {
+        //Nothing to do: there's no index (the modules are read during the search).
+    }
+
+    @Override
+    public void moduleChanged(String moduleName) {
+        //Nothing to do: the modules are always read during the search.
+    }
+
     private void fill(FastStringBuffer bufFileContents, InputStream stream) throws IOException {
         for (int i = 0; i < 5; i++) {
             try {
@@ -0,0 +1,429 @@
+/**
+ * Copyright (c) 2015 by Brainwy Software Ltda. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.zip.ZipFile;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.ModulesKeyForZip;
+import org.python.pydev.core.cache.CompleteIndexKey;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.editor.codecompletion.revisited.javaintegration.ModulesKeyForJava;
+import org.python.pydev.shared_core.index.IndexApi;
+import org.python.pydev.shared_core.index.IndexApi.DocumentInfo;
+import org.python.pydev.shared_core.index.IndexApi.IDocumentsVisitor;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Keeps the lucene index used in the reference searches synchronized with the modules of an
+ * {@link AbstractAdditionalDependencyInfo}.
+ *
+ * The additional info notifies the modules which changed (which in turn is triggered by the resource deltas
+ * handled in the builder) and a background job applies those changes to the index in batches (committing
+ * periodically). The first synchronization compares everything in the index with the current modules.
+ *
+ * Searches call {@link #waitUntilIndexed(IProgressMonitor)} and then search in a near-real-time reader, so, they
+ * don't hold the write lock (and many searches may run concurrently).
+ */
+public class ReferenceSearchesLuceneIndexer {
+
+    private static final boolean DEBUG = false;
+
+    /**
+     * A commit is done whenever this number of documents is added (and at the end of each synchronization).
+     */
+    private static final int COMMIT_EACH_N_DOCS = 500;
+
+    private final IndexApi indexApi;
+
+    private final WeakReference<AbstractAdditionalDependencyInfo> additionalInfo;
+
+    private final Object stateLock = new Object();
+
+    /**
+     * Names of the modules which changed since the last synchronization (guarded by stateLock).
+     */
+    private Set<String> changedModules = new HashSet<>();
+
+    /**
+     * Whether the whole index must be compared with the current modules (guarded by stateLock).
+     */
+    private boolean fullSyncRequested = true;
+
+    /**
+     * Incremented whenever a change is notified (guarded by stateLock).
+     */
+    private long requestedVersion = 1;
+
+    /**
+     * The version which is already in the index (guarded by stateLock).
+     */
+    private long indexedVersion = 0;
+
+    private volatile boolean disposed = false;
+
+    /**
+     * Module name -> key (with the modified time) for the documents in the index (only accessed in the job).
+     */
+    private Map<String, CompleteIndexKey> indexed;
+
+    private final Job job;
+
+    public ReferenceSearchesLuceneIndexer(AbstractAdditionalDependencyInfo additionalInfo, IndexApi indexApi) {
+        this.additionalInfo = new WeakReference<>(additionalInfo);
+        this.indexApi = indexApi;
+        this.job = new Job("Index modules for searches: " + additionalInfo.getUIRepresentation()) {
+
+            @Override
+            protected IStatus run(IProgressMonitor monitor) {
+                synchronizeIndex(monitor);
+                return Status.OK_STATUS;
+            }
+        };
+        this.job.setPriority(Job.DECORATE);
+        this.job.setSystem(true);
+    }
+
+    public IndexApi getIndexApi() {
+        return indexApi;
+    }
+
+    /**
+     * Notifies that a module was added, changed or removed.
+     */
+    public void moduleChanged(String moduleName) {
+        synchronized (stateLock) {
+            changedModules.add(moduleName);
+            requestedVersion++;
+        }
+        if (!disposed) {
+            job.schedule(200);
+        }
+    }
+
+    /**
+     * Schedules the synchronization of the index with the current modules.
+     */
+    public void start() {
+        if (!disposed) {
+            job.schedule();
+        }
+    }
+
+    /**
+     * Blocks until all the changes notified up to this point are in the index.
+     */
+    public void waitUntilIndexed(IProgressMonitor monitor) throws OperationCanceledException {
+        synchronized (stateLock) {
+            long targetVersion = requestedVersion;
+            while (indexedVersion < targetVersion) {
+                if (disposed) {
+                    return;
+                }
+                if (monitor.isCanceled()) {
+                    throw new OperationCanceledException();
+                }
+                if (job.getState() == Job.NONE) {
+                    job.schedule();
+                }
+                try {
+                    stateLock.wait(100);
+                } catch (InterruptedException e) {
+                    throw new OperationCanceledException();
+                }
+            }
+        }
+    }
+
+    public void dispose() {
+        disposed = true;
+        job.cancel();
+        synchronized (stateLock) {
+            stateLock.notifyAll();
+        }
+    }
+
+    private void synchronizeIndex(IProgressMonitor monitor) {
+        AbstractAdditionalDependencyInfo info = additionalInfo.get();
+        if (info == null) {
+            dispose(); //Already collected: nothing else to index.
+            return;
+        }
+        if (disposed) {
+            return;
+        }
+        // Wait for the integrity check before getting the keys!
+        info.waitForIntegrityCheck();
+
+        long version;
+        boolean fullSync;
+        Set<String> changed;
+        synchronized (stateLock) {
+            version = requestedVersion;
+            fullSync = fullSyncRequested || indexed == null;
+            changed = changedModules;
+            changedModules = new HashSet<>();
+        }
+
+        boolean finished = false;
+        boolean cancelled = false;
+        try {
+            synchronized (indexApi.getLock()) {
+                if (indexed == null) {
+                    indexed = loadIndexed();
+                }
+                Map<CompleteIndexKey, CompleteIndexKey> currentKeys = info.completeIndex.keys();
+                Collection<String> modulesToCheck;
+                if (fullSync) {
+                    modulesToCheck = new HashSet<>(indexed.keySet());
+                    for (CompleteIndexKey key : currentKeys.keySet()) {
+                        modulesToCheck.add(key.key.name);
+                    }
+                } else {
+                    modulesToCheck = changed;
+                }
+                applyChanges(modulesToCheck, currentKeys, monitor);
+            }
+            finished = true;
+        } catch (OperationCanceledException e) {
+            cancelled = true; //Ok, the pending changes will be applied in the next run.
+        } catch (Throwable e) {
+            Log.log(e);
+        } finally {
+            synchronized (stateLock) {
+                if (finished) {
+                    if (fullSync) {
+                        fullSyncRequested = false;
+                    }
+                } else {
+                    //Something went wrong or it was cancelled: check everything again in the next run.
+                    fullSyncRequested = true;
+                    changedModules.addAll(changed);
+                }
+                if (!cancelled) {
+                    //Note: on errors the searches aren't blocked (they'll use what's available in the index).
+                    indexedVersion = version;
+                }
+                stateLock.notifyAll();
+            }
+        }
+    }
+
+    private Map<String, CompleteIndexKey> loadIndexed() {
+        final Map<String, CompleteIndexKey> ret = new HashMap<>();
+        IDocumentsVisitor visitor = new IDocumentsVisitor() {
+
+            @Override
+            public void visit(DocumentInfo documentInfo) {
+                ModulesKey keyFromIO = ModulesKey.fromIO(documentInfo.get(IReferenceSearches.FIELD_MODULES_KEY_IO));
+                String modifiedTime = documentInfo.get(IReferenceSearches.FIELD_MODIFIED_TIME);
+                ret.put(keyFromIO.name, new CompleteIndexKey(keyFromIO, Long.parseLong(modifiedTime)));
+            }
+        };
+        try {
+            indexApi.visitAllDocs(visitor, IReferenceSearches.FIELD_MODULES_KEY_IO,
+                    IReferenceSearches.FIELD_MODIFIED_TIME);
+        } catch (IOException e) {
+            Log.log(e);
+        }
+        return ret;
+    }
+
+    /**
+     * Compares the given modules in the index with the current modules and updates the index accordingly.
+     */
+    private void applyChanges(Collection<String> modulesToCheck, Map<CompleteIndexKey, CompleteIndexKey> currentKeys,
+            IProgressMonitor monitor) throws OperationCanceledException {
+        List<CompleteIndexKey> docsToRemove = new ArrayList<>();
+        List<CompleteIndexKey> modulesToAdd = new ArrayList<>();
+        Map<File, List<CompleteIndexKey>> zipModulesToAdd = new HashMap<>();
+
+        for (String moduleName : modulesToCheck) {
+            CompleteIndexKey indexModule = indexed.get(moduleName);
+            CompleteIndexKey currentModule = currentKeys.get(new CompleteIndexKey(moduleName));
+            if (currentModule != null && !isIndexable(currentModule.key)) {
+                currentModule = null;
+            }
+
+            if (indexModule == null) {
+                if (currentModule != null) {
+                    add(modulesToAdd, zipModulesToAdd, currentModule);
+                }
+
+            } else if (currentModule == null) {
+                docsToRemove.add(indexModule);
+
+            } else if (changed(indexModule, currentModule)) {
+                docsToRemove.add(indexModule);
+                add(modulesToAdd, zipModulesToAdd, currentModule);
+            }
+        }
+        checkCancelled(monitor);
+
+        if (DEBUG) {
+            System.out.println("Reference searches index: removing: " + docsToRemove.size() + " adding: "
+                    + modulesToAdd.size() + " (and modules from " + zipModulesToAdd.size() + " zip files).");
+        }
+
+        FastStringBuffer tempBuf = new FastStringBuffer();
+        if (docsToRemove.size() > 0) {
+            Collection<String> lstToRemove = new ArrayList<>(docsToRemove.size());
+            for (CompleteIndexKey key : docsToRemove) {
+                key.key.toIO(tempBuf.clear());
+                lstToRemove.add(tempBuf.toString());
+            }
+            Map<String, Collection<String>> fieldToValuesToRemove = new HashMap<>();
+            fieldToValuesToRemove.put(IReferenceSearches.FIELD_MODULES_KEY_IO, lstToRemove);
+            try {
+                indexApi.removeDocs(fieldToValuesToRemove);
+                for (CompleteIndexKey key : docsToRemove) {
+                    indexed.remove(key.key.name);
+                }
+            } catch (IOException e) {
+                Log.log(e);
+            }
+        }
+
+        int added = 0;
+        for (CompleteIndexKey key : modulesToAdd) {
+            File f = key.key.file;
+            if (f.exists()) {
+                try (BufferedReader reader = new BufferedReader(new FileReader(f));) {
+                    indexApi.index(createFieldsToIndex(key, tempBuf), reader, IReferenceSearches.FIELD_CONTENTS);
+                    indexed.put(key.key.name, key);
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+                added = commitIfNeeded(added + 1, monitor);
+            }
+        }
+
+        for (Entry<File, List<CompleteIndexKey>> entry : zipModulesToAdd.entrySet()) {
+            File f = entry.getKey();
+            if (f.exists()) {
+                try (ZipFile zipFile = new ZipFile(f, ZipFile.OPEN_READ);) {
+                    for (CompleteIndexKey key : entry.getValue()) {
+                        ModulesKeyForZip forZip = (ModulesKeyForZip) key.key;
+                        try (InputStream inputStream = zipFile.getInputStream(zipFile.getEntry(forZip.zipModulePath));) {
+                            InputStreamReader reader = new InputStreamReader(inputStream, "utf-8");
+                            indexApi.index(createFieldsToIndex(key, tempBuf), reader, IReferenceSearches.FIELD_CONTENTS);
+                            indexed.put(key.key.name, key);
+                        }
+                        added = commitIfNeeded(added + 1, monitor);
+                    }
+                } catch (OperationCanceledException e) {
+                    throw e;
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+            }
+        }
+
+        if (docsToRemove.size() > 0 || added > 0) {
+            try {
+                indexApi.commit();
+            } catch (IOException e) {
+                Log.log(e);
+            }
+        }
+        //Make the changes visible to the searches.
+        indexApi.refreshSearcher();
+    }
+
+    /**
+     * @return the number of documents added after the last commit.
+     */
+    private int commitIfNeeded(int added, IProgressMonitor monitor) throws OperationCanceledException {
+        if (added >= COMMIT_EACH_N_DOCS) {
+            try {
+                indexApi.commit();
+            } catch (IOException e) {
+                Log.log(e);
+            }
+            added = 0;
+        }
+        checkCancelled(monitor);
+        return added;
+    }
+
+    private void checkCancelled(IProgressMonitor monitor) throws OperationCanceledException {
+        if (monitor.isCanceled() || disposed) {
+            throw new OperationCanceledException();
+        }
+    }
+
+    private static boolean isIndexable(ModulesKey modulesKey) {
+        if (modulesKey == null || modulesKey instanceof ModulesKeyForJava || modulesKey.file == null
+                || !modulesKey.file.isFile()) {
+            //we can't do anything with it.
+            return false;
+        }
+        if (modulesKey instanceof ModulesKeyForZip) {
+            // Ignore folders in zips (happens for jython folders which may not have an __init__.py)
+            return ((ModulesKeyForZip) modulesKey).isFile;
+        }
+        return true;
+    }
+
+    private static boolean changed(CompleteIndexKey indexModule, CompleteIndexKey currentModule) {
+        if (currentModule.lastModified != indexModule.lastModified) {
+            return true;
+        }
+        ModulesKey keyCurrentModule = currentModule.key;
+        ModulesKey keyIndexModule = indexModule.key;
+        boolean currentIsZip = keyCurrentModule instanceof ModulesKeyForZip;
+        boolean indexIsZip = keyIndexModule instanceof ModulesKeyForZip;
+        if (currentIsZip != indexIsZip) {
+            return true;
+        }
+        return keyIndexModule.file == null || !keyCurrentModule.file.equals(keyIndexModule.file);
+    }
+
+    private static Map<String, String> createFieldsToIndex(CompleteIndexKey key, FastStringBuffer buf) {
+        key.key.toIO(buf.clear());
+        Map<String, String> fieldsToIndex = new HashMap<>();
+        fieldsToIndex.put(IReferenceSearches.FIELD_MODULES_KEY_IO, buf.toString());
+        fieldsToIndex.put(IReferenceSearches.FIELD_MODULE_NAME, key.key.name);
+        fieldsToIndex.put(IReferenceSearches.FIELD_MODIFIED_TIME, String.valueOf(key.lastModified));
+        return fieldsToIndex;
+    }
+
+    private static void add(List<CompleteIndexKey> modulesToAdd, Map<File, List<CompleteIndexKey>> zipModulesToAdd,
+            CompleteIndexKey currentModule) {
+        if (currentModule.key instanceof ModulesKeyForZip) {
+            List<CompleteIndexKey> lst = zipModulesToAdd.get(currentModule.key.file);
+            if (lst == null) {
+                lst = new ArrayList<>();
+                zipModulesToAdd.put(currentModule.key.file, lst);
+            }
+            lst.add(currentModule);
+
+        } else {
+            modulesToAdd.add(currentModule);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.structure.Tuple;
+
+/**
+ * Keeps how many times each segment of the additional info (the infos for some initials in the top level or
+ * inner tree) was accessed, so that the hottest segments may be preloaded.
+ *
+ * The stats are persisted along with the additional info and the counts of previous sessions are halved when
+ * loaded (so that the segments which are no longer used eventually stop being preloaded).
+ *
+ * Note: clients are expected to synchronize the access (in the additional info, all the accesses are done
+ * while holding its lock).
+ */
+final class SegmentAccessStats {
+
+    /**
+     * Segments with less accesses than this are not persisted.
+     */
+    private static final int MIN_COUNT_TO_PERSIST = 2;
+
+    /**
+     * Key is the tree (TOP_LEVEL or INNER) and the initials. Value is the number of accesses.
+     */
+    private final Map<Tuple<Integer, String>, int[]> counts = new HashMap<Tuple<Integer, String>, int[]>();
+
+    private boolean changed;
+
+    void access(int doOn, String initials) {
+        Tuple<Integer, String> key = new Tuple<Integer, String>(doOn, initials);
+        int[] count = counts.get(key);
+        if (count == null) {
+            count = new int[1];
+            counts.put(key, count);
+        }
+        count[0]++;
+        changed = true;
+    }
+
+    int getCount(int doOn, String initials) {
+        int[] count = counts.get(new Tuple<Integer, String>(doOn, initials));
+        return count == null ? 0 : count[0];
+    }
+
+    /**
+     * @return the segments with most accesses (tree and initials), the hottest first.
+     */
+    List<Tuple<Integer, String>> getHottest(int max) {
+        List<Entry<Tuple<Integer, String>, int[]>> entries = new ArrayList<Entry<Tuple<Integer, String>, int[]>>(
+                counts.entrySet());
+        Collections.sort(entries, new Comparator<Entry<Tuple<Integer, String>, int[]>>() {
+
+            public int compare(Entry<Tuple<Integer, String>, int[]> o1, Entry<Tuple<Integer, String>, int[]> o2) {
+                return o2.getValue()[0] - o1.getValue()[0];
+            }
+        });
+        List<Tuple<Integer, String>> ret = new ArrayList<Tuple<Integer, String>>(Math.min(max, entries.size()));
+        for (int i = 0; i < entries.size() && i < max; i++) {
+            ret.add(entries.get(i).getKey());
+        }
+        return ret;
+    }
+
+    void clear() {
+        counts.clear();
+        changed = true;
+    }
+
+    /**
+     * Saves the stats in the given file if they changed since they were loaded/saved.
+     */
+    void saveTo(File file) {
+        if (!changed) {
+            return;
+        }
+        FastStringBuffer buf = new FastStringBuffer(counts.size() * 12);
+        for (Entry<Tuple<Integer, String>, int[]> entry : counts.entrySet()) {
+            int count = entry.getValue()[0];
+            if (count >= MIN_COUNT_TO_PERSIST) {
+                Tuple<Integer, String> key = entry.getKey();
+                buf.append(key.o1.intValue()).append('|').append(count).append('|').append(key.o2).append('\n');
+            }
+        }
+        FileUtils.writeStrToFile(buf.toString(), file);
+        changed = false;
+    }
+
+    /**
+     * Loads the stats from the given file (halving the counts found).
+     */
+    void loadFrom(File file) {
+        counts.clear();
+        changed = false;
+        if (!file.exists()) {
+            return;
+        }
+        try {
+            for (String line : StringUtils.splitInLines(FileUtils.getFileContents(file), false)) {
+                List<String> parts = StringUtils.split(line, '|', 3);
+                if (parts.size() == 3) {
+                    int count = Integer.parseInt(parts.get(1)) / 2;
+                    if (count > 0) {
+                        counts.put(new Tuple<Integer, String>(Integer.parseInt(parts.get(0)), parts.get(2)),
+                                new int[] { count });
+                    }
+                }
+            }
+        } catch (NumberFormatException e) {
+            //Corrupted: just start over.
+            counts.clear();
+        }
+    }
+}
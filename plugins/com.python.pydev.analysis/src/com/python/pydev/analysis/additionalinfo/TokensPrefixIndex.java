@@ -0,0 +1,426 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable index of infos which allows getting the infos whose name is equal to/starts with some qualifier
+ * (case-insensitive) or matches some camel-case abbreviation (i.e.: gTSW matches getTokensStartingWith and
+ * get_tokens_starting_with) without having to go through all the infos.
+ *
+ * The infos are kept sorted by their names (case-insensitive), so, the infos starting with a given prefix are
+ * contiguous and found with a binary search. For camel-case, the infos are also kept sorted by the initials of
+ * the words in their names (i.e.: gtsw for getTokensStartingWith) and the candidates found are then checked
+ * against the whole abbreviation.
+ *
+ * The results are always given in the order of the names, so, when a maximum number of results is requested,
+ * the first ones (in alphabetical order) are returned.
+ *
+ * When the infos change, a new index may be created from the previous one with update() (which only has to sort
+ * the added infos).
+ */
+public final class TokensPrefixIndex {
+
+    static final Comparator<IInfo> NAME_COMPARATOR = new Comparator<IInfo>() {
+
+        public int compare(IInfo o1, IInfo o2) {
+            return String.CASE_INSENSITIVE_ORDER.compare(o1.getName(), o2.getName());
+        }
+    };
+
+    /**
+     * The infos sorted by name (case-insensitive).
+     */
+    private final IInfo[] infos;
+
+    /**
+     * Indexes in infos sorted by the initials of the names.
+     */
+    private final int[] initialsOrder;
+
+    private TokensPrefixIndex(IInfo[] infos, int[] initialsOrder) {
+        this.infos = infos;
+        this.initialsOrder = initialsOrder;
+    }
+
+    /**
+     * Creates an index with the infos in the given sets.
+     */
+    public static TokensPrefixIndex create(Collection<Set<IInfo>> sets) {
+        int size = 0;
+        for (Set<IInfo> set : sets) {
+            size += set.size();
+        }
+        IInfo[] infos = new IInfo[size];
+        int i = 0;
+        for (Set<IInfo> set : sets) {
+            for (IInfo info : set) {
+                if (i < size && info != null && info.getName() != null) {
+                    infos[i++] = info;
+                }
+            }
+        }
+        if (i != size) {
+            infos = Arrays.copyOf(infos, i);
+        }
+        Arrays.sort(infos, NAME_COMPARATOR);
+
+        final String[] initials = new String[infos.length];
+        Integer[] order = new Integer[infos.length];
+        for (int j = 0; j < infos.length; j++) {
+            initials[j] = getInitials(infos[j].getName());
+            order[j] = j;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            public int compare(Integer o1, Integer o2) {
+                int ret = initials[o1].compareTo(initials[o2]);
+                if (ret == 0) {
+                    //keep the alphabetical order among the same initials
+                    ret = o1.compareTo(o2);
+                }
+                return ret;
+            }
+        });
+        int[] initialsOrder = new int[order.length];
+        for (int j = 0; j < order.length; j++) {
+            initialsOrder[j] = order[j];
+        }
+        return new TokensPrefixIndex(infos, initialsOrder);
+    }
+
+    /**
+     * Creates a new index with the changes done to the infos after this index was created (instead of sorting all
+     * the infos again, the infos kept are already sorted, so, only the added infos are sorted and then merged).
+     *
+     * @param added the infos added.
+     * @param removedModules the infos declared in these modules are not kept (note that the added infos are always
+     * kept -- so, if the infos of a module are removed and then added again, the removed ones must not be passed in
+     * added).
+     */
+    public TokensPrefixIndex update(Collection<IInfo> added, Set<String> removedModules) {
+        //the kept infos (and the new index of each kept info -- or -1 if removed)
+        int[] oldToKept = new int[infos.length];
+        IInfo[] kept = new IInfo[infos.length];
+        int keptLen = 0;
+        for (int i = 0; i < infos.length; i++) {
+            IInfo info = infos[i];
+            if (removedModules.contains(info.getDeclaringModuleName())) {
+                oldToKept[i] = -1;
+            } else {
+                oldToKept[i] = keptLen;
+                kept[keptLen++] = info;
+            }
+        }
+
+        IInfo[] addedArray = new IInfo[added.size()];
+        int addedLen = 0;
+        for (IInfo info : added) {
+            if (info != null && info.getName() != null && addedLen < addedArray.length) {
+                addedArray[addedLen++] = info;
+            }
+        }
+        addedArray = Arrays.copyOf(addedArray, addedLen);
+        Arrays.sort(addedArray, NAME_COMPARATOR);
+
+        //merge the kept and added infos (keeping the new index of each one).
+        IInfo[] merged = new IInfo[keptLen + addedLen];
+        int[] keptToMerged = new int[keptLen];
+        int[] addedToMerged = new int[addedLen];
+        int k = 0;
+        int a = 0;
+        int m = 0;
+        while (k < keptLen || a < addedLen) {
+            if (a == addedLen || (k < keptLen && NAME_COMPARATOR.compare(kept[k], addedArray[a]) <= 0)) {
+                keptToMerged[k] = m;
+                merged[m++] = kept[k++];
+            } else {
+                addedToMerged[a] = m;
+                merged[m++] = addedArray[a++];
+            }
+        }
+
+        //the kept infos are still in the order of the initials (and among the same initials, in the order of
+        //the names, as the merge doesn't change their relative order), so, only the added ones must be sorted.
+        int[] keptInitialsOrder = new int[keptLen];
+        int keptInitialsLen = 0;
+        for (int i = 0; i < initialsOrder.length; i++) {
+            int keptIndex = oldToKept[initialsOrder[i]];
+            if (keptIndex != -1) {
+                keptInitialsOrder[keptInitialsLen++] = keptToMerged[keptIndex];
+            }
+        }
+        final String[] addedInitials = new String[addedLen];
+        Integer[] addedOrder = new Integer[addedLen];
+        for (int j = 0; j < addedLen; j++) {
+            addedInitials[j] = getInitials(addedArray[j].getName());
+            addedOrder[j] = j;
+        }
+        Arrays.sort(addedOrder, new Comparator<Integer>() {
+
+            public int compare(Integer o1, Integer o2) {
+                int ret = addedInitials[o1].compareTo(addedInitials[o2]);
+                if (ret == 0) {
+                    ret = o1.compareTo(o2);
+                }
+                return ret;
+            }
+        });
+
+        int[] mergedInitialsOrder = new int[merged.length];
+        k = 0;
+        a = 0;
+        m = 0;
+        String keptInitials = null;
+        while (k < keptInitialsLen || a < addedLen) {
+            boolean takeKept;
+            if (a == addedLen) {
+                takeKept = true;
+            } else if (k == keptInitialsLen) {
+                takeKept = false;
+            } else {
+                if (keptInitials == null) {
+                    keptInitials = getInitials(merged[keptInitialsOrder[k]].getName());
+                }
+                int addedIndex = addedOrder[a];
+                int ret = keptInitials.compareTo(addedInitials[addedIndex]);
+                takeKept = ret < 0 || (ret == 0 && keptInitialsOrder[k] < addedToMerged[addedIndex]);
+            }
+            if (takeKept) {
+                mergedInitialsOrder[m++] = keptInitialsOrder[k++];
+                keptInitials = null;
+            } else {
+                mergedInitialsOrder[m++] = addedToMerged[addedOrder[a++]];
+            }
+        }
+        return new TokensPrefixIndex(merged, mergedInitialsOrder);
+    }
+
+    public int size() {
+        return infos.length;
+    }
+
+    /**
+     * @return the index of the first info whose name is >= the given prefix (case-insensitive).
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = infos.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (String.CASE_INSENSITIVE_ORDER.compare(infos[mid].getName(), prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Adds to the result the infos whose name starts with the given prefix (case-insensitive).
+     *
+     * @param maxResults the maximum number of infos to add (<= 0 means no limit).
+     * @return the number of infos added.
+     */
+    public int getStartingWith(String prefix, Collection<IInfo> result, int maxResults) {
+        int added = 0;
+        int len = prefix.length();
+        for (int i = lowerBound(prefix); i < infos.length; i++) {
+            IInfo info = infos[i];
+            if (!info.getName().regionMatches(true, 0, prefix, 0, len)) {
+                break;
+            }
+            result.add(info);
+            added++;
+            if (added == maxResults) {
+                break;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds to the result the infos whose name is equal to the given name.
+     *
+     * @param maxResults the maximum number of infos to add (<= 0 means no limit).
+     * @return the number of infos added.
+     */
+    public int getEqualTo(String name, boolean ignoreCase, Collection<IInfo> result, int maxResults) {
+        int added = 0;
+        for (int i = lowerBound(name); i < infos.length; i++) {
+            IInfo info = infos[i];
+            String infoName = info.getName();
+            if (!infoName.equalsIgnoreCase(name)) {
+                break;
+            }
+            if (ignoreCase || infoName.equals(name)) {
+                result.add(info);
+                added++;
+                if (added == maxResults) {
+                    break;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Adds to the result the infos whose name matches the given camel-case abbreviation (see matchesCamelCase).
+     *
+     * Note that the results are in the order of the initials of the names (and alphabetical among the same
+     * initials).
+     *
+     * @param maxResults the maximum number of infos to add (<= 0 means no limit).
+     * @return the number of infos added.
+     */
+    public int getMatchingCamelCase(String abbreviation, Collection<IInfo> result, int maxResults) {
+        List<String> segments = getAbbreviationSegments(abbreviation);
+        if (segments.size() == 0) {
+            return 0;
+        }
+        char[] chars = new char[segments.size()];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(segments.get(i).charAt(0));
+        }
+        String initialsPrefix = new String(chars);
+
+        //binary search for the first info whose initials are >= the initials of the abbreviation.
+        int low = 0;
+        int high = initialsOrder.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (getInitials(infos[initialsOrder[mid]].getName()).compareTo(initialsPrefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        int added = 0;
+        for (int i = low; i < initialsOrder.length; i++) {
+            IInfo info = infos[initialsOrder[i]];
+            String name = info.getName();
+            if (!getInitials(name).startsWith(initialsPrefix)) {
+                break;
+            }
+            if (matchesSegments(segments, name)) {
+                result.add(info);
+                added++;
+                if (added == maxResults) {
+                    break;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @return true if the given qualifier has more than one segment when considered as a camel-case abbreviation
+     * (i.e.: gTSW, getTSW or get_t_s_w) -- for a qualifier with a single segment, matching as camel-case is the
+     * same as matching as a prefix.
+     */
+    public static boolean isCamelCaseAbbreviation(String qualifier) {
+        return getAbbreviationSegments(qualifier).size() > 1;
+    }
+
+    /**
+     * @return true if the given name matches the abbreviation: the abbreviation is split in segments (which start
+     * at each uppercase char or after an underscore) and each segment must be the start of the corresponding word
+     * in the name (case-insensitive). I.e.: gTSW, getTokSW and get_t_s match getTokensStartingWith.
+     */
+    public static boolean matchesCamelCase(String abbreviation, String name) {
+        List<String> segments = getAbbreviationSegments(abbreviation);
+        return segments.size() > 0 && matchesSegments(segments, name);
+    }
+
+    private static boolean matchesSegments(List<String> segments, String name) {
+        int[] wordStarts = getWordStarts(name);
+        if (wordStarts.length < segments.size()) {
+            return false;
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            String segment = segments.get(i);
+            if (!name.regionMatches(true, wordStarts[i], segment, 0, segment.length())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static List<String> getAbbreviationSegments(String abbreviation) {
+        List<String> segments = new ArrayList<String>();
+        int len = abbreviation.length();
+        int start = -1;
+        for (int i = 0; i < len; i++) {
+            char c = abbreviation.charAt(i);
+            if (c == '_') {
+                if (start != -1) {
+                    segments.add(abbreviation.substring(start, i));
+                    start = -1;
+                }
+            } else if (start == -1) {
+                start = i;
+            } else if (Character.isUpperCase(c)) {
+                segments.add(abbreviation.substring(start, i));
+                start = i;
+            }
+        }
+        if (start != -1) {
+            segments.add(abbreviation.substring(start));
+        }
+        return segments;
+    }
+
+    /**
+     * @return the offsets where each word in the given name starts (words are separated by underscores or start
+     * at an uppercase char following a lowercase char or digit -- or preceding a lowercase char in a sequence of
+     * uppercase chars, so that HTTPServer has the words HTTP and Server).
+     */
+    private static int[] getWordStarts(String name) {
+        int len = name.length();
+        int[] starts = new int[len];
+        int count = 0;
+        char prev = '_';
+        for (int i = 0; i < len; i++) {
+            char c = name.charAt(i);
+            if (c != '_') {
+                if (prev == '_') {
+                    starts[count++] = i;
+
+                } else if (Character.isUpperCase(c)) {
+                    if (!Character.isUpperCase(prev)) {
+                        starts[count++] = i;
+
+                    } else if (i + 1 < len && Character.isLowerCase(name.charAt(i + 1))) {
+                        starts[count++] = i;
+                    }
+                }
+            }
+            prev = c;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * @return the first chars of the words in the given name (lowercase).
+     */
+    static String getInitials(String name) {
+        int[] wordStarts = getWordStarts(name);
+        char[] chars = new char[wordStarts.length];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = Character.toLowerCase(name.charAt(wordStarts[i]));
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,562 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+
+import org.python.pydev.core.log.Log;
+import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
+
+/**
+ * Binary counterpart of {@link TreeIO}: the trees with the additional info are written with a string table
+ * and fixed-width records and are read back through a memory-mapped file, so that the {@link IInfo}
+ * instances are only created when the entries for some initials are actually requested.
+ *
+ * The file is written as (all big-endian):
+ *
+ * header:
+ *     int magic, int format version, long generation,
+ *     int strings count, int strings offsets pos, int strings data pos,
+ *     int tree 1 pos, int tree 2 pos, int infos pos, int infos count
+ *
+ * strings offsets: int[strings count + 1] (offsets relative to the strings data pos)
+ * strings data: utf-8 bytes for each string (sorted by the bytes, so, a string id can be found with a binary search)
+ *
+ * tree (for tree 1 and tree 2):
+ *     int keys count
+ *     key record: int key string id, int first info, int infos count
+ *
+ * info record: int name string id, int module string id, int path string id (-1 if null), int type
+ *
+ * The generation is written to the main (text) file too, so that we can detect when both files don't match.
+ *
+ * A file which is still mapped can't be replaced on Windows: in this case the new contents are written to a
+ * pending file (see: {@link #getPendingFile(File)}), which is swapped in the next time the trees are loaded.
+ *
+ * @author Fabio
+ */
+public class TreeBinaryIO {
+
+    /**
+     * 'PYII'
+     */
+    public static final int MAGIC = 0x50594949;
+
+    /**
+     * 1: initial version
+     * 2: sorted string table
+     */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int HEADER_SIZE = 4 + 4 + 8 + (7 * 4);
+
+    private static final int KEY_RECORD_SIZE = 3 * 4;
+
+    static final int INFO_RECORD_SIZE = 4 * 4;
+
+    /**
+     * The contents read from a binary file (the trees are filled lazily from the mapped buffer).
+     */
+    public static final class LoadedTrees {
+        public final PyPublicTreeMap<String, Set<IInfo>> topLevel;
+        public final PyPublicTreeMap<String, Set<IInfo>> inner;
+
+        private LoadedTrees(PyPublicTreeMap<String, Set<IInfo>> topLevel, PyPublicTreeMap<String, Set<IInfo>> inner) {
+            this.topLevel = topLevel;
+            this.inner = inner;
+        }
+    }
+
+    /**
+     * Provides access to the strings and records of a mapped file.
+     *
+     * Note that only absolute reads are done in the buffer, so, it's safe to access it from multiple threads
+     * (the strings cache may end up decoding the same string twice, which is harmless).
+     */
+    static final class MappedInfoReader {
+
+        private final ByteBuffer buffer;
+        private final String[] strings;
+        private final int stringsOffsetsPos;
+        private final int stringsDataPos;
+        private final int infosPos;
+
+        private MappedInfoReader(ByteBuffer buffer, int stringsCount, int stringsOffsetsPos, int stringsDataPos,
+                int infosPos) {
+            this.buffer = buffer;
+            this.strings = new String[stringsCount];
+            this.stringsOffsetsPos = stringsOffsetsPos;
+            this.stringsDataPos = stringsDataPos;
+            this.infosPos = infosPos;
+        }
+
+        String getString(int id) {
+            if (id < 0) {
+                return null;
+            }
+            String ret = strings[id];
+            if (ret == null) {
+                int start = buffer.getInt(stringsOffsetsPos + (id * 4));
+                int end = buffer.getInt(stringsOffsetsPos + ((id + 1) * 4));
+                byte[] bytes = new byte[end - start];
+                int base = stringsDataPos + start;
+                for (int i = 0; i < bytes.length; i++) {
+                    bytes[i] = buffer.get(base + i);
+                }
+                ret = new String(bytes, StandardCharsets.UTF_8);
+                strings[id] = ret;
+            }
+            return ret;
+        }
+
+        /**
+         * @return the id for the given string or -1 if it's not available in the string table (found with a
+         * binary search in the mapped bytes, so, no strings are decoded).
+         */
+        int getStringId(String str) {
+            byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+            int low = 0;
+            int high = strings.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = compareString(mid, bytes);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Compares the utf-8 bytes of the string with the given id with the given bytes (unsigned).
+         */
+        private int compareString(int id, byte[] bytes) {
+            int start = buffer.getInt(stringsOffsetsPos + (id * 4));
+            int end = buffer.getInt(stringsOffsetsPos + ((id + 1) * 4));
+            int len = end - start;
+            int base = stringsDataPos + start;
+            int min = Math.min(len, bytes.length);
+            for (int i = 0; i < min; i++) {
+                int cmp = (buffer.get(base + i) & 0xFF) - (bytes[i] & 0xFF);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return len - bytes.length;
+        }
+
+        int getInfoModuleId(int iInfo) {
+            return getInfoField(iInfo, 1);
+        }
+
+        /**
+         * @param field 0 = name id, 1 = module id, 2 = path id, 3 = type
+         */
+        int getInfoField(int iInfo, int field) {
+            return buffer.getInt(infosPos + (iInfo * INFO_RECORD_SIZE) + (field * 4));
+        }
+
+        IInfo createInfo(int iInfo) {
+            int pos = infosPos + (iInfo * INFO_RECORD_SIZE);
+            String name = getString(buffer.getInt(pos));
+            String moduleDeclared = getString(buffer.getInt(pos + 4));
+            String path = getString(buffer.getInt(pos + 8));
+            int type = buffer.getInt(pos + 12);
+
+            switch (type) {
+                case IInfo.CLASS_WITH_IMPORT_TYPE:
+                    return new ClassInfo(name, moduleDeclared, path, false);
+                case IInfo.METHOD_WITH_IMPORT_TYPE:
+                    return new FuncInfo(name, moduleDeclared, path, false);
+                case IInfo.ATTRIBUTE_WITH_IMPORT_TYPE:
+                    return new AttrInfo(name, moduleDeclared, path, false);
+                case IInfo.NAME_WITH_IMPORT_TYPE:
+                    return new NameInfo(name, moduleDeclared, path, false);
+                case IInfo.MOD_IMPORT_TYPE:
+                    return new ModInfo(moduleDeclared, false);
+                default:
+                    Log.log("Unexpected type: " + type);
+                    return null;
+            }
+        }
+    }
+
+    /**
+     * @return the file written when the given file can't be replaced because it's still mapped.
+     */
+    public static File getPendingFile(File file) {
+        return new File(file.getParentFile(), file.getName() + ".new");
+    }
+
+    /**
+     * Writes both trees to the given file (a temporary file is written first and then renamed to the target -- or
+     * to the pending file if the target is still mapped).
+     *
+     * @return true if it was properly written and false otherwise (in which case the caller should fallback
+     * to the text format).
+     */
+    public static boolean dumpTrees(SortedMap<String, Set<IInfo>> topLevel, SortedMap<String, Set<IInfo>> inner,
+            File file, long generation) {
+        File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Map<String, Integer> strToId = new HashMap<String, Integer>();
+            ArrayList<byte[]> encodedStrings = new ArrayList<byte[]>();
+
+            int[] tree1 = collectRecords(topLevel, strToId, encodedStrings);
+            int[] tree2 = collectRecords(inner, strToId, encodedStrings);
+            strToId = null;
+            int[] newIds = sortStrings(encodedStrings);
+            remapStringIds(tree1, topLevel.size(), newIds);
+            remapStringIds(tree2, inner.size(), newIds);
+            int infosCount = ((tree1.length - (topLevel.size() * 2)) + (tree2.length - (inner.size() * 2))) / 4;
+
+            int stringsCount = encodedStrings.size();
+            int stringsOffsetsPos = HEADER_SIZE;
+            int stringsDataPos = stringsOffsetsPos + ((stringsCount + 1) * 4);
+            int stringsDataLen = 0;
+            for (byte[] b : encodedStrings) {
+                stringsDataLen += b.length;
+            }
+            int tree1Pos = stringsDataPos + stringsDataLen;
+            int tree2Pos = tree1Pos + 4 + (topLevel.size() * KEY_RECORD_SIZE);
+            int infosPos = tree2Pos + 4 + (inner.size() * KEY_RECORD_SIZE);
+
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile),
+                    64 * 1024));
+            try {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(generation);
+                out.writeInt(stringsCount);
+                out.writeInt(stringsOffsetsPos);
+                out.writeInt(stringsDataPos);
+                out.writeInt(tree1Pos);
+                out.writeInt(tree2Pos);
+                out.writeInt(infosPos);
+                out.writeInt(infosCount);
+
+                int offset = 0;
+                for (byte[] b : encodedStrings) {
+                    out.writeInt(offset);
+                    offset += b.length;
+                }
+                out.writeInt(offset);
+                for (byte[] b : encodedStrings) {
+                    out.write(b);
+                }
+
+                int firstInfo = writeKeys(out, topLevel.size(), tree1, 0);
+                writeKeys(out, inner.size(), tree2, firstInfo);
+                writeInfos(out, topLevel.size(), tree1);
+                writeInfos(out, inner.size(), tree2);
+            } finally {
+                out.close();
+            }
+
+            File pendingFile = getPendingFile(file);
+            if (file.exists() && !file.delete()) {
+                //i.e.: on Windows the file can't be removed while it's still mapped: keep the new contents in
+                //the pending file (swapped in when loading).
+                if ((pendingFile.exists() && !pendingFile.delete()) || !tempFile.renameTo(pendingFile)) {
+                    tempFile.delete();
+                    return false;
+                }
+                return true;
+            }
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return false;
+            }
+            //If it can't be removed now, its generation won't match when loading (so, it's ignored).
+            pendingFile.delete();
+            return true;
+        } catch (Exception e) {
+            Log.log(e);
+            tempFile.delete();
+            return false;
+        }
+    }
+
+    /**
+     * @return an array with the records for the tree: for each key, the key id and the number of infos followed
+     * by 4 ints for each info.
+     */
+    private static int[] collectRecords(SortedMap<String, Set<IInfo>> tree, Map<String, Integer> strToId,
+            ArrayList<byte[]> encodedStrings) {
+        int total = 0;
+        for (Set<IInfo> set : tree.values()) {
+            total += 2 + (set.size() * 4);
+        }
+        int[] records = new int[total];
+        int i = 0;
+        for (Entry<String, Set<IInfo>> entry : tree.entrySet()) {
+            Set<IInfo> value = entry.getValue();
+            records[i++] = getStringId(entry.getKey(), strToId, encodedStrings);
+            records[i++] = value.size();
+            if (value instanceof LazyInfoSet && !((LazyInfoSet) value).isMaterialized()) {
+                //Copy the records from the mapped file (without creating the infos).
+                LazyInfoSet lazyInfoSet = (LazyInfoSet) value;
+                MappedInfoReader reader = lazyInfoSet.getReader();
+                int end = lazyInfoSet.getFirstInfo() + value.size();
+                for (int iInfo = lazyInfoSet.getFirstInfo(); iInfo < end; iInfo++) {
+                    records[i++] = getStringId(reader.getString(reader.getInfoField(iInfo, 0)), strToId,
+                            encodedStrings);
+                    records[i++] = getStringId(reader.getString(reader.getInfoField(iInfo, 1)), strToId,
+                            encodedStrings);
+                    records[i++] = getStringId(reader.getString(reader.getInfoField(iInfo, 2)), strToId,
+                            encodedStrings);
+                    records[i++] = reader.getInfoField(iInfo, 3);
+                }
+                continue;
+            }
+            for (IInfo info : value) {
+                records[i++] = getStringId(info.getName(), strToId, encodedStrings);
+                records[i++] = getStringId(info.getDeclaringModuleName(), strToId, encodedStrings);
+                records[i++] = getStringId(info.getPath(), strToId, encodedStrings);
+                records[i++] = info.getType();
+            }
+        }
+        return records;
+    }
+
+    private static int getStringId(String str, Map<String, Integer> strToId, ArrayList<byte[]> encodedStrings) {
+        if (str == null) {
+            return -1;
+        }
+        Integer id = strToId.get(str);
+        if (id == null) {
+            id = encodedStrings.size();
+            strToId.put(str, id);
+            encodedStrings.add(str.getBytes(StandardCharsets.UTF_8));
+        }
+        return id;
+    }
+
+    /**
+     * Sorts the strings by their bytes (unsigned).
+     *
+     * @return an array where the index is the previous id of a string and the value the new id.
+     */
+    private static int[] sortStrings(final ArrayList<byte[]> encodedStrings) {
+        int size = encodedStrings.size();
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+
+            public int compare(Integer o1, Integer o2) {
+                byte[] b1 = encodedStrings.get(o1);
+                byte[] b2 = encodedStrings.get(o2);
+                int min = Math.min(b1.length, b2.length);
+                for (int i = 0; i < min; i++) {
+                    int cmp = (b1[i] & 0xFF) - (b2[i] & 0xFF);
+                    if (cmp != 0) {
+                        return cmp;
+                    }
+                }
+                return b1.length - b2.length;
+            }
+        });
+        int[] newIds = new int[size];
+        ArrayList<byte[]> sorted = new ArrayList<byte[]>(size);
+        for (int i = 0; i < size; i++) {
+            newIds[order[i]] = i;
+            sorted.add(encodedStrings.get(order[i]));
+        }
+        encodedStrings.clear();
+        encodedStrings.addAll(sorted);
+        return newIds;
+    }
+
+    /**
+     * Changes the string ids in the records of a tree (see: collectRecords) to the ids after sorting the strings.
+     */
+    private static void remapStringIds(int[] records, int keysCount, int[] newIds) {
+        int i = 0;
+        for (int iKey = 0; iKey < keysCount; iKey++) {
+            records[i] = newIds[records[i]];
+            int infosCount = records[i + 1];
+            i += 2;
+            for (int iInfo = 0; iInfo < infosCount; iInfo++) {
+                for (int field = 0; field < 3; field++) {
+                    if (records[i + field] >= 0) {
+                        records[i + field] = newIds[records[i + field]];
+                    }
+                }
+                i += 4;
+            }
+        }
+    }
+
+    private static int writeKeys(DataOutputStream out, int keysCount, int[] records, int firstInfo)
+            throws IOException {
+        out.writeInt(keysCount);
+        int i = 0;
+        for (int iKey = 0; iKey < keysCount; iKey++) {
+            int infosCount = records[i + 1];
+            out.writeInt(records[i]);
+            out.writeInt(firstInfo);
+            out.writeInt(infosCount);
+            firstInfo += infosCount;
+            i += 2 + (infosCount * 4);
+        }
+        return firstInfo;
+    }
+
+    private static void writeInfos(DataOutputStream out, int keysCount, int[] records) throws IOException {
+        int i = 0;
+        for (int iKey = 0; iKey < keysCount; iKey++) {
+            int infosCount = records[i + 1];
+            i += 2;
+            for (int j = 0; j < infosCount * 4; j++) {
+                out.writeInt(records[i++]);
+            }
+        }
+    }
+
+    /**
+     * Maps the given file and creates the trees (the keys are loaded eagerly and the values are only
+     * created when accessed).
+     *
+     * @throws IOException if the file is not valid or the generation doesn't match the expected one.
+     */
+    public static LoadedTrees loadTrees(File file, long expectedGeneration) throws IOException {
+        File pendingFile = getPendingFile(file);
+        if (pendingFile.exists()) {
+            if (readGeneration(pendingFile) == expectedGeneration) {
+                //Written while the file was still mapped: swap it in now (or use it directly if the file is
+                //still mapped).
+                if ((!file.exists() || file.delete()) && pendingFile.renameTo(file)) {
+                    return mapTrees(file, expectedGeneration);
+                }
+                return mapTrees(pendingFile, expectedGeneration);
+            }
+            //Stale (a later version was written to the file itself).
+            pendingFile.delete();
+        }
+        return mapTrees(file, expectedGeneration);
+    }
+
+    /**
+     * @return the generation in the header of the given file or -1 if it's not a valid file.
+     */
+    private static long readGeneration(File file) {
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 16));
+            try {
+                if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                    return -1;
+                }
+                return in.readLong();
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static LoadedTrees mapTrees(File file, long expectedGeneration) throws IOException {
+        ByteBuffer buffer;
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            try {
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer = mapped;
+            } finally {
+                channel.close();
+            }
+        } finally {
+            randomAccessFile.close();
+        }
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Invalid binary info file: " + file);
+        }
+        int formatVersion = buffer.getInt(4);
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Binary info version changed. Expected: " + FORMAT_VERSION + " Found: "
+                    + formatVersion);
+        }
+        long generation = buffer.getLong(8);
+        if (generation != expectedGeneration) {
+            throw new IOException("Binary info generation does not match. Expected: " + expectedGeneration
+                    + " Found: " + generation);
+        }
+        int stringsCount = buffer.getInt(16);
+        int stringsOffsetsPos = buffer.getInt(20);
+        int stringsDataPos = buffer.getInt(24);
+        int tree1Pos = buffer.getInt(28);
+        int tree2Pos = buffer.getInt(32);
+        int infosPos = buffer.getInt(36);
+        int infosCount = buffer.getInt(40);
+        if (infosPos + ((long) infosCount * INFO_RECORD_SIZE) != buffer.capacity()) {
+            throw new IOException("Binary info file truncated: " + file);
+        }
+
+        MappedInfoReader reader = new MappedInfoReader(buffer, stringsCount, stringsOffsetsPos, stringsDataPos,
+                infosPos);
+        return new LoadedTrees(loadTree(reader, buffer, tree1Pos), loadTree(reader, buffer, tree2Pos));
+    }
+
+    private static PyPublicTreeMap<String, Set<IInfo>> loadTree(final MappedInfoReader reader,
+            final ByteBuffer buffer, final int treePos) {
+        PyPublicTreeMap<String, Set<IInfo>> tree = new PyPublicTreeMap<String, Set<IInfo>>();
+        final int size = buffer.getInt(treePos);
+        try {
+            tree.buildFromSorted(size, new Iterator<Map.Entry<String, Set<IInfo>>>() {
+                private int iNext;
+
+                public boolean hasNext() {
+                    return iNext < size;
+                }
+
+                public Map.Entry<String, Set<IInfo>> next() {
+                    int pos = treePos + 4 + (iNext * KEY_RECORD_SIZE);
+                    iNext++;
+                    String key = reader.getString(buffer.getInt(pos));
+                    LazyInfoSet set = new LazyInfoSet(reader, buffer.getInt(pos + 4), buffer.getInt(pos + 8));
+                    return new java.util.AbstractMap.SimpleImmutableEntry<String, Set<IInfo>>(key, set);
+                }
+
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+            }, null, null);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new RuntimeException(e);
+        }
+        return tree;
+    }
+}
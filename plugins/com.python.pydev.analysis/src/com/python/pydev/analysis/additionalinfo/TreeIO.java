@@ -8,7 +8,6 @@ package com.python.pydev.analysis.additionalinfo;
 
 import java.io.IOException;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -115,9 +114,9 @@ public class TreeIO {
     private static final class MapEntry implements Map.Entry {
 
         private final String key;
-        private final HashSet<IInfo> set;
+        private final Set<IInfo> set;
 
-        public MapEntry(String key, HashSet<IInfo> set) {
+        public MapEntry(String key, Set<IInfo> set) {
             this.key = key;
             this.set = set;
         }
@@ -186,7 +185,7 @@ public class TreeIO {
                             buf.appendResizeOnExc(c);
                     }
                 }
-                HashSet<IInfo> set = new HashSet<IInfo>(hashSize);
+                InfoSet set = new InfoSet(hashSize);
 
                 for (; i < length; i++) {
                     char c = internalCharsArray[i];
@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.shared_core.SharedCorePlugin;
+
+/**
+ * Job which periodically goes through the loaded additional infos (projects and interpreters) discarding the
+ * infos which were loaded on demand and were not accessed for some time.
+ */
+final class UnloadIdleSegmentsJob extends Job {
+
+    /**
+     * Segments not accessed in this time are unloaded.
+     */
+    static final long IDLE_MILLIS = 10 * 60 * 1000;
+
+    private static final long CHECK_INTERVAL_MILLIS = 2 * 60 * 1000;
+
+    private static UnloadIdleSegmentsJob job;
+
+    private static final Object jobLock = new Object();
+
+    private UnloadIdleSegmentsJob() {
+        super("Unload idle additional info");
+        setSystem(true);
+        setPriority(Job.DECORATE);
+    }
+
+    /**
+     * Starts the job (if still not started).
+     */
+    static void scheduleIfNeeded() {
+        if (SharedCorePlugin.inTestMode()) {
+            return;
+        }
+        synchronized (jobLock) {
+            if (job == null) {
+                job = new UnloadIdleSegmentsJob();
+                job.schedule(CHECK_INTERVAL_MILLIS);
+            }
+        }
+    }
+
+    @Override
+    protected IStatus run(IProgressMonitor monitor) {
+        List<AbstractAdditionalTokensInfo> infos = new ArrayList<AbstractAdditionalTokensInfo>();
+        infos.addAll(AdditionalSystemInterpreterInfo.getLoadedInfos());
+        infos.addAll(AdditionalProjectInterpreterInfo.getLoadedInfos());
+        for (AbstractAdditionalTokensInfo info : infos) {
+            if (monitor.isCanceled()) {
+                break;
+            }
+            try {
+                info.unloadIdleSegments(IDLE_MILLIS);
+            } catch (Throwable e) {
+                Log.log(e);
+            }
+        }
+        if (!monitor.isCanceled()) {
+            this.schedule(CHECK_INTERVAL_MILLIS);
+        }
+        return Status.OK_STATUS;
+    }
+}
@@ -18,6 +18,7 @@ import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jface.text.IDocument;
 import org.python.pydev.builder.PyDevBuilderPrefPage;
 import org.python.pydev.builder.PyDevBuilderVisitor;
+import org.python.pydev.core.IIndentPrefs;
 import org.python.pydev.core.IModule;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.MisconfigurationException;
@@ -248,8 +249,32 @@ public class AnalysisBuilderRunnable extends AbstractAnalysisBuilderRunnable {
             OccurrencesAnalyzer analyzer = new OccurrencesAnalyzer();
             checkStop();
             SourceModule module = (SourceModule) this.module.call(moduleRequest);
-            IMessage[] messages = analyzer.analyzeDocument(nature, module, analysisPreferences, document,
-                    this.internalCancelMonitor, DefaultIndentPrefs.get(this.resource));
+            IIndentPrefs indentPrefs = DefaultIndentPrefs.get(this.resource);
+
+            //if the contents, preferences and imported modules didn't change, the last results are still valid
+            //(only used in builds: when editing, the key would hardly ever match and computing it is not free)
+            AnalysisResultsCache resultsCache = null;
+            if (analysisCause == ANALYSIS_CAUSE_BUILDER) {
+                resultsCache = AnalysisResultsCache.get(r.getProject());
+            }
+            String cacheKey = null;
+            IMessage[] messages = null;
+            if (resultsCache != null) {
+                cacheKey = AnalysisResultsCache.computeKey(nature, module, analysisPreferences, document,
+                        indentPrefs);
+                if (cacheKey != null) {
+                    messages = resultsCache.get(cacheKey);
+                }
+            }
+            if (messages == null) {
+                messages = analyzer.analyzeDocument(nature, module, analysisPreferences, document,
+                        this.internalCancelMonitor, indentPrefs);
+                if (cacheKey != null && !this.internalCancelMonitor.isCanceled()) {
+                    resultsCache.put(cacheKey, messages, document);
+                }
+            } else if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+                Log.toLogFile(this, "Using cached analysis results for module: " + moduleName);
+            }
 
             checkStop();
             if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
@@ -0,0 +1,528 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.runtime.IAdaptable;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.ICodeCompletionASTManager;
+import org.python.pydev.core.IIndentPrefs;
+import org.python.pydev.core.IInterpreterInfo;
+import org.python.pydev.core.IModule;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.IToken;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.editor.codecompletion.revisited.CompletionCache;
+import org.python.pydev.editor.codecompletion.revisited.CompletionStateFactory;
+import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
+import org.python.pydev.editor.codecompletion.revisited.visitors.AbstractVisitor;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Import;
+import org.python.pydev.parser.jython.ast.ImportFrom;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.shared_core.structure.Tuple3;
+
+import com.python.pydev.analysis.AnalysisPlugin;
+import com.python.pydev.analysis.IAnalysisPreferences;
+import com.python.pydev.analysis.messages.CachedMessage;
+import com.python.pydev.analysis.messages.IMessage;
+import com.python.pydev.analysis.ui.AnalysisPreferencesPage;
+
+/**
+ * Keeps the results of the code analysis (OccurrencesAnalyzer) on disk so that a module which didn't change isn't
+ * analyzed again (not even after a restart).
+ *
+ * The key is a hash of:
+ * - the document contents (and module name)
+ * - the analysis/indentation preferences
+ * - the interpreter configuration
+ * - the imports of the module: how each one is resolved and the public tokens of the resolved modules
+ *   (so, if an imported module changes its public API, the module is analyzed again).
+ *
+ * The modules wild-imported by the imported modules are followed transitively (as their tokens are also public
+ * in the imported module), but the other imports of the imported modules are not (i.e.: a change in a module
+ * imported with 'from x import y' in an imported module is only seen if it changes how 'y' is resolved).
+ *
+ * The messages are kept resolved for the document (see CachedMessage), one entry per file in the cache dir
+ * (the least recently used entries are removed when the cache grows over MAX_ENTRIES).
+ */
+public final class AnalysisResultsCache {
+
+    /**
+     * Set to false to always analyze the modules.
+     */
+    public static boolean USE_ANALYSIS_RESULTS_CACHE = true;
+
+    /**
+     * Should be raised whenever the analysis or the format of the entries changes.
+     */
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int MAX_ENTRIES = 20000;
+
+    private static final int LOG_STATISTICS_EACH = 1000;
+
+    private static final String ENTRY_EXTENSION = ".analysis";
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Map<IProject, AnalysisResultsCache> projectToCache = new HashMap<>();
+
+    private static final AtomicLong hits = new AtomicLong();
+
+    private static final AtomicLong misses = new AtomicLong();
+
+    private final File dir;
+
+    private final Object lock = new Object();
+
+    /**
+     * Lazily computed from the files in the dir (-1 means not computed).
+     */
+    private int entries = -1;
+
+    public AnalysisResultsCache(File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @return the cache for the given project or null if it's not available (i.e.: caching disabled or the
+     * plugin is not running).
+     */
+    public static AnalysisResultsCache get(IProject project) {
+        if (!USE_ANALYSIS_RESULTS_CACHE || project == null || AnalysisPlugin.getDefault() == null) {
+            return null;
+        }
+        synchronized (projectToCache) {
+            AnalysisResultsCache cache = projectToCache.get(project);
+            if (cache == null) {
+                cache = new AnalysisResultsCache(new File(AnalysisPlugin.getStorageDirForProject(project),
+                        "analysis_cache"));
+                projectToCache.put(project, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * @return the key for the analysis of the given module (or null if it couldn't be computed -- in which case
+     * the module should be analyzed without the cache).
+     */
+    public static String computeKey(IPythonNature nature, SourceModule module, IAnalysisPreferences prefs,
+            IDocument document, IIndentPrefs indentPrefs) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            AnalysisPlugin plugin = AnalysisPlugin.getDefault();
+            update(digest, FORMAT_VERSION);
+            update(digest, plugin != null ? plugin.getBundle().getVersion().toString() : "");
+            update(digest, module.getName());
+            update(digest, document.get());
+
+            updateWithPrefs(digest, prefs, indentPrefs);
+            updateWithInterpreter(digest, nature);
+            updateWithImports(digest, nature, module);
+
+            byte[] bytes = digest.digest();
+            StringBuilder buf = new StringBuilder(bytes.length * 2);
+            for (byte b : bytes) {
+                buf.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return buf.toString();
+        } catch (Exception e) {
+            Log.log("Unable to compute analysis cache key for: " + module.getName(), e);
+        }
+        return null;
+    }
+
+    private static void updateWithPrefs(MessageDigest digest, IAnalysisPreferences prefs, IIndentPrefs indentPrefs) {
+        for (int type = IAnalysisPreferences.TYPE_UNUSED_IMPORT; type <= IAnalysisPreferences.TYPE_ARGUMENTS_MISATCH;
+                type++) {
+            int severity;
+            try {
+                severity = prefs.getSeverityForType(type);
+            } catch (RuntimeException e) {
+                severity = -1; //no severity for the given type
+            }
+            update(digest, severity);
+        }
+        updateSorted(digest, prefs.getNamesIgnoredByUnusedVariable());
+        updateSorted(digest, prefs.getModuleNamePatternsToBeIgnored());
+        updateSorted(digest, prefs.getTokensAlwaysInGlobals());
+
+        IAdaptable projectAdaptable = prefs.getProjectAdaptable();
+        if (AnalysisPlugin.getDefault() != null) {
+            update(digest, AnalysisPreferencesPage.getPep8CommandLineAsStr(projectAdaptable));
+            update(digest, AnalysisPreferencesPage.useSystemInterpreter(projectAdaptable) ? 1 : 0);
+        }
+        if (indentPrefs != null) {
+            update(digest, indentPrefs.getTabWidth());
+            update(digest, indentPrefs.getUseSpaces(false) ? 1 : 0);
+        }
+    }
+
+    private static void updateWithInterpreter(MessageDigest digest, IPythonNature nature) throws Exception {
+        IInterpreterInfo info = nature.getProjectInterpreter();
+        update(digest, info.getExecutableOrJar());
+        update(digest, info.getModificationStamp());
+        update(digest, info.getGrammarVersion());
+        for (Iterator<String> it = info.forcedLibsIterator(); it.hasNext();) {
+            update(digest, it.next());
+        }
+    }
+
+    private static void updateWithImports(MessageDigest digest, IPythonNature nature, SourceModule module)
+            throws Exception {
+        SimpleNode ast = module.getAst();
+        if (ast == null) {
+            return;
+        }
+        final String moduleName = module.getName();
+        final List<IToken> importTokens = new ArrayList<IToken>();
+        ast.accept(new VisitorBase() {
+
+            @Override
+            public Object visitImport(Import node) throws Exception {
+                AbstractVisitor.makeImportToken(node, importTokens, moduleName, true);
+                return null;
+            }
+
+            @Override
+            public Object visitImportFrom(ImportFrom node) throws Exception {
+                AbstractVisitor.makeImportToken(node, importTokens, moduleName, true);
+                return null;
+            }
+
+            @Override
+            protected Object unhandled_node(SimpleNode node) throws Exception {
+                return null;
+            }
+
+            @Override
+            public void traverse(SimpleNode node) throws Exception {
+                node.traverse(this);
+            }
+        });
+
+        ICodeCompletionASTManager astManager = nature.getAstManager();
+        Set<String> modulesAdded = new HashSet<String>();
+        for (IToken token : importTokens) {
+            update(digest, token.getRepresentation());
+            update(digest, token.getOriginalRep());
+            Tuple3<IModule, String, IToken> found = astManager.findOnImportedMods(new IToken[] { token },
+                    CompletionStateFactory.getEmptyCompletionState(token.getRepresentation(), nature,
+                            new CompletionCache()), moduleName, module);
+
+            if (found == null || found.o1 == null) {
+                update(digest, "<unresolved>");
+                continue;
+            }
+            IModule foundModule = found.o1;
+            update(digest, foundModule.getName());
+            update(digest, found.o2);
+            updateWithPublicTokens(digest, nature, astManager, foundModule, modulesAdded);
+        }
+    }
+
+    /**
+     * Adds the public tokens of the given module and of the modules it wild-imports (transitively) to the digest.
+     */
+    private static void updateWithPublicTokens(MessageDigest digest, IPythonNature nature,
+            ICodeCompletionASTManager astManager, IModule module, Set<String> modulesAdded) throws Exception {
+        if (!modulesAdded.add(module.getName())) {
+            return; //already added (also stops on cyclic wild imports)
+        }
+        IToken[] globalTokens = module.getGlobalTokens();
+        if (globalTokens != null) {
+            for (IToken globalToken : globalTokens) {
+                update(digest, globalToken.getRepresentation());
+                update(digest, globalToken.getType());
+                update(digest, globalToken.getArgs());
+            }
+        }
+
+        IToken[] wildImportedModules = module.getWildImportedModules();
+        if (wildImportedModules == null) {
+            return;
+        }
+        for (IToken wildImport : wildImportedModules) {
+            update(digest, wildImport.getOriginalRep());
+            Tuple3<IModule, String, IToken> found = astManager.findOnImportedMods(new IToken[] { wildImport },
+                    CompletionStateFactory.getEmptyCompletionState(wildImport.getRepresentation(), nature,
+                            new CompletionCache()), module.getName(), module);
+
+            if (found == null || found.o1 == null) {
+                update(digest, "<unresolved>");
+                continue;
+            }
+            update(digest, found.o1.getName());
+            updateWithPublicTokens(digest, nature, astManager, found.o1, modulesAdded);
+        }
+    }
+
+    private static void updateSorted(MessageDigest digest, Collection<String> strings) {
+        if (strings == null) {
+            update(digest, -1);
+            return;
+        }
+        String[] array = strings.toArray(new String[strings.size()]);
+        Arrays.sort(array);
+        update(digest, array.length);
+        for (String s : array) {
+            update(digest, s);
+        }
+    }
+
+    private static void update(MessageDigest digest, String s) {
+        if (s == null) {
+            update(digest, -1);
+            return;
+        }
+        byte[] bytes = s.getBytes(UTF8);
+        update(digest, bytes.length);
+        digest.update(bytes);
+    }
+
+    private static void update(MessageDigest digest, int i) {
+        digest.update((byte) (i >>> 24));
+        digest.update((byte) (i >>> 16));
+        digest.update((byte) (i >>> 8));
+        digest.update((byte) i);
+    }
+
+    /**
+     * @return the messages cached for the given key or null if there's no valid entry for it.
+     */
+    public IMessage[] get(String key) {
+        IMessage[] messages = null;
+        File file = getEntryFile(key);
+        if (file.exists()) {
+            try {
+                messages = read(file);
+                file.setLastModified(System.currentTimeMillis()); //keep the recently used entries
+            } catch (IOException e) {
+                //Corrupt (or removed while reading): just analyze again.
+                Log.logInfo("Removing invalid analysis cache entry: " + file, e);
+                if (file.delete()) {
+                    synchronized (lock) {
+                        if (entries > 0) {
+                            entries--;
+                        }
+                    }
+                }
+            }
+        }
+        logStatistics(messages != null);
+        return messages;
+    }
+
+    /**
+     * Keeps the messages (resolved for the given document) for the given key.
+     */
+    public void put(String key, IMessage[] messages, IDocument document) {
+        File file = getEntryFile(key);
+        File tempFile = new File(dir, key + "." + Thread.currentThread().getId() + ".tmp");
+        try {
+            dir.mkdirs();
+            write(tempFile, messages, document);
+            boolean existed = file.exists();
+            if (existed) {
+                file.delete();
+            }
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                return;
+            }
+            if (!existed) {
+                onEntryAdded();
+            }
+        } catch (Exception e) {
+            Log.log("Unable to write analysis cache entry: " + file, e);
+            tempFile.delete();
+        }
+    }
+
+    private File getEntryFile(String key) {
+        return new File(dir, key + ENTRY_EXTENSION);
+    }
+
+    private void write(File file, IMessage[] messages, IDocument document) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(messages.length);
+            for (IMessage m : messages) {
+                CachedMessage message = CachedMessage.create(m, document);
+                out.writeInt(message.getType());
+                out.writeInt(message.getSeverity());
+                out.writeInt(message.getStartLine(document));
+                out.writeInt(message.getStartCol(document));
+                out.writeInt(message.getEndLine(document));
+                out.writeInt(message.getEndCol(document));
+                out.writeUTF(message.getMessage());
+                List<String> additionalInfo = message.getAdditionalInfo();
+                if (additionalInfo == null) {
+                    out.writeInt(-1);
+                } else {
+                    out.writeInt(additionalInfo.size());
+                    for (String info : additionalInfo) {
+                        out.writeUTF(info);
+                    }
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private IMessage[] read(File file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unexpected analysis cache version.");
+            }
+            int len = in.readInt();
+            if (len < 0) {
+                throw new IOException("Invalid number of messages: " + len);
+            }
+            IMessage[] messages = new IMessage[len];
+            for (int i = 0; i < len; i++) {
+                int type = in.readInt();
+                int severity = in.readInt();
+                int startLine = in.readInt();
+                int startCol = in.readInt();
+                int endLine = in.readInt();
+                int endCol = in.readInt();
+                String message = in.readUTF();
+                List<String> additionalInfo = null;
+                int infoLen = in.readInt();
+                if (infoLen >= 0) {
+                    additionalInfo = new ArrayList<String>(infoLen);
+                    for (int j = 0; j < infoLen; j++) {
+                        additionalInfo.add(in.readUTF());
+                    }
+                }
+                messages[i] = new CachedMessage(type, severity, startLine, startCol, endLine, endCol, message,
+                        additionalInfo);
+            }
+            if (in.read() != -1) {
+                throw new IOException("Unexpected contents at the end of the entry.");
+            }
+            return messages;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void onEntryAdded() {
+        File[] toCheck = null;
+        synchronized (lock) {
+            if (entries < 0) {
+                entries = listEntries().length;
+            } else {
+                entries++;
+            }
+            if (entries > MAX_ENTRIES) {
+                toCheck = listEntries();
+                entries = toCheck.length;
+            }
+        }
+        if (toCheck != null) {
+            removeLeastRecentlyUsed(toCheck);
+        }
+    }
+
+    /**
+     * Removes the least recently used entries so that the cache is back to 80% of its max size.
+     */
+    private void removeLeastRecentlyUsed(File[] files) {
+        final Map<File, Long> lastModified = new HashMap<File, Long>();
+        for (File f : files) {
+            lastModified.put(f, f.lastModified());
+        }
+        Arrays.sort(files, new Comparator<File>() {
+
+            public int compare(File o1, File o2) {
+                return lastModified.get(o1).compareTo(lastModified.get(o2));
+            }
+        });
+        int toRemove = files.length - (int) (MAX_ENTRIES * 0.8);
+        int removed = 0;
+        for (int i = 0; i < toRemove; i++) {
+            if (files[i].delete()) {
+                removed++;
+            }
+        }
+        synchronized (lock) {
+            entries -= removed;
+        }
+    }
+
+    private File[] listEntries() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return new File[0];
+        }
+        List<File> ret = new ArrayList<File>(files.length);
+        for (File f : files) {
+            if (f.getName().endsWith(ENTRY_EXTENSION)) {
+                ret.add(f);
+            }
+        }
+        return ret.toArray(new File[ret.size()]);
+    }
+
+    /**
+     * @return the number of entries in the cache.
+     */
+    public int size() {
+        synchronized (lock) {
+            entries = listEntries().length;
+            return entries;
+        }
+    }
+
+    private static void logStatistics(boolean hit) {
+        long h = hit ? hits.incrementAndGet() : hits.get();
+        long m = hit ? misses.get() : misses.incrementAndGet();
+        long total = h + m;
+        if (total % LOG_STATISTICS_EACH == 0) {
+            Log.logInfo(getStatistics(h, m));
+        }
+    }
+
+    private static String getStatistics(long h, long m) {
+        long total = h + m;
+        return "Analysis results cache: " + h + " hits, " + m + " misses (" + (total > 0 ? (h * 100 / total) : 0)
+                + "% hit rate).";
+    }
+
+    public static String getStatistics() {
+        return getStatistics(hits.get(), misses.get());
+    }
+}
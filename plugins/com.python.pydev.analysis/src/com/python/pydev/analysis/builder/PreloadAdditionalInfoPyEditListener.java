@@ -6,6 +6,7 @@
  */
 package com.python.pydev.analysis.builder;
 
+import java.util.List;
 import java.util.ListResourceBundle;
 
 import org.eclipse.core.resources.IProject;
@@ -23,12 +24,12 @@ import org.python.pydev.shared_ui.editor.BaseEditor;
 import org.python.pydev.shared_ui.editor.IPyEditListener;
 import org.python.pydev.shared_ui.editor.IPyEditListener3;
 
+import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo;
 import com.python.pydev.analysis.additionalinfo.AdditionalProjectInterpreterInfo;
 
 /**
- * When the editor is disposed, if needed this class will remove the markers from the related
- * file (if no other editor is still editing the same file) and will remove the hash from the
- * additional info.
+ * When an editor is opened, this class will load the additional info related to its project (in a job) and
+ * will preload the segments of the additional info which were most accessed in previous sessions.
  * 
  * @author Fabio
  */
@@ -62,7 +63,14 @@ public class PreloadAdditionalInfoPyEditListener implements IPyEditListener, IPy
                         @Override
                         protected IStatus run(IProgressMonitor monitor) {
                             try {
-                                AdditionalProjectInterpreterInfo.getAdditionalInfo(nature);
+                                List<AbstractAdditionalTokensInfo> infos = AdditionalProjectInterpreterInfo
+                                        .getAdditionalInfo(nature);
+                                for (AbstractAdditionalTokensInfo info : infos) {
+                                    if (monitor.isCanceled()) {
+                                        break;
+                                    }
+                                    info.preloadHotSegments();
+                                }
                             } catch (MisconfigurationException e) {
                                 Log.log(e);
                             }
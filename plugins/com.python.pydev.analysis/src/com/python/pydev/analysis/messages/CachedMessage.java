@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.IToken;
+
+/**
+ * A message with everything already resolved for the document it was created from (so, it doesn't keep a
+ * generator nor the preferences and may be kept in a cache -- see AnalysisResultsCache).
+ */
+public final class CachedMessage implements IMessage {
+
+    private final int type;
+    private final int severity;
+    private final int startLine;
+    private final int startCol;
+    private final int endLine;
+    private final int endCol;
+    private final String message;
+    private List<String> additionalInfo;
+
+    public CachedMessage(int type, int severity, int startLine, int startCol, int endLine, int endCol,
+            String message, List<String> additionalInfo) {
+        this.type = type;
+        this.severity = severity;
+        this.startLine = startLine;
+        this.startCol = startCol;
+        this.endLine = endLine;
+        this.endCol = endCol;
+        this.message = message;
+        this.additionalInfo = additionalInfo;
+    }
+
+    /**
+     * Creates a message with the contents of the passed message resolved for the given document.
+     */
+    public static CachedMessage create(IMessage m, IDocument doc) {
+        List<String> info = m.getAdditionalInfo();
+        return new CachedMessage(m.getType(), m.getSeverity(), m.getStartLine(doc), m.getStartCol(doc),
+                m.getEndLine(doc), m.getEndCol(doc), m.getMessage(), info != null ? new ArrayList<String>(info)
+                        : null);
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public int getSeverity() {
+        return severity;
+    }
+
+    public int getStartLine(IDocument doc) {
+        return startLine;
+    }
+
+    public int getStartCol(IDocument doc) {
+        return startCol;
+    }
+
+    public int getEndLine(IDocument doc) {
+        return endLine;
+    }
+
+    public int getEndCol(IDocument doc) {
+        return endCol;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public List<String> getAdditionalInfo() {
+        return additionalInfo;
+    }
+
+    public void addAdditionalInfo(String info) {
+        if (this.additionalInfo == null) {
+            this.additionalInfo = new ArrayList<String>();
+        }
+        this.additionalInfo.add(info);
+    }
+
+    public Object getShortMessage() {
+        return message;
+    }
+
+    /**
+     * @return null (the generator is not kept).
+     */
+    public IToken getGenerator() {
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return message;
+    }
+}
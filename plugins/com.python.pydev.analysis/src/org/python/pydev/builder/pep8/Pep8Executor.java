@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pep8;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
+
+import com.python.pydev.analysis.IAnalysisPreferences;
+import com.python.pydev.analysis.messages.IMessage;
+
+/**
+ * Runs the pep8 analysis in a bounded number of threads (the analysis of many files is requested at once during
+ * a full build, so, starting a thread for each file would just thrash the CPU).
+ *
+ * The interpreters used to run pep8 are reused among the files (see Pep8Visitor).
+ *
+ * The wait time for a thread and the interpreters pool usage are periodically logged (to know whether
+ * MAX_THREADS is a bottleneck during a full build).
+ */
+public final class Pep8Executor {
+
+    /**
+     * At most this number of files are analyzed at the same time (it's also the max number of interpreters kept).
+     */
+    public static final int MAX_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private static final ThreadPoolExecutor executor;
+
+    /**
+     * The statistics (see getStatistics()) are logged each time this number of analysis is started.
+     */
+    private static final int LOG_STATISTICS_EACH = 1000;
+
+    static {
+        executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+                    private final AtomicInteger threadNumber = new AtomicInteger();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r, "PyDev pep8 " + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    private static final AtomicLong tasksStarted = new AtomicLong();
+
+    private static final AtomicLong totalWaitNanos = new AtomicLong();
+
+    private static final AtomicLong maxWaitNanos = new AtomicLong();
+
+    private Pep8Executor() {
+    }
+
+    /**
+     * Schedules the pep8 analysis of the given module.
+     *
+     * Note: if the returned future is cancelled before the analysis starts, the analysis isn't done.
+     */
+    public static Future<List<IMessage>> submit(final SourceModule module, final IDocument document,
+            final IProgressMonitor monitor, final IAnalysisPreferences prefs) {
+        final long submitTime = System.nanoTime();
+        return executor.submit(new Callable<List<IMessage>>() {
+
+            @Override
+            public List<IMessage> call() throws Exception {
+                onTaskStarted(System.nanoTime() - submitTime);
+                return new Pep8Visitor().getMessages(module, document, monitor, prefs);
+            }
+        });
+    }
+
+    private static void onTaskStarted(long waitNanos) {
+        long started = tasksStarted.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+        if (started % LOG_STATISTICS_EACH == 0) {
+            Log.logInfo(getStatistics());
+        }
+    }
+
+    /**
+     * @return the number of analysis which were started.
+     */
+    public static long getTasksStarted() {
+        return tasksStarted.get();
+    }
+
+    /**
+     * @return the number of analysis waiting for a thread.
+     */
+    public static int getTasksWaiting() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the average time (in millis) an analysis waited for a thread to start.
+     */
+    public static double getAverageWaitMillis() {
+        long started = tasksStarted.get();
+        if (started == 0) {
+            return 0;
+        }
+        return totalWaitNanos.get() / 1000000.0 / started;
+    }
+
+    /**
+     * @return the max time (in millis) an analysis waited for a thread to start.
+     */
+    public static double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1000000.0;
+    }
+
+    /**
+     * @return a string with the metrics of the executor and of the interpreters pool (for debugging purposes).
+     */
+    public static String getStatistics() {
+        return "Pep8 analysis started: " + getTasksStarted() + " waiting: " + getTasksWaiting()
+                + " avg wait (ms): " + getAverageWaitMillis() + " max wait (ms): " + getMaxWaitMillis()
+                + " pooled interpreters: " + Pep8Visitor.getPooledInterpreters()
+                + " created interpreters: " + Pep8Visitor.getCreatedInterpreters();
+    }
+}
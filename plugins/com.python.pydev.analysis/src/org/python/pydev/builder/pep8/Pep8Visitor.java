@@ -9,6 +9,7 @@ package org.python.pydev.builder.pep8;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.runtime.IAdaptable;
@@ -26,6 +27,7 @@ import org.python.pydev.jython.JythonPlugin;
 import org.python.pydev.plugin.JythonModules;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.threaded_objects_pool.ThreadedObjectsPool;
 
 import com.python.pydev.analysis.IAnalysisPreferences;
 import com.python.pydev.analysis.messages.IMessage;
@@ -85,6 +87,29 @@ public class Pep8Visitor {
     private static final Object lock = new Object();
     private String messageToIgnore;
 
+    /**
+     * Interpreters (with the pep8 module already loaded) which may be reused (the configuration is whether the
+     * output is redirected to the console).
+     */
+    private static final ThreadedObjectsPool<IPythonInterpreter> interpretersPool = new ThreadedObjectsPool<>(
+            Pep8Executor.MAX_THREADS * 2);
+
+    private static final AtomicInteger createdInterpreters = new AtomicInteger();
+
+    /**
+     * @return the number of interpreters currently available for reuse.
+     */
+    public static int getPooledInterpreters() {
+        return interpretersPool.size();
+    }
+
+    /**
+     * @return the number of interpreters created to run pep8.
+     */
+    public static int getCreatedInterpreters() {
+        return createdInterpreters.get();
+    }
+
     public List<IMessage> getMessages(SourceModule module, IDocument document, IProgressMonitor monitor,
             IAnalysisPreferences prefs) {
         try {
@@ -128,33 +153,54 @@ public class Pep8Visitor {
                 args.append(',').append("r'").append(string).append('\'');
             }
 
-            //It's important that the interpreter is created in the Thread and not outside the thread (otherwise
-            //it may be that the output ends up being shared, which is not what we want.)
+            //The interpreters are reused (they're expensive to create), but they're only used in the pep8 threads
+            //(see Pep8Executor) and the sys is not shared (otherwise it may be that the output ends up being
+            //shared, which is not what we want.)
             boolean useConsole = AnalysisPreferencesPage.useConsole(projectAdaptable);
-            IPythonInterpreter interpreter = JythonPlugin.newPythonInterpreter(useConsole, false);
-            String file = StringUtils.replaceAllSlashes(module.getFile().getAbsolutePath());
-            interpreter.set("visitor", this);
-
-            List<String> splitInLines = StringUtils.splitInLines(document.get());
-            interpreter.set("lines", splitInLines);
-            PyObject tempReportError = reportError;
-            if (tempReportError != null) {
-                interpreter.set("ReportError", tempReportError);
-            } else {
-                interpreter.set("ReportError", Py.None);
+            IPythonInterpreter interpreter = interpretersPool.getObject(useConsole);
+            if (interpreter == null) {
+                interpreter = JythonPlugin.newPythonInterpreter(useConsole, false);
+                createdInterpreters.incrementAndGet();
             }
-            PyObject pep8Module = JythonModules.getPep8Module(interpreter);
-            interpreter.set("pep8", pep8Module);
-
-            String formatted = StringUtils.format(EXECUTE_PEP8, file,
-                    args.toString(),
-                    file);
-            interpreter.exec(formatted);
-            if (reportError == null) {
-                synchronized (lock) {
-                    if (reportError == null) {
-                        reportError = interpreter.get("ReportError");
+            boolean reuseInterpreter = false;
+            try {
+                String file = StringUtils.replaceAllSlashes(module.getFile().getAbsolutePath());
+                interpreter.set("visitor", this);
+
+                List<String> splitInLines = StringUtils.splitInLines(document.get());
+                interpreter.set("lines", splitInLines);
+                PyObject tempReportError = reportError;
+                if (tempReportError != null) {
+                    interpreter.set("ReportError", tempReportError);
+                } else {
+                    interpreter.set("ReportError", Py.None);
+                }
+                PyObject pep8Module = JythonModules.getPep8Module(interpreter);
+                interpreter.set("pep8", pep8Module);
+
+                String formatted = StringUtils.format(EXECUTE_PEP8, file,
+                        args.toString(),
+                        file);
+                interpreter.exec(formatted);
+                if (reportError == null) {
+                    synchronized (lock) {
+                        if (reportError == null) {
+                            reportError = interpreter.get("ReportError");
+                        }
+                    }
+                }
+                reuseInterpreter = true;
+            } finally {
+                if (reuseInterpreter) {
+                    //Clear the references to this file before making it available to others.
+                    interpreter.set("visitor", Py.None);
+                    interpreter.set("lines", Py.None);
+                    for (IPythonInterpreter removed : interpretersPool.putObject(useConsole, interpreter)) {
+                        removed.cleanup();
                     }
+                } else {
+                    //Its state is unknown after an error: don't reuse it.
+                    interpreter.cleanup();
                 }
             }
 
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.FastBufferedReader;
+import org.python.pydev.core.IGrammarVersionProvider;
+import org.python.pydev.core.ObjectsInternPool.ObjectsPoolMap;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.parser.fastparser.FastDefinitionsParser;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+public class ClassHierarchyIndexTest extends TestCase {
+
+    private ClassHierarchyIndex createIndex() {
+        ClassHierarchyIndex index = new ClassHierarchyIndex();
+        index.add("mod1", FastDefinitionsParser.parse("" +
+                "class Foo(models.Model):\n" +
+                "    class Meta(object):\n" +
+                "        pass\n" +
+                "class Bar(Foo, Mixin):\n" +
+                "    pass\n"));
+        index.add("mod2", FastDefinitionsParser.parse("" +
+                "class Baz(mod1.Foo):\n" +
+                "    pass\n" +
+                "class NoBases:\n" +
+                "    pass\n"));
+        index.add("mod3", FastDefinitionsParser.parse("class NoBases:\n    pass\n"));
+        return index;
+    }
+
+    public void testGetModulesWithSubclasses() throws Exception {
+        ClassHierarchyIndex index = createIndex();
+        assertEquals(new HashSet<String>(Arrays.asList("mod1")), index.getModulesWithSubclassesOf("Model"));
+        assertEquals(new HashSet<String>(Arrays.asList("mod1")), index.getModulesWithSubclassesOf("object"));
+        assertEquals(new HashSet<String>(Arrays.asList("mod1", "mod2")), index.getModulesWithSubclassesOf("Foo"));
+        assertEquals(new HashSet<String>(Arrays.asList("mod1", "mod2")),
+                index.getModulesWithSubclassesOf("mod1.Foo"));
+        assertEquals(0, index.getModulesWithSubclassesOf("NoBases").size());
+
+        //Re-adding a module replaces its previous bases.
+        index.add("mod1", FastDefinitionsParser.parse("class Foo(Other):\n    pass\n"));
+        assertEquals(0, index.getModulesWithSubclassesOf("Model").size());
+        assertEquals(new HashSet<String>(Arrays.asList("mod2")), index.getModulesWithSubclassesOf("Foo"));
+        assertEquals(new HashSet<String>(Arrays.asList("mod1")), index.getModulesWithSubclassesOf("Other"));
+
+        index.remove("mod2");
+        assertEquals(0, index.getModulesWithSubclassesOf("Foo").size());
+    }
+
+    public void testAliasedBases() throws Exception {
+        String contents = "" +
+                "from m import Model as M\n" +
+                "class C(M):\n" +
+                "    pass\n";
+        ClassHierarchyIndex index = new ClassHierarchyIndex();
+        index.add("fast", FastDefinitionsParser.parse(contents));
+        ParseOutput output = PyParser.reparseDocument(new ParserInfo(new Document(contents),
+                IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_2_7));
+        index.add("full", (SimpleNode) output.ast);
+
+        assertEquals(new HashSet<String>(Arrays.asList("fast", "full")), index.getModulesWithSubclassesOf("Model"));
+        assertEquals(new HashSet<String>(Arrays.asList("fast", "full")),
+                index.getModulesWithSubclassesOf("m.Model"));
+        assertEquals(0, index.getModulesWithSubclassesOf("M").size());
+    }
+
+    public void testWriteAndLoad() throws Exception {
+        ClassHierarchyIndex index = createIndex();
+        FastStringBuffer buf = new FastStringBuffer();
+        index.writeTo(buf);
+
+        FastBufferedReader reader = new FastBufferedReader(new StringReader(buf.toString()));
+        assertEquals("-- START CLASS HIERARCHY", reader.readLine().toString());
+        ClassHierarchyIndex loaded = ClassHierarchyIndex.loadFrom(reader, new ObjectsPoolMap());
+        assertNull(reader.readLine());
+
+        for (String base : new String[] { "Model", "object", "Foo", "Mixin", "NoBases" }) {
+            assertEquals(index.getModulesWithSubclassesOf(base), loaded.getModulesWithSubclassesOf(base));
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class InfoSetTest extends TestCase {
+
+    public void testAddRemove() throws Exception {
+        InfoSet set = new InfoSet();
+        assertEquals(0, set.size());
+        assertFalse(set.iterator().hasNext());
+        assertFalse(set.contains(new FuncInfo("a", "mod1", null)));
+
+        assertTrue(set.add(new FuncInfo("a", "mod1", null)));
+        assertFalse(set.add(new FuncInfo("a", "mod1", null)));
+        assertTrue(set.add(new ClassInfo("a", "mod1", null)));
+        assertTrue(set.add(new FuncInfo("a", "mod2", null)));
+        assertEquals(3, set.size());
+        assertTrue(set.contains(new FuncInfo("a", "mod2", null)));
+
+        assertTrue(set.remove(new FuncInfo("a", "mod1", null)));
+        assertFalse(set.remove(new FuncInfo("a", "mod1", null)));
+        assertEquals(2, set.size());
+        assertFalse(set.contains(new FuncInfo("a", "mod1", null)));
+        assertTrue(set.contains(new ClassInfo("a", "mod1", null)));
+
+        assertTrue(set.add(new FuncInfo("a", "mod1", null)));
+        assertEquals(3, set.size());
+
+        set.clear();
+        assertEquals(0, set.size());
+        assertFalse(set.contains(new ClassInfo("a", "mod1", null)));
+    }
+
+    public void testManyInfos() throws Exception {
+        InfoSet set = new InfoSet(10);
+        Set<IInfo> expected = new HashSet<IInfo>();
+        for (int i = 0; i < 1000; i++) {
+            FuncInfo info = new FuncInfo("f" + i, "mod" + (i % 7), null);
+            assertTrue(set.add(info));
+            expected.add(info);
+        }
+        assertEquals(expected, set);
+
+        //remove some while iterating
+        Iterator<IInfo> it = set.iterator();
+        while (it.hasNext()) {
+            IInfo info = it.next();
+            if (info.getDeclaringModuleName().equals("mod3")) {
+                it.remove();
+            }
+        }
+        it = expected.iterator();
+        while (it.hasNext()) {
+            if (it.next().getDeclaringModuleName().equals("mod3")) {
+                it.remove();
+            }
+        }
+        assertEquals(expected, set);
+        assertEquals(expected.size(), set.size());
+
+        //the removed ones may be added again
+        for (int i = 0; i < 1000; i++) {
+            FuncInfo info = new FuncInfo("f" + i, "mod" + (i % 7), null);
+            set.add(info);
+            expected.add(info);
+        }
+        assertEquals(expected, set);
+        assertEquals(1000, set.size());
+    }
+
+    public void testRemoveAllWhileIterating() throws Exception {
+        InfoSet set = new InfoSet();
+        for (int i = 0; i < 10; i++) {
+            set.add(new FuncInfo("f" + i, "mod1", null));
+        }
+        Iterator<IInfo> it = set.iterator();
+        int count = 0;
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+            count++;
+        }
+        assertEquals(10, count);
+        assertEquals(0, set.size());
+        assertTrue(set.add(new FuncInfo("f0", "mod1", null)));
+        assertEquals(1, set.size());
+    }
+}
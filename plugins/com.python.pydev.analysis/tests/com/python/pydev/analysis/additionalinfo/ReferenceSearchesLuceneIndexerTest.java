@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2015 by Brainwy Software Ltda. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.cache.CompleteIndexKey;
+import org.python.pydev.core.cache.DiskCache;
+import org.python.pydev.shared_core.index.IndexApi;
+import org.python.pydev.shared_core.index.IndexApi.DocumentInfo;
+import org.python.pydev.shared_core.index.IndexApi.IDocumentsVisitor;
+import org.python.pydev.shared_core.io.FileUtils;
+
+public class ReferenceSearchesLuceneIndexerTest extends TestCase {
+
+    /**
+     * Counts the commits done in the index.
+     */
+    private static final class CountingIndexApi extends IndexApi {
+
+        private int commits;
+
+        public CountingIndexApi(File indexDir) throws IOException {
+            super(indexDir, false);
+        }
+
+        @Override
+        public void commit() throws IOException {
+            commits += 1;
+            super.commit();
+        }
+    }
+
+    private File baseDir;
+    private AbstractAdditionalDependencyInfo info;
+    private CountingIndexApi indexApi;
+    private ReferenceSearchesLuceneIndexer indexer;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = FileUtils.getTempFileAt(new File("."), "data_temp_reference_searches_indexer_test");
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        baseDir.mkdir();
+
+        info = new AbstractAdditionalDependencyInfo(false) {
+
+            @Override
+            protected File getPersistingLocation() {
+                return null;
+            }
+
+            @Override
+            protected File getPersistingFolder() {
+                return baseDir;
+            }
+
+            @Override
+            protected Set<String> getPythonPathFolders() {
+                return new HashSet<>(Arrays.asList(baseDir.getAbsolutePath()));
+            }
+
+            @Override
+            protected String getUIRepresentation() {
+                return "Stub for: " + baseDir;
+            }
+        };
+        File cacheDir = new File(baseDir, "v2_indexcache");
+        cacheDir.mkdir();
+        info.completeIndex = new DiskCache(cacheDir, ".v2_indexcache");
+
+        indexApi = new CountingIndexApi(new File(baseDir, "lc"));
+        indexer = new ReferenceSearchesLuceneIndexer(info, indexApi);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        indexer.dispose();
+        indexApi.dispose();
+        FileUtils.deleteDirectoryTree(baseDir);
+        super.tearDown();
+    }
+
+    /**
+     * Creates (or changes) the module in the disk and in the info (as the builder would do).
+     */
+    private void setModule(String modName, String contents, long lastModified) {
+        File f = new File(baseDir, modName + ".py");
+        FileUtils.writeStrToFile(contents, f);
+        f.setLastModified(lastModified);
+        info.completeIndex.add(new CompleteIndexKey(new ModulesKey(modName, f), FileUtils.lastModified(f)));
+    }
+
+    private Set<String> search(String token) throws IOException {
+        final Set<String> found = new HashSet<>();
+        IDocumentsVisitor visitor = new IDocumentsVisitor() {
+
+            @Override
+            public void visit(DocumentInfo documentInfo) {
+                found.add(documentInfo.get(IReferenceSearches.FIELD_MODULE_NAME));
+            }
+        };
+        indexApi.searchWildcard(new HashSet<>(Arrays.asList(token)), IReferenceSearches.FIELD_CONTENTS, false,
+                visitor, null, IReferenceSearches.FIELD_MODULE_NAME);
+        return found;
+    }
+
+    private int countDocs() throws IOException {
+        final int[] count = new int[1];
+        indexApi.visitAllDocs(new IDocumentsVisitor() {
+
+            @Override
+            public void visit(DocumentInfo documentInfo) {
+                count[0] += 1;
+            }
+        }, IReferenceSearches.FIELD_MODULE_NAME);
+        return count[0];
+    }
+
+    public void testIndexChangeAndSearch() throws Exception {
+        long time = 1000000000000L;
+        setModule("mod1", "def method1(): pass\n", time);
+        setModule("mod2", "def method2(): method1()\n", time);
+
+        indexer.start();
+        indexer.waitUntilIndexed(new NullProgressMonitor());
+        assertEquals(new HashSet<>(Arrays.asList("mod1", "mod2")), search("method1"));
+        assertEquals(new HashSet<>(Arrays.asList("mod2")), search("method2"));
+        assertEquals(2, countDocs());
+
+        //Changes are only seen after being notified (and waitUntilIndexed waits for them).
+        setModule("mod1", "def method3(): pass\n", time + 2000);
+        indexer.moduleChanged("mod1");
+        indexer.waitUntilIndexed(new NullProgressMonitor());
+        assertEquals(new HashSet<>(Arrays.asList("mod2")), search("method1"));
+        assertEquals(new HashSet<>(Arrays.asList("mod1")), search("method3"));
+        assertEquals(2, countDocs());
+
+        //Removed modules are removed from the index.
+        info.completeIndex.remove(new CompleteIndexKey("mod2"));
+        indexer.moduleChanged("mod2");
+        indexer.waitUntilIndexed(new NullProgressMonitor());
+        assertEquals(new HashSet<String>(), search("method1"));
+        assertEquals(1, countDocs());
+
+        //Added modules are added.
+        setModule("mod3", "method3()\n", time);
+        indexer.moduleChanged("mod3");
+        indexer.waitUntilIndexed(new NullProgressMonitor());
+        assertEquals(new HashSet<>(Arrays.asList("mod1", "mod3")), search("method3"));
+    }
+
+    public void testCommitsInBatches() throws Exception {
+        long time = 1000000000000L;
+        for (int i = 0; i < 1201; i++) {
+            setModule("mod" + i, "def method" + i + "(): pass\n", time);
+        }
+        indexer.start();
+        indexer.waitUntilIndexed(new NullProgressMonitor());
+        assertEquals(1201, countDocs());
+        assertEquals(3, indexApi.commits); //at 500, 1000 and at the end.
+        assertEquals(new HashSet<>(Arrays.asList("mod1200")), search("method1200"));
+
+        //A new indexer (i.e.: after a restart) compares what's in the index with the modules: nothing changed.
+        indexer.dispose();
+        indexer = new ReferenceSearchesLuceneIndexer(info, indexApi);
+        indexer.start();
+        indexer.waitUntilIndexed(new NullProgressMonitor());
+        assertEquals(3, indexApi.commits);
+        assertEquals(1201, countDocs());
+    }
+
+    public void testSearchSeesChangesNotCommitted() throws Exception {
+        Map<String, String> fields = new HashMap<>();
+        fields.put(IReferenceSearches.FIELD_MODULE_NAME, "mod1");
+        assertEquals(new HashSet<String>(), search("method1"));
+
+        //Neither committed nor refreshed: the search refreshes the near-real-time reader.
+        indexApi.index(fields, new StringReader("def method1(): pass"), IReferenceSearches.FIELD_CONTENTS);
+        assertEquals(new HashSet<>(Arrays.asList("mod1")), search("method1"));
+        assertEquals(0, indexApi.commits);
+    }
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.File;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.structure.Tuple;
+
+public class SegmentAccessStatsTest extends TestCase {
+
+    private File baseDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = FileUtils.getTempFileAt(new File("."), "data_segment_access_stats");
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        baseDir.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectoryTree(baseDir);
+        super.tearDown();
+    }
+
+    private static void access(SegmentAccessStats stats, int doOn, String initials, int times) {
+        for (int i = 0; i < times; i++) {
+            stats.access(doOn, initials);
+        }
+    }
+
+    public void testHottest() throws Exception {
+        SegmentAccessStats stats = new SegmentAccessStats();
+        access(stats, AbstractAdditionalTokensInfo.TOP_LEVEL, "cla", 3);
+        access(stats, AbstractAdditionalTokensInfo.INNER, "cla", 5);
+        access(stats, AbstractAdditionalTokensInfo.TOP_LEVEL, "fun", 1);
+
+        List<Tuple<Integer, String>> hottest = stats.getHottest(2);
+        assertEquals(2, hottest.size());
+        assertEquals(new Tuple<Integer, String>(AbstractAdditionalTokensInfo.INNER, "cla"), hottest.get(0));
+        assertEquals(new Tuple<Integer, String>(AbstractAdditionalTokensInfo.TOP_LEVEL, "cla"), hottest.get(1));
+        assertEquals(3, stats.getHottest(10).size());
+    }
+
+    public void testSaveLoad() throws Exception {
+        SegmentAccessStats stats = new SegmentAccessStats();
+        access(stats, AbstractAdditionalTokensInfo.TOP_LEVEL, "cla", 8);
+        access(stats, AbstractAdditionalTokensInfo.INNER, "a|b", 3);
+        access(stats, AbstractAdditionalTokensInfo.TOP_LEVEL, "fun", 1);
+
+        File file = new File(baseDir, "info.stats");
+        stats.saveTo(file);
+        assertTrue(file.exists());
+
+        SegmentAccessStats loaded = new SegmentAccessStats();
+        loaded.loadFrom(file);
+        //counts are halved (and the ones with few accesses are not persisted)
+        assertEquals(4, loaded.getCount(AbstractAdditionalTokensInfo.TOP_LEVEL, "cla"));
+        assertEquals(1, loaded.getCount(AbstractAdditionalTokensInfo.INNER, "a|b"));
+        assertEquals(0, loaded.getCount(AbstractAdditionalTokensInfo.TOP_LEVEL, "fun"));
+
+        //not changed: not written again
+        assertTrue(file.delete());
+        loaded.saveTo(file);
+        assertFalse(file.exists());
+
+        FileUtils.writeStrToFile("corrupted|file", file);
+        loaded.loadFrom(file);
+        assertEquals(0, loaded.getHottest(10).size());
+    }
+}
@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+public class TokensPrefixIndexTest extends TestCase {
+
+    private TokensPrefixIndex index;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        Set<IInfo> set1 = new HashSet<IInfo>();
+        set1.add(new FuncInfo("getTokensStartingWith", "mod1", null));
+        set1.add(new FuncInfo("get_tokens_starting_with", "mod1", null));
+        set1.add(new FuncInfo("getTokensEqualTo", "mod1", null));
+        set1.add(new ClassInfo("HTTPServer", "mod1", null));
+
+        Set<IInfo> set2 = new HashSet<IInfo>();
+        set2.add(new ClassInfo("GetTokens", "mod2", null));
+        set2.add(new FuncInfo("gettokens", "mod2", null));
+        set2.add(new FuncInfo("met", "mod2", null));
+
+        List<Set<IInfo>> sets = new ArrayList<Set<IInfo>>();
+        sets.add(set1);
+        sets.add(set2);
+        index = TokensPrefixIndex.create(sets);
+    }
+
+    private List<String> getNames(List<IInfo> infos) {
+        List<String> ret = new ArrayList<String>();
+        for (IInfo info : infos) {
+            ret.add(info.getName());
+        }
+        return ret;
+    }
+
+    public void testStartingWith() throws Exception {
+        assertEquals(7, index.size());
+
+        List<IInfo> result = new ArrayList<IInfo>();
+        assertEquals(5, index.getStartingWith("get", result, -1));
+        assertEquals(5, result.size());
+
+        result.clear();
+        assertEquals(4, index.getStartingWith("GETTOKENS", result, -1));
+        assertEquals(4, result.size());
+
+        result.clear();
+        assertEquals(0, index.getStartingWith("zz", result, -1));
+        assertEquals(0, index.getStartingWith("mett", result, -1));
+
+        result.clear();
+        assertEquals(7, index.getStartingWith("", result, -1));
+    }
+
+    public void testStartingWithMaxResults() throws Exception {
+        List<IInfo> result = new ArrayList<IInfo>();
+        assertEquals(1, index.getStartingWith("get", result, 1));
+        //the first one in alphabetical order
+        assertEquals("[get_tokens_starting_with]", getNames(result).toString());
+
+        result.clear();
+        assertEquals(3, index.getStartingWith("getTokens", result, 3));
+        assertEquals(3, result.size());
+    }
+
+    public void testUpdate() throws Exception {
+        List<IInfo> added = new ArrayList<IInfo>();
+        added.add(new FuncInfo("getTokensEqualTo", "mod1", null));
+        added.add(new FuncInfo("getTheSame", "mod1", null));
+        added.add(new ClassInfo("GTS", "mod3", null));
+        added.add(new FuncInfo("abc", "mod3", null));
+        added.add(new FuncInfo("zzz", "mod3", null));
+        TokensPrefixIndex updated = index.update(added, new HashSet<String>(Arrays.asList("mod1")));
+        assertEquals(7, index.size()); //the original is not changed
+
+        Set<IInfo> set2 = new HashSet<IInfo>();
+        set2.add(new ClassInfo("GetTokens", "mod2", null));
+        set2.add(new FuncInfo("gettokens", "mod2", null));
+        set2.add(new FuncInfo("met", "mod2", null));
+        List<Set<IInfo>> sets = new ArrayList<Set<IInfo>>();
+        sets.add(set2);
+        sets.add(new HashSet<IInfo>(added));
+        TokensPrefixIndex created = TokensPrefixIndex.create(sets);
+        assertEquals(8, updated.size());
+
+        List<IInfo> expected = new ArrayList<IInfo>();
+        List<IInfo> found = new ArrayList<IInfo>();
+        for (String qual : new String[] { "", "get", "g", "z" }) {
+            expected.clear();
+            found.clear();
+            created.getStartingWith(qual, expected, -1);
+            updated.getStartingWith(qual, found, -1);
+            assertEquals(getNames(expected), getNames(found));
+        }
+        for (String abbreviation : new String[] { "gT", "gTS", "GT", "gTE" }) {
+            expected.clear();
+            found.clear();
+            created.getMatchingCamelCase(abbreviation, expected, -1);
+            updated.getMatchingCamelCase(abbreviation, found, -1);
+            assertEquals(getNames(expected), getNames(found));
+        }
+        found.clear();
+        updated.getMatchingCamelCase("gTS", found, -1);
+        assertEquals("[getTheSame]", getNames(found).toString());
+    }
+
+    public void testEqualTo() throws Exception {
+        List<IInfo> result = new ArrayList<IInfo>();
+        assertEquals(1, index.getEqualTo("GetTokens", false, result, -1));
+        assertEquals("[GetTokens]", getNames(result).toString());
+
+        result.clear();
+        assertEquals(2, index.getEqualTo("GetTokens", true, result, -1));
+
+        result.clear();
+        assertEquals(0, index.getEqualTo("GetToken", true, result, -1));
+    }
+
+    public void testCamelCase() throws Exception {
+        assertTrue(TokensPrefixIndex.isCamelCaseAbbreviation("gTSW"));
+        assertTrue(TokensPrefixIndex.isCamelCaseAbbreviation("get_t"));
+        assertFalse(TokensPrefixIndex.isCamelCaseAbbreviation("get"));
+        assertFalse(TokensPrefixIndex.isCamelCaseAbbreviation("_get_"));
+
+        List<IInfo> result = new ArrayList<IInfo>();
+        assertEquals(2, index.getMatchingCamelCase("gTSW", result, -1));
+        assertEquals("[get_tokens_starting_with, getTokensStartingWith]", getNames(result).toString());
+
+        result.clear();
+        assertEquals(4, index.getMatchingCamelCase("getT", result, -1));
+
+        result.clear();
+        assertEquals(1, index.getMatchingCamelCase("getTE", result, -1));
+        assertEquals("[getTokensEqualTo]", getNames(result).toString());
+
+        result.clear();
+        assertEquals(1, index.getMatchingCamelCase("HS", result, -1));
+        assertEquals("[HTTPServer]", getNames(result).toString());
+
+        result.clear();
+        assertEquals(1, index.getMatchingCamelCase("gTSW", result, 1));
+    }
+
+    public void testMatchesCamelCase() throws Exception {
+        assertTrue(TokensPrefixIndex.matchesCamelCase("gTSW", "getTokensStartingWith"));
+        assertTrue(TokensPrefixIndex.matchesCamelCase("getTokSW", "getTokensStartingWith"));
+        assertTrue(TokensPrefixIndex.matchesCamelCase("get_t_s", "getTokensStartingWith"));
+        assertTrue(TokensPrefixIndex.matchesCamelCase("gTS", "get_tokens_starting_with"));
+        assertTrue(TokensPrefixIndex.matchesCamelCase("HSer", "HTTPServer"));
+        assertFalse(TokensPrefixIndex.matchesCamelCase("gTX", "getTokensStartingWith"));
+        assertFalse(TokensPrefixIndex.matchesCamelCase("gTSWX", "getTokensStartingWith"));
+
+        assertEquals("gtsw", TokensPrefixIndex.getInitials("getTokensStartingWith"));
+        assertEquals("gtsw", TokensPrefixIndex.getInitials("_get_tokens_starting_with"));
+        assertEquals("hs", TokensPrefixIndex.getInitials("HTTPServer"));
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.additionalinfo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.core.FastBufferedReader;
+import org.python.pydev.core.ObjectsInternPool.ObjectsPoolMap;
+import org.python.pydev.editor.codecompletion.revisited.PyPublicTreeMap;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Run main() to get a comparison of the load time and heap used by the text format (TreeIO) and
+ * the binary format (TreeBinaryIO).
+ */
+public class TreeBinaryIOTest extends TestCase {
+
+    private File baseDir;
+
+    public static void main(String[] args) {
+        try {
+            TreeBinaryIOTest test = new TreeBinaryIOTest();
+            test.setUp();
+            test.benchmark(40000, 10);
+            test.tearDown();
+
+            junit.textui.TestRunner.run(TreeBinaryIOTest.class);
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = FileUtils.getTempFileAt(new File("."), "data_tree_binary_io");
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        baseDir.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectoryTree(baseDir);
+        super.tearDown();
+    }
+
+    private static void add(SortedMap<String, Set<IInfo>> tree, IInfo info) {
+        String name = info.getName();
+        String initials = name.length() < 3 ? name : name.substring(0, 3).toLowerCase();
+        Set<IInfo> set = tree.get(initials);
+        if (set == null) {
+            set = new HashSet<IInfo>();
+            tree.put(initials, set);
+        }
+        set.add(info);
+    }
+
+    private static void createTrees(SortedMap<String, Set<IInfo>> topLevel, SortedMap<String, Set<IInfo>> inner,
+            int modules, int tokensPerModule) {
+        for (int i = 0; i < modules; i++) {
+            String modName = "pack" + (i % 100) + ".mod" + i;
+            add(topLevel, new ModInfo(modName, false));
+            for (int j = 0; j < tokensPerModule; j++) {
+                String className = "Class" + j + "_" + (i % 50);
+                add(topLevel, new ClassInfo(className, modName, null, false));
+                add(topLevel, new FuncInfo("func" + j, modName, null, false));
+                add(topLevel, new AttrInfo("ATTR" + j, modName, null, false));
+                add(inner, new FuncInfo("method" + j, modName, className, false));
+                add(inner, new AttrInfo("attr\u00e7" + j, modName, className + ".method" + j, false));
+            }
+        }
+    }
+
+    private static void compareTrees(SortedMap<String, Set<IInfo>> expected, SortedMap<String, Set<IInfo>> found) {
+        assertEquals(new ArrayList<String>(expected.keySet()), new ArrayList<String>(found.keySet()));
+        for (Map.Entry<String, Set<IInfo>> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), new HashSet<IInfo>(found.get(entry.getKey())));
+        }
+    }
+
+    public void testBinaryRoundTrip() throws Exception {
+        PyPublicTreeMap<String, Set<IInfo>> topLevel = new PyPublicTreeMap<String, Set<IInfo>>();
+        PyPublicTreeMap<String, Set<IInfo>> inner = new PyPublicTreeMap<String, Set<IInfo>>();
+        createTrees(topLevel, inner, 20, 5);
+
+        File file = new File(baseDir, "info.trees");
+        assertTrue(TreeBinaryIO.dumpTrees(topLevel, inner, file, 10));
+
+        TreeBinaryIO.LoadedTrees loaded = TreeBinaryIO.loadTrees(file, 10);
+        Set<IInfo> lazy = loaded.topLevel.get("cla");
+        assertTrue(lazy instanceof LazyInfoSet);
+        assertFalse(((LazyInfoSet) lazy).isMaterialized());
+        assertEquals(topLevel.get("cla").size(), lazy.size());
+        assertFalse(((LazyInfoSet) lazy).isMaterialized());
+        assertTrue(((LazyInfoSet) lazy).mayContainModule("pack1.mod1"));
+        assertFalse(((LazyInfoSet) lazy).mayContainModule("pack1.mod2"));
+        assertFalse(((LazyInfoSet) lazy).mayContainModule("not.there"));
+
+        TreeBinaryIO.MappedInfoReader reader = ((LazyInfoSet) lazy).getReader();
+        for (Set<IInfo> infos : topLevel.values()) {
+            for (IInfo info : infos) {
+                int id = reader.getStringId(info.getName());
+                assertTrue(id >= 0);
+                assertEquals(info.getName(), reader.getString(id));
+                assertEquals(info.getDeclaringModuleName(), reader.getString(reader.getStringId(info
+                        .getDeclaringModuleName())));
+            }
+        }
+        assertEquals(-1, reader.getStringId(""));
+        assertEquals(-1, reader.getStringId("zzz.not.there"));
+
+        compareTrees(topLevel, loaded.topLevel);
+        compareTrees(inner, loaded.inner);
+        assertTrue(((LazyInfoSet) lazy).isMaterialized());
+    }
+
+    public void testBinaryGenerationMismatch() throws Exception {
+        PyPublicTreeMap<String, Set<IInfo>> topLevel = new PyPublicTreeMap<String, Set<IInfo>>();
+        PyPublicTreeMap<String, Set<IInfo>> inner = new PyPublicTreeMap<String, Set<IInfo>>();
+        createTrees(topLevel, inner, 2, 2);
+
+        File file = new File(baseDir, "info.trees");
+        assertTrue(TreeBinaryIO.dumpTrees(topLevel, inner, file, 10));
+        try {
+            TreeBinaryIO.loadTrees(file, 11);
+            fail("Expected generation mismatch.");
+        } catch (java.io.IOException e) {
+            //expected
+        }
+    }
+
+    public void testPendingFileSwappedIn() throws Exception {
+        PyPublicTreeMap<String, Set<IInfo>> topLevel = new PyPublicTreeMap<String, Set<IInfo>>();
+        PyPublicTreeMap<String, Set<IInfo>> inner = new PyPublicTreeMap<String, Set<IInfo>>();
+        createTrees(topLevel, inner, 3, 2);
+
+        File file = new File(baseDir, "info.trees");
+        assertTrue(TreeBinaryIO.dumpTrees(topLevel, inner, file, 1));
+
+        //i.e.: what's written when the file can't be replaced because it's still mapped.
+        File pendingFile = TreeBinaryIO.getPendingFile(file);
+        assertTrue(TreeBinaryIO.dumpTrees(topLevel, inner, pendingFile, 2));
+
+        TreeBinaryIO.LoadedTrees loaded = TreeBinaryIO.loadTrees(file, 2);
+        compareTrees(topLevel, loaded.topLevel);
+        compareTrees(inner, loaded.inner);
+        assertFalse(pendingFile.exists());
+        assertTrue(file.exists());
+
+        //a stale pending file is ignored.
+        assertTrue(TreeBinaryIO.dumpTrees(topLevel, inner, pendingFile, 1));
+        loaded = TreeBinaryIO.loadTrees(file, 2);
+        compareTrees(topLevel, loaded.topLevel);
+        assertFalse(pendingFile.exists());
+    }
+
+    public void testRewriteFromLazyTrees() throws Exception {
+        PyPublicTreeMap<String, Set<IInfo>> topLevel = new PyPublicTreeMap<String, Set<IInfo>>();
+        PyPublicTreeMap<String, Set<IInfo>> inner = new PyPublicTreeMap<String, Set<IInfo>>();
+        createTrees(topLevel, inner, 10, 3);
+
+        File file = new File(baseDir, "info.trees");
+        assertTrue(TreeBinaryIO.dumpTrees(topLevel, inner, file, 1));
+        TreeBinaryIO.LoadedTrees loaded = TreeBinaryIO.loadTrees(file, 1);
+
+        //Only materialize some of the sets before writing it again.
+        loaded.topLevel.get("fun").add(new FuncInfo("funcNew", "pack0.mod0", null, false));
+        add(topLevel, new FuncInfo("funcNew", "pack0.mod0", null, false));
+
+        File file2 = new File(baseDir, "info2.trees");
+        assertTrue(TreeBinaryIO.dumpTrees(loaded.topLevel, loaded.inner, file2, 2));
+        TreeBinaryIO.LoadedTrees loaded2 = TreeBinaryIO.loadTrees(file2, 2);
+        compareTrees(topLevel, loaded2.topLevel);
+        compareTrees(inner, loaded2.inner);
+    }
+
+    public void testUnloadIdle() throws Exception {
+        PyPublicTreeMap<String, Set<IInfo>> topLevel = new PyPublicTreeMap<String, Set<IInfo>>();
+        PyPublicTreeMap<String, Set<IInfo>> inner = new PyPublicTreeMap<String, Set<IInfo>>();
+        createTrees(topLevel, inner, 10, 3);
+
+        File file = new File(baseDir, "info.trees");
+        assertTrue(TreeBinaryIO.dumpTrees(topLevel, inner, file, 1));
+        TreeBinaryIO.LoadedTrees loaded = TreeBinaryIO.loadTrees(file, 1);
+
+        LazyInfoSet cla = (LazyInfoSet) loaded.topLevel.get("cla");
+        LazyInfoSet fun = (LazyInfoSet) loaded.topLevel.get("fun");
+        assertFalse(cla.unloadIfIdle(System.currentTimeMillis(), 0));
+
+        cla.preload();
+        assertTrue(cla.isMaterialized());
+        long now = System.currentTimeMillis();
+        assertFalse(cla.unloadIfIdle(now, 60 * 1000));
+        assertTrue(cla.unloadIfIdle(now + 60 * 1000, 60 * 1000));
+        assertFalse(cla.isMaterialized());
+
+        //it's created again when accessed
+        assertEquals(topLevel.get("cla"), new HashSet<IInfo>(cla));
+        assertTrue(cla.isMaterialized());
+
+        //a changed set must be kept in memory
+        fun.add(new FuncInfo("funcNew", "pack0.mod0", null, false));
+        add(topLevel, new FuncInfo("funcNew", "pack0.mod0", null, false));
+        assertFalse(fun.unloadIfIdle(Long.MAX_VALUE, 0));
+        assertTrue(fun.isMaterialized());
+
+        //and the sets which were unloaded may still be written
+        assertTrue(cla.unloadIfIdle(Long.MAX_VALUE, 0));
+        File file2 = new File(baseDir, "info2.trees");
+        assertTrue(TreeBinaryIO.dumpTrees(loaded.topLevel, loaded.inner, file2, 2));
+        TreeBinaryIO.LoadedTrees loaded2 = TreeBinaryIO.loadTrees(file2, 2);
+        compareTrees(topLevel, loaded2.topLevel);
+        compareTrees(inner, loaded2.inner);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    public void benchmark(int modules, int tokensPerModule) throws Exception {
+        PyPublicTreeMap<String, Set<IInfo>> topLevel = new PyPublicTreeMap<String, Set<IInfo>>();
+        PyPublicTreeMap<String, Set<IInfo>> inner = new PyPublicTreeMap<String, Set<IInfo>>();
+        createTrees(topLevel, inner, modules, tokensPerModule);
+
+        //Text format (as done in AbstractAdditionalTokensInfo.saveTo)
+        File textFile = new File(baseDir, "info.txt");
+        Map<String, Integer> dictionary = new HashMap<String, Integer>();
+        FastStringBuffer tempBuf = new FastStringBuffer();
+        tempBuf.append("-- START TREE 1\n");
+        TreeIO.dumpTreeToBuffer(topLevel, tempBuf, dictionary);
+        tempBuf.append("-- START TREE 2\n");
+        TreeIO.dumpTreeToBuffer(inner, tempBuf, dictionary);
+        FastStringBuffer buf2 = new FastStringBuffer();
+        TreeIO.dumpDictToBuffer(dictionary, buf2);
+        OutputStreamWriter writer = new OutputStreamWriter(new FileOutputStream(textFile));
+        try {
+            writer.write(buf2.getInternalCharsArray(), 0, buf2.length());
+            writer.write(tempBuf.getInternalCharsArray(), 0, tempBuf.length());
+        } finally {
+            writer.close();
+        }
+        tempBuf = null;
+        buf2 = null;
+        dictionary = null;
+
+        File binaryFile = new File(baseDir, "info.trees");
+        assertTrue(TreeBinaryIO.dumpTrees(topLevel, inner, binaryFile, 1));
+        topLevel = null;
+        inner = null;
+
+        System.out.println("Text file size: " + textFile.length() + " Binary file size: " + binaryFile.length());
+
+        long memBefore = usedMemory();
+        long time = System.nanoTime();
+        Object[] textTrees = loadText(textFile);
+        long textTime = System.nanoTime() - time;
+        long textMem = usedMemory() - memBefore;
+        assertNotNull(textTrees[1]);
+        textTrees = null;
+
+        memBefore = usedMemory();
+        time = System.nanoTime();
+        TreeBinaryIO.LoadedTrees loaded = TreeBinaryIO.loadTrees(binaryFile, 1);
+        long binaryTime = System.nanoTime() - time;
+        long binaryMem = usedMemory() - memBefore;
+
+        //A typical completion request only touches a few initials.
+        time = System.nanoTime();
+        int found = loaded.topLevel.get("cla").size() + loaded.topLevel.get("fun").iterator().next().getName().length();
+        long binaryAccessTime = System.nanoTime() - time;
+        assertTrue(found > 0);
+
+        System.out.println("TreeIO (text):       load " + (textTime / 1000000) + " millis, heap " + (textMem / 1024)
+                + " KB");
+        System.out.println("TreeBinaryIO (mmap): load " + (binaryTime / 1000000) + " millis, heap "
+                + (binaryMem / 1024) + " KB (first access: " + (binaryAccessTime / 1000000) + " millis)");
+    }
+
+    private static Object[] loadText(File textFile) throws Exception {
+        InputStreamReader reader = new InputStreamReader(new FileInputStream(textFile));
+        FastBufferedReader bufferedReader = new FastBufferedReader(reader);
+        try {
+            Object[] ret = new Object[2];
+            ObjectsPoolMap objectsPoolMap = new ObjectsPoolMap();
+            FastStringBuffer tempBuf = new FastStringBuffer(1024);
+            Map<Integer, String> dictionary = null;
+            FastStringBuffer line;
+            while ((line = bufferedReader.readLine()) != null) {
+                if (line.startsWith("-- START TREE 1")) {
+                    ret[0] = TreeIO.loadTreeFrom(bufferedReader, dictionary, tempBuf.clear(), objectsPoolMap);
+                } else if (line.startsWith("-- START TREE 2")) {
+                    ret[1] = TreeIO.loadTreeFrom(bufferedReader, dictionary, tempBuf.clear(), objectsPoolMap);
+                } else if (line.startsWith("-- START DICTIONARY")) {
+                    dictionary = TreeIO.loadDictFrom(bufferedReader, tempBuf.clear(), objectsPoolMap);
+                }
+            }
+            return ret;
+        } finally {
+            bufferedReader.close();
+        }
+    }
+}
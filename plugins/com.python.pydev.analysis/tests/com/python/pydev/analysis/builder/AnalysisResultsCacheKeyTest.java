@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.MisconfigurationException;
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.editor.autoedit.TestIndentPrefs;
+import org.python.pydev.editor.codecompletion.revisited.ModulesManagerWithBuild;
+import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
+import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
+
+import com.python.pydev.analysis.AnalysisTestsBase;
+
+public class AnalysisResultsCacheKeyTest extends AnalysisTestsBase {
+
+    private static final String[] ADDED_MODULES = new String[] { "cache_key_mod1", "cache_key_mod2",
+            "cache_key_mod3" };
+
+    public static void main(String[] args) {
+        try {
+            AnalysisResultsCacheKeyTest test = new AnalysisResultsCacheKeyTest();
+            test.setUp();
+            test.testKeyChangesWithWildImportedTokens();
+            test.tearDown();
+            System.out.println("finished");
+
+            junit.textui.TestRunner.run(AnalysisResultsCacheKeyTest.class);
+            System.out.println("finished all");
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+        System.exit(0);
+    }
+
+    @Override
+    public void setUp() throws Exception {
+        super.setUp();
+        SourceModule.TESTING = true; //the modules added have no file
+    }
+
+    @Override
+    public void tearDown() throws Exception {
+        SourceModule.TESTING = false;
+        ModulesManagerWithBuild modulesManager = getModulesManager();
+        for (String modName : ADDED_MODULES) {
+            modulesManager.doRemoveSingleModule(new ModulesKey(modName, null));
+        }
+        super.tearDown();
+    }
+
+    private ModulesManagerWithBuild getModulesManager() {
+        return (ModulesManagerWithBuild) nature.getAstManager().getModulesManager();
+    }
+
+    private void addModule(String modName, String contents) throws MisconfigurationException {
+        SourceModule mod = AbstractModule.createModuleFromDoc(modName, null, new Document(contents), nature, false);
+        getModulesManager().doAddSingleModule(new ModulesKey(modName, null), mod);
+    }
+
+    private String computeKey(String contents) throws MisconfigurationException {
+        doc = new Document(contents);
+        SourceModule module = AbstractModule.createModuleFromDoc("cache_key_analyzed", null, doc, nature, false);
+        String key = AnalysisResultsCache.computeKey(nature, module, prefs, doc, new TestIndentPrefs(true, 4));
+        assertNotNull(key);
+        return key;
+    }
+
+    public void testKeyIsStable() throws Exception {
+        addModule("cache_key_mod1", "def method(a): pass\n");
+        String s = "from cache_key_mod1 import method\nmethod(1)\n";
+        assertEquals(computeKey(s), computeKey(s));
+    }
+
+    public void testKeyChangesWithContents() throws Exception {
+        assertFalse(computeKey("a = 10\n").equals(computeKey("a = 20\n")));
+    }
+
+    public void testKeyChangesWithPreferences() throws Exception {
+        String s = "a = 10\n";
+        String key = computeKey(s);
+        prefs.severityForUnusedImport = IMarker.SEVERITY_ERROR;
+        assertFalse(key.equals(computeKey(s)));
+    }
+
+    public void testKeyChangesWithImportedTokens() throws Exception {
+        String s = "from cache_key_mod1 import method\nmethod(1)\n";
+        addModule("cache_key_mod1", "def method(a): pass\n");
+        String key = computeKey(s);
+
+        //a change which doesn't change the public tokens doesn't change the key
+        addModule("cache_key_mod1", "def method(a):\n    return a\n");
+        assertEquals(key, computeKey(s));
+
+        //but changing the signature does
+        addModule("cache_key_mod1", "def method(a, b): pass\n");
+        assertFalse(key.equals(computeKey(s)));
+    }
+
+    public void testKeyChangesWithImportResolution() throws Exception {
+        String s = "import cache_key_mod1\n";
+        String key = computeKey(s); //unresolved at this point
+
+        addModule("cache_key_mod1", "");
+        String resolvedKey = computeKey(s);
+        assertFalse(key.equals(resolvedKey));
+
+        getModulesManager().doRemoveSingleModule(new ModulesKey("cache_key_mod1", null));
+        assertEquals(key, computeKey(s));
+    }
+
+    public void testKeyChangesWithWildImportedTokens() throws Exception {
+        //cache_key_mod1 -> wild imports cache_key_mod2 -> wild imports cache_key_mod3 (which wild imports mod1).
+        addModule("cache_key_mod1", "from cache_key_mod2 import *\n");
+        addModule("cache_key_mod2", "from cache_key_mod3 import *\n");
+        addModule("cache_key_mod3", "from cache_key_mod1 import *\ndef method(a): pass\n");
+        String s = "from cache_key_mod1 import method\nmethod(1)\n";
+        String key = computeKey(s);
+
+        addModule("cache_key_mod3", "from cache_key_mod1 import *\ndef method(a, b): pass\n");
+        assertFalse(key.equals(computeKey(s)));
+    }
+}
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package com.python.pydev.analysis.builder;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.jface.text.Document;
+import org.python.pydev.shared_core.io.FileUtils;
+
+import com.python.pydev.analysis.IAnalysisPreferences;
+import com.python.pydev.analysis.messages.CachedMessage;
+import com.python.pydev.analysis.messages.IMessage;
+
+public class AnalysisResultsCacheTest extends TestCase {
+
+    private File baseDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        baseDir = new File(FileUtils.getFileAbsolutePath(new File("AnalysisResultsCacheTest.temporary_dir")));
+        try {
+            FileUtils.deleteDirectoryTree(baseDir);
+        } catch (Exception e) {
+            //ignore
+        }
+        if (baseDir.exists()) {
+            throw new AssertionError("Not expecting: " + baseDir + " to exist.");
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            FileUtils.deleteDirectoryTree(baseDir);
+        } catch (Exception e) {
+            //ignore
+        }
+    }
+
+    public void testPutAndGet() throws Exception {
+        Document doc = new Document("import os\n");
+        IMessage[] messages = new IMessage[] {
+                new CachedMessage(IAnalysisPreferences.TYPE_UNUSED_IMPORT, IMarker.SEVERITY_WARNING, 1, 8, 1, 10,
+                        "Unused import: os", Arrays.asList("os")),
+                new CachedMessage(IAnalysisPreferences.TYPE_PEP8, IMarker.SEVERITY_INFO, 1, 1, 1, 2, "E0 ação",
+                        null), };
+
+        AnalysisResultsCache cache = new AnalysisResultsCache(baseDir);
+        assertNull(cache.get("key1"));
+        cache.put("key1", messages, doc);
+        cache.put("key2", new IMessage[0], doc);
+        assertEquals(2, cache.size());
+
+        //a new instance (i.e.: after a restart) must still find the entries.
+        cache = new AnalysisResultsCache(baseDir);
+        IMessage[] found = cache.get("key1");
+        assertEquals(2, found.length);
+        assertEquals(IAnalysisPreferences.TYPE_UNUSED_IMPORT, found[0].getType());
+        assertEquals(IMarker.SEVERITY_WARNING, found[0].getSeverity());
+        assertEquals(1, found[0].getStartLine(doc));
+        assertEquals(8, found[0].getStartCol(doc));
+        assertEquals(1, found[0].getEndLine(doc));
+        assertEquals(10, found[0].getEndCol(doc));
+        assertEquals("Unused import: os", found[0].getMessage());
+        assertEquals(Arrays.asList("os"), found[0].getAdditionalInfo());
+
+        assertEquals("E0 ação", found[1].getMessage());
+        assertNull(found[1].getAdditionalInfo());
+
+        assertEquals(0, cache.get("key2").length);
+        assertNull(cache.get("key3"));
+    }
+
+    public void testInvalidEntryRemoved() throws Exception {
+        AnalysisResultsCache cache = new AnalysisResultsCache(baseDir);
+        cache.put("key1", new IMessage[0], new Document(""));
+        assertEquals(1, cache.size());
+
+        FileUtils.writeStrToFile("invalid", new File(baseDir, "key1.analysis"));
+        assertNull(cache.get("key1"));
+        assertEquals(0, cache.size());
+    }
+}
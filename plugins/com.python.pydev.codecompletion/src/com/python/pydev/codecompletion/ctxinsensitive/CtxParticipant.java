@@ -43,6 +43,7 @@ import com.python.pydev.analysis.additionalinfo.AbstractAdditionalTokensInfo;
 import com.python.pydev.analysis.additionalinfo.AdditionalProjectInterpreterInfo;
 import com.python.pydev.analysis.additionalinfo.AdditionalSystemInterpreterInfo;
 import com.python.pydev.analysis.additionalinfo.IInfo;
+import com.python.pydev.analysis.additionalinfo.TokensPrefixIndex;
 import com.python.pydev.analysis.ui.AutoImportsPreferencesPage;
 import com.python.pydev.codecompletion.ui.CodeCompletionPreferencesPage;
 
@@ -53,6 +54,13 @@ import com.python.pydev.codecompletion.ui.CodeCompletionPreferencesPage;
  */
 public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevCompletionParticipant2 {
 
+    /**
+     * Maximum number of tokens gotten from each additional info for a request (the first ones in alphabetical
+     * order -- more than that is not really usable in the completions popup and a short qualifier could otherwise
+     * match all the tokens).
+     */
+    public static final int MAX_RESULTS = 500;
+
     // Console completions ---------------------------------------------------------------------------------------------
 
     /**
@@ -109,7 +117,12 @@ public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevComple
         }
 
         Collection<IInfo> tokensStartingWith = additionalInfoForProject.getTokensStartingWith(qual,
-                AbstractAdditionalTokensInfo.TOP_LEVEL);
+                AbstractAdditionalTokensInfo.TOP_LEVEL, null, MAX_RESULTS);
+        if (TokensPrefixIndex.isCamelCaseAbbreviation(qual)) {
+            tokensStartingWith = new ArrayList<IInfo>(tokensStartingWith);
+            addCamelCaseMatches(tokensStartingWith, lowerQual, additionalInfoForProject.getTokensMatchingCamelCase(
+                    qual, AbstractAdditionalTokensInfo.TOP_LEVEL, null, MAX_RESULTS));
+        }
 
         FastStringBuffer realImportRep = new FastStringBuffer();
         FastStringBuffer displayString = new FastStringBuffer();
@@ -125,10 +138,6 @@ public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevComple
             }
 
             String rep = info.getName();
-            String lowerRep = rep.toLowerCase();
-            if (!lowerRep.startsWith(lowerQual)) {
-                continue;
-            }
 
             if (addAutoImport) {
                 realImportRep.clear();
@@ -177,7 +186,12 @@ public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevComple
             String initialModule = request.resolveModule();
 
             List<IInfo> tokensStartingWith = AdditionalProjectInterpreterInfo.getTokensStartingWith(qual,
-                    request.nature, AbstractAdditionalTokensInfo.TOP_LEVEL);
+                    request.nature, AbstractAdditionalTokensInfo.TOP_LEVEL, MAX_RESULTS);
+            if (TokensPrefixIndex.isCamelCaseAbbreviation(qual)) {
+                addCamelCaseMatches(tokensStartingWith, lowerQual,
+                        AdditionalProjectInterpreterInfo.getTokensMatchingCamelCase(qual, request.nature,
+                                AbstractAdditionalTokensInfo.TOP_LEVEL, MAX_RESULTS));
+            }
 
             FastStringBuffer realImportRep = new FastStringBuffer();
             FastStringBuffer displayString = new FastStringBuffer();
@@ -200,8 +214,7 @@ public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevComple
                 }
 
                 String rep = info.getName();
-                String lowerRep = rep.toLowerCase();
-                if (!lowerRep.startsWith(lowerQual) || importedNames.contains(rep)) {
+                if (importedNames.contains(rep)) {
                     continue;
                 }
 
@@ -237,6 +250,18 @@ public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevComple
         return completions;
     }
 
+    /**
+     * Adds the tokens matched as a camel-case abbreviation which weren't already matched as a prefix.
+     */
+    private static void addCamelCaseMatches(Collection<IInfo> tokens, String lowerQual,
+            Collection<IInfo> camelCaseMatches) {
+        for (IInfo info : camelCaseMatches) {
+            if (!info.getName().toLowerCase().startsWith(lowerQual)) {
+                tokens.add(info);
+            }
+        }
+    }
+
     /**
      * @return the names that are already imported in the current document
      */
@@ -269,7 +294,7 @@ public class CtxParticipant implements IPyDevCompletionParticipant, IPyDevComple
             List<IInfo> tokensStartingWith;
             try {
                 tokensStartingWith = AdditionalProjectInterpreterInfo.getTokensStartingWith(qual, state.getNature(),
-                        AbstractAdditionalTokensInfo.INNER);
+                        AbstractAdditionalTokensInfo.INNER, MAX_RESULTS);
             } catch (MisconfigurationException e) {
                 Log.log(e);
                 return ret;
@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 import org.eclipse.core.runtime.Assert;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -26,7 +27,6 @@ import org.python.pydev.core.IDefinition;
 import org.python.pydev.core.IModule;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.MisconfigurationException;
-import org.python.pydev.core.ModulesKey;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.CompletionCache;
 import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
@@ -224,22 +224,18 @@ public class RefactorerFinds {
             monitor.beginTask("Find likely modules with children", 100);
 
             try {
-                List<ModulesKey> modules;
-                try {
-                    request.pushMonitor(new SubProgressMonitor(monitor, 90));
-                    modules = additionalInfo.getModulesWithToken(request.nature.getProject(), model.name, monitor);
-                    monitor.setTaskName("Searching: " + model.name);
-                    if (monitor.isCanceled()) {
-                        throw new OperationCanceledException();
-                    }
-                } finally {
-                    request.popMonitor().done();
+                //The modules with classes having a base with the same name are gotten from the class hierarchy index
+                //(and are later checked in findChildrenOnModules).
+                monitor.setTaskName("Searching: " + model.name);
+                Set<String> modules = additionalInfo.getModulesWithSubclassesOf(model.name);
+                if (monitor.isCanceled()) {
+                    throw new OperationCanceledException();
                 }
 
                 try {
-                    request.pushMonitor(new SubProgressMonitor(monitor, 10));
+                    request.pushMonitor(new SubProgressMonitor(monitor, 100));
                     request.getMonitor().beginTask("Find likely modules with children", modules.size());
-                    for (ModulesKey declaringModuleName : modules) {
+                    for (String declaringModuleName : modules) {
                         if (DEBUG) {
                             System.out.println("findLikelyModulesWithChildren: " + declaringModuleName);
                         }
@@ -255,9 +251,9 @@ public class RefactorerFinds {
                         if (pythonNature == null) {
                             pythonNature = request.nature;
                         }
-                        module = pythonNature.getAstManager().getModule(declaringModuleName.name, pythonNature, false);
+                        module = pythonNature.getAstManager().getModule(declaringModuleName, pythonNature, false);
                         if (module == null && pythonNature != request.nature) {
-                            module = request.nature.getAstManager().getModule(declaringModuleName.name, request.nature,
+                            module = request.nature.getAstManager().getModule(declaringModuleName, request.nature,
                                     false);
                         }
 
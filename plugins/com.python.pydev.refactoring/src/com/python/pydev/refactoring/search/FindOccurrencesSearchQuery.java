@@ -7,7 +7,10 @@
 package com.python.pydev.refactoring.search;
 
 import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
@@ -29,6 +32,7 @@ import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.refactoring.RefactoringRequest;
 import org.python.pydev.editorinput.PySourceLocatorBase;
 import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.shared_core.callbacks.ICallback2;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 
@@ -62,76 +66,44 @@ public class FindOccurrencesSearchQuery extends AbstractPythonSearchQuery {
 
     @Override
     public IStatus run(IProgressMonitor monitor) throws OperationCanceledException {
+        //Offsets already added for each file (the occurrences in other modules are added as they're found and
+        //the final result may contain them again).
+        final Map<File, Set<Integer>> foundOffsets = new HashMap<File, Set<Integer>>();
         try {
             monitor.beginTask("Searching...", 100);
             req.pushMonitor(monitor);
 
             Map<Tuple<String, File>, HashSet<ASTEntry>> occurrences;
+            req.setAdditionalInfo(AbstractRenameRefactorProcess.OCCURRENCES_FOUND_LISTENER,
+                    new ICallback2<Object, Tuple<String, File>, List<ASTEntry>>() {
+
+                        public Object call(Tuple<String, File> key, List<ASTEntry> entries) {
+                            try {
+                                addMatches(key, entries, foundOffsets);
+                            } catch (CoreException e) {
+                                Log.log(e);
+                            }
+                            return null;
+                        }
+                    });
             try {
                 req.pushMonitor(new SubProgressMonitor(monitor, 80));
                 occurrences = pyRefactoring.findAllOccurrences(req);
             } finally {
+                req.setAdditionalInfo(AbstractRenameRefactorProcess.OCCURRENCES_FOUND_LISTENER, null);
                 req.popMonitor().done();
             }
 
             if (occurrences == null) {
                 return Status.OK_STATUS;
             }
-            int length = req.initialName.length();
 
-            HashSet<Integer> foundOffsets = new HashSet<Integer>();
             try {
                 req.pushMonitor(new SubProgressMonitor(monitor, 20));
                 Set<Entry<Tuple<String, File>, HashSet<ASTEntry>>> entrySet = occurrences.entrySet();
                 req.getMonitor().beginTask("Resolving occurrences...", entrySet.size());
                 for (Map.Entry<Tuple<String, File>, HashSet<ASTEntry>> o : entrySet) {
-
-                    foundOffsets.clear();
-
-                    IFile workspaceFile = null;
-                    try {
-                        IProject project = null;
-                        IPythonNature nature = req.nature;
-                        if (nature != null) {
-                            project = nature.getProject();
-                        }
-
-                        workspaceFile = new PySourceLocatorBase().getWorkspaceFile(o.getKey().o2, project);
-                        if (workspaceFile == null) {
-                            Log.logInfo(StringUtils.format("Ignoring: %s. "
-                                    + "Unable to resolve to a file in the Eclipse workspace.", o.getKey().o2));
-                            continue;
-                        }
-                    } catch (IllegalStateException e) {
-                        //this can happen on tests (but if not on tests, we want to re-throw it
-                        String message = e.getMessage();
-                        if (message == null || !message.equals("Workspace is closed.")) {
-                            throw e;
-                        }
-                        //otherwise, let's just keep going in the test...
-                        continue;
-                    }
-
-                    IDocument doc = FileUtilsFileBuffer.getDocFromResource(workspaceFile);
-                    req.getMonitor().setTaskName("Resolving occurrences... " + workspaceFile);
-
-                    for (ASTEntry entry : o.getValue()) {
-                        int offset = AbstractRenameRefactorProcess.getOffset(doc, entry);
-                        if (!foundOffsets.contains(offset)) {
-                            foundOffsets.add(offset);
-                            if (PyFindAllOccurrences.DEBUG_FIND_REFERENCES) {
-                                System.out.println("Adding match:" + workspaceFile);
-                            }
-                            PySelection ps = new PySelection(doc, offset);
-                            int lineNumber = ps.getLineOfOffset();
-                            String lineContents = ps.getLine(lineNumber);
-                            int lineStartOffset = ps.getLineOffset(lineNumber);
-
-                            LineElement element = new LineElement(workspaceFile, lineNumber, lineStartOffset,
-                                    lineContents);
-                            findOccurrencesSearchResult.addMatch(new FileMatch(workspaceFile, offset, length, element));
-                        }
-                    }
+                    addMatches(o.getKey(), o.getValue(), foundOffsets);
                 }
             } finally {
                 req.popMonitor().done();
@@ -144,6 +116,64 @@ public class FindOccurrencesSearchQuery extends AbstractPythonSearchQuery {
         return Status.OK_STATUS;
     }
 
+    /**
+     * Adds the matches for the given entries to the search result (skipping the offsets already added).
+     */
+    private void addMatches(Tuple<String, File> key, Collection<ASTEntry> entries, Map<File, Set<Integer>> foundOffsets)
+            throws CoreException {
+        IFile workspaceFile = null;
+        try {
+            IProject project = null;
+            IPythonNature nature = req.nature;
+            if (nature != null) {
+                project = nature.getProject();
+            }
+
+            workspaceFile = new PySourceLocatorBase().getWorkspaceFile(key.o2, project);
+            if (workspaceFile == null) {
+                Log.logInfo(StringUtils.format("Ignoring: %s. "
+                        + "Unable to resolve to a file in the Eclipse workspace.", key.o2));
+                return;
+            }
+        } catch (IllegalStateException e) {
+            //this can happen on tests (but if not on tests, we want to re-throw it
+            String message = e.getMessage();
+            if (message == null || !message.equals("Workspace is closed.")) {
+                throw e;
+            }
+            //otherwise, let's just keep going in the test...
+            return;
+        }
+
+        Set<Integer> foundOffsetsInFile = foundOffsets.get(key.o2);
+        if (foundOffsetsInFile == null) {
+            foundOffsetsInFile = new HashSet<Integer>();
+            foundOffsets.put(key.o2, foundOffsetsInFile);
+        }
+
+        IDocument doc = FileUtilsFileBuffer.getDocFromResource(workspaceFile);
+        req.getMonitor().setTaskName("Resolving occurrences... " + workspaceFile);
+        int length = req.initialName.length();
+
+        for (ASTEntry entry : entries) {
+            int offset = AbstractRenameRefactorProcess.getOffset(doc, entry);
+            if (!foundOffsetsInFile.contains(offset)) {
+                foundOffsetsInFile.add(offset);
+                if (PyFindAllOccurrences.DEBUG_FIND_REFERENCES) {
+                    System.out.println("Adding match:" + workspaceFile);
+                }
+                PySelection ps = new PySelection(doc, offset);
+                int lineNumber = ps.getLineOfOffset();
+                String lineContents = ps.getLine(lineNumber);
+                int lineStartOffset = ps.getLineOffset(lineNumber);
+
+                LineElement element = new LineElement(workspaceFile, lineNumber, lineStartOffset,
+                        lineContents);
+                findOccurrencesSearchResult.addMatch(new FileMatch(workspaceFile, offset, length, element));
+            }
+        }
+    }
+
     @Override
     public String getResultLabel(int nMatches) {
         String searchString = getSearchString();
@@ -39,6 +39,7 @@ import org.python.pydev.parser.jython.ast.ClassDef;
 import org.python.pydev.parser.jython.ast.FunctionDef;
 import org.python.pydev.parser.jython.ast.exprType;
 import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.shared_core.callbacks.ICallback2;
 import org.python.pydev.shared_core.structure.Tuple;
 
 import com.python.pydev.analysis.scopeanalysis.AstEntryScopeAnalysisConstants;
@@ -53,6 +54,13 @@ import com.python.pydev.refactoring.wizards.IRefactorRenameProcess;
  */
 public abstract class AbstractRenameRefactorProcess implements IRefactorRenameProcess {
 
+    /**
+     * Key for the additional info of the request with an ICallback2<Object, Tuple<String, File>, List<ASTEntry>>
+     * which is called with the module name/file and the occurrences as they're found in other modules (so,
+     * clients may show them before the search finishes).
+     */
+    public static final String OCCURRENCES_FOUND_LISTENER = "occurrencesFoundListener";
+
     /**
      * The request for the refactor
      */
@@ -123,6 +131,15 @@ public abstract class AbstractRenameRefactorProcess implements IRefactorRenamePr
         } else {
             existent.addAll(oc);
         }
+
+        if (request != null) {
+            @SuppressWarnings("unchecked")
+            ICallback2<Object, Tuple<String, File>, List<ASTEntry>> listener = (ICallback2<Object, Tuple<String, File>, List<ASTEntry>>) request
+                    .getAdditionalInfo(OCCURRENCES_FOUND_LISTENER, null);
+            if (listener != null) {
+                listener.call(key, oc);
+            }
+        }
     }
 
     public static int getOffset(IDocument doc, ASTEntry entry) {
@@ -12,6 +12,7 @@ package com.python.pydev.refactoring.wizards.rename;
 
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.core.runtime.SubProgressMonitor;
 import org.eclipse.ltk.core.refactoring.RefactoringStatus;
@@ -24,8 +25,11 @@ import org.python.pydev.editor.codecompletion.revisited.visitors.Definition;
 import org.python.pydev.editor.refactoring.RefactoringRequest;
 import org.python.pydev.parser.visitors.scope.ASTEntry;
 import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback2;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_core.utils.ParallelUtils;
 
 import com.python.pydev.refactoring.actions.PyFindAllOccurrences;
 
@@ -41,6 +45,29 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
 
     public static final boolean DEBUG_FILTERED_MODULES = false || PyFindAllOccurrences.DEBUG_FIND_REFERENCES;
 
+    /**
+     * Number of modules processed in each window when searching the modules with possible references.
+     */
+    private static final int MODULES_WINDOW_SIZE = 32;
+
+    /**
+     * The result of checking a module in a worker thread: if the occurrences were not found in the worker
+     * thread, the module is kept so that they're found in the calling thread (and if neither is available,
+     * the AST of the module could not be gotten).
+     */
+    private static final class ModuleOccurrences {
+
+        private final SourceModule module;
+        private final List<ASTEntry> entryOccurrences;
+        private final RefactoringStatus status;
+
+        private ModuleOccurrences(SourceModule module, List<ASTEntry> entryOccurrences, RefactoringStatus status) {
+            this.module = module;
+            this.entryOccurrences = entryOccurrences;
+            this.status = status;
+        }
+    }
+
     /**
      * May be used by subclasses
      */
@@ -185,39 +212,7 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
                             continue;
                         }
                         try {
-                            for (ModulesKey key : file.o1) {
-                                IProjectModulesManager modulesManager = (IProjectModulesManager) nature.getAstManager()
-                                        .getModulesManager();
-
-                                request.checkCancelled();
-                                String modName = key.name;
-
-                                if (modName != null) {
-                                    if (!request.moduleName.equals(modName)) {
-                                        //we've already checked the module from the request...
-
-                                        request.checkCancelled();
-                                        IModule module = modulesManager
-                                                .getModuleInDirectManager(modName, nature, false);
-
-                                        if (module instanceof SourceModule) {
-
-                                            SourceModule sourceModule = (SourceModule) module;
-                                            if (sourceModule.getAst() == null) {
-                                                status.addWarning("Unable to get AST for: " + modName);
-                                                continue;
-                                            }
-                                            request.checkCancelled();
-                                            List<ASTEntry> entryOccurrences = getOccurrencesInOtherModule(status,
-                                                    request, request.initialName, (SourceModule) module, nature);
-
-                                            if (entryOccurrences.size() > 0) {
-                                                addOccurrences(entryOccurrences, key.file, modName);
-                                            }
-                                        }
-                                    }
-                                }
-                            }
+                            findOccurrencesInModules(status, request, file.o1, nature);
                         } finally {
                             nature.endRequests();
                         }
@@ -236,6 +231,84 @@ public abstract class AbstractRenameWorkspaceRefactorProcess extends AbstractRen
 
     }
 
+    /**
+     * Loads the given modules and finds the occurrences in each one in the indexing pool (if
+     * isFindReferencesOnOtherModuleThreadSafe() returns false, only the load is done in the pool).
+     *
+     * The results are consumed in the calling thread in the order of the keys (so, the occurrences, the status
+     * and the listener in OCCURRENCES_FOUND_LISTENER are only accessed in this thread), and the modules are processed
+     * in windows, so, only a few modules (and their ASTs) are referenced by the search at any given time.
+     */
+    private void findOccurrencesInModules(final RefactoringStatus status, final RefactoringRequest request,
+            List<ModulesKey> keys, final PythonNature nature) {
+        final IProjectModulesManager modulesManager = (IProjectModulesManager) nature.getAstManager()
+                .getModulesManager();
+        final boolean threadSafe = isFindReferencesOnOtherModuleThreadSafe();
+
+        ICallback<ModuleOccurrences, ModulesKey> find = new ICallback<ModuleOccurrences, ModulesKey>() {
+
+            public ModuleOccurrences call(ModulesKey key) {
+                String modName = key.name;
+                if (modName == null || request.moduleName.equals(modName)) {
+                    //we've already checked the module from the request...
+                    return null;
+                }
+                IModule module = modulesManager.getModuleInDirectManager(modName, nature, false);
+                if (!(module instanceof SourceModule)) {
+                    return null;
+                }
+                SourceModule sourceModule = (SourceModule) module;
+                if (sourceModule.getAst() == null) {
+                    return new ModuleOccurrences(null, null, null);
+                }
+                if (!threadSafe) {
+                    return new ModuleOccurrences(sourceModule, null, null);
+                }
+                RefactoringStatus moduleStatus = new RefactoringStatus();
+                return new ModuleOccurrences(null, getOccurrencesInOtherModule(moduleStatus, request,
+                        request.initialName, sourceModule, nature), moduleStatus);
+            }
+        };
+
+        ICallback2<Object, ModulesKey, ModuleOccurrences> consumer = new ICallback2<Object, ModulesKey, ModuleOccurrences>() {
+
+            public Object call(ModulesKey key, ModuleOccurrences found) {
+                request.checkCancelled();
+                if (found == null) {
+                    return null;
+                }
+                List<ASTEntry> entryOccurrences = found.entryOccurrences;
+                if (entryOccurrences == null) {
+                    if (found.module == null) {
+                        status.addWarning("Unable to get AST for: " + key.name);
+                        return null;
+                    }
+                    entryOccurrences = getOccurrencesInOtherModule(status, request, request.initialName,
+                            found.module, nature);
+                } else {
+                    status.merge(found.status);
+                }
+
+                if (entryOccurrences.size() > 0) {
+                    addOccurrences(entryOccurrences, key.file, key.name);
+                }
+                return null;
+            }
+        };
+
+        IProgressMonitor monitor = ParallelUtils.createCancelOnlyMonitor(request.getMonitor());
+        ParallelUtils.forEachOrdered(keys, find, consumer, MODULES_WINDOW_SIZE, monitor);
+        request.checkCancelled();
+    }
+
+    /**
+     * @return whether findReferencesOnOtherModule may be called from multiple threads at the same time (if it
+     * only gets the occurrences from the AST and doesn't change the state of the process).
+     */
+    protected boolean isFindReferencesOnOtherModuleThreadSafe() {
+        return true;
+    }
+
     /**
      * This method is called for each module that may have some reference to the definition
      * we're looking for.
@@ -172,6 +172,15 @@ public class PyRenameImportProcess extends AbstractRenameWorkspaceRefactorProces
         }
     }
 
+    /**
+     * The visitor used to match the imports finds definitions using the monitor of the request (which should only
+     * be used in the thread doing the search).
+     */
+    @Override
+    protected boolean isFindReferencesOnOtherModuleThreadSafe() {
+        return false;
+    }
+
     @Override
     protected List<ASTEntry> findReferencesOnOtherModule(RefactoringStatus status, RefactoringRequest request,
             String initialName, SourceModule module) {
@@ -9,18 +9,21 @@
  */
 package org.python.pydev.core;
 
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.WeakReference;
 import java.util.HashMap;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 /**
  * This pool is to be regarded as a way to have less object instances for a given class,
  * so, if you have tons of equal strings, you could pass them here and make them be the same
- * to save memory. Note that it is created with weak-references for both, the key and the value,
+ * to save memory. Note that it is created with weak-references,
  * so, it should be safe to assume that it will be available for garbage collecting once
  * no other place has a reference to the same string.
  * 
+ * The pool is split in segments (each with its own lock) so that threads interning different
+ * strings don't contend for the same lock (and each entry is the weak reference itself, without
+ * the additional map entry a WeakHashMap would need).
+ * 
  * Still, use this with care...
  */
 public final class ObjectsInternPool {
@@ -28,74 +31,124 @@ public final class ObjectsInternPool {
     private ObjectsInternPool() {
     }
 
-    private static final Map<String, WeakReference<String>> weakHashMap = new WeakHashMap<String, WeakReference<String>>();
-    public static final Object lock = new Object();
-
     /**
-     * This is a way to intern a String in the regular heap (instead of the String.intern which uses the perm-gen).
+     * Kept for backward compatibility: the pool is thread-safe and no longer needs any external lock.
      */
-    public static String intern(String o) {
-        if (o == null) {
-            return null;
-        }
-        synchronized (lock) {
-            WeakReference<String> w = (WeakReference<String>) weakHashMap.get(o);
-            if (w == null) {
-                //Yes, the String constructor will do things properly, so, if a big string is actually backed up by the one
-                //passed, it'll create a new array only with the parts we want.
-                o = new String(o);
-                //garbage collected or still not there...
-                weakHashMap.put(o, new WeakReference<String>(o));
-                return o;
-
-            } else {
-                final String ret = w.get();
-                if (ret == null && o != null) {
-                    //garbage collected just in time hum?
-                    o = new String(o);
-                    weakHashMap.put(o, new WeakReference<String>(o));
-                    return o;
-
-                } else {
-                    return ret;
-                }
-            }
+    public static final Object lock = new Object();
+
+    private static final int SEGMENTS_SHIFT = 27;
+
+    private static final Segment[] segments = new Segment[1 << (32 - SEGMENTS_SHIFT)];
+
+    static {
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = new Segment();
         }
     }
 
-    /**
-     * Same thing as intern, but the client is responsible for synchronizing on the lock object of this class!
-     * 
-     * Note that this should be done on a fast process where many objects will be added (but only on fast processes
-     * that want to avoid synchronizing at each step).
-     */
-    public static String internUnsynched(String o) {
-        if (o == null) {
-            return null;
+    private static final class Entry extends WeakReference<String> {
+
+        private final int hash;
+        private Entry next;
+
+        private Entry(String referent, int hash, Entry next, ReferenceQueue<String> queue) {
+            super(referent, queue);
+            this.hash = hash;
+            this.next = next;
         }
-        WeakReference<String> w = (WeakReference<String>) weakHashMap.get(o);
-        if (w == null) {
+    }
+
+    private static final class Segment {
+
+        private final ReferenceQueue<String> queue = new ReferenceQueue<String>();
+        private Entry[] table = new Entry[16];
+        private int size;
+
+        private synchronized String intern(String o, int hash) {
+            expungeStaleEntries();
+            Entry[] tab = table;
+            int i = hash & (tab.length - 1);
+            for (Entry e = tab[i]; e != null; e = e.next) {
+                if (e.hash == hash) {
+                    String ret = e.get();
+                    if (ret != null && ret.equals(o)) {
+                        return ret;
+                    }
+                }
+            }
             //Yes, the String constructor will do things properly, so, if a big string is actually backed up by the one
             //passed, it'll create a new array only with the parts we want.
             o = new String(o);
-            //garbage collected or still not there...
-            weakHashMap.put(o, new WeakReference<String>(o));
+            tab[i] = new Entry(o, hash, tab[i], queue);
+            size++;
+            if (size > (tab.length >> 1) + (tab.length >> 2)) {
+                resize();
+            }
             return o;
+        }
 
-        } else {
-            final String ret = w.get();
-            if (ret == null && o != null) {
-                //garbage collected just in time hum?
-                o = new String(o);
-                weakHashMap.put(o, new WeakReference<String>(o));
-                return o;
+        private void resize() {
+            Entry[] oldTable = table;
+            Entry[] newTable = new Entry[oldTable.length << 1];
+            int mask = newTable.length - 1;
+            for (Entry e : oldTable) {
+                while (e != null) {
+                    Entry next = e.next;
+                    int i = e.hash & mask;
+                    e.next = newTable[i];
+                    newTable[i] = e;
+                    e = next;
+                }
+            }
+            table = newTable;
+        }
 
-            } else {
-                return ret;
+        /**
+         * Removes the entries whose strings were garbage-collected.
+         */
+        private void expungeStaleEntries() {
+            Object ref;
+            while ((ref = queue.poll()) != null) {
+                Entry entry = (Entry) ref;
+                int i = entry.hash & (table.length - 1);
+                Entry prev = null;
+                for (Entry e = table[i]; e != null; e = e.next) {
+                    if (e == entry) {
+                        if (prev == null) {
+                            table[i] = e.next;
+                        } else {
+                            prev.next = e.next;
+                        }
+                        size--;
+                        break;
+                    }
+                    prev = e;
+                }
             }
         }
     }
 
+    /**
+     * This is a way to intern a String in the regular heap (instead of the String.intern which uses the perm-gen).
+     */
+    public static String intern(String o) {
+        if (o == null) {
+            return null;
+        }
+        int h = o.hashCode();
+        h ^= (h >>> 16);
+        //the segment is chosen by the upper bits of the mixed hash (the buckets in the segment use the lower bits).
+        return segments[(h * 0x9E3779B9) >>> SEGMENTS_SHIFT].intern(o, h);
+    }
+
+    /**
+     * Same thing as intern (kept for backward compatibility: it used to require the client to synchronize on
+     * the lock object of this class).
+     */
+    public static String internUnsynched(String o) {
+        return intern(o);
+    }
+
     /**
      * Class used to store items interned locally in a map (without weak references)
      */
@@ -6,6 +6,9 @@
  */
 package org.python.pydev.core;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import junit.framework.TestCase;
 
 /**
@@ -34,4 +37,42 @@ public class ObjectsPoolTest extends TestCase {
         //        }
         //        t.printDiff();
     }
+
+    public void testObjectsPoolMany() throws Exception {
+        List<String> interned = new ArrayList<String>();
+        for (int i = 0; i < 10000; i++) {
+            interned.add(ObjectsInternPool.intern("str" + i));
+        }
+        for (int i = 0; i < 10000; i++) {
+            assertSame(interned.get(i), ObjectsInternPool.intern("str" + i));
+        }
+        assertNull(ObjectsInternPool.intern(null));
+    }
+
+    public void testObjectsPoolThreads() throws Exception {
+        final String[][] results = new String[4][1000];
+        Thread[] threads = new Thread[results.length];
+        for (int i = 0; i < threads.length; i++) {
+            final String[] result = results[i];
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < result.length; j++) {
+                        result[j] = ObjectsInternPool.intern(new String("thread_str" + j));
+                    }
+                }
+            };
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int j = 0; j < 1000; j++) {
+            for (int i = 1; i < results.length; i++) {
+                assertSame(results[0][j], results[i][j]);
+            }
+        }
+    }
 }
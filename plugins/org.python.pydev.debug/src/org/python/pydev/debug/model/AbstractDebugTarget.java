@@ -52,6 +52,7 @@ import org.python.pydev.debug.model.XMLUtils.StoppedStack;
 import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
 import org.python.pydev.debug.model.remote.AbstractRemoteDebugger;
 import org.python.pydev.debug.model.remote.AddIgnoreThrownExceptionIn;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.Message;
 import org.python.pydev.debug.model.remote.RemoveBreakpointCommand;
 import org.python.pydev.debug.model.remote.RunCommand;
 import org.python.pydev.debug.model.remote.SendPyExceptionCommand;
@@ -428,6 +429,39 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
         }
     }
 
+    /**
+     * Same as {@link #processCommand(String, String, String)}, but the threads and stacks received in the binary
+     * protocol are used directly (other messages are processed as they'd be in the text protocol).
+     */
+    public void processCommand(Message message) {
+        if (message.threads == null && message.stack == null) {
+            processCommand(Integer.toString(message.cmdCode), Integer.toString(message.sequence),
+                    message.getTextPayload());
+            return;
+        }
+        try {
+            if (message.threads != null && message.cmdCode == AbstractDebuggerCommand.CMD_THREAD_CREATED) {
+                processThreadCreated(XMLUtils.recordsToThreads(this, message.threads));
+
+            } else if (message.stack != null && message.cmdCode == AbstractDebuggerCommand.CMD_THREAD_SUSPEND) {
+                StoppedStack threadNstack;
+                try {
+                    threadNstack = XMLUtils.recordToStack(this, message.stack);
+                } catch (CoreException e) {
+                    PydevDebugPlugin.errorDialog("Error reading ThreadSuspended", e);
+                    return;
+                }
+                processThreadSuspended(threadNstack);
+
+            } else {
+                processCommand(Integer.toString(message.cmdCode), Integer.toString(message.sequence),
+                        message.getTextPayload());
+            }
+        } catch (Exception e) {
+            PydevDebugPlugin.log(IStatus.ERROR, "Error processing: " + message.cmdCode, e);
+        }
+    }
+
     public void fireEvent(DebugEvent event) {
         DebugPlugin manager = DebugPlugin.getDefault();
         if (manager != null) {
@@ -459,6 +493,10 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
             PydevDebugPlugin.errorDialog("Error in processThreadCreated", e);
             return;
         }
+        processThreadCreated(newThreads);
+    }
+
+    private void processThreadCreated(PyThread[] newThreads) {
 
         // Hide Pydevd threads if requested
         if (PydevDebugPlugin.getDefault().getPreferenceStore()
@@ -541,7 +579,10 @@ public abstract class AbstractDebugTarget extends AbstractDebugTargetWithTransmi
             PydevDebugPlugin.errorDialog("Error reading ThreadSuspended", e);
             return;
         }
+        processThreadSuspended(threadNstack);
+    }
 
+    private void processThreadSuspended(StoppedStack threadNstack) {
         PyThread t = threadNstack.thread;
         int reason = DebugEvent.UNSPECIFIED;
         String stopReason = threadNstack.stopReason;
@@ -18,6 +18,7 @@ import org.eclipse.debug.core.model.IVariable;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.debug.core.PydevDebugPlugin;
 import org.python.pydev.debug.model.remote.AbstractDebuggerCommand;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.VariableRecord;
 import org.python.pydev.debug.model.remote.GetVariableCommand;
 import org.python.pydev.debug.model.remote.ICommandResponseListener;
 
@@ -94,8 +95,13 @@ public class PyVariableCollection extends PyVariable implements ICommandResponse
             IVariableLocator locator) {
         PyVariable[] tempVariables = new PyVariable[0];
         try {
-            String payload = ((GetVariableCommand) cmd).getResponse();
-            tempVariables = XMLUtils.XMLToVariables(target, locator, payload);
+            GetVariableCommand variableCommand = (GetVariableCommand) cmd;
+            VariableRecord[] records = variableCommand.getResponseVariables();
+            if (records != null) {
+                tempVariables = XMLUtils.recordsToVariables(target, locator, records);
+            } else {
+                tempVariables = XMLUtils.XMLToVariables(target, locator, variableCommand.getResponse());
+            }
         } catch (CoreException e) {
             tempVariables = new PyVariable[1];
             tempVariables[0] = new PyVariable(target, "Error", "pydev ERROR", "Could not resolve variable", locator);
@@ -29,6 +29,10 @@ import org.eclipse.core.runtime.Path;
 import org.eclipse.debug.core.model.IStackFrame;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.debug.core.PydevDebugPlugin;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.FrameRecord;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.StackRecord;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.ThreadRecord;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.VariableRecord;
 import org.python.pydev.debug.newconsole.EvaluateDebugConsoleExpression;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
@@ -46,8 +50,17 @@ public class XMLUtils {
 
     static SAXParserFactory parserFactory = SAXParserFactory.newInstance();
 
+    /**
+     * Parsers are reused in the same thread (creating a new parser for each payload is slow).
+     */
+    private static final ThreadLocal<SAXParser> threadParser = new ThreadLocal<SAXParser>();
+
     static SAXParser getSAXParser() throws CoreException {
-        SAXParser parser = null;
+        SAXParser parser = threadParser.get();
+        if (parser != null) {
+            parser.reset();
+            return parser;
+        }
         try {
             synchronized (parserFactory) {
                 parser = parserFactory.newSAXParser();
@@ -57,6 +70,7 @@ public class XMLUtils {
         } catch (SAXException e) {
             throw new CoreException(PydevDebugPlugin.makeStatus(IStatus.ERROR, "Unexpected XML SAX error", e));
         }
+        threadParser.set(parser);
         return parser;
     }
 
@@ -114,12 +128,22 @@ public class XMLUtils {
         }
     }
 
+    /**
+     * Creates the threads received in the binary protocol (no xml parsing is needed in this case).
+     */
+    public static PyThread[] recordsToThreads(AbstractDebugTarget target, ThreadRecord[] records) {
+        PyThread[] threads = new PyThread[records.length];
+        for (int i = 0; i < records.length; i++) {
+            threads[i] = new PyThread(target, records[i].name, records[i].id);
+        }
+        return threads;
+    }
+
     /**
      * Creates a variable from XML attributes
      * <var name="self" type="ObjectType" value="<DeepThread>"/>
      */
     static PyVariable createVariable(AbstractDebugTarget target, IVariableLocator locator, Attributes attributes) {
-        PyVariable var;
         String name = attributes.getValue("name");
         String type = attributes.getValue("type");
         String value = attributes.getValue("value");
@@ -138,12 +162,28 @@ public class XMLUtils {
             Log.log(e);
         }
         String isContainer = attributes.getValue("isContainer");
-        if ("True".equals(isContainer)) {
-            var = new PyVariableCollection(target, name, type, value, locator);
-        } else {
-            var = new PyVariable(target, name, type, value, locator);
+        return createVariable(target, locator, name, type, value, "True".equals(isContainer));
+    }
+
+    private static PyVariable createVariable(AbstractDebugTarget target, IVariableLocator locator, String name,
+            String type, String value, boolean isContainer) {
+        if (isContainer) {
+            return new PyVariableCollection(target, name, type, value, locator);
         }
-        return var;
+        return new PyVariable(target, name, type, value, locator);
+    }
+
+    /**
+     * Creates the variables received in the binary protocol (no xml parsing is needed in this case).
+     */
+    public static PyVariable[] recordsToVariables(AbstractDebugTarget target, IVariableLocator locator,
+            VariableRecord[] records) {
+        PyVariable[] vars = new PyVariable[records.length];
+        for (int i = 0; i < records.length; i++) {
+            VariableRecord record = records[i];
+            vars[i] = createVariable(target, locator, record.name, record.type, record.value, record.isContainer());
+        }
+        return vars;
     }
 
     /**
@@ -178,26 +218,13 @@ public class XMLUtils {
             try {
                 if (file != null) {
                     file = URLDecoder.decode(file, "UTF-8");
-                    File tempFile = new File(file);
-                    if (tempFile.exists()) {
-                        file = FileUtils.getFileAbsolutePath(tempFile);
-                    }
                 }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
 
             String line = attributes.getValue("line");
-            IPath filePath = new Path(file);
-            // Try to recycle old stack objects
-            currentFrame = thread.findStackFrameByID(id);
-            if (currentFrame == null) {
-                currentFrame = new PyStackFrame(thread, id, name, filePath, Integer.parseInt(line), target);
-            } else {
-                currentFrame.setName(name);
-                currentFrame.setPath(filePath);
-                currentFrame.setLine(Integer.parseInt(line));
-            }
+            currentFrame = createFrame(target, thread, id, name, file, Integer.parseInt(line));
             stack.add(currentFrame);
         }
 
@@ -234,6 +261,30 @@ public class XMLUtils {
 
     }
 
+    /**
+     * Creates a frame for the given thread (or updates it if the thread already has a frame with the same id).
+     */
+    private static PyStackFrame createFrame(AbstractDebugTarget target, PyThread thread, String id, String name,
+            String file, int line) {
+        if (file != null) {
+            File tempFile = new File(file);
+            if (tempFile.exists()) {
+                file = FileUtils.getFileAbsolutePath(tempFile);
+            }
+        }
+        IPath filePath = new Path(file);
+        // Try to recycle old stack objects
+        PyStackFrame frame = thread.findStackFrameByID(id);
+        if (frame == null) {
+            frame = new PyStackFrame(thread, id, name, filePath, line, target);
+        } else {
+            frame.setName(name);
+            frame.setPath(filePath);
+            frame.setLine(line);
+        }
+        return frame;
+    }
+
     public static class StoppedStack {
 
         public final PyThread thread;
@@ -284,6 +335,24 @@ public class XMLUtils {
         return retVal;
     }
 
+    /**
+     * Creates the stack received in the binary protocol (no xml parsing is needed in this case).
+     */
+    public static StoppedStack recordToStack(AbstractDebugTarget target, StackRecord record) throws CoreException {
+        PyThread thread = target.findThreadByID(record.threadId);
+        if (thread == null) {
+            // can happen when debugger has been destroyed
+            throw new CoreException(PydevDebugPlugin.makeStatus(IStatus.ERROR, "Thread not found ("
+                    + record.threadId + ")", null));
+        }
+        IStackFrame[] stack = new IStackFrame[record.frames.length];
+        for (int i = 0; i < stack.length; i++) {
+            FrameRecord frame = record.frames[i];
+            stack[i] = createFrame(target, thread, frame.id, frame.name, frame.file, frame.line);
+        }
+        return new StoppedStack(thread, record.stopReason, stack);
+    }
+
     /**
      * Try to fix a xml (which actually shouldn't happen): replace <,  > and " on wrong places with &lt; &gt; and &quot;
      */
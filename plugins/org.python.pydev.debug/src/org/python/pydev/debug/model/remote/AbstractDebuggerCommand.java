@@ -148,6 +148,25 @@ public abstract class AbstractDebuggerCommand {
         }
     }
 
+    /**
+     * Called when command completes with a list of variables (only available in the binary protocol).
+     *
+     * Commands which can handle the variables directly should override it (by default the variables are converted
+     * to the xml which would be received in the text protocol).
+     */
+    public void processVariablesResponse(int cmdCode, DebuggerBinaryProtocol.VariableRecord[] variables) {
+        processResponse(cmdCode, DebuggerBinaryProtocol.toXML(variables));
+    }
+
+    /**
+     * Called when command completes with a list of threads (only available in the binary protocol).
+     *
+     * By default the threads are converted to the xml which would be received in the text protocol.
+     */
+    public void processThreadsResponse(int cmdCode, DebuggerBinaryProtocol.ThreadRecord[] threads) {
+        processResponse(cmdCode, DebuggerBinaryProtocol.toXML(threads));
+    }
+
     /**
      * notification of the response to the command.
      * You'll get either processResponse or processErrorResponse
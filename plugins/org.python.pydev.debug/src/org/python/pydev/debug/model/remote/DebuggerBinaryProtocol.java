@@ -0,0 +1,467 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model.remote;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Reads the messages sent by pydevd.
+ *
+ * By default each message is a text line: cmd_id\tsequence\turl-encoded payload (where complex payloads are xml).
+ *
+ * If the binary capability is negotiated in the version command (see {@link VersionCommand}), pydevd may also send
+ * length-prefixed binary frames (the first byte of a frame is {@link #FRAME_MARKER}, which can't start a text line,
+ * so, both kinds of messages may be mixed in the stream):
+ *
+ * <pre>
+ * byte   FRAME_MARKER
+ * int32  cmd_id
+ * int32  sequence
+ * byte   payload kind (PAYLOAD_TEXT, PAYLOAD_VARIABLES, PAYLOAD_THREADS or PAYLOAD_STACK)
+ * int32  payload length
+ * bytes  payload
+ * </pre>
+ *
+ * Strings in the payloads are written as an int32 length (-1 for null) followed by the utf-8 bytes.
+ *
+ * A PAYLOAD_TEXT has the same contents of a text message (but is not url-encoded).
+ *
+ * A PAYLOAD_VARIABLES has an int32 with the number of variables followed by the variables (byte flags, then name,
+ * type and value).
+ *
+ * A PAYLOAD_THREADS has an int32 with the number of threads followed by the threads (name and id).
+ *
+ * A PAYLOAD_STACK has the thread id, stop reason and message, followed by an int32 with the number of frames and
+ * the frames (id, name, file and an int32 with the line).
+ *
+ * Note that the commands sent to pydevd are always text (they're small, so, there's not much to gain there).
+ */
+public final class DebuggerBinaryProtocol {
+
+    /**
+     * Capability added to the version sent to pydevd.
+     */
+    public static final String CAPABILITY_BINARY = "binary";
+
+    public static final int FRAME_MARKER = 0xFF;
+
+    public static final int PAYLOAD_TEXT = 0;
+
+    public static final int PAYLOAD_VARIABLES = 1;
+
+    public static final int PAYLOAD_THREADS = 2;
+
+    public static final int PAYLOAD_STACK = 3;
+
+    public static final int VAR_IS_CONTAINER = 1;
+
+    public static final int VAR_IS_ERROR_ON_EVAL = 2;
+
+    private DebuggerBinaryProtocol() {
+    }
+
+    /**
+     * A variable as sent by pydevd (in the binary protocol).
+     */
+    public static final class VariableRecord {
+
+        public final String name;
+        public final String type;
+        public final String value;
+        public final int flags;
+
+        public VariableRecord(String name, String type, String value, int flags) {
+            this.name = name;
+            this.type = type;
+            this.value = value;
+            this.flags = flags;
+        }
+
+        public boolean isContainer() {
+            return (flags & VAR_IS_CONTAINER) != 0;
+        }
+
+        public boolean isErrorOnEval() {
+            return (flags & VAR_IS_ERROR_ON_EVAL) != 0;
+        }
+    }
+
+    /**
+     * A thread as sent by pydevd (in the binary protocol).
+     */
+    public static final class ThreadRecord {
+
+        public final String name;
+        public final String id;
+
+        public ThreadRecord(String name, String id) {
+            this.name = name;
+            this.id = id;
+        }
+    }
+
+    /**
+     * A frame of a suspended thread as sent by pydevd (in the binary protocol).
+     */
+    public static final class FrameRecord {
+
+        public final String id;
+        public final String name;
+        public final String file;
+        public final int line;
+
+        public FrameRecord(String id, String name, String file, int line) {
+            this.id = id;
+            this.name = name;
+            this.file = file;
+            this.line = line;
+        }
+    }
+
+    /**
+     * The stack of a suspended thread as sent by pydevd (in the binary protocol).
+     */
+    public static final class StackRecord {
+
+        public final String threadId;
+        public final String stopReason;
+        public final String message;
+        public final FrameRecord[] frames;
+
+        public StackRecord(String threadId, String stopReason, String message, FrameRecord[] frames) {
+            this.threadId = threadId;
+            this.stopReason = stopReason;
+            this.message = message;
+            this.frames = frames;
+        }
+    }
+
+    /**
+     * A message received from pydevd (only one of text, variables, threads or stack is set).
+     */
+    public static final class Message {
+
+        public final int cmdCode;
+        public final int sequence;
+        public final String text;
+        public final VariableRecord[] variables;
+        public final ThreadRecord[] threads;
+        public final StackRecord stack;
+
+        public Message(int cmdCode, int sequence, String text, VariableRecord[] variables) {
+            this(cmdCode, sequence, text, variables, null, null);
+        }
+
+        public Message(int cmdCode, int sequence, String text, VariableRecord[] variables, ThreadRecord[] threads,
+                StackRecord stack) {
+            this.cmdCode = cmdCode;
+            this.sequence = sequence;
+            this.text = text;
+            this.variables = variables;
+            this.threads = threads;
+            this.stack = stack;
+        }
+
+        /**
+         * @return the payload as it'd be received in the text protocol (records are converted to xml).
+         */
+        public String getTextPayload() {
+            if (text != null) {
+                return text;
+            }
+            if (threads != null) {
+                return toXML(threads);
+            }
+            if (stack != null) {
+                return toXML(stack);
+            }
+            return toXML(variables);
+        }
+    }
+
+    /**
+     * Reads the next message (blocks until it's available).
+     *
+     * @return the message read or null if an empty line was found.
+     * @throws IOException if the stream was closed or the message could not be read.
+     */
+    public static Message read(InputStream in) throws IOException {
+        int c = in.read();
+        if (c == -1) {
+            throw new IOException("Done");
+        }
+        if (c == FRAME_MARKER) {
+            return readFrame(new DataInputStream(in));
+        }
+
+        ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+        while (c != '\n' && c != '\r') {
+            line.write(c);
+            c = in.read();
+            if (c == -1) {
+                throw new IOException("Done");
+            }
+        }
+        if (line.size() == 0) {
+            return null;
+        }
+        String cmdLine = new String(line.toByteArray(), StandardCharsets.UTF_8);
+        if (cmdLine.trim().length() == 0) {
+            return null;
+        }
+        String[] cmdParsed = cmdLine.split("\t", 3);
+        try {
+            return new Message(Integer.parseInt(cmdParsed[0]), Integer.parseInt(cmdParsed[1]), URLDecoder.decode(
+                    cmdParsed[2], "UTF-8"), null);
+        } catch (RuntimeException e) {
+            throw new IOException("Unable to parse: " + cmdLine, e);
+        }
+    }
+
+    private static Message readFrame(DataInputStream in) throws IOException {
+        int cmdCode = in.readInt();
+        int sequence = in.readInt();
+        int kind = in.readByte();
+        int len = in.readInt();
+        if (len < 0) {
+            throw new IOException("Invalid payload length: " + len);
+        }
+        byte[] payload = new byte[len];
+        in.readFully(payload);
+
+        switch (kind) {
+            case PAYLOAD_TEXT:
+                return new Message(cmdCode, sequence, new String(payload, StandardCharsets.UTF_8), null);
+
+            case PAYLOAD_VARIABLES:
+                return new Message(cmdCode, sequence, null, decodeVariables(payload));
+
+            case PAYLOAD_THREADS:
+                return new Message(cmdCode, sequence, null, null, decodeThreads(payload), null);
+
+            case PAYLOAD_STACK:
+                return new Message(cmdCode, sequence, null, null, null, decodeStack(payload));
+
+            default:
+                throw new IOException("Unexpected payload kind: " + kind);
+        }
+    }
+
+    /**
+     * Decodes a PAYLOAD_VARIABLES.
+     */
+    public static VariableRecord[] decodeVariables(byte[] payload) throws IOException {
+        int[] pos = new int[1];
+        int count = readInt(payload, pos);
+        if (count < 0 || count > payload.length) {
+            throw new IOException("Invalid number of variables: " + count);
+        }
+        VariableRecord[] ret = new VariableRecord[count];
+        for (int i = 0; i < count; i++) {
+            if (pos[0] >= payload.length) {
+                throw new EOFException();
+            }
+            int flags = payload[pos[0]++];
+            String name = readString(payload, pos);
+            String type = readString(payload, pos);
+            String value = readString(payload, pos);
+            ret[i] = new VariableRecord(name, type, value, flags);
+        }
+        return ret;
+    }
+
+    /**
+     * Decodes a PAYLOAD_THREADS.
+     */
+    public static ThreadRecord[] decodeThreads(byte[] payload) throws IOException {
+        int[] pos = new int[1];
+        int count = readCount(payload, pos);
+        ThreadRecord[] ret = new ThreadRecord[count];
+        for (int i = 0; i < count; i++) {
+            String name = readString(payload, pos);
+            String id = readString(payload, pos);
+            ret[i] = new ThreadRecord(name, id);
+        }
+        return ret;
+    }
+
+    /**
+     * Decodes a PAYLOAD_STACK.
+     */
+    public static StackRecord decodeStack(byte[] payload) throws IOException {
+        int[] pos = new int[1];
+        String threadId = readString(payload, pos);
+        String stopReason = readString(payload, pos);
+        String message = readString(payload, pos);
+        int count = readCount(payload, pos);
+        FrameRecord[] frames = new FrameRecord[count];
+        for (int i = 0; i < count; i++) {
+            String id = readString(payload, pos);
+            String name = readString(payload, pos);
+            String file = readString(payload, pos);
+            int line = readInt(payload, pos);
+            frames[i] = new FrameRecord(id, name, file, line);
+        }
+        return new StackRecord(threadId, stopReason, message, frames);
+    }
+
+    private static int readCount(byte[] bytes, int[] pos) throws IOException {
+        int count = readInt(bytes, pos);
+        if (count < 0 || count > bytes.length) {
+            throw new IOException("Invalid number of records: " + count);
+        }
+        return count;
+    }
+
+    private static int readInt(byte[] bytes, int[] pos) throws IOException {
+        int p = pos[0];
+        if (p + 4 > bytes.length) {
+            throw new EOFException();
+        }
+        pos[0] = p + 4;
+        return ((bytes[p] & 0xFF) << 24) | ((bytes[p + 1] & 0xFF) << 16) | ((bytes[p + 2] & 0xFF) << 8)
+                | (bytes[p + 3] & 0xFF);
+    }
+
+    private static String readString(byte[] bytes, int[] pos) throws IOException {
+        int len = readInt(bytes, pos);
+        if (len == -1) {
+            return null;
+        }
+        int p = pos[0];
+        if (len < 0 || p + len > bytes.length) {
+            throw new EOFException();
+        }
+        pos[0] = p + len;
+        return new String(bytes, p, len, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return the xml which would be sent for the given variables in the text protocol.
+     */
+    public static String toXML(VariableRecord[] variables) {
+        FastStringBuffer buf = new FastStringBuffer(variables.length * 64 + 20);
+        buf.append("<xml>");
+        for (VariableRecord var : variables) {
+            buf.append("<var name=\"");
+            appendAttr(buf, var.name);
+            buf.append("\" type=\"");
+            appendEscaped(buf, var.type);
+            buf.append('"');
+            if (var.value != null && var.value.length() > 0) {
+                buf.append(" value=\"");
+                appendAttr(buf, var.value);
+                buf.append('"');
+            }
+            if (var.isErrorOnEval()) {
+                buf.append(" isErrorOnEval=\"True\"");
+            } else if (var.isContainer()) {
+                buf.append(" isContainer=\"True\"");
+            }
+            buf.append(" />\n");
+        }
+        buf.append("</xml>");
+        return buf.toString();
+    }
+
+    /**
+     * @return the xml which would be sent for the given threads in the text protocol.
+     */
+    public static String toXML(ThreadRecord[] threads) {
+        FastStringBuffer buf = new FastStringBuffer(threads.length * 64 + 20);
+        buf.append("<xml>");
+        for (ThreadRecord thread : threads) {
+            buf.append("<thread name=\"");
+            appendAttr(buf, thread.name);
+            buf.append("\" id=\"");
+            appendEscaped(buf, thread.id);
+            buf.append("\" />");
+        }
+        buf.append("</xml>");
+        return buf.toString();
+    }
+
+    /**
+     * @return the xml which would be sent for the given stack in the text protocol.
+     */
+    public static String toXML(StackRecord stack) {
+        FastStringBuffer buf = new FastStringBuffer(stack.frames.length * 128 + 100);
+        buf.append("<xml><thread id=\"");
+        appendEscaped(buf, stack.threadId);
+        buf.append("\" stop_reason=\"");
+        appendEscaped(buf, stack.stopReason);
+        buf.append("\" message=\"");
+        appendEscaped(buf, stack.message);
+        buf.append("\">");
+        for (FrameRecord frame : stack.frames) {
+            buf.append("<frame id=\"");
+            appendEscaped(buf, frame.id);
+            buf.append("\" name=\"");
+            appendEscaped(buf, frame.name);
+            buf.append("\" file=\"");
+            appendAttr(buf, frame.file);
+            buf.append("\" line=\"");
+            buf.append(frame.line);
+            buf.append("\"></frame>");
+        }
+        buf.append("</thread></xml>");
+        return buf.toString();
+    }
+
+    /**
+     * The values which are not url-encoded in the text protocol (i.e.: the type) are only escaped.
+     */
+    private static void appendEscaped(FastStringBuffer buf, String value) {
+        if (value == null) {
+            return;
+        }
+        int len = value.length();
+        for (int i = 0; i < len; i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '<':
+                    buf.append("&lt;");
+                    break;
+                case '>':
+                    buf.append("&gt;");
+                    break;
+                case '&':
+                    buf.append("&amp;");
+                    break;
+                case '"':
+                    buf.append("&quot;");
+                    break;
+                default:
+                    buf.append(c);
+            }
+        }
+    }
+
+    /**
+     * The names, values and files are url-encoded (so, they're also valid in the xml).
+     */
+    private static void appendAttr(FastStringBuffer buf, String value) {
+        if (value == null) {
+            return;
+        }
+        try {
+            buf.append(URLEncoder.encode(value, "UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -6,11 +6,10 @@
  */
 package org.python.pydev.debug.model.remote;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.net.Socket;
-import java.net.URLDecoder;
 import java.util.Dictionary;
 import java.util.Hashtable;
 
@@ -19,6 +18,7 @@ import org.python.pydev.core.log.Log;
 import org.python.pydev.debug.core.PydevDebugPlugin;
 import org.python.pydev.debug.model.AbstractDebugTarget;
 import org.python.pydev.debug.model.AbstractDebugTargetWithTransmission;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.Message;
 
 
 /**
@@ -40,20 +40,15 @@ public class DebuggerReader implements Runnable {
      */
     private volatile boolean done = false;
 
-    /**
-     * Lock object for sleeping.
-     */
-    private Object lock = new Object();
-
     /**
      * commands waiting for response. Their keys are the sequence ids
      */
     private Dictionary<Integer, AbstractDebuggerCommand> responseQueue = new Hashtable<Integer, AbstractDebuggerCommand>();
 
     /**
-     * we read from this
+     * we read from this (either text lines or binary frames -- see DebuggerBinaryProtocol)
      */
-    private InputStreamReader in;
+    private InputStream in;
 
     /**
      * that's the debugger that made us... we have to finish it when we are done
@@ -72,7 +67,7 @@ public class DebuggerReader implements Runnable {
         remote = (AbstractDebugTarget) r;
         socket = s;
         InputStream sin = socket.getInputStream();
-        in = new InputStreamReader(sin);
+        in = new BufferedInputStream(sin);
     }
 
     /**
@@ -93,29 +88,28 @@ public class DebuggerReader implements Runnable {
     }
 
     /**
-     * Parses & dispatches the command
+     * Dispatches the command
      */
-    private void processCommand(String cmdLine) {
+    private void processCommand(Message message) {
         try {
-            String[] cmdParsed = cmdLine.split("\t", 3);
-            int cmdCode = Integer.parseInt(cmdParsed[0]);
-            int seqCode = Integer.parseInt(cmdParsed[1]);
-            String payload = URLDecoder.decode(cmdParsed[2], "UTF-8");
-
             // is there a response waiting
             AbstractDebuggerCommand cmd;
             synchronized (responseQueue) {
-                cmd = (AbstractDebuggerCommand) responseQueue.remove(new Integer(seqCode));
+                cmd = (AbstractDebuggerCommand) responseQueue.remove(new Integer(message.sequence));
             }
 
             if (cmd == null) {
                 if (remote != null) {
-                    remote.processCommand(cmdParsed[0], cmdParsed[1], payload);
+                    remote.processCommand(message);
                 } else {
                     PydevDebugPlugin.log(IStatus.ERROR, "internal error, command received no target", null);
                 }
+            } else if (message.variables != null) {
+                cmd.processVariablesResponse(message.cmdCode, message.variables);
+            } else if (message.threads != null) {
+                cmd.processThreadsResponse(message.cmdCode, message.threads);
             } else {
-                cmd.processResponse(cmdCode, payload);
+                cmd.processResponse(message.cmdCode, message.getTextPayload());
             }
         } catch (Exception e) {
             Log.log(e);
@@ -132,15 +126,14 @@ public class DebuggerReader implements Runnable {
     public void run() {
         while (!done) {
             try {
-                String cmdLine = readLine();
+                // Note: reading blocks until a message is available.
+                Message message = DebuggerBinaryProtocol.read(in);
                 if (DEBUG) {
-                    System.err.println("receive cmd: " + cmdLine);
+                    System.err.println("receive cmd: " + (message != null ? message.cmdCode + " "
+                            + message.getTextPayload() : null));
                 }
-                if (cmdLine != null && cmdLine.trim().length() > 0) {
-                    processCommand(cmdLine);
-                }
-                synchronized (lock) {
-                    Thread.sleep(50);
+                if (message != null) {
+                    processCommand(message);
                 }
             } catch (Exception e1) {
                 done = true;
@@ -160,23 +153,4 @@ public class DebuggerReader implements Runnable {
             }
         }
     }
-
-    /**
-     * Implemented our own: with the BufferedReader, when the socket was closed, it still appeared stuck in the method.
-     * 
-     * @return a line that was read from the debugger.
-     * @throws IOException
-     */
-    private String readLine() throws IOException {
-        StringBuffer contents = new StringBuffer();
-        int i;
-        while ((i = in.read()) != -1) {
-            char c = (char) i;
-            if (c == '\n' || c == '\r') {
-                return contents.toString();
-            }
-            contents.append(c);
-        }
-        throw new IOException("Done");
-    }
 }
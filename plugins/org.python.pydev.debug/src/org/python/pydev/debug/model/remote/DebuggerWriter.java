@@ -9,8 +9,8 @@ package org.python.pydev.debug.model.remote;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.net.Socket;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.python.pydev.core.log.Log;
 
@@ -26,9 +26,9 @@ public class DebuggerWriter implements Runnable {
     private Socket socket;
 
     /**
-     * a list of RemoteDebuggerCommands
+     * a queue of RemoteDebuggerCommands
      */
-    private List<AbstractDebuggerCommand> cmdQueue = new ArrayList<AbstractDebuggerCommand>();
+    private final LinkedBlockingQueue<AbstractDebuggerCommand> cmdQueue = new LinkedBlockingQueue<>();
 
     private OutputStreamWriter out;
 
@@ -37,11 +37,6 @@ public class DebuggerWriter implements Runnable {
      */
     private volatile boolean done = false;
 
-    /**
-     * Lock object for sleeping.
-     */
-    private Object lock = new Object();
-
     public DebuggerWriter(Socket s) throws IOException {
         socket = s;
         out = new OutputStreamWriter(s.getOutputStream(), "utf-8");
@@ -51,9 +46,7 @@ public class DebuggerWriter implements Runnable {
      * Add command for processing
      */
     public void postCommand(AbstractDebuggerCommand cmd) {
-        synchronized (cmdQueue) {
-            cmdQueue.add(cmd);
-        }
+        cmdQueue.add(cmd);
     }
 
     public void done() {
@@ -65,32 +58,27 @@ public class DebuggerWriter implements Runnable {
      */
     public void run() {
         while (!done) {
-            AbstractDebuggerCommand cmd = null;
-            synchronized (cmdQueue) {
-                if (cmdQueue.size() > 0) {
-                    cmd = cmdQueue.remove(0);
-                }
-            }
             try {
+                //Wait for a command (with a timeout to check if it's done).
+                AbstractDebuggerCommand cmd = cmdQueue.poll(100, TimeUnit.MILLISECONDS);
                 if (cmd != null) {
                     String outgoing;
                     try {
                         outgoing = cmd.getOutgoing();
-                        if (outgoing == null) {
-                            continue;
-                        }
                     } catch (Throwable e) {
                         Log.log(e);
-                        continue;
+                        outgoing = null;
                     }
 
-                    cmd.aboutToSend();
-                    out.write(outgoing);
-                    out.write("\n");
-                    out.flush();
-                }
-                synchronized (lock) {
-                    Thread.sleep(100);
+                    if (outgoing != null) {
+                        cmd.aboutToSend();
+                        out.write(outgoing);
+                        out.write("\n");
+                    }
+                    if (cmdQueue.isEmpty()) {
+                        //Only flush when there are no other commands to be sent.
+                        out.flush();
+                    }
                 }
             } catch (InterruptedException | IOException e) {
                 done = true;
@@ -14,6 +14,7 @@ import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IStatus;
 import org.python.pydev.debug.core.PydevDebugPlugin;
 import org.python.pydev.debug.model.AbstractDebugTarget;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.VariableRecord;
 
 /**
  * GetVariable network command.
@@ -27,6 +28,7 @@ public class GetVariableCommand extends AbstractDebuggerCommand {
     boolean isError = false;
     int responseCode;
     String payload;
+    VariableRecord[] variables;
 
     public GetVariableCommand(AbstractDebugTarget debugger, String locator) {
         super(debugger);
@@ -51,6 +53,15 @@ public class GetVariableCommand extends AbstractDebuggerCommand {
         }
     }
 
+    /**
+     * In the binary protocol the variables are kept as they're received (without converting them to xml).
+     */
+    @Override
+    public void processVariablesResponse(int cmdCode, VariableRecord[] variables) {
+        this.variables = variables;
+        processResponse(cmdCode, "");
+    }
+
     protected int getCommandId() {
         return CMD_GET_VARIABLE;
     }
@@ -67,4 +78,13 @@ public class GetVariableCommand extends AbstractDebuggerCommand {
         else
             return payload;
     }
+
+    /**
+     * @return the variables received or null if the response was not received in the binary protocol (in which
+     * case {@link #getResponse()} has the xml with the variables).
+     */
+    public VariableRecord[] getResponseVariables() throws CoreException {
+        getResponse(); //throws if it was an error.
+        return variables;
+    }
 }
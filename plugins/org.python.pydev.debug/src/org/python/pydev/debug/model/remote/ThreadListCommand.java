@@ -28,6 +28,7 @@ public class ThreadListCommand extends AbstractDebuggerCommand {
 
     boolean done;
     PyThread[] threads;
+    DebuggerBinaryProtocol.ThreadRecord[] threadRecords;
 
     public ThreadListCommand(AbstractDebugTarget target) {
         super(target);
@@ -57,6 +58,15 @@ public class ThreadListCommand extends AbstractDebuggerCommand {
         return true;
     }
 
+    /**
+     * In the binary protocol the threads are created from the records (without going through xml).
+     */
+    @Override
+    public void processThreadsResponse(int cmdCode, DebuggerBinaryProtocol.ThreadRecord[] threads) {
+        this.threadRecords = threads;
+        processResponse(cmdCode, "");
+    }
+
     /**
      * The response is a list of threads
      */
@@ -65,6 +75,11 @@ public class ThreadListCommand extends AbstractDebuggerCommand {
             PydevDebugPlugin.log(IStatus.ERROR, "Unexpected response to LIST THREADS" + payload, null);
             return;
         }
+        if (threadRecords != null) {
+            threads = XMLUtils.recordsToThreads(target, threadRecords);
+            done = true;
+            return;
+        }
         try {
             threads = XMLUtils.ThreadsFromXML(target, payload);
         } catch (CoreException e) {
@@ -22,6 +22,11 @@ public class VersionCommand extends AbstractDebuggerCommand {
 
     static final String VERSION = "1.1";
 
+    /**
+     * Whether the binary protocol should be requested (pydevd only uses it if it also supports it).
+     */
+    public static boolean REQUEST_BINARY_PROTOCOL = true;
+
     /**
      * @param debugger
      */
@@ -31,8 +36,10 @@ public class VersionCommand extends AbstractDebuggerCommand {
 
     @Override
     public String getOutgoing() {
+        //Note: the capabilities are added to the version as older versions of pydevd ignore it (and would
+        //not work properly if a new field was added).
         return makeCommand(CMD_VERSION, sequence,
-                VERSION +
+                VERSION + (REQUEST_BINARY_PROTOCOL ? ";" + DebuggerBinaryProtocol.CAPABILITY_BINARY : "") +
                         "\t" + (PlatformUtils.isWindowsPlatform() ? "WINDOWS" : "UNIX") +
                         "\tID");
     }
@@ -10,7 +10,10 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.InetAddress;
 import java.net.MalformedURLException;
+import java.net.ServerSocket;
+import java.net.Socket;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -47,12 +50,14 @@ import org.python.pydev.editorinput.PyOpenEditor;
 import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.io.ThreadStreamReader;
+import org.python.pydev.shared_core.net.LocalHost;
 import org.python.pydev.shared_core.process.ProcessUtils;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_interactive_console.console.IScriptConsoleCommunication;
 import org.python.pydev.shared_interactive_console.console.IXmlRpcClient;
 import org.python.pydev.shared_interactive_console.console.InterpreterResponse;
+import org.python.pydev.shared_interactive_console.console.ScriptBinaryChannelClient;
 import org.python.pydev.shared_interactive_console.console.ScriptXmlRpcClient;
 import org.python.pydev.shared_ui.EditorUtils;
 import org.python.pydev.shared_ui.proposals.IPyCompletionProposal;
@@ -60,7 +65,8 @@ import org.python.pydev.shared_ui.proposals.PyCompletionProposal;
 import org.python.pydev.shared_ui.utils.RunInUiThread;
 
 /**
- * Communication with Xml-rpc with the client.
+ * Communication with Xml-rpc with the client (after the hello, a binary channel may be used instead, see
+ * {@link ScriptBinaryChannelClient}).
  *
  * After creating the comms, a successful {@link #hello(IProgressMonitor)} message must be sent before using other methods.
  *
@@ -83,6 +89,11 @@ public class PydevConsoleCommunication implements IScriptConsoleCommunication, X
 
     private final String[] envp;
 
+    /**
+     * The process where the console is being executed.
+     */
+    private final Process process;
+
     private StdStreamsThread stdStreamsThread;
 
     private class StdStreamsThread extends Thread {
@@ -152,6 +163,7 @@ public class PydevConsoleCommunication implements IScriptConsoleCommunication, X
                     throws Exception {
         this.commandArray = commandArray;
         this.envp = envp;
+        this.process = process;
 
         finishedExecution = new ConditionEvent(new ICallback0<Boolean>() {
 
@@ -196,11 +208,15 @@ public class PydevConsoleCommunication implements IScriptConsoleCommunication, X
 
                 @Override
                 protected IStatus run(IProgressMonitor monitor) {
+                    IXmlRpcClient client = PydevConsoleCommunication.this.client;
                     try {
-                        PydevConsoleCommunication.this.client.execute("close", new Object[0]);
+                        client.execute("close", new Object[0]);
                     } catch (Exception e) {
                         //Ok, we can ignore this one on close.
                     }
+                    if (client instanceof ScriptBinaryChannelClient) {
+                        ((ScriptBinaryChannelClient) client).close();
+                    }
                     PydevConsoleCommunication.this.client = null;
                     return Status.OK_STATUS;
                 }
@@ -802,11 +818,58 @@ public class PydevConsoleCommunication implements IScriptConsoleCommunication, X
                 throw new Exception("Failed to recive suitable Hello response from pydevconsole. Last msg received: "
                         + result + "\nCommand Line used: " + commandLine + "\n\nEnvironment:\n" + environment);
             }
+
+            if (InteractiveConsolePrefs.getUseBinaryChannel()) {
+                connectBinaryChannel();
+            }
         } finally {
             monitor.done();
         }
     }
 
+    /**
+     * Asks the console to connect to a persistent binary channel, which is then used for the next calls (and
+     * through which the console sends its stdout/stderr). If the console doesn't support it (i.e.: an older
+     * version of pydevconsole.py) or some error happens, xml-rpc keeps on being used.
+     */
+    private void connectBinaryChannel() {
+        ServerSocket serverSocket = null;
+        try {
+            serverSocket = new ServerSocket(0, 1, InetAddress.getByName(LocalHost.getLocalHost()));
+            serverSocket.setSoTimeout(10000);
+
+            IXmlRpcClient xmlRpcClient = this.client;
+            Object result = xmlRpcClient.execute("connectBinaryChannel",
+                    new Object[] { serverSocket.getLocalPort() });
+            if (!Boolean.TRUE.equals(result)) {
+                return;
+            }
+            Socket socket = serverSocket.accept();
+            this.client = new ScriptBinaryChannelClient(socket, process, xmlRpcClient, this,
+                    new ICallback<Object, Tuple<String, String>>() {
+
+                        @Override
+                        public Object call(Tuple<String, String> contents) {
+                            ICallback<Object, Tuple<String, String>> callback = onContentsReceived;
+                            if (callback != null) {
+                                callback.call(contents);
+                            }
+                            return null;
+                        }
+                    });
+        } catch (Exception e) {
+            Log.log(e);
+        } finally {
+            if (serverSocket != null) {
+                try {
+                    serverSocket.close();
+                } catch (IOException e) {
+                    //ignore
+                }
+            }
+        }
+    }
+
     /**
      * Not required for normal pydev console
      */
@@ -68,6 +68,9 @@ public final class PydevConsoleConstants {
     public static final String INTERACTIVE_CONSOLE_CONNECT_DEBUG_SESSION = "INTERACTIVE_CONSOLE_CONNECT_DEBUG_SESSION";
     public static final boolean DEFAULT_INTERACTIVE_CONSOLE_CONNECT_DEBUG_SESSION = false;
 
+    public static final String INTERACTIVE_CONSOLE_USE_BINARY_CHANNEL = "INTERACTIVE_CONSOLE_USE_BINARY_CHANNEL";
+    public static final boolean DEFAULT_INTERACTIVE_CONSOLE_USE_BINARY_CHANNEL = true;
+
     public static final String INTERACTIVE_CONSOLE_SEND_INITIAL_COMMAND_WHEN_CREATED_FROM_EDITOR = "INTERACTIVE_CONSOLE_SEND_INITIAL_COMMAND_WHEN_CREATED_FROM_EDITOR";
     public static final boolean DEFAULT_INTERACTIVE_CONSOLE_SEND_INITIAL_COMMAND_WHEN_CREATED_FROM_EDITOR = false;
 
@@ -67,6 +67,9 @@ public class PydevConsolePreferencesInitializer extends AbstractPreferenceInitia
         node.putBoolean(PydevConsoleConstants.INTERACTIVE_CONSOLE_CONNECT_DEBUG_SESSION,
                 PydevConsoleConstants.DEFAULT_INTERACTIVE_CONSOLE_CONNECT_DEBUG_SESSION);
 
+        node.putBoolean(PydevConsoleConstants.INTERACTIVE_CONSOLE_USE_BINARY_CHANNEL,
+                PydevConsoleConstants.DEFAULT_INTERACTIVE_CONSOLE_USE_BINARY_CHANNEL);
+
         node.putBoolean(PydevConsoleConstants.INTERACTIVE_CONSOLE_SEND_INITIAL_COMMAND_WHEN_CREATED_FROM_EDITOR,
                 PydevConsoleConstants.DEFAULT_INTERACTIVE_CONSOLE_SEND_INITIAL_COMMAND_WHEN_CREATED_FROM_EDITOR);
 
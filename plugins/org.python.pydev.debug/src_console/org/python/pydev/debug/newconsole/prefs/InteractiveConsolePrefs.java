@@ -73,6 +73,16 @@ public class InteractiveConsolePrefs extends FieldEditorPreferencePage implement
             }
         });
 
+        addField(new IntegerFieldEditor(
+                ScriptConsoleUIConstants.INTERACTIVE_CONSOLE_MAXIMUM_OUTPUT_LINES,
+                "Maximum number of lines\nkept in the console\n(0 for unlimited):", p) {
+            // We are trying to set a preference that is in a different store, but logically lives within this UI
+            @Override
+            public IPreferenceStore getPreferenceStore() {
+                return InteractiveConsolePlugin.getDefault().getPreferenceStore();
+            }
+        });
+
         addField(new BooleanFieldEditor(
                 PydevConsoleConstants.INTERACTIVE_CONSOLE_SEND_INITIAL_COMMAND_WHEN_CREATED_FROM_EDITOR,
                 "When creating console send\ncurrent selection/editor\ncontents for execution?",
@@ -85,6 +95,10 @@ public class InteractiveConsolePrefs extends FieldEditorPreferencePage implement
         addField(new BooleanFieldEditor(PydevConsoleConstants.INTERACTIVE_CONSOLE_CONNECT_DEBUG_SESSION,
                 "Connect console to a Debug Session?", BooleanFieldEditor.SEPARATE_LABEL, p));
 
+        addField(new BooleanFieldEditor(PydevConsoleConstants.INTERACTIVE_CONSOLE_USE_BINARY_CHANNEL,
+                "Use binary channel for console communication?\n(falls back to xml-rpc if not available)",
+                BooleanFieldEditor.SEPARATE_LABEL, p));
+
         addField(new ComboFieldEditor(PydevConsoleConstants.INTERACTIVE_CONSOLE_ENABLE_GUI_ON_STARTUP,
                 "Enable GUI event loop integration?",
                 PydevConsoleConstants.ENTRIES_VALUES_INTERACTIVE_CONSOLE_ENABLE_GUI_ON_STARTUP, p));
@@ -141,6 +155,15 @@ public class InteractiveConsolePrefs extends FieldEditorPreferencePage implement
                 PydevConsoleConstants.INTERACTIVE_CONSOLE_CONNECT_DEBUG_SESSION);
     }
 
+    public static boolean getUseBinaryChannel() {
+        if (SharedCorePlugin.inTestMode()) {
+            return PydevConsoleConstants.DEFAULT_INTERACTIVE_CONSOLE_USE_BINARY_CHANNEL;
+        }
+        PydevDebugPlugin plugin = PydevDebugPlugin.getDefault();
+        return plugin.getPreferenceStore().getBoolean(
+                PydevConsoleConstants.INTERACTIVE_CONSOLE_USE_BINARY_CHANNEL);
+    }
+
     public static boolean getSendCommandOnCreationFromEditor() {
         if (SharedCorePlugin.inTestMode()) {
             return PydevConsoleConstants.DEFAULT_INTERACTIVE_CONSOLE_SEND_INITIAL_COMMAND_WHEN_CREATED_FROM_EDITOR;
@@ -0,0 +1,235 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.model.remote;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.Message;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.StackRecord;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.ThreadRecord;
+import org.python.pydev.debug.model.remote.DebuggerBinaryProtocol.VariableRecord;
+
+public class DebuggerBinaryProtocolTest extends TestCase {
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void writeFrame(DataOutputStream out, int cmdCode, int seq, int kind, byte[] payload)
+            throws IOException {
+        out.write(DebuggerBinaryProtocol.FRAME_MARKER);
+        out.writeInt(cmdCode);
+        out.writeInt(seq);
+        out.write(kind);
+        out.writeInt(payload.length);
+        out.write(payload);
+    }
+
+    private static byte[] createVariablesPayload() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(3);
+        out.write(0);
+        writeString(out, "a");
+        writeString(out, "int");
+        writeString(out, "int: 1");
+        out.write(DebuggerBinaryProtocol.VAR_IS_CONTAINER);
+        writeString(out, "b");
+        writeString(out, "list");
+        writeString(out, "list: [1, <2>]");
+        out.write(0);
+        writeString(out, "cç");
+        writeString(out, "str");
+        writeString(out, null);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public void testReadMixedMessages() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write("501\t2\t1.1%3Bbinary\n".getBytes(StandardCharsets.UTF_8));
+        out.write("\n".getBytes(StandardCharsets.UTF_8));
+        writeFrame(out, 114, 4, DebuggerBinaryProtocol.PAYLOAD_VARIABLES, createVariablesPayload());
+        writeFrame(out, 502, 6, DebuggerBinaryProtocol.PAYLOAD_TEXT,
+                "<xml>%20ç\n</xml>".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        Message message = DebuggerBinaryProtocol.read(in);
+        assertEquals(501, message.cmdCode);
+        assertEquals(2, message.sequence);
+        assertEquals("1.1;binary", message.text);
+        assertNull(message.variables);
+
+        assertNull(DebuggerBinaryProtocol.read(in)); //empty line
+
+        message = DebuggerBinaryProtocol.read(in);
+        assertEquals(114, message.cmdCode);
+        assertEquals(4, message.sequence);
+        assertNull(message.text);
+        VariableRecord[] variables = message.variables;
+        assertEquals(3, variables.length);
+        assertEquals("a", variables[0].name);
+        assertEquals("int", variables[0].type);
+        assertEquals("int: 1", variables[0].value);
+        assertFalse(variables[0].isContainer());
+        assertTrue(variables[1].isContainer());
+        assertEquals("cç", variables[2].name);
+        assertNull(variables[2].value);
+
+        message = DebuggerBinaryProtocol.read(in);
+        assertEquals(502, message.cmdCode);
+        assertEquals("<xml>%20ç\n</xml>", message.text); //not url-decoded in the binary protocol
+
+        try {
+            DebuggerBinaryProtocol.read(in);
+            fail("Expected the stream to be finished.");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+
+    public void testInvalidFrame() throws Exception {
+        byte[] payload = createVariablesPayload();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeFrame(out, 114, 4, DebuggerBinaryProtocol.PAYLOAD_VARIABLES, payload);
+        out.flush();
+        byte[] frame = bytes.toByteArray();
+
+        byte[] truncated = new byte[frame.length - 3];
+        System.arraycopy(frame, 0, truncated, 0, truncated.length);
+        try {
+            DebuggerBinaryProtocol.read(new ByteArrayInputStream(truncated));
+            fail("Expected IOException");
+        } catch (IOException e) {
+            //expected
+        }
+
+        byte[] wrongCount = payload.clone();
+        wrongCount[3] = 10; //only 3 variables available
+        try {
+            DebuggerBinaryProtocol.decodeVariables(wrongCount);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+
+    public void testToXML() throws Exception {
+        VariableRecord[] variables = DebuggerBinaryProtocol.decodeVariables(createVariablesPayload());
+        String xml = DebuggerBinaryProtocol.toXML(variables);
+        assertEquals("<xml>"
+                + "<var name=\"a\" type=\"int\" value=\"int%3A+1\" />\n"
+                + "<var name=\"b\" type=\"list\" value=\"list%3A+%5B1%2C+%3C2%3E%5D\" isContainer=\"True\" />\n"
+                + "<var name=\"c%C3%A7\" type=\"str\" />\n"
+                + "</xml>", xml);
+    }
+
+    private static byte[] createThreadsPayload() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(2);
+        writeString(out, "MainThread");
+        writeString(out, "pid1_seq1");
+        writeString(out, "Thread <ç>");
+        writeString(out, "pid1_seq2");
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static byte[] createStackPayload() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, "pid1_seq1");
+        writeString(out, "111");
+        writeString(out, "");
+        out.writeInt(2);
+        writeString(out, "10");
+        writeString(out, "method");
+        writeString(out, "/tmp/a b.py");
+        out.writeInt(3);
+        writeString(out, "20");
+        writeString(out, "<module>");
+        writeString(out, "/tmp/c.py");
+        out.writeInt(10);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    public void testReadThreadsAndStack() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeFrame(out, 502, 8, DebuggerBinaryProtocol.PAYLOAD_THREADS, createThreadsPayload());
+        writeFrame(out, 105, 10, DebuggerBinaryProtocol.PAYLOAD_STACK, createStackPayload());
+        out.flush();
+
+        ByteArrayInputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        Message message = DebuggerBinaryProtocol.read(in);
+        assertEquals(502, message.cmdCode);
+        assertNull(message.text);
+        assertNull(message.variables);
+        ThreadRecord[] threads = message.threads;
+        assertEquals(2, threads.length);
+        assertEquals("MainThread", threads[0].name);
+        assertEquals("pid1_seq1", threads[0].id);
+        assertEquals("Thread <ç>", threads[1].name);
+        assertEquals("<xml><thread name=\"MainThread\" id=\"pid1_seq1\" />"
+                + "<thread name=\"Thread+%3C%C3%A7%3E\" id=\"pid1_seq2\" /></xml>", message.getTextPayload());
+
+        message = DebuggerBinaryProtocol.read(in);
+        assertEquals(105, message.cmdCode);
+        assertNull(message.threads);
+        StackRecord stack = message.stack;
+        assertEquals("pid1_seq1", stack.threadId);
+        assertEquals("111", stack.stopReason);
+        assertEquals(2, stack.frames.length);
+        assertEquals("10", stack.frames[0].id);
+        assertEquals("method", stack.frames[0].name);
+        assertEquals("/tmp/a b.py", stack.frames[0].file);
+        assertEquals(3, stack.frames[0].line);
+        assertEquals(10, stack.frames[1].line);
+        assertEquals("<xml><thread id=\"pid1_seq1\" stop_reason=\"111\" message=\"\">"
+                + "<frame id=\"10\" name=\"method\" file=\"%2Ftmp%2Fa+b.py\" line=\"3\"></frame>"
+                + "<frame id=\"20\" name=\"&lt;module&gt;\" file=\"%2Ftmp%2Fc.py\" line=\"10\"></frame>"
+                + "</thread></xml>", message.getTextPayload());
+    }
+
+    public void testInvalidThreadsAndStack() throws Exception {
+        byte[] threads = createThreadsPayload();
+        threads[3] = 3; //only 2 threads available
+        try {
+            DebuggerBinaryProtocol.decodeThreads(threads);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            //expected
+        }
+
+        byte[] stack = createStackPayload();
+        byte[] truncated = new byte[stack.length - 2];
+        System.arraycopy(stack, 0, truncated, 0, truncated.length);
+        try {
+            DebuggerBinaryProtocol.decodeStack(truncated);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+}
@@ -0,0 +1,289 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.debug.newconsole;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcHandler;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_interactive_console.console.IXmlRpcClient;
+import org.python.pydev.shared_interactive_console.console.ScriptBinaryChannelClient;
+
+/**
+ * Checks the framing and the values encoding of the console binary channel (acting as the console in the other side
+ * of the socket).
+ */
+public class ScriptBinaryChannelClientTest extends TestCase {
+
+    /**
+     * A message read in the console side.
+     */
+    private static final class Message {
+        private final byte msgType;
+        private final int id;
+        private final Object value;
+
+        private Message(byte msgType, int id, Object value) {
+            this.msgType = msgType;
+            this.id = id;
+            this.value = value;
+        }
+    }
+
+    /**
+     * The result of ScriptBinaryChannelClient.execute (called in a separate thread as it blocks until the
+     * console answers).
+     */
+    private static final class ExecuteThread extends Thread {
+        private final ScriptBinaryChannelClient client;
+        private final String command;
+        private final Object[] args;
+        private volatile Object result;
+        private volatile Exception exception;
+
+        private ExecuteThread(ScriptBinaryChannelClient client, String command, Object[] args) {
+            this.client = client;
+            this.command = command;
+            this.args = args;
+            this.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try {
+                result = client.execute(command, args);
+            } catch (Exception e) {
+                exception = e;
+            }
+        }
+    }
+
+    private Socket consoleSocket;
+    private DataInputStream consoleIn;
+    private DataOutputStream consoleOut;
+    private ScriptBinaryChannelClient client;
+    private final List<String> fallbackCalls = new ArrayList<String>();
+    private final List<Tuple<String, String>> contentsReceived = new ArrayList<Tuple<String, String>>();
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        try {
+            consoleSocket = new Socket("127.0.0.1", serverSocket.getLocalPort());
+            Socket socket = serverSocket.accept();
+
+            IXmlRpcClient fallback = new IXmlRpcClient() {
+
+                public void setPort(int port) {
+                }
+
+                public Object execute(String command, Object[] args) throws XmlRpcException {
+                    synchronized (fallbackCalls) {
+                        fallbackCalls.add(command);
+                    }
+                    return "fallback: " + command;
+                }
+            };
+
+            XmlRpcHandler requestsHandler = new XmlRpcHandler() {
+
+                public Object execute(XmlRpcRequest request) throws XmlRpcException {
+                    if (request.getMethodName().equals("Fail")) {
+                        throw new XmlRpcException("Failed on request");
+                    }
+                    return request.getMethodName() + ": " + request.getParameter(0);
+                }
+            };
+
+            ICallback<Object, Tuple<String, String>> onContentsReceived = new ICallback<Object, Tuple<String, String>>() {
+
+                public Object call(Tuple<String, String> arg) {
+                    synchronized (contentsReceived) {
+                        contentsReceived.add(arg);
+                        contentsReceived.notifyAll();
+                    }
+                    return null;
+                }
+            };
+            client = new ScriptBinaryChannelClient(socket, null, fallback, requestsHandler, onContentsReceived);
+        } finally {
+            serverSocket.close();
+        }
+        consoleSocket.setSoTimeout(5000);
+        consoleIn = new DataInputStream(consoleSocket.getInputStream());
+        consoleOut = new DataOutputStream(consoleSocket.getOutputStream());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        client.close();
+        consoleSocket.close();
+        super.tearDown();
+    }
+
+    private static Object roundTrip(Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        ScriptBinaryChannelClient.writeValue(out, value);
+        out.flush();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        Object ret = ScriptBinaryChannelClient.readValue(in);
+        assertEquals("All the bytes written must be read.", -1, in.read());
+        return ret;
+    }
+
+    private Message readMessage() throws IOException {
+        byte[] payload = new byte[consoleIn.readInt()];
+        consoleIn.readFully(payload);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        Message message = new Message(in.readByte(), in.readInt(), ScriptBinaryChannelClient.readValue(in));
+        assertEquals("The frame size must match the payload.", -1, in.read());
+        return message;
+    }
+
+    private void sendMessage(byte msgType, int id, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(msgType);
+        payload.writeInt(id);
+        ScriptBinaryChannelClient.writeValue(payload, value);
+        payload.flush();
+        consoleOut.writeInt(bytes.size());
+        bytes.writeTo(consoleOut);
+        consoleOut.flush();
+    }
+
+    private ExecuteThread startExecute(String command, Object[] args) {
+        ExecuteThread thread = new ExecuteThread(client, command, args);
+        thread.start();
+        return thread;
+    }
+
+    public void testValuesRoundTrip() throws Exception {
+        assertNull(roundTrip(null));
+        assertEquals(Boolean.TRUE, roundTrip(true));
+        assertEquals(Boolean.FALSE, roundTrip(false));
+        assertEquals(Integer.valueOf(-10), roundTrip(-10));
+        assertEquals(Integer.valueOf(7), roundTrip((short) 7));
+        assertEquals(Long.valueOf(Long.MAX_VALUE), roundTrip(Long.MAX_VALUE));
+        assertEquals(Double.valueOf(1.5), roundTrip(1.5));
+        assertEquals(Double.valueOf(0.25), roundTrip(0.25f));
+        assertEquals("", roundTrip(""));
+        assertEquals("açã\n€\u0000", roundTrip("açã\n€\u0000"));
+
+        //Lists (and arrays) are always read as Object[] (as xml-rpc does).
+        Object[] expected = new Object[] { "a", 1, new Object[] { null, true }, new Object[0] };
+        List<Object> list = new ArrayList<Object>();
+        list.add("a");
+        list.add(1);
+        list.add(Arrays.asList(null, true));
+        list.add(new ArrayList<Object>());
+        assertTrue(Arrays.deepEquals(expected, (Object[]) roundTrip(list)));
+        assertTrue(Arrays.deepEquals(expected, (Object[]) roundTrip(expected)));
+    }
+
+    public void testReadInvalidType() throws Exception {
+        try {
+            ScriptBinaryChannelClient.readValue(new DataInputStream(new ByteArrayInputStream(new byte[] { 'X' })));
+            fail("Expected IOException.");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+
+    public void testExecuteAndOutput() throws Exception {
+        ExecuteThread thread = startExecute("execLine", new Object[] { "print('ação')" });
+        Message request = readMessage();
+        assertEquals(ScriptBinaryChannelClient.MSG_REQUEST, request.msgType);
+        assertTrue(Arrays.deepEquals(new Object[] { "execLine", new Object[] { "print('ação')" } },
+                (Object[]) request.value));
+
+        sendMessage(ScriptBinaryChannelClient.MSG_STDOUT, 0, "ação\n");
+        sendMessage(ScriptBinaryChannelClient.MSG_STDERR, 0, "err\n");
+        sendMessage(ScriptBinaryChannelClient.MSG_RESPONSE, request.id, false);
+        thread.join(5000);
+        assertNull(thread.exception);
+        assertEquals(Boolean.FALSE, thread.result);
+
+        synchronized (contentsReceived) {
+            //Contents are handled in the reader thread before the response, so, they're already there.
+            assertEquals(2, contentsReceived.size());
+            assertEquals("ação\n", contentsReceived.get(0).o1);
+            assertEquals("", contentsReceived.get(0).o2);
+            assertEquals("", contentsReceived.get(1).o1);
+            assertEquals("err\n", contentsReceived.get(1).o2);
+        }
+
+        //Each request has a new id.
+        thread = startExecute("getDescription", new Object[] { "a" });
+        Message request2 = readMessage();
+        assertTrue(request2.id != request.id);
+        sendMessage(ScriptBinaryChannelClient.MSG_RESPONSE, request2.id, "desc");
+        thread.join(5000);
+        assertEquals("desc", thread.result);
+        assertTrue(fallbackCalls.isEmpty());
+    }
+
+    public void testExecuteFailsInConsole() throws Exception {
+        ExecuteThread thread = startExecute("getCompletions", new Object[] { "a", "b" });
+        Message request = readMessage();
+        sendMessage(ScriptBinaryChannelClient.MSG_ERROR, request.id, "NameError: a");
+        thread.join(5000);
+        assertTrue(thread.exception instanceof XmlRpcException);
+        assertEquals("NameError: a", thread.exception.getMessage());
+        assertFalse(client.isClosed());
+    }
+
+    public void testRequestFromConsole() throws Exception {
+        sendMessage(ScriptBinaryChannelClient.MSG_REQUEST, 10, new Object[] { "RequestInput", new Object[] { 1 } });
+        Message response = readMessage();
+        assertEquals(ScriptBinaryChannelClient.MSG_RESPONSE, response.msgType);
+        assertEquals(10, response.id);
+        assertEquals("RequestInput: 1", response.value);
+
+        sendMessage(ScriptBinaryChannelClient.MSG_REQUEST, 11, new Object[] { "Fail", new Object[0] });
+        response = readMessage();
+        assertEquals(ScriptBinaryChannelClient.MSG_ERROR, response.msgType);
+        assertEquals(11, response.id);
+        assertEquals("Failed on request", response.value);
+    }
+
+    public void testChannelClosedWhileWaiting() throws Exception {
+        ExecuteThread thread = startExecute("execLine", new Object[] { "import time;time.sleep(10)" });
+        readMessage();
+        consoleSocket.close();
+        thread.join(5000);
+        assertFalse(thread.isAlive());
+
+        //The pending call isn't answered with a message as if it was the result nor re-issued (it may have been
+        //executed already).
+        assertTrue(thread.exception instanceof XmlRpcException);
+        assertNull(thread.result);
+        assertTrue(client.isClosed());
+        assertTrue(fallbackCalls.isEmpty());
+
+        //New calls go through the fallback.
+        assertEquals("fallback: execLine", client.execute("execLine", new Object[] { "a = 1" }));
+        assertEquals(Arrays.asList("execLine"), fallbackCalls);
+    }
+}
@@ -0,0 +1,663 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.SpecialStr;
+import org.python.pydev.shared_core.structure.LowMemoryArrayList;
+
+/**
+ * Writes/reads an AST (with positions, specials and the 'parent' of the nodes) to/from a compact binary format.
+ *
+ * The AST classes are serialized based on their public fields (so, there's no need to keep a serializer for each
+ * generated class), but the names of the fields of each class are written along with the class (so, if the
+ * AST classes change, reading a stream created with the previous classes fails with an IOException instead of
+ * providing a wrong AST).
+ *
+ * Format (after the magic and version):
+ *
+ * node: tag (NULL, NEW_CLASS or KNOWN_CLASS)
+ *     NEW_CLASS: class name, fields count, field names (the class is then referenced by its index)
+ *     KNOWN_CLASS: class index
+ *     then: beginLine, beginColumn, parent index + 1 (0 if no parent), specialsBefore, specialsAfter, fields
+ *
+ * Strings are written once (the next occurrences reference the index of the first one) and integers are written
+ * as var-ints.
+ *
+ * @author Fabio
+ */
+public final class ASTSerializer {
+
+    /**
+     * 'PYAS'
+     */
+    public static final int MAGIC = 0x50594153;
+
+    /**
+     * 1: initial version
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte NODE_NULL = 0;
+    private static final byte NODE_NEW_CLASS = 1;
+    private static final byte NODE_KNOWN_CLASS = 2;
+
+    private static final byte SPECIAL_NODE = 0;
+    private static final byte SPECIAL_STR = 1;
+    private static final byte SPECIAL_STRING = 2;
+
+    private static final byte OBJ_NULL = 0;
+    private static final byte OBJ_INTEGER = 1;
+    private static final byte OBJ_LONG = 2;
+    private static final byte OBJ_BIG_INTEGER = 3;
+    private static final byte OBJ_FLOAT = 4;
+    private static final byte OBJ_DOUBLE = 5;
+    private static final byte OBJ_STRING = 6;
+
+    /**
+     * Information on how to create/fill some AST class.
+     */
+    private static final class ClassSchema {
+
+        private final Class<?> clazz;
+        private final Field[] fields;
+        private final String[] fieldNames;
+        private final Constructor<?> constructor;
+        private final Object[] constructorArgs;
+
+        private ClassSchema(Class<?> clazz) throws IOException {
+            this.clazz = clazz;
+
+            ArrayList<Field> found = new ArrayList<Field>();
+            for (Class<?> c = clazz; c != null && c != SimpleNode.class; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    int modifiers = f.getModifiers();
+                    if (Modifier.isStatic(modifiers)) {
+                        continue;
+                    }
+                    if (!Modifier.isPublic(modifiers) || Modifier.isFinal(modifiers)) {
+                        throw new IOException("Unable to serialize field: " + f);
+                    }
+                    found.add(f);
+                }
+            }
+            if (clazz == SimpleNode.class || !SimpleNode.class.isAssignableFrom(clazz)) {
+                throw new IOException("Not an AST class: " + clazz);
+            }
+            fields = found.toArray(new Field[found.size()]);
+            Arrays.sort(fields, new Comparator<Field>() {
+
+                @Override
+                public int compare(Field o1, Field o2) {
+                    return o1.getName().compareTo(o2.getName());
+                }
+            });
+            fieldNames = new String[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                fieldNames[i] = fields[i].getName();
+            }
+
+            //The AST classes have a constructor receiving all the fields (we pass the defaults and set the fields later).
+            Constructor<?> best = null;
+            for (Constructor<?> c : clazz.getConstructors()) {
+                if (best == null || c.getParameterTypes().length > best.getParameterTypes().length) {
+                    best = c;
+                }
+            }
+            if (best == null) {
+                throw new IOException("No public constructor available for: " + clazz);
+            }
+            constructor = best;
+            Class<?>[] parameterTypes = best.getParameterTypes();
+            constructorArgs = new Object[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                constructorArgs[i] = getDefaultValue(parameterTypes[i]);
+            }
+        }
+
+        private SimpleNode newInstance() throws IOException {
+            try {
+                return (SimpleNode) constructor.newInstance(constructorArgs);
+            } catch (Exception e) {
+                throw new IOException("Unable to create: " + clazz, e);
+            }
+        }
+    }
+
+    private static Object getDefaultValue(Class<?> c) {
+        if (!c.isPrimitive()) {
+            return null;
+        }
+        if (c == boolean.class) {
+            return Boolean.FALSE;
+        }
+        if (c == char.class) {
+            return Character.valueOf((char) 0);
+        }
+        if (c == long.class) {
+            return Long.valueOf(0);
+        }
+        if (c == float.class) {
+            return Float.valueOf(0);
+        }
+        if (c == double.class) {
+            return Double.valueOf(0);
+        }
+        if (c == byte.class) {
+            return Byte.valueOf((byte) 0);
+        }
+        if (c == short.class) {
+            return Short.valueOf((short) 0);
+        }
+        return Integer.valueOf(0);
+    }
+
+    private static final Map<Class<?>, ClassSchema> schemas = new HashMap<Class<?>, ClassSchema>();
+
+    private static ClassSchema getSchema(Class<?> clazz) throws IOException {
+        synchronized (schemas) {
+            ClassSchema schema = schemas.get(clazz);
+            if (schema == null) {
+                schema = new ClassSchema(clazz);
+                schemas.put(clazz, schema);
+            }
+            return schema;
+        }
+    }
+
+    private ASTSerializer() {
+    }
+
+    public static byte[] toBytes(SimpleNode root) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        write(root, out);
+        return out.toByteArray();
+    }
+
+    public static SimpleNode fromBytes(byte[] bytes) throws IOException {
+        Reader reader = new Reader(bytes);
+        if (reader.readInt() != MAGIC) {
+            throw new IOException("Invalid AST stream (wrong magic).");
+        }
+        int version = reader.readInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unexpected AST stream version: " + version);
+        }
+        return reader.readNode();
+    }
+
+    /**
+     * Writes the given AST to the passed stream (note: the stream is not closed).
+     */
+    public static void write(SimpleNode root, OutputStream out) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(FORMAT_VERSION);
+        new Writer(dataOut).writeNode(root);
+        dataOut.flush();
+    }
+
+    /**
+     * Reads an AST written with {@link #write(SimpleNode, OutputStream)}.
+     *
+     * Note: the whole stream is read in memory before creating the AST (and it's not closed).
+     *
+     * @throws IOException if the stream is not valid or if it was written with a different version of the AST classes.
+     */
+    public static SimpleNode read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[8192];
+        int n;
+        while ((n = in.read(buf)) != -1) {
+            out.write(buf, 0, n);
+        }
+        return fromBytes(out.toByteArray());
+    }
+
+    private static final class Writer {
+
+        private final DataOutputStream out;
+        private final Map<Class<?>, Integer> classToIndex = new HashMap<Class<?>, Integer>();
+        private final List<ClassSchema> classes = new ArrayList<ClassSchema>();
+        private final Map<String, Integer> stringToIndex = new HashMap<String, Integer>();
+        private final IdentityHashMap<SimpleNode, Integer> nodeToIndex = new IdentityHashMap<SimpleNode, Integer>();
+
+        private Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        private void writeNode(SimpleNode node) throws IOException {
+            if (node == null) {
+                out.writeByte(NODE_NULL);
+                return;
+            }
+            Class<? extends SimpleNode> clazz = node.getClass();
+            ClassSchema schema;
+            Integer classIndex = classToIndex.get(clazz);
+            if (classIndex == null) {
+                schema = getSchema(clazz);
+                classToIndex.put(clazz, classes.size());
+                classes.add(schema);
+                out.writeByte(NODE_NEW_CLASS);
+                writeString(clazz.getName());
+                writeVarInt(schema.fieldNames.length);
+                for (String fieldName : schema.fieldNames) {
+                    writeString(fieldName);
+                }
+            } else {
+                schema = classes.get(classIndex);
+                out.writeByte(NODE_KNOWN_CLASS);
+                writeVarInt(classIndex);
+            }
+            nodeToIndex.put(node, nodeToIndex.size());
+
+            writeVarInt(node.beginLine);
+            writeVarInt(node.beginColumn);
+            Integer parentIndex = node.parent != null ? nodeToIndex.get(node.parent) : null;
+            writeVarInt(parentIndex != null ? parentIndex + 1 : 0);
+            writeSpecials(node.specialsBefore);
+            writeSpecials(node.specialsAfter);
+
+            try {
+                for (Field f : schema.fields) {
+                    writeValue(f.getType(), f.get(node));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private void writeValue(Class<?> type, Object value) throws IOException {
+            if (type == int.class) {
+                writeVarInt((Integer) value);
+
+            } else if (type == boolean.class) {
+                out.writeBoolean((Boolean) value);
+
+            } else if (type == String.class) {
+                writeString((String) value);
+
+            } else if (type == Object.class) {
+                writeObject(value);
+
+            } else if (type.isArray()) {
+                if (value == null) {
+                    writeVarInt(0);
+                    return;
+                }
+                int len = Array.getLength(value);
+                writeVarInt(len + 1);
+                Class<?> componentType = type.getComponentType();
+                if (componentType == int.class) {
+                    int[] ints = (int[]) value;
+                    for (int i = 0; i < len; i++) {
+                        writeVarInt(ints[i]);
+                    }
+                } else if (SimpleNode.class.isAssignableFrom(componentType)) {
+                    SimpleNode[] nodes = (SimpleNode[]) value;
+                    for (int i = 0; i < len; i++) {
+                        writeNode(nodes[i]);
+                    }
+                } else {
+                    throw new IOException("Unable to serialize array of: " + componentType);
+                }
+
+            } else if (SimpleNode.class.isAssignableFrom(type)) {
+                writeNode((SimpleNode) value);
+
+            } else {
+                throw new IOException("Unable to serialize field of type: " + type);
+            }
+        }
+
+        private void writeObject(Object value) throws IOException {
+            if (value == null) {
+                out.writeByte(OBJ_NULL);
+
+            } else if (value instanceof Integer) {
+                out.writeByte(OBJ_INTEGER);
+                out.writeInt((Integer) value);
+
+            } else if (value instanceof Long) {
+                out.writeByte(OBJ_LONG);
+                out.writeLong((Long) value);
+
+            } else if (value instanceof BigInteger) {
+                out.writeByte(OBJ_BIG_INTEGER);
+                writeString(value.toString());
+
+            } else if (value instanceof Float) {
+                out.writeByte(OBJ_FLOAT);
+                out.writeFloat((Float) value);
+
+            } else if (value instanceof Double) {
+                out.writeByte(OBJ_DOUBLE);
+                out.writeDouble((Double) value);
+
+            } else if (value instanceof String) {
+                out.writeByte(OBJ_STRING);
+                writeString((String) value);
+
+            } else {
+                throw new IOException("Unable to serialize object of class: " + value.getClass());
+            }
+        }
+
+        private void writeSpecials(List<Object> specials) throws IOException {
+            if (specials == null) {
+                writeVarInt(0);
+                return;
+            }
+            writeVarInt(specials.size() + 1);
+            for (Object o : specials) {
+                if (o instanceof SimpleNode) {
+                    out.writeByte(SPECIAL_NODE);
+                    writeNode((SimpleNode) o);
+
+                } else if (o instanceof SpecialStr) {
+                    SpecialStr specialStr = (SpecialStr) o;
+                    out.writeByte(SPECIAL_STR);
+                    writeString(specialStr.str);
+                    writeVarInt(specialStr.beginLine);
+                    writeVarInt(specialStr.beginCol);
+
+                } else if (o instanceof String) {
+                    out.writeByte(SPECIAL_STRING);
+                    writeString((String) o);
+
+                } else {
+                    throw new IOException("Unable to serialize special of class: "
+                            + (o == null ? "null" : o.getClass().getName()));
+                }
+            }
+        }
+
+        /**
+         * 0 means null, odd numbers reference a previous string and even numbers a new string (with that length).
+         */
+        private void writeString(String s) throws IOException {
+            if (s == null) {
+                writeVarInt(0);
+                return;
+            }
+            Integer index = stringToIndex.get(s);
+            if (index != null) {
+                writeVarInt((index << 1) | 1);
+                return;
+            }
+            stringToIndex.put(s, stringToIndex.size());
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            writeVarInt((bytes.length + 1) << 1);
+            out.write(bytes);
+        }
+
+        /**
+         * Writes an int using 1-5 bytes (negative numbers always use 5 bytes).
+         */
+        private void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.writeByte(value);
+        }
+    }
+
+    /**
+     * Reads directly from the bytes (much faster than going through a DataInputStream, where each read is
+     * synchronized).
+     */
+    private static final class Reader {
+
+        private final byte[] bytes;
+        private int pos;
+        private final List<ClassSchema> classes = new ArrayList<ClassSchema>();
+        private final List<String> strings = new ArrayList<String>();
+        private final List<SimpleNode> nodes = new ArrayList<SimpleNode>();
+
+        private Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        private byte readByte() throws IOException {
+            if (pos >= bytes.length) {
+                throw new EOFException();
+            }
+            return bytes[pos++];
+        }
+
+        private int readInt() throws IOException {
+            return ((readByte() & 0xFF) << 24) | ((readByte() & 0xFF) << 16) | ((readByte() & 0xFF) << 8)
+                    | (readByte() & 0xFF);
+        }
+
+        private long readLong() throws IOException {
+            return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+        }
+
+        private boolean readBoolean() throws IOException {
+            return readByte() != 0;
+        }
+
+        private SimpleNode readNode() throws IOException {
+            byte tag = readByte();
+            ClassSchema schema;
+            switch (tag) {
+                case NODE_NULL:
+                    return null;
+
+                case NODE_NEW_CLASS:
+                    String className = readString();
+                    Class<?> clazz;
+                    try {
+                        clazz = Class.forName(className, true, SimpleNode.class.getClassLoader());
+                    } catch (ClassNotFoundException e) {
+                        throw new IOException("AST class not found: " + className, e);
+                    }
+                    schema = getSchema(clazz);
+                    int fieldsCount = readVarInt();
+                    if (fieldsCount != schema.fieldNames.length) {
+                        throw new IOException("Fields of " + className + " don't match the stream.");
+                    }
+                    for (int i = 0; i < fieldsCount; i++) {
+                        if (!schema.fieldNames[i].equals(readString())) {
+                            throw new IOException("Fields of " + className + " don't match the stream.");
+                        }
+                    }
+                    classes.add(schema);
+                    break;
+
+                case NODE_KNOWN_CLASS:
+                    int classIndex = readVarInt();
+                    if (classIndex < 0 || classIndex >= classes.size()) {
+                        throw new IOException("Invalid class index: " + classIndex);
+                    }
+                    schema = classes.get(classIndex);
+                    break;
+
+                default:
+                    throw new IOException("Invalid node tag: " + tag);
+            }
+
+            SimpleNode node = schema.newInstance();
+            nodes.add(node);
+            node.beginLine = readVarInt();
+            node.beginColumn = readVarInt();
+            int parentIndex = readVarInt() - 1;
+            if (parentIndex >= 0) {
+                if (parentIndex >= nodes.size()) {
+                    throw new IOException("Invalid parent index: " + parentIndex);
+                }
+                node.parent = nodes.get(parentIndex);
+            }
+            node.specialsBefore = readSpecials();
+            node.specialsAfter = readSpecials();
+
+            try {
+                for (Field f : schema.fields) {
+                    f.set(node, readValue(f.getType()));
+                }
+            } catch (IllegalAccessException e) {
+                throw new IOException(e);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e);
+            }
+            return node;
+        }
+
+        private Object readValue(Class<?> type) throws IOException {
+            if (type == int.class) {
+                return readVarInt();
+
+            } else if (type == boolean.class) {
+                return readBoolean();
+
+            } else if (type == String.class) {
+                return readString();
+
+            } else if (type == Object.class) {
+                return readObject();
+
+            } else if (type.isArray()) {
+                int len = readVarInt() - 1;
+                if (len < 0) {
+                    return null;
+                }
+                Class<?> componentType = type.getComponentType();
+                if (componentType == int.class) {
+                    int[] ints = new int[len];
+                    for (int i = 0; i < len; i++) {
+                        ints[i] = readVarInt();
+                    }
+                    return ints;
+                }
+                if (SimpleNode.class.isAssignableFrom(componentType)) {
+                    Object array = Array.newInstance(componentType, len);
+                    for (int i = 0; i < len; i++) {
+                        Array.set(array, i, readNode());
+                    }
+                    return array;
+                }
+                throw new IOException("Unable to deserialize array of: " + componentType);
+
+            } else if (SimpleNode.class.isAssignableFrom(type)) {
+                return readNode();
+            }
+            throw new IOException("Unable to deserialize field of type: " + type);
+        }
+
+        private Object readObject() throws IOException {
+            byte tag = readByte();
+            switch (tag) {
+                case OBJ_NULL:
+                    return null;
+                case OBJ_INTEGER:
+                    return readInt();
+                case OBJ_LONG:
+                    return readLong();
+                case OBJ_BIG_INTEGER:
+                    try {
+                        return new BigInteger(readString());
+                    } catch (RuntimeException e) {
+                        throw new IOException(e);
+                    }
+                case OBJ_FLOAT:
+                    return Float.intBitsToFloat(readInt());
+                case OBJ_DOUBLE:
+                    return Double.longBitsToDouble(readLong());
+                case OBJ_STRING:
+                    return readString();
+            }
+            throw new IOException("Invalid object tag: " + tag);
+        }
+
+        private List<Object> readSpecials() throws IOException {
+            int size = readVarInt() - 1;
+            if (size < 0) {
+                return null;
+            }
+            List<Object> specials = new LowMemoryArrayList<Object>();
+            for (int i = 0; i < size; i++) {
+                byte tag = readByte();
+                switch (tag) {
+                    case SPECIAL_NODE:
+                        specials.add(readNode());
+                        break;
+                    case SPECIAL_STR:
+                        String str = readString();
+                        int beginLine = readVarInt();
+                        int beginCol = readVarInt();
+                        specials.add(new SpecialStr(str, beginLine, beginCol));
+                        break;
+                    case SPECIAL_STRING:
+                        specials.add(readString());
+                        break;
+                    default:
+                        throw new IOException("Invalid special tag: " + tag);
+                }
+            }
+            return specials;
+        }
+
+        private String readString() throws IOException {
+            int value = readVarInt();
+            if (value == 0) {
+                return null;
+            }
+            if ((value & 1) != 0) {
+                int index = value >>> 1;
+                if (index >= strings.size()) {
+                    throw new IOException("Invalid string index: " + index);
+                }
+                return strings.get(index);
+            }
+            int len = (value >>> 1) - 1;
+            if (len < 0) {
+                throw new IOException("Invalid string length: " + len);
+            }
+            if (len > bytes.length - pos) {
+                throw new EOFException();
+            }
+            String s = new String(bytes, pos, len, StandardCharsets.UTF_8);
+            pos += len;
+            strings.add(s);
+            return s;
+        }
+
+        private int readVarInt() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                int b = readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Invalid var-int.");
+        }
+    }
+}
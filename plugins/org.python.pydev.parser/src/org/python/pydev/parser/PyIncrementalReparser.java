@@ -0,0 +1,553 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import org.eclipse.jface.text.IDocumentExtension4;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.SpecialStr;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.parser.jython.ast.commentType;
+import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.parsing.IncrementalParseDelta;
+import org.python.pydev.shared_core.structure.LowMemoryArrayList;
+import org.python.pydev.shared_core.structure.Tuple;
+
+/**
+ * Keeps the last text/AST parsed without errors by a PyParser so that on a new parse only the top-level statements
+ * touched by the edit are reparsed (and spliced into a new Module along with the nodes of the previous AST).
+ *
+ * Each top-level statement 'owns' a region of lines: from its first line (considering decorators and comments
+ * attached to it) up to the line before the next top-level statement. The regions containing the changed text are
+ * parsed in isolation (the regions always start at column 0 and the previous parse had no errors, so, the
+ * tokenizer state is the same at the region boundaries) and if that's not possible (errors in the snippet, comments
+ * attached to the module, __future__ imports changing the grammar, etc.) a full parse is done.
+ *
+ * Note: the statements after the changed region are copied (with their lines moved) if the number of lines changed,
+ * so, the previous AST is never changed (it may still be in use by the observers).
+ */
+final class PyIncrementalReparser {
+
+    public static boolean DEBUG = false;
+
+    /**
+     * The last contents which were parsed without errors (null if we have no valid info).
+     */
+    private String lastText;
+
+    /**
+     * Offsets where each line starts in lastText (index 0 = line 1).
+     */
+    private int[] lastLineStarts;
+
+    private Module lastModule;
+
+    /**
+     * The first line (1-based) of each top-level statement in lastModule (lazily computed).
+     */
+    private int[] lastStmtStartLines;
+
+    /**
+     * The last line (1-based) of each top-level statement in lastModule (considering only the lines with nodes or
+     * specials attached to it -- lazily computed along with lastStmtStartLines).
+     */
+    private int[] lastStmtEndLines;
+
+    private int lastGrammarVersion;
+
+    /**
+     * @return the parse output and the delta from the previous AST (null if a full parse was done).
+     */
+    public synchronized Tuple<ParseOutput, IncrementalParseDelta> reparse(ParserInfo info) {
+        if (!info.generateTree || info.grammarVersion == IPythonNature.GRAMMAR_PYTHON_VERSION_CYTHON) {
+            clear();
+            return new Tuple<ParseOutput, IncrementalParseDelta>(PyParser.reparseDocument(info), null);
+        }
+
+        long modifiedTime = ((IDocumentExtension4) info.document).getModificationStamp();
+        String text = info.document.get();
+
+        if (lastModule != null && lastGrammarVersion == info.grammarVersion) {
+            try {
+                int[] lineStarts = computeLineStarts(text);
+                Tuple<Module, IncrementalParseDelta> incremental = tryIncrementalParse(text, lineStarts,
+                        info.grammarVersion);
+                if (incremental != null) {
+                    Module module = incremental.o1;
+                    setLastInfo(text, lineStarts, module, incremental.o2.firstChangedIndex,
+                            incremental.o2.newChangedCount, incremental.o2.lineDelta, info.grammarVersion);
+                    return new Tuple<ParseOutput, IncrementalParseDelta>(new ParseOutput(module, null, modifiedTime),
+                            incremental.o2);
+                }
+            } catch (Throwable e) {
+                if (DEBUG) {
+                    e.printStackTrace();
+                }
+                //just go on with the full parse.
+            }
+        }
+
+        ParseOutput output = PyParser.reparseDocument(info);
+        if (output.error == null && output.ast instanceof Module && output.modificationStamp == modifiedTime) {
+            //Only keep it if we're sure that the text we have is the one that was parsed.
+            lastText = text;
+            lastLineStarts = null;
+            lastModule = (Module) output.ast;
+            lastStmtStartLines = null;
+            lastStmtEndLines = null;
+            lastGrammarVersion = info.grammarVersion;
+        } else {
+            clear();
+        }
+        return new Tuple<ParseOutput, IncrementalParseDelta>(output, null);
+    }
+
+    public synchronized void clear() {
+        lastText = null;
+        lastLineStarts = null;
+        lastModule = null;
+        lastStmtStartLines = null;
+        lastStmtEndLines = null;
+    }
+
+    /**
+     * @return the new module and the delta or null if it was not possible to do an incremental parse.
+     */
+    private Tuple<Module, IncrementalParseDelta> tryIncrementalParse(String text, int[] lineStarts,
+            int grammarVersion) throws Throwable {
+        if (text.indexOf("__future__") != -1 || text.startsWith(FileUtils.BOM_UTF8)
+                || text.startsWith(FileUtils.BOM_UNICODE)) {
+            //__future__ imports change how the grammar works, so, we can't parse a part in isolation.
+            return null;
+        }
+        String oldText = lastText;
+        stmtType[] body = lastModule.body;
+        int n = body.length;
+        if (n == 0 || hasSpecials(lastModule)) {
+            return null;
+        }
+        if (lastLineStarts == null) {
+            lastLineStarts = computeLineStarts(oldText);
+        }
+        if (lastStmtStartLines == null) {
+            lastStmtStartLines = new int[n];
+            lastStmtEndLines = new int[n];
+            for (int i = 0; i < n; i++) {
+                computeLinesRange(body[i], lastStmtStartLines, lastStmtEndLines, i);
+            }
+        }
+        int[] starts = lastStmtStartLines;
+        int[] ends = lastStmtEndLines;
+        for (int i = 1; i < n; i++) {
+            if (starts[i] < starts[i - 1]) {
+                return null; //something unexpected: the regions must be in order.
+            }
+        }
+        int[] oldLineStarts = lastLineStarts;
+
+        int oldLen = oldText.length();
+        int newLen = text.length();
+        int minLen = Math.min(oldLen, newLen);
+        int prefix = 0;
+        while (prefix < minLen && oldText.charAt(prefix) == text.charAt(prefix)) {
+            prefix++;
+        }
+        if (prefix == oldLen && prefix == newLen) {
+            //Nothing changed: just provide a new module with the same statements.
+            return new Tuple<Module, IncrementalParseDelta>(createModule(body.clone(), lastModule), new IncrementalParseDelta(lastModule,
+                    0, 0, 0, 0));
+        }
+        int suffix = 0;
+        while (suffix < minLen - prefix && oldText.charAt(oldLen - 1 - suffix) == text.charAt(newLen - 1 - suffix)) {
+            suffix++;
+        }
+
+        int changeStartLine = getLineOf(oldLineStarts, prefix);
+        int first = getRegionIndex(starts, changeStartLine, true);
+        if (first > 0) {
+            boolean changeAtRegionStart = prefix == oldLineStarts[starts[first] - 1];
+            boolean changeBeforeStmt = starts[first] < body[first].beginLine
+                    && changeStartLine <= body[first].beginLine;
+            if (changeAtRegionStart || changeBeforeStmt) {
+                //Code/comments added at the start of a region (or a change in the comments before the statement)
+                //could change to which statement the comments are attached (so, the previous one is reparsed too).
+                first = getRegionIndex(starts, starts[first - 1], true);
+            }
+        }
+        int last = getRegionIndex(starts, getLineOf(oldLineStarts, oldLen - suffix), false);
+
+        //Some tokens of a statement may be attached to the previous statement (i.e.: 'import' in 'from . import x'
+        //may be added to the previous statement), in which case both must be reparsed together.
+        while (first > 0 && ends[first - 1] >= starts[first]) {
+            first--;
+        }
+        while (last < n - 1 && ends[last] >= starts[last + 1]) {
+            last++;
+        }
+        if (first == 0 && last == n - 1) {
+            return null; //We'd reparse everything anyways.
+        }
+
+        int regionStartLine = first == 0 ? 1 : starts[first];
+        int startOffset = oldLineStarts[regionStartLine - 1];
+        if (startOffset > prefix) {
+            return null;
+        }
+
+        int endOffset;
+        int lineDelta;
+        if (last == n - 1) {
+            endOffset = newLen;
+            lineDelta = 0; //no statements after the snippet
+        } else {
+            int oldEndOffset = oldLineStarts[starts[last + 1] - 1];
+            if (oldEndOffset < oldLen - suffix) {
+                return null;
+            }
+            endOffset = oldEndOffset + (newLen - oldLen);
+            int newLineIndex = Arrays.binarySearch(lineStarts, endOffset);
+            if (newLineIndex < 0) {
+                return null; //i.e.: the region end is no longer at the start of a line.
+            }
+            lineDelta = (newLineIndex + 1) - starts[last + 1];
+        }
+
+        List<stmtType> newStmts = new ArrayList<stmtType>();
+        Module positionsFrom = lastModule;
+        String snippet = text.substring(startOffset, endOffset);
+        if (snippet.trim().length() > 0) {
+            if (!startsAtColumnZero(snippet)) {
+                return null; //i.e.: the grammar accepts an indented code at the start, but it's not top-level code.
+            }
+            IGrammar grammar = PyParser.createGrammar(true, grammarVersion, PyParser.createCharArrayToParse(snippet));
+            SimpleNode snippetRoot = grammar.file_input();
+            if (grammar.getErrorOnParsing() != null || !(snippetRoot instanceof Module)) {
+                return null;
+            }
+            Module snippetModule = (Module) snippetRoot;
+            if (hasSpecials(snippetModule)) {
+                return null; //comments attached to the module itself: we can't splice it.
+            }
+            if (first == 0) {
+                positionsFrom = snippetModule; //the module position depends on its first statement.
+            }
+            LinesShifter shifter = new LinesShifter(regionStartLine - 1);
+            for (stmtType stmt : snippetModule.body) {
+                shifter.shift(stmt);
+                newStmts.add(stmt);
+            }
+        } else if (first == 0) {
+            return null;
+        }
+
+        int oldChangedCount = last - first + 1;
+        stmtType[] newBody = new stmtType[n - oldChangedCount + newStmts.size()];
+        System.arraycopy(body, 0, newBody, 0, first);
+        int i = first;
+        for (stmtType stmt : newStmts) {
+            newBody[i++] = stmt;
+        }
+        for (int j = last + 1; j < n; j++) {
+            newBody[i++] = lineDelta == 0 ? body[j] : copyShifted(body[j], lineDelta);
+        }
+
+        if (DEBUG) {
+            System.out.println("Incremental parse: reparsed from line: " + regionStartLine + " statements: "
+                    + oldChangedCount + " -> " + newStmts.size() + " line delta: " + lineDelta);
+        }
+        return new Tuple<Module, IncrementalParseDelta>(createModule(newBody, positionsFrom), new IncrementalParseDelta(lastModule,
+                first, oldChangedCount, newStmts.size(), lineDelta));
+    }
+
+    private void setLastInfo(String text, int[] lineStarts, Module module, int firstChanged, int newChangedCount,
+            int lineDelta, int grammarVersion) {
+        int[] oldStarts = lastStmtStartLines;
+        int[] oldEnds = lastStmtEndLines;
+        int n = module.body.length;
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        int oldIndexDelta = oldStarts.length - n;
+        for (int i = 0; i < n; i++) {
+            if (i < firstChanged) {
+                starts[i] = oldStarts[i];
+                ends[i] = oldEnds[i];
+            } else if (i < firstChanged + newChangedCount) {
+                computeLinesRange(module.body[i], starts, ends, i);
+            } else {
+                starts[i] = oldStarts[i + oldIndexDelta] + lineDelta;
+                ends[i] = oldEnds[i + oldIndexDelta] + lineDelta;
+            }
+        }
+        lastText = text;
+        lastLineStarts = lineStarts;
+        lastModule = module;
+        lastStmtStartLines = starts;
+        lastStmtEndLines = ends;
+        lastGrammarVersion = grammarVersion;
+    }
+
+    private static Module createModule(stmtType[] body, Module positionsFrom) {
+        Module module = new Module(body);
+        module.beginLine = positionsFrom.beginLine;
+        module.beginColumn = positionsFrom.beginColumn;
+        return module;
+    }
+
+    /**
+     * @return whether the first line with code (i.e.: not blank nor only with a comment) starts at column 0.
+     */
+    private static boolean startsAtColumnZero(String snippet) {
+        int len = snippet.length();
+        boolean atLineStart = true;
+        for (int i = 0; i < len; i++) {
+            char c = snippet.charAt(i);
+            if (c == '\r' || c == '\n') {
+                atLineStart = true;
+                continue;
+            }
+            if (c == ' ' || c == '\t' || c == '\f') {
+                atLineStart = false;
+                continue;
+            }
+            if (c == '#') {
+                //skip the comment
+                while (i + 1 < len && snippet.charAt(i + 1) != '\r' && snippet.charAt(i + 1) != '\n') {
+                    i++;
+                }
+                continue;
+            }
+            return atLineStart;
+        }
+        return true;
+    }
+
+    private static boolean hasSpecials(SimpleNode node) {
+        return (node.specialsBefore != null && node.specialsBefore.size() > 0)
+                || (node.specialsAfter != null && node.specialsAfter.size() > 0);
+    }
+
+    /**
+     * @return the offsets where each line starts (considering \r, \n and \r\n as new lines).
+     */
+    /*default*/static int[] computeLineStarts(String text) {
+        int len = text.length();
+        int[] starts = new int[64];
+        int count = 1; //line 1 starts at 0
+        for (int i = 0; i < len; i++) {
+            char c = text.charAt(i);
+            if (c == '\r') {
+                if (i + 1 < len && text.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else if (c != '\n') {
+                continue;
+            }
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+            }
+            starts[count++] = i + 1;
+        }
+        return Arrays.copyOf(starts, count);
+    }
+
+    /**
+     * @return the line (1-based) which contains the given offset.
+     */
+    /*default*/static int getLineOf(int[] lineStarts, int offset) {
+        int i = Arrays.binarySearch(lineStarts, offset);
+        if (i >= 0) {
+            return i + 1;
+        }
+        return -(i + 1); //insertion point - 1 is the index of the line, +1 for the line.
+    }
+
+    /**
+     * @param firstInLine if more than one statement starts at the region line (i.e.: a = 10; b = 20), defines
+     * whether the first or the last of those should be returned.
+     * @return the index of the top-level statement whose region contains the given line.
+     */
+    /*default*/static int getRegionIndex(int[] stmtStartLines, int line, boolean firstInLine) {
+        int i = Arrays.binarySearch(stmtStartLines, line);
+        if (i < 0) {
+            i = -(i + 1) - 1;
+        }
+        if (i < 0) {
+            return 0;
+        }
+        int regionLine = stmtStartLines[i];
+        if (firstInLine) {
+            while (i > 0 && stmtStartLines[i - 1] == regionLine) {
+                i--;
+            }
+        } else {
+            while (i < stmtStartLines.length - 1 && stmtStartLines[i + 1] == regionLine) {
+                i++;
+            }
+        }
+        return i;
+    }
+
+    /**
+     * Visitor which gets all the nodes in a tree (in the order they're traversed).
+     */
+    private static final class NodesCollector extends VisitorBase {
+
+        private final List<SimpleNode> nodes = new ArrayList<SimpleNode>();
+
+        @Override
+        protected Object unhandled_node(SimpleNode node) throws Exception {
+            nodes.add(node);
+            return null;
+        }
+
+        @Override
+        public void traverse(SimpleNode node) throws Exception {
+            node.traverse(this);
+        }
+    }
+
+    private static List<SimpleNode> collectNodes(SimpleNode node) {
+        NodesCollector collector = new NodesCollector();
+        try {
+            node.accept(collector);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return collector.nodes;
+    }
+
+    /**
+     * Computes the first and last lines of the given statement (considering all its children and specials).
+     */
+    private static void computeLinesRange(stmtType stmt, int[] starts, int[] ends, int i) {
+        int[] range = new int[] { stmt.beginLine, stmt.beginLine };
+        for (SimpleNode node : collectNodes(stmt)) {
+            updateRange(range, node.beginLine);
+            updateRange(range, node.specialsBefore);
+            updateRange(range, node.specialsAfter);
+        }
+        starts[i] = range[0];
+        ends[i] = range[1];
+    }
+
+    private static void updateRange(int[] range, List<Object> specials) {
+        if (specials != null) {
+            for (Object o : specials) {
+                if (o instanceof SimpleNode) {
+                    updateRange(range, ((SimpleNode) o).beginLine);
+                } else if (o instanceof SpecialStr) {
+                    updateRange(range, ((SpecialStr) o).beginLine);
+                }
+            }
+        }
+    }
+
+    /**
+     * Nodes without a position (line 0) are not considered.
+     */
+    private static void updateRange(int[] range, int line) {
+        if (line > 0) {
+            if (line < range[0]) {
+                range[0] = line;
+            }
+            if (line > range[1]) {
+                range[1] = line;
+            }
+        }
+    }
+
+    /**
+     * Moves the lines of the nodes (changes the passed nodes in-place, so, only used for new nodes).
+     */
+    private static final class LinesShifter {
+
+        private final int delta;
+
+        private LinesShifter(int delta) {
+            this.delta = delta;
+        }
+
+        private void shift(SimpleNode root) {
+            if (delta == 0) {
+                return;
+            }
+            for (SimpleNode node : collectNodes(root)) {
+                node.beginLine = shiftLine(node.beginLine, delta);
+                node.specialsBefore = copySpecials(node.specialsBefore, delta);
+                node.specialsAfter = copySpecials(node.specialsAfter, delta);
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the given statement with the lines moved by the given delta (the passed statement
+     * is not changed).
+     */
+    private static stmtType copyShifted(stmtType stmt, int lineDelta) {
+        stmtType copy = (stmtType) stmt.createCopy(false);
+        List<SimpleNode> originalNodes = collectNodes(stmt);
+        List<SimpleNode> copiedNodes = collectNodes(copy);
+        if (originalNodes.size() != copiedNodes.size()) {
+            throw new RuntimeException("Expected copy to have the same structure.");
+        }
+        int size = originalNodes.size();
+        IdentityHashMap<SimpleNode, SimpleNode> originalToCopy = new IdentityHashMap<SimpleNode, SimpleNode>(size);
+        for (int i = 0; i < size; i++) {
+            originalToCopy.put(originalNodes.get(i), copiedNodes.get(i));
+        }
+        for (int i = 0; i < size; i++) {
+            SimpleNode original = originalNodes.get(i);
+            SimpleNode copied = copiedNodes.get(i);
+            copied.beginLine = shiftLine(original.beginLine, lineDelta);
+            copied.beginColumn = original.beginColumn;
+            copied.specialsBefore = copySpecials(original.specialsBefore, lineDelta);
+            copied.specialsAfter = copySpecials(original.specialsAfter, lineDelta);
+            if (original.parent != null) {
+                SimpleNode parent = originalToCopy.get(original.parent);
+                copied.parent = parent != null ? parent : original.parent;
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Nodes without a position (line 0) are kept that way.
+     */
+    private static int shiftLine(int line, int delta) {
+        return line > 0 ? line + delta : line;
+    }
+
+    private static List<Object> copySpecials(List<Object> specials, int lineDelta) {
+        if (specials == null) {
+            return null;
+        }
+        List<Object> ret = new LowMemoryArrayList<Object>();
+        for (Object o : specials) {
+            if (o instanceof SpecialStr) {
+                SpecialStr s = (SpecialStr) o;
+                ret.add(new SpecialStr(s.str, shiftLine(s.beginLine, lineDelta), s.beginCol));
+            } else if (o instanceof commentType) {
+                commentType c = ((commentType) o).createCopy(false);
+                c.beginLine = shiftLine(((commentType) o).beginLine, lineDelta);
+                c.beginColumn = ((commentType) o).beginColumn;
+                ret.add(c);
+            } else {
+                ret.add(o);
+            }
+        }
+        return ret;
+    }
+}
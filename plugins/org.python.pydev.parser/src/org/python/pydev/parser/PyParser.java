@@ -51,6 +51,7 @@ import org.python.pydev.parser.jython.Token;
 import org.python.pydev.parser.jython.TokenMgrError;
 import org.python.pydev.parser.jython.ast.Module;
 import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.parser.visitors.CompactAstVisitor;
 import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.model.ErrorDescription;
@@ -62,6 +63,7 @@ import org.python.pydev.shared_core.parsing.ErrorParserInfoForObservers;
 import org.python.pydev.shared_core.parsing.IParserObserver;
 import org.python.pydev.shared_core.parsing.IParserObserver2;
 import org.python.pydev.shared_core.parsing.IParserObserver3;
+import org.python.pydev.shared_core.parsing.IncrementalParseDelta;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.LowMemoryArrayList;
 import org.python.pydev.shared_core.structure.Tuple;
@@ -95,11 +97,19 @@ public class PyParser extends BaseParser implements IPyParser {
      */
     public static boolean ENABLE_TRACING = false;
 
+    /**
+     * Whether the parse done for the editor should only reparse the top-level statements changed since the last
+     * successful parse (see: PyIncrementalReparser).
+     */
+    public static boolean USE_INCREMENTAL_PARSE = true;
+
     /**
      * This is the version of the grammar that should be used for this parser
      */
     private final IGrammarVersionProvider grammarVersionProvider;
 
+    private final PyIncrementalReparser incrementalReparser = new PyIncrementalReparser();
+
     public static String getGrammarVersionStr(int grammarVersion) {
         if (grammarVersion == IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_2_4) {
             return "grammar: Python 2.4";
@@ -161,6 +171,12 @@ public class PyParser extends BaseParser implements IPyParser {
         return editorView.getGrammarVersionProvider();
     }
 
+    @Override
+    public void dispose() {
+        super.dispose();
+        incrementalReparser.clear();
+    }
+
     @Override
     public void notifySaved() {
         //force parse on save
@@ -269,7 +285,16 @@ public class PyParser extends BaseParser implements IPyParser {
             version = IGrammarVersionProvider.LATEST_GRAMMAR_VERSION;
         }
         long documentTime = System.currentTimeMillis();
-        ParseOutput obj = reparseDocument(new ParserInfo(document, version, true));
+        ParseOutput obj;
+        IncrementalParseDelta delta = null;
+        if (USE_INCREMENTAL_PARSE) {
+            Tuple<ParseOutput, IncrementalParseDelta> output = incrementalReparser.reparse(new ParserInfo(document,
+                    version, true));
+            obj = output.o1;
+            delta = output.o2;
+        } else {
+            obj = reparseDocument(new ParserInfo(document, version, true));
+        }
 
         IFile original = null;
         IAdaptable adaptable = null;
@@ -324,7 +349,7 @@ public class PyParser extends BaseParser implements IPyParser {
             //Ok, reparse successful, lets erase the markers that are in the editor we just parsed
             //Note: we may get the ast even if errors happen (and we'll notify in that case too).
             ChangedParserInfoForObservers info = new ChangedParserInfoForObservers(obj.ast, obj.modificationStamp,
-                    adaptable, document, documentTime, errorInfo, argsToReparse);
+                    adaptable, document, documentTime, errorInfo, delta, argsToReparse);
             fireParserChanged(info);
         }
 
@@ -374,6 +399,12 @@ public class PyParser extends BaseParser implements IPyParser {
          */
         public final boolean generateTree;
 
+        /**
+         * Whether the generated tree should be compacted (see CompactAstVisitor) -- only for trees which are not
+         * used for pretty-printing (i.e.: the trees of modules not opened in an editor).
+         */
+        public final boolean compactTree;
+
         /**
          * @param grammarVersion: see IPythonNature.GRAMMAR_XXX constants
          */
@@ -391,11 +422,17 @@ public class PyParser extends BaseParser implements IPyParser {
         }
 
         public ParserInfo(IDocument document, int grammarVersion, String name, File f, boolean generateTree) {
+            this(document, grammarVersion, name, f, generateTree, false);
+        }
+
+        public ParserInfo(IDocument document, int grammarVersion, String name, File f, boolean generateTree,
+                boolean compactTree) {
             this.document = document;
             this.grammarVersion = grammarVersion;
             this.moduleName = name;
             this.file = f;
             this.generateTree = generateTree;
+            this.compactTree = compactTree;
         }
 
         public ParserInfo(IDocument document, IGrammarVersionProvider grammarProvider, boolean generateTree)
@@ -431,7 +468,7 @@ public class PyParser extends BaseParser implements IPyParser {
     /**
      * Create the char array to parse based on the initial document and our parser limitations.
      */
-    private static char[] createCharArrayToParse(String startDoc) {
+    /*default*/static char[] createCharArrayToParse(String startDoc) {
         int length = startDoc.length();
         int skipAtStart = 0;
         if (startDoc.startsWith(FileUtils.BOM_UTF8)) {
@@ -457,7 +494,7 @@ public class PyParser extends BaseParser implements IPyParser {
      * Actually creates the grammar.
      * @param generateTree whether we should generate the AST or not.
      */
-    private static IGrammar createGrammar(boolean generateTree, int grammarVersion, char[] charArray) {
+    /*default*/static IGrammar createGrammar(boolean generateTree, int grammarVersion, char[] charArray) {
         IGrammar grammar;
         FastCharStream in = new FastCharStream(charArray);
         switch (grammarVersion) {
@@ -543,6 +580,9 @@ public class PyParser extends BaseParser implements IPyParser {
                 OnExpectedOutOfMemory.clearCacheOnOutOfMemory.call(null);
                 newRoot = grammar.file_input(); //retry now with caches cleared...
             }
+            if (info.compactTree) {
+                CompactAstVisitor.compact(newRoot);
+            }
             returnVar.o1 = newRoot;
 
             //only notify successful parses
@@ -627,15 +667,7 @@ public class PyParser extends BaseParser implements IPyParser {
             IResource fileAdapter = (IResource) resource.getAdapter(IResource.class);
             if (fileAdapter != null) {
                 try {
-                    Map<String, Object> map = new HashMap<String, Object>();
-
-                    map.put(IMarker.MESSAGE, errDesc.message);
-                    map.put(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
-                    map.put(IMarker.LINE_NUMBER, errDesc.errorLine);
-                    map.put(IMarker.CHAR_START, errDesc.errorStart);
-                    map.put(IMarker.CHAR_END, errDesc.errorEnd);
-                    map.put(IMarker.TRANSIENT, true);
-                    MarkerUtilities.createMarker(fileAdapter, map, IMarker.PROBLEM);
+                    MarkerUtilities.createMarker(fileAdapter, createMarkerAttributes(errDesc), IMarker.PROBLEM);
                 } catch (Exception e) {
                     Log.log(e);
                 }
@@ -645,6 +677,26 @@ public class PyParser extends BaseParser implements IPyParser {
         return errDesc;
     }
 
+    /**
+     * @return the attributes of the marker (of type IMarker.PROBLEM) to be created for the given error (so that
+     * the marker may be created later on -- see: {@link #createParserErrorMarkers(Throwable, IAdaptable, IDocument)}).
+     */
+    public static Map<String, Object> createParserErrorMarkerAttributes(Throwable error, IDocument doc) {
+        return createMarkerAttributes(createErrorDesc(error, doc));
+    }
+
+    private static Map<String, Object> createMarkerAttributes(ErrorDescription errDesc) {
+        Map<String, Object> map = new HashMap<String, Object>();
+
+        map.put(IMarker.MESSAGE, errDesc.message);
+        map.put(IMarker.SEVERITY, IMarker.SEVERITY_ERROR);
+        map.put(IMarker.LINE_NUMBER, errDesc.errorLine);
+        map.put(IMarker.CHAR_START, errDesc.errorStart);
+        map.put(IMarker.CHAR_END, errDesc.errorEnd);
+        map.put(IMarker.TRANSIENT, true);
+        return map;
+    }
+
     /**
      * Creates the error description for a given error in the parse.
      * 
@@ -7,7 +7,9 @@
 package org.python.pydev.parser.fastparser;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.python.pydev.core.ObjectsInternPool;
 import org.python.pydev.core.ObjectsInternPool.ObjectsPoolMap;
@@ -320,7 +322,8 @@ public final class FastDefinitionsParser {
             if (this.length <= currIndex) {
                 return;
             }
-            startClass(getNextIdentifier(c), row, startClassCol);
+            String name = getNextIdentifier(c);
+            startClass(name, getBases(parsingUtils), row, startClassCol);
 
         } else if (c == 'd' && matchFunction()) {
             int startMethodCol = col;
@@ -331,6 +334,9 @@ public final class FastDefinitionsParser {
                 return;
             }
             startMethod(getNextIdentifier(c), row, startMethodCol);
+
+        } else if ((c == 'f' && matchKeyword("from")) || (c == 'i' && matchKeyword("import"))) {
+            addImportAliases(currIndex);
         }
         firstCharCol = col;
         if (currIndex < length) {
@@ -448,6 +454,199 @@ public final class FastDefinitionsParser {
 
     private final ObjectsPoolMap interned = new ObjectsPoolMap();
 
+    /**
+     * Buffer used to get the contents of the bases of a class.
+     */
+    private final FastStringBuffer basesBuffer = new FastStringBuffer();
+
+    /**
+     * Names imported with an alias (alias -> imported dotted name) -- created on demand.
+     */
+    private Map<String, String> importAliases;
+
+    /**
+     * Collects the aliases in the import statement which starts at the given index (without changing the current
+     * index), i.e.: for 'from m import Model as M', M -> m.Model.
+     */
+    private void addImportAliases(int i) {
+        List<String> tokens = new ArrayList<String>();
+        FastStringBuffer buf = basesBuffer.clear();
+        int level = 0;
+        for (; i < length; i++) {
+            char c = cs[i];
+            if (c == '.' || Character.isJavaIdentifierPart(c)) {
+                buf.append(c);
+                continue;
+            }
+            if (buf.length() > 0) {
+                tokens.add(buf.toString());
+                buf.clear();
+            }
+            if (c == ',') {
+                tokens.add(",");
+
+            } else if (c == '(') {
+                level++;
+
+            } else if (c == ')') {
+                level--;
+
+            } else if (c == '\\') {
+                //line continuation
+                if (i + 1 < length && cs[i + 1] == '\r') {
+                    i++;
+                }
+                if (i + 1 < length && cs[i + 1] == '\n') {
+                    i++;
+                }
+
+            } else if (c == '#') {
+                while (i + 1 < length && cs[i + 1] != '\r' && cs[i + 1] != '\n') {
+                    i++;
+                }
+
+            } else if (c == ';' || ((c == '\r' || c == '\n') && level <= 0)) {
+                break;
+            }
+        }
+        if (buf.length() > 0) {
+            tokens.add(buf.toString());
+        }
+
+        int importIndex = tokens.indexOf("import");
+        if (importIndex == -1) {
+            return;
+        }
+        String fromModule = importIndex == 2 && tokens.get(0).equals("from") ? tokens.get(1) : null;
+        for (int j = importIndex + 1; j + 2 < tokens.size(); j++) {
+            if (tokens.get(j + 1).equals("as")) {
+                String name = tokens.get(j);
+                if (!name.equals(",")) {
+                    if (importAliases == null) {
+                        importAliases = new HashMap<String, String>();
+                    }
+                    importAliases.put(tokens.get(j + 2), fromModule != null ? fromModule + "." + name : name);
+                }
+                j += 2;
+            }
+        }
+    }
+
+    /**
+     * Gets the bases of the class whose name was just read (without changing the current index).
+     *
+     * Only bases which are names or dotted names are returned (i.e.: calls, subscripts and keyword arguments such
+     * as the metaclass are skipped).
+     *
+     * Names imported with an alias are resolved (i.e.: with 'from m import Model as M', the base of 'class C(M)' is
+     * m.Model), as the bases are used to index the class hierarchy (where the name of the base class matters).
+     *
+     * @return the bases found (Name for a simple name and Attribute for a dotted name) or null if the class
+     * has no bases.
+     */
+    private exprType[] getBases(ParsingUtils parsingUtils) throws SyntaxErrorException {
+        int i = skipWhitespaces(currIndex);
+        if (i >= length || cs[i] != '(') {
+            return null;
+        }
+        FastStringBuffer buf = basesBuffer.clear();
+        List<exprType> bases = null;
+        boolean valid = true; //false if the current base has something which is not part of a dotted name.
+        int level = 0;
+        for (i++; i < length; i++) {
+            char c = cs[i];
+            if (c == '\'' || c == '"') {
+                i = parsingUtils.eatLiterals(null, i);
+                valid = false;
+
+            } else if (c == '#') {
+                i = parsingUtils.eatComments(null, i);
+
+            } else if (c == '(' || c == '[' || c == '{') {
+                level++;
+                valid = false;
+
+            } else if (c == ')' || c == ']' || c == '}') {
+                if (level == 0) {
+                    break;
+                }
+                level--;
+
+            } else if (level == 0) {
+                if (c == ',') {
+                    bases = addBase(bases, valid, buf);
+                    buf.clear();
+                    valid = true;
+                } else if (c == '=') {
+                    valid = false; //keyword argument (i.e.: metaclass=Meta)
+                } else {
+                    buf.append(c);
+                }
+            }
+        }
+        bases = addBase(bases, valid, buf);
+        if (bases == null) {
+            return null;
+        }
+        return bases.toArray(new exprType[bases.size()]);
+    }
+
+    private List<exprType> addBase(List<exprType> bases, boolean valid, FastStringBuffer buf) {
+        if (valid) {
+            exprType base = createBase(buf, 0, buf.length());
+            if (base != null) {
+                if (bases == null) {
+                    bases = new ArrayList<exprType>(2);
+                }
+                bases.add(base);
+            }
+        }
+        return bases;
+    }
+
+    /**
+     * @return a Name or Attribute for the dotted name in the given range of the buffer (or null if the range
+     * doesn't have a dotted name).
+     */
+    private exprType createBase(FastStringBuffer buf, int start, int end) {
+        char c;
+        while (start < end && (Character.isWhitespace(c = buf.charAt(start)) || c == '\\')) {
+            start++;
+        }
+        while (end > start && (Character.isWhitespace(c = buf.charAt(end - 1)) || c == '\\')) {
+            end--;
+        }
+        if (start >= end || !Character.isJavaIdentifierStart(buf.charAt(start)) || buf.charAt(end - 1) == '.') {
+            return null;
+        }
+        for (int j = start; j < end; j++) {
+            c = buf.charAt(j);
+            if (c != '.' && !Character.isJavaIdentifierPart(c)) {
+                return null;
+            }
+        }
+
+        String dotted = new String(buf.getInternalCharsArray(), start, end - start);
+        if (importAliases != null) {
+            int dot = dotted.indexOf('.');
+            String imported = importAliases.get(dot == -1 ? dotted : dotted.substring(0, dot));
+            if (imported != null) {
+                dotted = dot == -1 ? imported : imported + dotted.substring(dot);
+            }
+        }
+
+        exprType base = null;
+        for (String part : StringUtils.dotSplit(dotted)) {
+            part = ObjectsInternPool.internLocal(interned, part);
+            if (base == null) {
+                base = new Name(part, Name.Load, false);
+            } else {
+                base = new Attribute(base, new NameTok(part, NameTok.Attrib), Attribute.Load);
+            }
+        }
+        return base;
+    }
+
     /**
      * Start a new method scope with the given row and column.
      * @param startMethodRow the row where the scope should start
@@ -470,15 +669,16 @@ public final class FastDefinitionsParser {
 
     /**
      * Start a new class scope with the given row and column.
+     * @param bases the bases of the class (may be null)
      * @param startClassRow the row where the scope should start
      * @param startClassCol the column where the scope should start
      */
-    private void startClass(String name, int startClassRow, int startClassCol) {
+    private void startClass(String name, exprType[] bases, int startClassRow, int startClassCol) {
         if (startClassCol == 1) {
             endScopesInStack();
         }
         NameTok nameTok = new NameTok(name, NameTok.ClassName);
-        ClassDef classDef = new ClassDef(nameTok, null, null, null, null, null, null);
+        ClassDef classDef = new ClassDef(nameTok, bases, null, null, null, null, null);
 
         classDef.beginLine = startClassRow;
         classDef.beginColumn = startClassCol;
@@ -612,6 +812,22 @@ public final class FastDefinitionsParser {
                 && this.cs[currIndex + 4] == 's' && Character.isWhitespace(this.cs[currIndex + 5]));
     }
 
+    /**
+     * @return true if we have a match for the given keyword (followed by a whitespace) in the current index.
+     */
+    private boolean matchKeyword(String keyword) {
+        int len = keyword.length();
+        if (currIndex + len >= this.length) {
+            return false;
+        }
+        for (int i = 1; i < len; i++) {
+            if (this.cs[currIndex + i] != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return Character.isWhitespace(this.cs[currIndex + len]);
+    }
+
     /**
      * @return true if we have a match for 'def' in the current index (the 'd' must be already matched at this point)
      */
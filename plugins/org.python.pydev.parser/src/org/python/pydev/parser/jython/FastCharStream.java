@@ -17,29 +17,36 @@ import org.python.pydev.shared_core.string.FastStringBuffer;
  * initial implementation was highly inefficient when working only with a string (actually, if it was small, there would be no noticeable
  * delays, but if it became big, then the improvement would be HUGE).
  * 
- * It keeps the same semantics for line and column stuff (and shares the previous approach of keeping a buffer for this info).
- * If we wanted we could optimize it for also taking less memory, but as there is usually not so many concurrent parses, this 
- * is probably not worth it -- and it would probably be a little slower)
+ * It keeps the same semantics for line and column stuff, but instead of keeping the line and column for each char (which
+ * would take 4x the memory of the chars being parsed), only the offsets where each line starts are kept and the line and
+ * column of a position are computed on demand (with a binary search in the line starts -- usually the position requested
+ * is in the last line requested, in which case no search is needed).
  */
 
 public final class FastCharStream {
 
     public final char[] buffer;
 
-    public final int bufline[];
-
-    public final int bufcolumn[];
-
-    private boolean prevCharIsCR = false;
-
-    private boolean prevCharIsLF = false;
+    /**
+     * The offset where each line starts (lineStarts[0] is the start of line 1). Only filled up to the last char read.
+     */
+    private int[] lineStarts;
 
-    private int column = 0;
+    /**
+     * Number of valid entries in lineStarts.
+     */
+    private int linesCount = 1;
 
-    private int line = 1;
+    /**
+     * Index (in lineStarts) of the line found in the last query.
+     */
+    private int lastLineIndex = 0;
 
     public int bufpos = -1;
 
+    /**
+     * Positions below this one already had their line start computed.
+     */
     private int updatePos;
 
     public int tokenBegin;
@@ -50,8 +57,8 @@ public final class FastCharStream {
 
     public FastCharStream(char cs[]) {
         this.buffer = cs;
-        this.bufline = new int[cs.length];
-        this.bufcolumn = new int[cs.length];
+        //start with an estimate of 40 chars/line (it grows if needed).
+        this.lineStarts = new int[Math.max(16, cs.length / 40)];
     }
 
     public int getCurrentPos() {
@@ -97,37 +104,21 @@ public final class FastCharStream {
             bufpos++;
             char r = this.buffer[bufpos];
 
-            if (bufpos >= updatePos) {
-                updatePos++;
-
-                //start UpdateLineCol
-                column++;
-
-                if (prevCharIsLF) {
-                    prevCharIsLF = false;
-                    line += (column = 1);
-
-                } else if (prevCharIsCR) {
-
-                    prevCharIsCR = false;
-                    if (r == '\n') {
-                        prevCharIsLF = true;
-                    } else {
-                        line += (column = 1);
+            while (updatePos <= bufpos) {
+                //A new line starts after a \n or after a \r which is not followed by a \n.
+                if (updatePos > 0) {
+                    char prev = this.buffer[updatePos - 1];
+                    if (prev == '\n' || (prev == '\r' && this.buffer[updatePos] != '\n')) {
+                        if (linesCount == lineStarts.length) {
+                            int[] newLineStarts = new int[lineStarts.length * 2];
+                            System.arraycopy(lineStarts, 0, newLineStarts, 0, linesCount);
+                            lineStarts = newLineStarts;
+                        }
+                        lineStarts[linesCount] = updatePos;
+                        linesCount++;
                     }
                 }
-
-                if (r == '\r') {
-                    prevCharIsCR = true;
-
-                } else if (r == '\n') {
-                    prevCharIsLF = true;
-
-                }
-
-                bufline[bufpos] = line;
-                bufcolumn[bufpos] = column;
-                //end UpdateLineCol
+                updatePos++;
             }
 
             return r;
@@ -140,20 +131,59 @@ public final class FastCharStream {
         }
     }
 
+    /**
+     * @return the index (in lineStarts) of the line which contains the given position (which must have been
+     * already read).
+     */
+    private int getLineIndex(int pos) {
+        int[] starts = this.lineStarts;
+        int i = lastLineIndex;
+        if (pos >= starts[i] && (i + 1 == linesCount || pos < starts[i + 1])) {
+            return i;
+        }
+
+        int low = 0;
+        int high = linesCount - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= pos) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        lastLineIndex = low;
+        return low;
+    }
+
+    /**
+     * @return the line (1-based) of the given position.
+     */
+    public final int getLine(int pos) {
+        return getLineIndex(pos) + 1;
+    }
+
+    /**
+     * @return the column (1-based) of the given position.
+     */
+    public final int getColumn(int pos) {
+        return pos - lineStarts[getLineIndex(pos)] + 1;
+    }
+
     public final int getEndColumn() {
-        return bufcolumn[bufpos];
+        return getColumn(bufpos);
     }
 
     public final int getEndLine() {
-        return bufline[bufpos];
+        return getLine(bufpos);
     }
 
     public final int getBeginColumn() {
-        return bufcolumn[tokenBegin];
+        return getColumn(tokenBegin);
     }
 
     public final int getBeginLine() {
-        return bufline[tokenBegin];
+        return getLine(tokenBegin);
     }
 
     public final void backup(int amount) {
@@ -238,15 +268,18 @@ public final class FastCharStream {
     }
 
     public void setBeginEndCharsEqual(Token t) {
-        t.beginLine = t.endLine = bufline[tokenBegin];
-        t.beginColumn = t.endColumn = bufcolumn[tokenBegin];
+        int lineIndex = getLineIndex(tokenBegin);
+        t.beginLine = t.endLine = lineIndex + 1;
+        t.beginColumn = t.endColumn = tokenBegin - lineStarts[lineIndex] + 1;
     }
 
     public void setBeginEndChars(Token t) {
-        t.beginLine = bufline[tokenBegin];
-        t.beginColumn = bufcolumn[tokenBegin];
-        t.endLine = bufline[bufpos];
-        t.endColumn = bufcolumn[bufpos];
+        int lineIndex = getLineIndex(tokenBegin);
+        t.beginLine = lineIndex + 1;
+        t.beginColumn = tokenBegin - lineStarts[lineIndex] + 1;
+        lineIndex = getLineIndex(bufpos);
+        t.endLine = lineIndex + 1;
+        t.endColumn = bufpos - lineStarts[lineIndex] + 1;
     }
 
 }
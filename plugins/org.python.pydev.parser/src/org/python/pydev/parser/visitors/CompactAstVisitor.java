@@ -0,0 +1,148 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser.visitors;
+
+import java.util.List;
+
+import org.python.pydev.core.ObjectsInternPool;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.parser.jython.ISpecialStr;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.ImportFrom;
+import org.python.pydev.parser.jython.ast.Name;
+import org.python.pydev.parser.jython.ast.NameTok;
+import org.python.pydev.parser.jython.ast.Num;
+import org.python.pydev.parser.jython.ast.Str;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.parser.jython.ast.commentType;
+import org.python.pydev.shared_core.structure.LowMemoryArrayList;
+
+/**
+ * Makes an AST use less memory, for ASTs which are only used for code-completion and indexing (i.e.: the ASTs of
+ * modules which are not opened in an editor).
+ *
+ * - The special strings (parenthesis, colons, commas, etc.) kept only for pretty-printing are removed (comments
+ * are kept as they may have type information for code-completion and the specials in 'from xxx import (a, b)' are
+ * kept as they're needed to get its end line -- see NodeUtils.getLineEnd). Also, the last special after a node
+ * is kept if it's in a line after the node (i.e.: the ')' closing a call spanning multiple lines) as it's used
+ * to get the end line of the scope containing it -- see EasyAstIteratorBase).
+ * - The names and small strings are interned in the global pool, so, the same name in different modules shares
+ * the same String instance.
+ *
+ * Note: a compacted AST must not be used to pretty-print the code.
+ */
+public final class CompactAstVisitor extends VisitorBase {
+
+    /**
+     * Strings bigger than this (usually docstrings) are not interned (they're rarely repeated among modules).
+     */
+    private static final int MAX_STR_LEN_TO_INTERN = 64;
+
+    /**
+     * Whether we're inside an ImportFrom (in which case the specials are kept).
+     */
+    private boolean keepSpecials;
+
+    private CompactAstVisitor() {
+    }
+
+    /**
+     * Compacts the passed AST in-place.
+     */
+    public static void compact(SimpleNode ast) {
+        if (ast == null) {
+            return;
+        }
+        try {
+            ast.accept(new CompactAstVisitor());
+        } catch (Exception e) {
+            Log.log(e);
+        }
+    }
+
+    @Override
+    protected Object unhandled_node(SimpleNode node) throws Exception {
+        if (!keepSpecials) {
+            node.specialsBefore = onlyComments(node.specialsBefore, -1);
+            node.specialsAfter = onlyComments(node.specialsAfter, node.beginLine);
+        }
+
+        if (node instanceof Name) {
+            Name name = (Name) node;
+            name.id = ObjectsInternPool.intern(name.id);
+
+        } else if (node instanceof NameTok) {
+            NameTok nameTok = (NameTok) node;
+            nameTok.id = ObjectsInternPool.intern(nameTok.id);
+
+        } else if (node instanceof Str) {
+            Str str = (Str) node;
+            if (str.s != null && str.s.length() <= MAX_STR_LEN_TO_INTERN) {
+                str.s = ObjectsInternPool.intern(str.s);
+            }
+
+        } else if (node instanceof Num) {
+            Num num = (Num) node;
+            num.num = ObjectsInternPool.intern(num.num);
+        }
+        return null;
+    }
+
+    @Override
+    public Object visitImportFrom(ImportFrom node) throws Exception {
+        keepSpecials = true;
+        try {
+            return super.visitImportFrom(node);
+        } finally {
+            keepSpecials = false;
+        }
+    }
+
+    /**
+     * @param keepLastAfterLine if != -1, the non-comment special with the highest line is also kept if its line
+     * is after this one.
+     * @return a list only with the comments in the passed list -- and the special kept due to keepLastAfterLine
+     * (or null if there's nothing to keep).
+     */
+    private static List<Object> onlyComments(List<Object> specials, int keepLastAfterLine) {
+        if (specials == null) {
+            return null;
+        }
+        LowMemoryArrayList<Object> comments = null;
+        ISpecialStr last = null;
+        for (Object o : specials) {
+            if (o instanceof commentType) {
+                if (comments == null) {
+                    comments = new LowMemoryArrayList<Object>();
+                }
+                comments.add(o);
+
+            } else if (keepLastAfterLine != -1 && o instanceof ISpecialStr) {
+                ISpecialStr str = (ISpecialStr) o;
+                if (str.getBeginLine() > keepLastAfterLine
+                        && (last == null || str.getBeginLine() >= last.getBeginLine())) {
+                    last = str;
+                }
+            }
+        }
+        if (last != null) {
+            if (comments == null) {
+                comments = new LowMemoryArrayList<Object>();
+            }
+            comments.add(last);
+        }
+        if (comments != null) {
+            comments.trim();
+        }
+        return comments;
+    }
+
+    @Override
+    public void traverse(SimpleNode node) throws Exception {
+        node.traverse(this);
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Assign;
+import org.python.pydev.parser.jython.ast.ClassDef;
+import org.python.pydev.parser.jython.ast.Expr;
+import org.python.pydev.parser.jython.ast.FunctionDef;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.Num;
+import org.python.pydev.parser.jython.ast.Str;
+import org.python.pydev.parser.jython.ast.commentType;
+import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+public class ASTSerializerTest extends PyParserTestBase {
+
+    public static void main(String[] args) {
+        try {
+            ASTSerializerTest test = new ASTSerializerTest();
+            test.setUp();
+            test.benchmark();
+            test.tearDown();
+
+            junit.textui.TestRunner.run(ASTSerializerTest.class);
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static final String CODE = "" +
+            "#comment at start\n" +
+            "'''Module docstring'''\n" +
+            "import os, sys as system\n" +
+            "from . import bar\n" +
+            "\n" +
+            "a = 1; b = 1.5; d = 3j\n" +
+            "\n" +
+            "@decorator(a, b=2)\n" +
+            "class Foo(object, metaclass=Meta):\n" +
+            "    '''Docstring with unicode: \u00e7\u00e3o'''\n" +
+            "\n" +
+            "    def method(self, a, b=(1, 2), *args, **kwargs):\n" +
+            "        def inner():\n" +
+            "            return [x for x in range(10) if x > a]\n" +
+            "        try:\n" +
+            "            with open('f') as f, open('g') as g:\n" +
+            "                yield {k: v for k, v in kwargs.items()}\n" +
+            "        except (IOError, ValueError) as e:\n" +
+            "            raise\n" +
+            "        finally:\n" +
+            "            pass\n" +
+            "\n" +
+            "    class Inner:\n" +
+            "        x = lambda a, *b: a[1:2, ::3]\n" +
+            "\n" +
+            "if not a and b or c is not d:\n" +
+            "    del a\n" +
+            "else:\n" +
+            "    print(-a ** 2, {1, 2}, r'raw', b'bytes')\n" +
+            "#comment at end\n" +
+            "";
+
+    private SimpleNode parse(String code) {
+        setDefaultVersion(IPythonNature.GRAMMAR_PYTHON_VERSION_3_0);
+        return parseLegalDocStr(code);
+    }
+
+    /**
+     * @return the AST read after writing the passed AST (also checks that writing the read AST provides the same
+     * contents -- which means that positions, specials and parents were all properly restored).
+     */
+    private SimpleNode checkRoundTrip(SimpleNode ast) throws Exception {
+        byte[] bytes = ASTSerializer.toBytes(ast);
+        SimpleNode read = ASTSerializer.fromBytes(bytes);
+        assertNotSame(ast, read);
+        assertEquals(ast.toString(), read.toString());
+        assertEquals(ast, read);
+        assertTrue(Arrays.equals(bytes, ASTSerializer.toBytes(read)));
+        return read;
+    }
+
+    public void testRoundTrip() throws Exception {
+        Module read = (Module) checkRoundTrip(parse(CODE));
+
+        ClassDef classDef = (ClassDef) read.body[6];
+        FunctionDef method = (FunctionDef) classDef.body[1];
+        assertSame(classDef, method.parent);
+        ClassDef inner = (ClassDef) classDef.body[2];
+        assertSame(classDef, inner.parent);
+        FunctionDef innerFunc = (FunctionDef) method.body[0];
+        assertSame(method, innerFunc.parent);
+        assertNull(classDef.parent);
+
+        assertEquals(9, classDef.beginLine);
+        assertEquals(1, classDef.beginColumn);
+
+        Str docString = (Str) ((Expr) read.body[0]).value;
+        commentType comment = (commentType) docString.specialsBefore.get(0);
+        assertEquals("#comment at start", comment.id);
+        assertEquals(1, comment.beginLine);
+    }
+
+    public void testNumbers() throws Exception {
+        setDefaultVersion(IPythonNature.GRAMMAR_PYTHON_VERSION_2_7);
+        Module read = (Module) checkRoundTrip(parseLegalDocStr("a = 1; b = 1.5; c = 10L; d = 3j; e = 0xffffffffff\n"));
+        assertEquals(Integer.valueOf(1), ((Num) ((Assign) read.body[0]).value).n);
+        assertEquals(Float.valueOf(1.5f), ((Num) ((Assign) read.body[1]).value).n);
+        assertEquals(BigInteger.valueOf(10), ((Num) ((Assign) read.body[2]).value).n);
+        assertEquals(Double.valueOf(3), ((Num) ((Assign) read.body[3]).value).n);
+        assertEquals(new BigInteger("ffffffffff", 16), ((Num) ((Assign) read.body[4]).value).n);
+    }
+
+    public void testNullAndEmpty() throws Exception {
+        assertNull(ASTSerializer.fromBytes(ASTSerializer.toBytes(null)));
+        Module read = (Module) checkRoundTrip(new Module(new stmtType[0]));
+        assertEquals(0, read.body.length);
+        read = (Module) checkRoundTrip(new Module(null));
+        assertNull(read.body);
+    }
+
+    public void testInvalidContents() throws Exception {
+        byte[] bytes = ASTSerializer.toBytes(parse(CODE));
+
+        byte[] wrongMagic = bytes.clone();
+        wrongMagic[0] = 0;
+        checkInvalid(wrongMagic);
+
+        checkInvalid(Arrays.copyOf(bytes, bytes.length / 2));
+
+        byte[] wrongClass = bytes.clone();
+        wrongClass[8] = 3; //an invalid node tag
+        checkInvalid(wrongClass);
+    }
+
+    private void checkInvalid(byte[] bytes) {
+        try {
+            ASTSerializer.fromBytes(bytes);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            //expected
+        }
+    }
+
+    public void benchmark() throws Exception {
+        FastStringBuffer buf = new FastStringBuffer();
+        for (int i = 0; i < 300; i++) {
+            buf.append(CODE.replace("Foo", "Foo" + i));
+        }
+        String code = buf.toString();
+        SimpleNode ast = parse(code);
+        byte[] bytes = ASTSerializer.toBytes(ast);
+
+        int runs = 20;
+        long parseTime = 0;
+        long readTime = 0;
+        for (int i = 0; i < runs; i++) {
+            long time = System.nanoTime();
+            parse(code);
+            parseTime += System.nanoTime() - time;
+
+            time = System.nanoTime();
+            ASTSerializer.fromBytes(bytes);
+            readTime += System.nanoTime() - time;
+        }
+        System.out.println("Size: " + code.length() + " chars, " + bytes.length + " bytes serialized. Parse: "
+                + (parseTime / runs / 1000000) + " millis. Read: " + (readTime / runs / 1000000) + " millis.");
+    }
+}
@@ -0,0 +1,329 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser;
+
+import java.util.List;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+import org.python.pydev.shared_core.parsing.IncrementalParseDelta;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.structure.Tuple;
+
+public class PyIncrementalReparserTest extends PyParserTestBase {
+
+    public static void main(String[] args) {
+        try {
+            PyIncrementalReparserTest test = new PyIncrementalReparserTest();
+            test.setUp();
+            test.benchmark();
+            test.tearDown();
+
+            junit.textui.TestRunner.run(PyIncrementalReparserTest.class);
+        } catch (Throwable e) {
+            e.printStackTrace();
+        }
+    }
+
+    private PyIncrementalReparser reparser;
+    private Document doc;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        reparser = new PyIncrementalReparser();
+        doc = new Document();
+    }
+
+    /**
+     * Visitor which creates a representation of the AST with the positions of all the nodes and specials.
+     */
+    private static final class PositionsDumper extends VisitorBase {
+
+        private final FastStringBuffer buf = new FastStringBuffer();
+        private int level;
+
+        @Override
+        protected Object unhandled_node(SimpleNode node) throws Exception {
+            buf.appendN("  ", level).append(node.getClass().getSimpleName()).append(' ').append(node.beginLine).append(':')
+                    .append(node.beginColumn);
+            dumpSpecials(node.specialsBefore);
+            dumpSpecials(node.specialsAfter);
+            buf.append('\n');
+            return null;
+        }
+
+        private void dumpSpecials(List<Object> specials) {
+            buf.append(" [");
+            if (specials != null) {
+                for (Object o : specials) {
+                    buf.append(o.toString());
+                    if (o instanceof SimpleNode) {
+                        buf.append('@').append(((SimpleNode) o).beginLine);
+                    }
+                    buf.append(", ");
+                }
+            }
+            buf.append("]");
+        }
+
+        @Override
+        public void traverse(SimpleNode node) throws Exception {
+            level++;
+            node.traverse(this);
+            level--;
+        }
+    }
+
+    private static String dump(SimpleNode node) throws Exception {
+        PositionsDumper dumper = new PositionsDumper();
+        node.accept(dumper);
+        return dumper.buf.toString();
+    }
+
+    private Tuple<ParseOutput, IncrementalParseDelta> parse(String contents) {
+        doc.set(contents);
+        return reparser.reparse(new ParserInfo(doc, IPythonNature.GRAMMAR_PYTHON_VERSION_2_7, true));
+    }
+
+    /**
+     * Parses the initial contents and then the changed contents, checking that the result is the same as
+     * a full parse.
+     *
+     * @return the delta of the incremental parse (null if a full parse was done).
+     */
+    private IncrementalParseDelta check(String initial, String changed) throws Exception {
+        reparser.clear();
+        Tuple<ParseOutput, IncrementalParseDelta> first = parse(initial);
+        assertNull(first.o2);
+        assertNull(first.o1.error);
+
+        Tuple<ParseOutput, IncrementalParseDelta> second = parse(changed);
+        ParseOutput full = PyParser.reparseDocument(new ParserInfo(new Document(changed),
+                IPythonNature.GRAMMAR_PYTHON_VERSION_2_7, true));
+        if (full.error != null) {
+            assertNull(second.o2);
+            assertNotNull(second.o1.error);
+            return null;
+        }
+        assertEquals(dump((SimpleNode) full.ast), dump((SimpleNode) second.o1.ast));
+        return second.o2;
+    }
+
+    public void testChangeInFunction() throws Exception {
+        String initial = "" +
+                "import os\n" +
+                "\n" +
+                "def method():\n" +
+                "    a = 10\n" +
+                "\n" +
+                "class Foo(object):\n" +
+                "    def m1(self):\n" +
+                "        pass\n" +
+                "";
+        String changed = "" +
+                "import os\n" +
+                "\n" +
+                "def method():\n" +
+                "    a = 20\n" +
+                "\n" +
+                "class Foo(object):\n" +
+                "    def m1(self):\n" +
+                "        pass\n" +
+                "";
+        IncrementalParseDelta delta = check(initial, changed);
+        assertNotNull(delta);
+        assertEquals(1, delta.firstChangedIndex);
+        assertEquals(1, delta.oldChangedCount);
+        assertEquals(1, delta.newChangedCount);
+        assertEquals(0, delta.lineDelta);
+
+        Module previous = (Module) delta.previousRoot;
+        Module current = (Module) reparser.reparse(new ParserInfo(doc, IPythonNature.GRAMMAR_PYTHON_VERSION_2_7,
+                true)).o1.ast;
+        //Nothing changed in the last reparse: same statements reused.
+        assertSame(previous.body[0], current.body[0]);
+    }
+
+    public void testLinesAdded() throws Exception {
+        String initial = "" +
+                "def method():\n" +
+                "    a = 10\n" +
+                "\n" +
+                "#comment\n" +
+                "@decorator\n" +
+                "def method2(): #comment 2\n" +
+                "    'doc'\n" +
+                "    b = (1,\n" +
+                "        2)\n" +
+                "\n" +
+                "class Foo(object):\n" +
+                "    def m1(self):\n" +
+                "        pass\n" +
+                "";
+        String changed = "" +
+                "def method():\n" +
+                "    a = 10\n" +
+                "    if a:\n" +
+                "        print a\n" +
+                "\n" +
+                "#comment\n" +
+                "@decorator\n" +
+                "def method2(): #comment 2\n" +
+                "    'doc'\n" +
+                "    b = (1,\n" +
+                "        2)\n" +
+                "\n" +
+                "class Foo(object):\n" +
+                "    def m1(self):\n" +
+                "        pass\n" +
+                "";
+        IncrementalParseDelta delta = check(initial, changed);
+        assertNotNull(delta);
+        assertEquals(0, delta.firstChangedIndex);
+        assertEquals(2, delta.lineDelta);
+
+        //And remove them again (using the incremental result as the base).
+        Tuple<ParseOutput, IncrementalParseDelta> output = parse(initial);
+        assertNotNull(output.o2);
+        assertEquals(-2, output.o2.lineDelta);
+        ParseOutput full = PyParser.reparseDocument(new ParserInfo(new Document(initial),
+                IPythonNature.GRAMMAR_PYTHON_VERSION_2_7, true));
+        assertEquals(dump((SimpleNode) full.ast), dump((SimpleNode) output.o1.ast));
+    }
+
+    public void testStatementsAddedAndRemoved() throws Exception {
+        String initial = "" +
+                "a = 10\n" +
+                "b = 20\n" +
+                "c = 30\n" +
+                "d = 40\n" +
+                "";
+        String changed = "" +
+                "a = 10\n" +
+                "b = 20; b1 = 21\n" +
+                "b2 = 22\n" +
+                "c = 30\n" +
+                "d = 40\n" +
+                "";
+        IncrementalParseDelta delta = check(initial, changed);
+        assertNotNull(delta);
+        assertEquals(1, delta.firstChangedIndex);
+        assertEquals(1, delta.oldChangedCount);
+        assertEquals(3, delta.newChangedCount);
+        assertEquals(1, delta.lineDelta);
+
+        delta = check(changed, initial);
+        assertNotNull(delta);
+        assertEquals(3, delta.oldChangedCount);
+        assertEquals(1, delta.newChangedCount);
+    }
+
+    public void testErrorsFallbackToFullParse() throws Exception {
+        String initial = "" +
+                "a = 10\n" +
+                "b = 20\n" +
+                "c = 30\n" +
+                "";
+        //Opening a parenthesis makes the next statements part of the changed statement.
+        assertNull(check(initial, "" +
+                "a = 10\n" +
+                "b = (20\n" +
+                "c = 30)\n" +
+                ""));
+
+    }
+
+    public void testIndentTopLevelStatement() throws Exception {
+        //Indenting a top-level statement makes it part of the previous one.
+        IncrementalParseDelta delta = check("" +
+                "if a:\n" +
+                "    b = 20\n" +
+                "c = 30\n" +
+                "d = 40\n" +
+                "", "" +
+                "if a:\n" +
+                "    b = 20\n" +
+                "    c = 30\n" +
+                "d = 40\n" +
+                "");
+        assertNotNull(delta);
+        assertEquals(0, delta.firstChangedIndex);
+        assertEquals(2, delta.oldChangedCount);
+        assertEquals(1, delta.newChangedCount);
+    }
+
+    public void testFutureImportsFullParse() throws Exception {
+        String initial = "" +
+                "from __future__ import print_function\n" +
+                "a = 10\n" +
+                "print(a, file=None)\n" +
+                "";
+        assertNull(check(initial, initial.replace("10", "20")));
+    }
+
+    public void testLineStarts() throws Exception {
+        int[] lineStarts = PyIncrementalReparser.computeLineStarts("a\nb\r\nc\rd");
+        assertEquals(4, lineStarts.length);
+        assertEquals(0, lineStarts[0]);
+        assertEquals(2, lineStarts[1]);
+        assertEquals(5, lineStarts[2]);
+        assertEquals(7, lineStarts[3]);
+
+        assertEquals(1, PyIncrementalReparser.getLineOf(lineStarts, 0));
+        assertEquals(1, PyIncrementalReparser.getLineOf(lineStarts, 1));
+        assertEquals(2, PyIncrementalReparser.getLineOf(lineStarts, 2));
+        assertEquals(2, PyIncrementalReparser.getLineOf(lineStarts, 4));
+        assertEquals(4, PyIncrementalReparser.getLineOf(lineStarts, 8));
+
+        int[] stmtStarts = new int[] { 1, 3, 3, 6 };
+        assertEquals(0, PyIncrementalReparser.getRegionIndex(stmtStarts, 2, true));
+        assertEquals(1, PyIncrementalReparser.getRegionIndex(stmtStarts, 3, true));
+        assertEquals(2, PyIncrementalReparser.getRegionIndex(stmtStarts, 3, false));
+        assertEquals(2, PyIncrementalReparser.getRegionIndex(stmtStarts, 5, false));
+        assertEquals(3, PyIncrementalReparser.getRegionIndex(stmtStarts, 10, true));
+    }
+
+    public void benchmark() throws Exception {
+        FastStringBuffer buf = new FastStringBuffer();
+        for (int i = 0; i < 3000; i++) {
+            buf.append("def method").append(i).append("(a, b):\n");
+            buf.append("    '''Docstring'''\n");
+            buf.append("    if a:\n");
+            buf.append("        return a + b  # comment\n");
+            buf.append("    return [x for x in range(b)]\n");
+            buf.append("\n");
+        }
+        String initial = buf.toString();
+        parse(initial);
+
+        int edits = 50;
+        long incrementalTime = 0;
+        long fullTime = 0;
+        for (int i = 0; i < edits; i++) {
+            String changed = initial.replace("def method" + (i * 50) + "(", "def method" + (i * 50) + "_changed(");
+
+            long time = System.nanoTime();
+            Tuple<ParseOutput, IncrementalParseDelta> output = parse(changed);
+            incrementalTime += System.nanoTime() - time;
+            assertNotNull(output.o2);
+
+            time = System.nanoTime();
+            PyParser.reparseDocument(new ParserInfo(new Document(changed), IPythonNature.GRAMMAR_PYTHON_VERSION_2_7,
+                    true));
+            fullTime += System.nanoTime() - time;
+            initial = changed;
+        }
+        System.out.println("Full parse: " + (fullTime / edits / 1000000) + " millis/edit. Incremental parse: "
+                + (incrementalTime / edits / 1000000) + " millis/edit.");
+    }
+}
@@ -1444,6 +1444,52 @@ public class FastDefinitionsParserTest extends TestCase {
         Module m = (Module) FastDefinitionsParser.parse("def\n");
     }
 
+    public void testDefinitionsParserBases() {
+        Module m = (Module) FastDefinitionsParser.parse("class A:pass\n" +
+                "class B(object):pass\n"
+                +
+                "class C(base.Model, # comment, Foo\n" +
+                "        Generic[T, U], six.with_metaclass(Meta, Bar), metaclass=Meta):\n"
+                +
+                "    class D ( B ) :\n" +
+                "        pass\n" +
+                "");
+        assertEquals(3, m.body.length);
+        assertNull(((ClassDef) m.body[0]).bases);
+
+        ClassDef b = (ClassDef) m.body[1];
+        assertEquals(1, b.bases.length);
+        assertEquals("object", ((Name) b.bases[0]).id);
+
+        ClassDef c = (ClassDef) m.body[2];
+        assertEquals(1, c.bases.length);
+        assertEquals("base.Model", NodeUtils.getFullRepresentationString(c.bases[0]));
+        assertEquals(3, c.beginLine);
+
+        ClassDef d = (ClassDef) c.body[0];
+        assertEquals("D", NodeUtils.getRepresentationString(d.name));
+        assertEquals(5, d.beginLine);
+        assertEquals(1, d.bases.length);
+        assertEquals("B", ((Name) d.bases[0]).id);
+    }
+
+    public void testDefinitionsParserAliasedBases() {
+        Module m = (Module) FastDefinitionsParser.parse("from m import Model as M, Other\n" +
+                "from m2 import (A,\n" +
+                "    B as BB)  # comment\n" +
+                "import pkg.mod as mod\n" +
+                "class C(M, BB, mod.Base, Other):pass\n" +
+                "");
+        assertEquals(1, m.body.length);
+        ClassDef c = (ClassDef) m.body[0];
+        assertEquals(4, c.bases.length);
+        assertEquals("m.Model", NodeUtils.getFullRepresentationString(c.bases[0]));
+        assertEquals("m2.B", NodeUtils.getFullRepresentationString(c.bases[1]));
+        assertEquals("pkg.mod.Base", NodeUtils.getFullRepresentationString(c.bases[2]));
+        assertEquals("Other", NodeUtils.getFullRepresentationString(c.bases[3]));
+        assertEquals(5, c.beginLine);
+    }
+
     public void testEmpty() {
         Module m = (Module) FastDefinitionsParser.parse("# This file was created automatically by SWIG 1.3.29.\n" +
                 ""
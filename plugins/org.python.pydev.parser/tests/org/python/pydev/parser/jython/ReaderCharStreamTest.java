@@ -219,6 +219,58 @@ public class ReaderCharStreamTest extends TestCase {
         assertEquals(1, in.getEndLine());
     }
 
+    public void testLineEndings() throws Exception {
+        //lines: "a\r\n", "b\r", "c\n", "\n", "de"
+        FastCharStream in = new FastCharStream("a\r\nb\rc\n\nde".toCharArray());
+        int[][] expected = new int[][] { { 1, 1 }, { 1, 2 }, { 1, 3 }, { 2, 1 }, { 2, 2 }, { 3, 1 }, { 3, 2 },
+                { 4, 1 }, { 5, 1 }, { 5, 2 } };
+        for (int i = 0; i < expected.length; i++) {
+            in.readChar();
+            assertEquals(expected[i][0], in.getEndLine());
+            assertEquals(expected[i][1], in.getEndColumn());
+        }
+
+        //going back must still give the same positions
+        in.backup(5);
+        assertEquals(2, in.getEndLine());
+        assertEquals(2, in.getEndColumn());
+        in.readChar();
+        assertEquals(3, in.getEndLine());
+        assertEquals(1, in.getEndColumn());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i][0], in.getLine(i));
+            assertEquals(expected[i][1], in.getColumn(i));
+        }
+    }
+
+    public void testManyLines() throws Exception {
+        FastStringBuffer buf = new FastStringBuffer();
+        for (int i = 0; i < 1000; i++) {
+            buf.append("line").append(i).append('\n');
+        }
+        FastCharStream in = new FastCharStream(buf.toCharArray());
+        Token t = new Token();
+        for (int i = 0; i < 1000; i++) {
+            in.BeginToken();
+            String expected = "line" + i;
+            for (int j = 1; j < expected.length(); j++) {
+                in.readChar();
+            }
+            assertEquals(expected, in.GetImage());
+            in.setBeginEndChars(t);
+            assertEquals(i + 1, t.beginLine);
+            assertEquals(1, t.beginColumn);
+            assertEquals(i + 1, t.endLine);
+            assertEquals(expected.length(), t.endColumn);
+            in.readChar(); //new line
+        }
+        //random access to the lines already read
+        assertEquals(1, in.getLine(0));
+        assertEquals(501, in.getLine(buf.indexOf("line500")));
+        assertEquals(3, in.getColumn(buf.indexOf("line500") + 2));
+        assertEquals(10, in.getLine(buf.indexOf("line9\n")));
+    }
+
     /**
      * @param in
      */
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.parser.visitors;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.jface.text.Document;
+import org.python.pydev.core.IGrammarVersionProvider;
+import org.python.pydev.parser.PyParser;
+import org.python.pydev.parser.PyParser.ParserInfo;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Assign;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.Name;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.parser.jython.ast.commentType;
+import org.python.pydev.parser.visitors.scope.ASTEntry;
+import org.python.pydev.parser.visitors.scope.EasyASTIteratorVisitor;
+import org.python.pydev.shared_core.parsing.BaseParser.ParseOutput;
+
+public class CompactAstVisitorTest extends TestCase {
+
+    private static final String CODE = "" +
+            "a = (1, 2) #comment\n" +
+            "class Foo(object):\n" +
+            "    def method(self, x):\n" +
+            "        #: :type x: Foo\n" +
+            "        return x\n" +
+            "";
+
+    private static SimpleNode parse(String s, boolean compactTree) {
+        ParseOutput output = PyParser.reparseDocument(new ParserInfo(new Document(s),
+                IGrammarVersionProvider.GRAMMAR_PYTHON_VERSION_2_7, null, null, true, compactTree));
+        assertNull(output.error);
+        return (SimpleNode) output.ast;
+    }
+
+    private static List<SimpleNode> getAllNodes(SimpleNode ast) throws Exception {
+        final List<SimpleNode> nodes = new ArrayList<SimpleNode>();
+        ast.accept(new VisitorBase() {
+
+            @Override
+            protected Object unhandled_node(SimpleNode node) throws Exception {
+                nodes.add(node);
+                return null;
+            }
+
+            @Override
+            public void traverse(SimpleNode node) throws Exception {
+                node.traverse(this);
+            }
+        });
+        return nodes;
+    }
+
+    public void testOnlyCommentsKept() throws Exception {
+        List<SimpleNode> full = getAllNodes(parse(CODE, false));
+        List<SimpleNode> compact = getAllNodes(parse(CODE, true));
+        assertEquals(full.size(), compact.size());
+
+        int comments = 0;
+        for (int i = 0; i < compact.size(); i++) {
+            SimpleNode node = compact.get(i);
+            assertEquals(full.get(i).getClass(), node.getClass());
+            assertEquals(full.get(i).beginLine, node.beginLine);
+            assertEquals(full.get(i).beginColumn, node.beginColumn);
+
+            for (List<Object> specials : new List[] { node.specialsBefore, node.specialsAfter }) {
+                if (specials != null) {
+                    assertTrue(specials.size() > 0);
+                    for (Object o : specials) {
+                        assertTrue("Found: " + o, o instanceof commentType);
+                        comments++;
+                    }
+                }
+            }
+        }
+        assertEquals(2, comments);
+    }
+
+    public void testNamesInterned() throws Exception {
+        Module m1 = (Module) parse("foo_bar_name = 10\n", true);
+        Module m2 = (Module) parse("foo_bar_name = 20\n", true);
+        String id1 = ((Name) ((Assign) m1.body[0]).targets[0]).id;
+        String id2 = ((Name) ((Assign) m2.body[0]).targets[0]).id;
+        assertEquals("foo_bar_name", id1);
+        assertSame(id1, id2);
+    }
+
+    public void testImportFromLineEnd() throws Exception {
+        String s = "" +
+                "from a import (b,\n" +
+                "    c\n" +
+                ")\n" +
+                "";
+        Module full = (Module) parse(s, false);
+        Module compact = (Module) parse(s, true);
+        assertEquals(3, NodeUtils.getLineEnd(full.body[0]));
+        assertEquals(3, NodeUtils.getLineEnd(compact.body[0]));
+    }
+
+    public void testScopeEndLine() throws Exception {
+        String s = "" +
+                "class Foo(object):\n" +
+                "    def method(self):\n" +
+                "        foo(\n" +
+                "            1,\n" +
+                "        )\n" +
+                "\n" +
+                "def bar():\n" +
+                "    return [1,\n" +
+                "        2]\n" +
+                "";
+        List<ASTEntry> full = getEntries(parse(s, false));
+        List<ASTEntry> compact = getEntries(parse(s, true));
+        assertEquals(3, full.size());
+        assertEquals(full.size(), compact.size());
+        for (int i = 0; i < full.size(); i++) {
+            assertEquals(full.get(i).endLine, compact.get(i).endLine);
+        }
+        assertEquals(5, compact.get(0).endLine);
+        assertEquals(5, compact.get(1).endLine);
+        assertEquals(9, compact.get(2).endLine);
+    }
+
+    private static List<ASTEntry> getEntries(SimpleNode ast) {
+        List<ASTEntry> entries = new ArrayList<ASTEntry>();
+        Iterator<ASTEntry> it = EasyASTIteratorVisitor.create(ast).getClassesAndMethodsIterator();
+        while (it.hasNext()) {
+            entries.add(it.next());
+        }
+        return entries;
+    }
+}
@@ -75,6 +75,7 @@ public class IndexApi {
     private SearcherFactory searcherFactory;
     private int maxMatches = Integer.MAX_VALUE;
     private CodeAnalyzer analyzer;
+    private boolean applyAllDeletes;
     private final Object lock = new Object();
 
     public IndexApi(Directory indexDir, boolean applyAllDeletes) throws IOException {
@@ -86,6 +87,9 @@ public class IndexApi {
      * @return an object which external users can use to synchronize on this lock. Note that
      * the methods in the API aren't synchronized (so, if more than one thread can use it in
      * the use-case, this lock should be used for synchronization).
+     *
+     * The searches don't need this lock (they're done in a near-real-time reader, which sees a consistent
+     * snapshot of the index), so, it's only needed to coordinate the writes.
      */
     public Object getLock() {
         return lock;
@@ -96,6 +100,7 @@ public class IndexApi {
     }
 
     public void init(boolean applyAllDeletes) throws IOException {
+        this.applyAllDeletes = applyAllDeletes;
         this.analyzer = new CodeAnalyzer();
         IndexWriterConfig config = new IndexWriterConfig(analyzer);
         config.setCommitOnClose(true);
@@ -121,6 +126,20 @@ public class IndexApi {
         }
     }
 
+    /**
+     * Makes the changes done so far visible to the searches (it's not needed to commit for that).
+     */
+    public void refreshSearcher() {
+        SearcherManager manager = this.searchManager;
+        if (manager != null) {
+            try {
+                manager.maybeRefresh();
+            } catch (IOException e) {
+                Log.log(e);
+            }
+        }
+    }
+
     public void dispose() {
         if (this.writer != null) {
             try {
@@ -413,32 +432,45 @@ public class IndexApi {
         }
     }
 
+    /**
+     * Searches in a near-real-time reader (which sees all the changes done in the writer up to this point, even if
+     * not committed). Many searches may be done concurrently (the lock is not needed for searches).
+     */
     public SearchResult search(Query query, boolean applyAllDeletes, IDocumentsVisitor visitor, String... fields)
             throws IOException {
+        if (applyAllDeletes && !this.applyAllDeletes) {
+            // The searcher manager was created without applying all deletes: use a reader just for this search.
+            try (IndexReader reader = DirectoryReader.open(writer, applyAllDeletes);) {
+                return search(searcherFactory.newSearcher(reader, null), query, visitor, fields);
+            }
+        }
+        SearcherManager manager = this.searchManager;
+        manager.maybeRefreshBlocking();
+        IndexSearcher searcher = manager.acquire();
         try {
-            this.writer.commit();
-        } catch (Exception e) {
-            Log.log(e);
+            return search(searcher, query, visitor, fields);
+        } finally {
+            manager.release(searcher);
         }
-        try (IndexReader reader = DirectoryReader.open(writer, applyAllDeletes);) {
-            IndexSearcher searcher = searcherFactory.newSearcher(reader, null);
+    }
 
-            TopDocs search = searcher.search(query, maxMatches);
-            ScoreDoc[] scoreDocs = search.scoreDocs;
-
-            if (visitor != null) {
-                int length = scoreDocs.length;
-                for (int i = 0; i < length; i++) {
-                    ScoreDoc scoreDoc = scoreDocs[i];
-                    DocumentStoredFieldVisitor fieldVisitor = new DocumentStoredFieldVisitor(fields);
-                    reader.document(scoreDoc.doc, fieldVisitor);
-                    Document document = fieldVisitor.getDocument();
-                    visitor.visit(new DocumentInfo(document, scoreDoc.doc));
-                }
-            }
+    private SearchResult search(IndexSearcher searcher, Query query, IDocumentsVisitor visitor, String... fields)
+            throws IOException {
+        TopDocs search = searcher.search(query, maxMatches);
+        ScoreDoc[] scoreDocs = search.scoreDocs;
 
-            return new SearchResult(scoreDocs);
+        if (visitor != null) {
+            int length = scoreDocs.length;
+            for (int i = 0; i < length; i++) {
+                ScoreDoc scoreDoc = scoreDocs[i];
+                DocumentStoredFieldVisitor fieldVisitor = new DocumentStoredFieldVisitor(fields);
+                searcher.doc(scoreDoc.doc, fieldVisitor);
+                Document document = fieldVisitor.getDocument();
+                visitor.visit(new DocumentInfo(document, scoreDoc.doc));
+            }
         }
+
+        return new SearchResult(scoreDocs);
     }
 
     public void removeDocs(Map<String, Collection<String>> fieldToValuesToRemove) throws IOException {
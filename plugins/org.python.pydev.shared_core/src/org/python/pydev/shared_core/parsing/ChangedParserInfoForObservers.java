@@ -24,8 +24,20 @@ public class ChangedParserInfoForObservers {
      */
     public final ErrorParserInfoForObservers errorInfo;
 
+    /**
+     * If the root was created by reparsing only the changed top-level nodes, this is the description of what
+     * changed from the previous root. May be null (i.e.: the whole document was parsed).
+     */
+    public final IncrementalParseDelta delta;
+
     public ChangedParserInfoForObservers(ISimpleNode root, long docModificationStamp, IAdaptable file, IDocument doc,
             long documentMillisTime, ErrorParserInfoForObservers errorInfo, Object... argsToReparse) {
+        this(root, docModificationStamp, file, doc, documentMillisTime, errorInfo, null, argsToReparse);
+    }
+
+    public ChangedParserInfoForObservers(ISimpleNode root, long docModificationStamp, IAdaptable file, IDocument doc,
+            long documentMillisTime, ErrorParserInfoForObservers errorInfo, IncrementalParseDelta delta,
+            Object... argsToReparse) {
         this.root = root;
         this.docModificationStamp = docModificationStamp;
         this.file = file;
@@ -33,5 +45,6 @@ public class ChangedParserInfoForObservers {
         this.argsToReparse = argsToReparse;
         this.documentMillisTime = documentMillisTime;
         this.errorInfo = errorInfo;
+        this.delta = delta;
     }
 }
@@ -0,0 +1,57 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.parsing;
+
+import org.python.pydev.shared_core.model.ISimpleNode;
+
+/**
+ * Describes which top-level nodes changed when an AST was created by reparsing only a part of the document
+ * (and reusing the remaining nodes from the previous AST).
+ *
+ * In the new root, the nodes from [firstChangedIndex, firstChangedIndex + newChangedCount) are new. They replaced
+ * the nodes from [firstChangedIndex, firstChangedIndex + oldChangedCount) in the previous root. The nodes
+ * before are the same instances of the previous AST and the nodes after have the same contents but their lines
+ * are moved by lineDelta (if lineDelta is 0 they're also the same instances).
+ */
+public final class IncrementalParseDelta {
+
+    /**
+     * The root which was used as the base for the new AST.
+     */
+    public final ISimpleNode previousRoot;
+
+    public final int firstChangedIndex;
+
+    public final int oldChangedCount;
+
+    public final int newChangedCount;
+
+    public final int lineDelta;
+
+    public IncrementalParseDelta(ISimpleNode previousRoot, int firstChangedIndex, int oldChangedCount,
+            int newChangedCount, int lineDelta) {
+        this.previousRoot = previousRoot;
+        this.firstChangedIndex = firstChangedIndex;
+        this.oldChangedCount = oldChangedCount;
+        this.newChangedCount = newChangedCount;
+        this.lineDelta = lineDelta;
+    }
+
+    /**
+     * @return true if the given index (in the new root) maps to a node which is new (and not a node reused from
+     * the previous AST).
+     */
+    public boolean isChanged(int indexInNewRoot) {
+        return indexInNewRoot >= firstChangedIndex && indexInNewRoot < firstChangedIndex + newChangedCount;
+    }
+
+    @Override
+    public String toString() {
+        return "IncrementalParseDelta [firstChangedIndex=" + firstChangedIndex + ", oldChangedCount="
+                + oldChangedCount + ", newChangedCount=" + newChangedCount + ", lineDelta=" + lineDelta + "]";
+    }
+}
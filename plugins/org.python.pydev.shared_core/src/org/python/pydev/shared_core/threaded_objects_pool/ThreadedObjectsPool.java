@@ -1,5 +1,6 @@
 package org.python.pydev.shared_core.threaded_objects_pool;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -47,15 +48,50 @@ public class ThreadedObjectsPool<X> {
 
     /**
      * Puts some object in the store.
+     *
+     * @return the objects removed from the store to make room for the new one (clients may want to dispose them).
      */
-    public void putObject(Object configuration, X obj) {
+    public List<X> putObject(Object configuration, X obj) {
         Assert.isNotNull(obj);
+        List<X> removed = new ArrayList<X>(0);
         synchronized (lock) {
             while (lst.size() + 1 > this.maxSize) {
-                lst.remove(0);
+                removed.add(lst.remove(0).o2);
             }
             lst.add(new Tuple<Object, X>(configuration, obj));
         }
+        return removed;
+    }
+
+    /**
+     * Removes the given object from the store (if it's there).
+     *
+     * @return true if it was in the store (and was removed) and false otherwise.
+     */
+    public boolean removeObject(X obj) {
+        synchronized (lock) {
+            Iterator<Tuple<Object, X>> iterator = lst.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().o2 == obj) {
+                    iterator.remove();
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of objects currently available in the pool.
+     */
+    public int size() {
+        synchronized (lock) {
+            return lst.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
     }
 
 }
@@ -0,0 +1,244 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.utils;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback2;
+import org.python.pydev.shared_core.log.Log;
+
+/**
+ * Helpers to do work in parallel in a fork-join pool shared by the indexing-related processes (i.e.: finding
+ * the modules in the pythonpath, parsing and indexing them).
+ *
+ * Note that the results are always provided in the same order of the input (so, the results are deterministic
+ * regardless of the number of threads used).
+ */
+public class ParallelUtils {
+
+    /**
+     * Set to false to do everything in the calling thread.
+     */
+    public static boolean USE_PARALLEL_INDEXING = true;
+
+    /**
+     * Items are split until there are at most this number of items in a fork-join task.
+     */
+    private static final int MIN_ITEMS_PER_TASK = 4;
+
+    private static volatile ForkJoinPool indexingPool;
+
+    private static final Object indexingPoolLock = new Object();
+
+    /**
+     * @return the pool to be used for indexing-related tasks (lazily created with one thread per processor).
+     */
+    public static ForkJoinPool getIndexingPool() {
+        ForkJoinPool pool = indexingPool;
+        if (pool == null) {
+            synchronized (indexingPoolLock) {
+                pool = indexingPool;
+                if (pool == null) {
+                    pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors(),
+                            new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+
+                                @Override
+                                public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+                                    ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory
+                                            .newThread(pool);
+                                    thread.setName("PyDev indexing " + thread.getPoolIndex());
+                                    thread.setDaemon(true);
+                                    thread.setPriority(Thread.MIN_PRIORITY);
+                                    return thread;
+                                }
+                            }, null, false);
+                    indexingPool = pool;
+                }
+            }
+        }
+        return pool;
+    }
+
+    /**
+     * Computes the function for all the items (in parallel) and returns the results in the same order of the items.
+     *
+     * If the function throws an exception, it's logged and null is used as the result. If the monitor is cancelled,
+     * the items which were not processed have a null result.
+     */
+    public static <T, R> List<R> map(List<T> items, ICallback<R, T> function, IProgressMonitor monitor) {
+        Object[] results = new Object[items.size()];
+        MapTask<T, R> task = new MapTask<T, R>(items, function, monitor, results, 0, results.length);
+        if (USE_PARALLEL_INDEXING && results.length > MIN_ITEMS_PER_TASK) {
+            ForkJoinPool pool = getIndexingPool();
+            if (ForkJoinTask.inForkJoinPool()) {
+                task.invoke();
+            } else {
+                pool.invoke(task);
+            }
+        } else {
+            task.compute();
+        }
+        @SuppressWarnings("unchecked")
+        List<R> ret = (List<R>) Arrays.asList(results);
+        return ret;
+    }
+
+    /**
+     * Computes the function for all the items in parallel and passes the results to the consumer in the calling
+     * thread (in the same order of the items).
+     *
+     * The items are processed in windows: the next window is computed in the pool while the consumer is called
+     * with the results of the current one (so, it's possible to merge the results while the other results
+     * are still being computed and only a window of results is kept in memory).
+     *
+     * @return the number of items passed to the consumer (may be less than the number of items if the monitor is
+     * cancelled).
+     */
+    public static <T, R> int forEachOrdered(List<T> items, ICallback<R, T> function,
+            ICallback2<Object, T, R> consumer, int windowSize, IProgressMonitor monitor) {
+        int size = items.size();
+        if (!USE_PARALLEL_INDEXING || size <= MIN_ITEMS_PER_TASK) {
+            int i = 0;
+            for (; i < size && !monitor.isCanceled(); i++) {
+                T item = items.get(i);
+                consumer.call(item, apply(function, item));
+            }
+            return i;
+        }
+
+        ForkJoinPool pool = getIndexingPool();
+        int consumed = 0;
+        int start = 0;
+        Object[] results = new Object[Math.min(windowSize, size)];
+        ForkJoinTask<?> current = pool.submit(new MapTask<T, R>(items, function, monitor, results, 0, results.length));
+        ForkJoinTask<?> next = null;
+        try {
+            while (start < size) {
+                int end = Math.min(start + windowSize, size);
+                current.join();
+                Object[] currentResults = results;
+
+                //Start computing the next window before consuming the current one.
+                next = null;
+                if (end < size && !monitor.isCanceled()) {
+                    int nextEnd = Math.min(end + windowSize, size);
+                    results = new Object[nextEnd - end];
+                    next = pool.submit(new MapTask<T, R>(items.subList(end, nextEnd), function, monitor, results,
+                            0, results.length));
+                }
+                if (monitor.isCanceled()) {
+                    return consumed;
+                }
+                for (int i = start; i < end; i++) {
+                    @SuppressWarnings("unchecked")
+                    R result = (R) currentResults[i - start];
+                    consumer.call(items.get(i), result);
+                    consumed++;
+                }
+                if (next == null) {
+                    break;
+                }
+                current = next;
+                next = null;
+                start = end;
+            }
+        } finally {
+            //Don't leave the next window being computed if cancelled or if the consumer threw an exception.
+            if (next != null) {
+                next.cancel(false);
+            }
+        }
+        return consumed;
+    }
+
+    private static <T, R> R apply(ICallback<R, T> function, T item) {
+        try {
+            return function.call(item);
+        } catch (Throwable e) {
+            Log.log(e);
+            return null;
+        }
+    }
+
+    /**
+     * Splits the range until it has few items and then computes the function for each item in the range.
+     *
+     * The tasks created by splitting stop computing items when the root task is cancelled (cancelling a fork-join
+     * task doesn't stop it if it's already running nor the subtasks it forked).
+     */
+    private static final class MapTask<T, R> extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<T> items;
+        private final ICallback<R, T> function;
+        private final IProgressMonitor monitor;
+        private final Object[] results;
+        private final int start;
+        private final int end;
+        private final MapTask<T, R> root;
+
+        private MapTask(List<T> items, ICallback<R, T> function, IProgressMonitor monitor, Object[] results,
+                int start, int end) {
+            this(items, function, monitor, results, start, end, null);
+        }
+
+        private MapTask(List<T> items, ICallback<R, T> function, IProgressMonitor monitor, Object[] results,
+                int start, int end, MapTask<T, R> root) {
+            this.items = items;
+            this.function = function;
+            this.monitor = monitor;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+            this.root = root != null ? root : this;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start <= MIN_ITEMS_PER_TASK) {
+                for (int i = start; i < end; i++) {
+                    if (monitor.isCanceled() || root.isCancelled()) {
+                        return;
+                    }
+                    results[i] = apply(function, items.get(i));
+                }
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new MapTask<T, R>(items, function, monitor, results, start, mid, root), new MapTask<T, R>(
+                    items, function, monitor, results, mid, end, root));
+        }
+    }
+
+    /**
+     * @return a monitor to be used in the worker threads: only the cancellation is forwarded to the passed monitor
+     * (progress reporting is usually not thread-safe).
+     */
+    public static IProgressMonitor createCancelOnlyMonitor(final IProgressMonitor monitor) {
+        return new NullProgressMonitor() {
+
+            @Override
+            public boolean isCanceled() {
+                return monitor.isCanceled();
+            }
+
+            @Override
+            public void setCanceled(boolean cancelled) {
+                monitor.setCanceled(cancelled);
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.threaded_objects_pool;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class ThreadedObjectsPoolTest extends TestCase {
+
+    public void testPool() throws Exception {
+        ThreadedObjectsPool<String> pool = new ThreadedObjectsPool<>(2);
+        assertEquals(2, pool.getMaxSize());
+        assertEquals(0, pool.size());
+        assertNull(pool.getObject(true));
+
+        assertEquals(0, pool.putObject(true, "a").size());
+        assertEquals(0, pool.putObject(false, "b").size());
+        assertEquals(2, pool.size());
+
+        //the oldest is removed (and returned) when the pool is full.
+        assertEquals(Arrays.asList("a"), pool.putObject(false, "c"));
+        assertEquals(2, pool.size());
+        assertNull(pool.getObject(true));
+
+        assertEquals("b", pool.getObject(false));
+        assertEquals("c", pool.getObject(false));
+        assertNull(pool.getObject(false));
+        assertEquals(0, pool.size());
+    }
+
+    public void testRemoveObject() throws Exception {
+        ThreadedObjectsPool<String> pool = new ThreadedObjectsPool<>(2);
+        String a = new String("a");
+        pool.putObject(true, a);
+        pool.putObject(true, "b");
+
+        assertFalse(pool.removeObject(new String("a"))); //only the same instance is removed
+        assertTrue(pool.removeObject(a));
+        assertFalse(pool.removeObject(a));
+        assertEquals(1, pool.size());
+        assertEquals("b", pool.getObject(true));
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_core.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback2;
+
+public class ParallelUtilsTest extends TestCase {
+
+    private List<Integer> createItems(int size) {
+        List<Integer> items = new ArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(i);
+        }
+        return items;
+    }
+
+    private final ICallback<String, Integer> toStr = new ICallback<String, Integer>() {
+
+        public String call(Integer arg) {
+            if (arg % 7 == 0) {
+                Thread.yield(); //just to mix the order in which things are computed a bit.
+            }
+            return "item" + arg;
+        }
+    };
+
+    public void testMapKeepsOrder() throws Exception {
+        List<Integer> items = createItems(1000);
+        List<String> results = ParallelUtils.map(items, toStr, new NullProgressMonitor());
+        assertEquals(1000, results.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("item" + i, results.get(i));
+        }
+
+        assertEquals(0, ParallelUtils.map(new ArrayList<Integer>(), toStr, new NullProgressMonitor()).size());
+    }
+
+    public void testMapWithErrors() throws Exception {
+        List<Integer> items = createItems(50);
+        List<String> results = ParallelUtils.map(items, new ICallback<String, Integer>() {
+
+            public String call(Integer arg) {
+                if (arg == 10) {
+                    throw new RuntimeException("Expected error (in test)");
+                }
+                return "item" + arg;
+            }
+        }, new NullProgressMonitor());
+        assertNull(results.get(10));
+        assertEquals("item11", results.get(11));
+    }
+
+    public void testForEachOrdered() throws Exception {
+        final Thread currentThread = Thread.currentThread();
+        final List<String> consumed = new ArrayList<String>();
+        List<Integer> items = createItems(1000);
+        int count = ParallelUtils.forEachOrdered(items, toStr, new ICallback2<Object, Integer, String>() {
+
+            public Object call(Integer item, String result) {
+                assertSame(currentThread, Thread.currentThread());
+                assertEquals("item" + item, result);
+                consumed.add(result);
+                return null;
+            }
+        }, 64, new NullProgressMonitor());
+        assertEquals(1000, count);
+        assertEquals(1000, consumed.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("item" + i, consumed.get(i));
+        }
+    }
+
+    public void testForEachOrderedCancel() throws Exception {
+        final NullProgressMonitor monitor = new NullProgressMonitor();
+        final List<String> consumed = new ArrayList<String>();
+        int count = ParallelUtils.forEachOrdered(createItems(1000), toStr, new ICallback2<Object, Integer, String>() {
+
+            public Object call(Integer item, String result) {
+                consumed.add(result);
+                if (item == 20) {
+                    monitor.setCanceled(true);
+                }
+                return null;
+            }
+        }, 16, monitor);
+        assertEquals(consumed.size(), count);
+        assertTrue(count < 1000);
+        assertEquals("item20", consumed.get(20));
+    }
+
+    public void testForEachOrderedConsumerThrows() throws Exception {
+        //Items of the next window (32-47) block until the consumer throws in the current one (16-31) -- and the
+        //consumer only throws after the next window started being computed.
+        final CountDownLatch nextWindowStarted = new CountDownLatch(1);
+        final CountDownLatch consumerThrew = new CountDownLatch(1);
+        final Set<Integer> started = Collections.synchronizedSet(new HashSet<Integer>());
+        ICallback<String, Integer> function = new ICallback<String, Integer>() {
+
+            public String call(Integer arg) {
+                if (arg >= 32) {
+                    started.add(arg);
+                    nextWindowStarted.countDown();
+                    try {
+                        consumerThrew.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return "item" + arg;
+            }
+        };
+        try {
+            ParallelUtils.forEachOrdered(createItems(1000), function, new ICallback2<Object, Integer, String>() {
+
+                public Object call(Integer item, String result) {
+                    if (item == 20) {
+                        try {
+                            assertTrue(nextWindowStarted.await(10, TimeUnit.SECONDS));
+                        } catch (InterruptedException e) {
+                            throw new RuntimeException(e);
+                        }
+                        throw new IllegalStateException("stop");
+                    }
+                    return null;
+                }
+            }, 16, new NullProgressMonitor());
+            fail("Expected exception from the consumer.");
+        } catch (IllegalStateException e) {
+            assertEquals("stop", e.getMessage());
+        } finally {
+            consumerThrew.countDown();
+        }
+        assertTrue(ParallelUtils.getIndexingPool().awaitQuiescence(10, TimeUnit.SECONDS));
+
+        //The next window was cancelled: only the items which were already being computed when the consumer threw
+        //(at most the first item of each of its 4 leaf tasks) were computed and the window after it wasn't started.
+        synchronized (started) {
+            assertFalse(started.isEmpty());
+            assertTrue("Started: " + started, started.size() <= 4);
+            for (Integer i : started) {
+                assertTrue("Started: " + started, i < 48 && i % 4 == 0);
+            }
+        }
+
+        //the pool is still usable afterwards.
+        List<String> results = ParallelUtils.map(createItems(100), toStr, new NullProgressMonitor());
+        assertEquals("item99", results.get(99));
+    }
+
+    public void testSequential() throws Exception {
+        ParallelUtils.USE_PARALLEL_INDEXING = false;
+        try {
+            List<String> results = ParallelUtils.map(createItems(100), toStr, new NullProgressMonitor());
+            assertEquals("item99", results.get(99));
+        } finally {
+            ParallelUtils.USE_PARALLEL_INDEXING = true;
+        }
+    }
+}
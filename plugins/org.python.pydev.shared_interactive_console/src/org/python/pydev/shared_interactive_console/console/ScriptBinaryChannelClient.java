@@ -0,0 +1,447 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.shared_interactive_console.console;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlrpc.XmlRpcException;
+import org.apache.xmlrpc.XmlRpcHandler;
+import org.apache.xmlrpc.XmlRpcRequest;
+import org.apache.xmlrpc.XmlRpcRequestConfig;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.log.Log;
+import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.structure.Tuple;
+
+/**
+ * Client which talks with the console through a single persistent socket (instead of doing a new xml-rpc
+ * request for each call). The stdout/stderr of the console also arrive through this channel.
+ *
+ * The channel is negotiated through xml-rpc (the console is asked to connect to a port where we're listening
+ * with 'connectBinaryChannel'), and if the channel is closed, the calls are delegated to the xml-rpc client.
+ *
+ * Each message is a frame with 4 bytes (big endian) with the size of the payload followed by the payload, which
+ * has 1 byte with the message type (MSG_XXX), 4 bytes with the request id (each side has its own ids for its
+ * requests) and the encoded value (1 byte with the type -- TYPE_XXX -- followed by its contents).
+ *
+ * Note: keep in sync with pydev_console_binary_channel.py.
+ */
+public class ScriptBinaryChannelClient implements IXmlRpcClient {
+
+    public static final byte MSG_REQUEST = 1;
+    public static final byte MSG_RESPONSE = 2;
+    public static final byte MSG_ERROR = 3;
+    public static final byte MSG_STDOUT = 4;
+    public static final byte MSG_STDERR = 5;
+
+    public static final byte TYPE_NONE = 'N';
+    public static final byte TYPE_TRUE = 'T';
+    public static final byte TYPE_FALSE = 'F';
+    public static final byte TYPE_INT = 'I';
+    public static final byte TYPE_LONG = 'L';
+    public static final byte TYPE_DOUBLE = 'D';
+    public static final byte TYPE_STRING = 'S';
+    public static final byte TYPE_LIST = 'A';
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Response of a request we did (while result == NO_RESULT, it's still pending). If the request failed in the
+     * console (or the channel was closed before the answer arrived), the result is the error message and failed is
+     * true.
+     */
+    private static final class PendingResponse {
+
+        private static final Object NO_RESULT = new Object();
+
+        private Object result = NO_RESULT;
+
+        private boolean failed = false;
+
+        public synchronized void set(Object result) {
+            this.result = result;
+            this.notifyAll();
+        }
+
+        public synchronized void setFailed(Object error) {
+            this.failed = true;
+            set(error);
+        }
+    }
+
+    /**
+     * Request done by the console (passed to the requestsHandler).
+     */
+    private static final class ChannelRequest implements XmlRpcRequest {
+
+        private final String methodName;
+        private final Object[] params;
+
+        private ChannelRequest(String methodName, Object[] params) {
+            this.methodName = methodName;
+            this.params = params;
+        }
+
+        public XmlRpcRequestConfig getConfig() {
+            return null;
+        }
+
+        public String getMethodName() {
+            return methodName;
+        }
+
+        public int getParameterCount() {
+            return params.length;
+        }
+
+        public Object getParameter(int pIndex) {
+            return params[pIndex];
+        }
+    }
+
+    private final Socket socket;
+
+    private final DataInputStream in;
+
+    private final DataOutputStream out;
+
+    /**
+     * The process where the console is being executed.
+     */
+    private final Process process;
+
+    /**
+     * Client used if the channel is closed.
+     */
+    private final IXmlRpcClient fallback;
+
+    /**
+     * Handles the requests done by the console (i.e.: RequestInput, NotifyFinished).
+     */
+    private final XmlRpcHandler requestsHandler;
+
+    /**
+     * Receives the contents written to stdout/stderr in the console.
+     */
+    private final ICallback<Object, Tuple<String, String>> onContentsReceived;
+
+    private final Map<Integer, PendingResponse> pending = new HashMap<Integer, PendingResponse>();
+
+    private int nextId = 0;
+
+    private volatile boolean closed = false;
+
+    /**
+     * Constructor (see fields description). Starts reading from the given socket.
+     */
+    public ScriptBinaryChannelClient(Socket socket, Process process, IXmlRpcClient fallback,
+            XmlRpcHandler requestsHandler, ICallback<Object, Tuple<String, String>> onContentsReceived)
+            throws IOException {
+        this.socket = socket;
+        this.socket.setTcpNoDelay(true);
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.process = process;
+        this.fallback = fallback;
+        this.requestsHandler = requestsHandler;
+        this.onContentsReceived = onContentsReceived;
+
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                readLoop();
+            }
+        };
+        reader.setName("ScriptBinaryChannelClient reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Not used: the port is already connected (the fallback keeps the port it had).
+     */
+    public void setPort(int port) {
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Executes a command in the console (if the channel was closed, the command is executed through xml-rpc).
+     *
+     * As in the ScriptXmlRpcClient, we stop waiting if the process dies.
+     *
+     * @return the result from executing the given command in the server (or a string with the error).
+     * @throws XmlRpcException if the command failed in the console (as the xml-rpc client does) or if the channel
+     * was closed while waiting for the answer (in which case we can't know whether the command was executed, so,
+     * it's not re-issued through xml-rpc).
+     */
+    public Object execute(String command, Object[] args) throws XmlRpcException {
+        String exitMsg = getExitMsg();
+        if (exitMsg != null) {
+            return exitMsg;
+        }
+        if (closed) {
+            return fallback.execute(command, args);
+        }
+
+        PendingResponse response = new PendingResponse();
+        int id;
+        synchronized (pending) {
+            id = ++nextId;
+            pending.put(id, response);
+        }
+        try {
+            send(MSG_REQUEST, id, new Object[] { command, args });
+        } catch (IOException e) {
+            synchronized (pending) {
+                pending.remove(id);
+            }
+            close();
+            return fallback.execute(command, args);
+        }
+
+        synchronized (response) {
+            while (response.result == PendingResponse.NO_RESULT) {
+                exitMsg = getExitMsg();
+                if (exitMsg != null) {
+                    return exitMsg;
+                }
+                try {
+                    response.wait(50);
+                } catch (InterruptedException e) {
+                    //ignore
+                }
+            }
+            if (response.failed) {
+                throw new XmlRpcException(String.valueOf(response.result));
+            }
+            return response.result;
+        }
+    }
+
+    private String getExitMsg() {
+        if (process != null) {
+            try {
+                int exitValue = process.exitValue();
+                return StringUtils.format("Console already exited with value: %s while waiting for an answer.\n",
+                        exitValue);
+            } catch (IllegalThreadStateException e) {
+                // Ok, keep on going
+            }
+        }
+        return null;
+    }
+
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException e) {
+            //ignore
+        }
+        PendingResponse[] responses;
+        synchronized (pending) {
+            responses = pending.values().toArray(new PendingResponse[pending.size()]);
+            pending.clear();
+        }
+        for (PendingResponse response : responses) {
+            response.setFailed("Console communication channel closed while waiting for an answer.");
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (!closed) {
+                byte[] payload = new byte[in.readInt()];
+                in.readFully(payload);
+                DataInputStream payloadIn = new DataInputStream(new ByteArrayInputStream(payload));
+                byte msgType = payloadIn.readByte();
+                int id = payloadIn.readInt();
+                Object value = readValue(payloadIn);
+
+                switch (msgType) {
+                    case MSG_RESPONSE:
+                    case MSG_ERROR:
+                        PendingResponse response;
+                        synchronized (pending) {
+                            response = pending.remove(id);
+                        }
+                        if (response != null) {
+                            if (msgType == MSG_ERROR) {
+                                response.setFailed(value);
+                            } else {
+                                response.set(value);
+                            }
+                        }
+                        break;
+
+                    case MSG_STDOUT:
+                        onContentsReceived.call(new Tuple<String, String>((String) value, ""));
+                        break;
+
+                    case MSG_STDERR:
+                        onContentsReceived.call(new Tuple<String, String>("", (String) value));
+                        break;
+
+                    case MSG_REQUEST:
+                        handleRequest(id, (Object[]) value);
+                        break;
+
+                    default:
+                        Log.log("Unexpected message type in console channel: " + msgType);
+                }
+            }
+        } catch (IOException e) {
+            //Closed (either by us or by the console).
+        } catch (Exception e) {
+            Log.log(e);
+        }
+        close();
+    }
+
+    /**
+     * Requests from the console are handled in a separate thread as they may block (i.e.: RequestInput waits
+     * for the user to enter something) and we must keep on reading.
+     */
+    private void handleRequest(final int id, final Object[] request) {
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                byte msgType = MSG_RESPONSE;
+                Object result;
+                try {
+                    result = requestsHandler.execute(new ChannelRequest((String) request[0], (Object[]) request[1]));
+                } catch (Exception e) {
+                    Log.log(e);
+                    msgType = MSG_ERROR;
+                    result = e.getMessage();
+                }
+                try {
+                    send(msgType, id, result);
+                } catch (IOException e) {
+                    close();
+                }
+            }
+        };
+        thread.setName("ScriptBinaryChannelClient request: " + request[0]);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void send(byte msgType, int id, Object value) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeByte(msgType);
+        payload.writeInt(id);
+        writeValue(payload, value);
+        payload.flush();
+
+        synchronized (out) {
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+            out.flush();
+        }
+    }
+
+    public static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(TYPE_NONE);
+
+        } else if (value instanceof Boolean) {
+            out.writeByte(((Boolean) value) ? TYPE_TRUE : TYPE_FALSE);
+
+        } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            out.writeByte(TYPE_INT);
+            out.writeInt(((Number) value).intValue());
+
+        } else if (value instanceof Long) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong((Long) value);
+
+        } else if (value instanceof Double || value instanceof Float) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(((Number) value).doubleValue());
+
+        } else if (value instanceof Object[]) {
+            Object[] array = (Object[]) value;
+            out.writeByte(TYPE_LIST);
+            out.writeInt(array.length);
+            for (Object o : array) {
+                writeValue(out, o);
+            }
+
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.writeByte(TYPE_LIST);
+            out.writeInt(list.size());
+            for (Object o : list) {
+                writeValue(out, o);
+            }
+
+        } else {
+            byte[] bytes = value.toString().getBytes(UTF_8);
+            out.writeByte(TYPE_STRING);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * @return the value read (lists are returned as Object[], as it happens in xml-rpc).
+     */
+    public static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case TYPE_NONE:
+                return null;
+
+            case TYPE_TRUE:
+                return Boolean.TRUE;
+
+            case TYPE_FALSE:
+                return Boolean.FALSE;
+
+            case TYPE_INT:
+                return in.readInt();
+
+            case TYPE_LONG:
+                return in.readLong();
+
+            case TYPE_DOUBLE:
+                return in.readDouble();
+
+            case TYPE_STRING:
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                return new String(bytes, UTF_8);
+
+            case TYPE_LIST:
+                Object[] ret = new Object[in.readInt()];
+                for (int i = 0; i < ret.length; i++) {
+                    ret[i] = readValue(in);
+                }
+                return ret;
+        }
+        throw new IOException("Unexpected value type: " + type);
+    }
+}
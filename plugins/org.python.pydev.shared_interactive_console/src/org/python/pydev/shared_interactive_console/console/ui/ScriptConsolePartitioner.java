@@ -92,29 +92,66 @@ public class ScriptConsolePartitioner implements IConsoleDocumentPartitioner {
         return foreground.equals(foreground2);
     }
 
+    /**
+     * Removes the given number of chars from the start of the document (i.e.: when the start of the console
+     * is trimmed): the ranges in that area are removed and the others are moved to the new positions.
+     *
+     * @param length the number of chars removed from the start of the document.
+     */
+    public void removeStart(int length) {
+        if (length <= 0) {
+            return;
+        }
+        int i = getFirstRangeEndingAfter(length);
+        ranges.subList(0, i).clear();
+
+        for (ScriptStyleRange r : ranges) {
+            if (r.start < length) {
+                r.length -= length - r.start;
+                r.start = 0;
+            } else {
+                r.start -= length;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the first range which ends after the given offset (or ranges.size() if there's none).
+     *
+     * Note: as the ranges are added sequentially and don't overlap, they're sorted (so, a binary search is used).
+     */
+    private int getFirstRangeEndingAfter(int offset) {
+        int low = 0;
+        int high = ranges.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            ScriptStyleRange r = ranges.get(mid);
+            if (r.start + r.length > offset) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
     /**
      * @return the ranges that intersect with the given offset/length.
      */
     public ScriptStyleRange[] getStyleRanges(int offset, int length) {
         int lastOffset = -1;
 
-        boolean found = false;
-
         List<ScriptStyleRange> result = new ArrayList<ScriptStyleRange>();
-        for (int i = ranges.size() - 1; i >= 0; i--) {
+        int size = ranges.size();
+        for (int i = getFirstRangeEndingAfter(offset); i < size; i++) {
             ScriptStyleRange r = ranges.get(i);
-            if ((r.start >= offset && r.start <= offset + length) || (r.start < offset && r.start + r.length > offset)) {
-                found = true;
-                //it must always be a copy because it may be changed later by the TextConsole when
-                //some hyperlink has a matching position.
-                result.add(0, (ScriptStyleRange) r.clone());
-                if (lastOffset == -1) {
-                    lastOffset = r.start + r.length;
-                }
-            } else if (found) {
-                //break on 1st not found (after finding the 1st)
+            if (r.start > offset + length) {
                 break;
             }
+            //it must always be a copy because it may be changed later by the TextConsole when
+            //some hyperlink has a matching position.
+            result.add((ScriptStyleRange) r.clone());
+            lastOffset = r.start + r.length;
         }
 
         if (lastOffset == -1) {
@@ -31,4 +31,8 @@ public class ScriptConsoleUIConstants {
     public static final String INTERACTIVE_CONSOLE_PERSISTENT_HISTORY_MAXIMUM_ENTRIES = "INTERACTIVE_CONSOLE_PERSISTENT_HISTORY_MAXIMUM_ENTRIES";
 
     public static final int DEFAULT_INTERACTIVE_CONSOLE_PERSISTENT_HISTORY_MAXIMUM_ENTRIES = 200;
+
+    public static final String INTERACTIVE_CONSOLE_MAXIMUM_OUTPUT_LINES = "INTERACTIVE_CONSOLE_MAXIMUM_OUTPUT_LINES";
+
+    public static final int DEFAULT_INTERACTIVE_CONSOLE_MAXIMUM_OUTPUT_LINES = 20000;
 }
@@ -27,6 +27,7 @@ import org.eclipse.jface.text.IDocumentPartitioner;
 import org.eclipse.jface.text.Region;
 import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.jface.text.contentassist.ICompletionProposal;
+import org.python.pydev.shared_core.SharedCorePlugin;
 import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.log.Log;
 import org.python.pydev.shared_core.string.FastStringBuffer;
@@ -34,12 +35,14 @@ import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.string.TextSelectionUtils;
 import org.python.pydev.shared_core.structure.Tuple;
 import org.python.pydev.shared_core.utils.DocCmd;
+import org.python.pydev.shared_interactive_console.InteractiveConsolePlugin;
 import org.python.pydev.shared_interactive_console.console.InterpreterResponse;
 import org.python.pydev.shared_interactive_console.console.ScriptConsoleHistory;
 import org.python.pydev.shared_interactive_console.console.ScriptConsolePrompt;
 import org.python.pydev.shared_interactive_console.console.ui.IConsoleStyleProvider;
 import org.python.pydev.shared_interactive_console.console.ui.IScriptConsoleSession;
 import org.python.pydev.shared_interactive_console.console.ui.ScriptConsolePartitioner;
+import org.python.pydev.shared_interactive_console.console.ui.ScriptConsoleUIConstants;
 import org.python.pydev.shared_interactive_console.console.ui.ScriptStyleRange;
 import org.python.pydev.shared_ui.utils.RunInUiThread;
 
@@ -225,43 +228,16 @@ public class ScriptConsoleDocumentListener implements IDocumentListener {
 
             public Object call(final Tuple<String, String> result) {
                 if (result.o1.length() > 0 || result.o2.length() > 0) {
-                    Runnable runnable = new Runnable() {
-
-                        public void run() {
-                            startDisconnected();
-                            PromptContext pc;
-                            try {
-                                pc = removeUserInput();
-                                IScriptConsoleSession consoleSession = ScriptConsoleDocumentListener.this.viewer
-                                        .getConsoleSession();
-                                if (result.o1.length() > 0) {
-                                    if (consoleSession != null) {
-                                        consoleSession.onStdoutContentsReceived(result.o1);
-                                    }
-                                    addToConsoleView(result.o1, true, true);
-                                }
-                                if (result.o2.length() > 0) {
-                                    if (consoleSession != null) {
-                                        consoleSession.onStderrContentsReceived(result.o2);
-                                    }
-                                    addToConsoleView(result.o2, false, true);
-                                }
-                                if (pc.removedPrompt) {
-                                    appendInvitation(false);
-                                }
-                            } finally {
-                                stopDisconnected();
-                            }
-
-                            if (pc.removedPrompt) {
-                                appendText(pc.userInput);
-                                ScriptConsoleDocumentListener.this.viewer.setCaretOffset(doc.getLength()
-                                        - pc.cursorOffset, false);
-                            }
-
-                        }
-                    };
-                    RunInUiThread.async(runnable);
+                    boolean schedule;
+                    synchronized (pendingOutput) {
+                        addPendingOutput(result.o1, true);
+                        addPendingOutput(result.o2, false);
+                        schedule = !flushPendingOutputScheduled;
+                        flushPendingOutputScheduled = true;
+                    }
+                    if (schedule) {
+                        RunInUiThread.async(flushPendingOutput);
+                    }
                 }
                 return null;
             }
@@ -271,6 +247,148 @@ public class ScriptConsoleDocumentListener implements IDocumentListener {
         handler.setOnContentsReceivedCallback(onContentsReceived);
     }
 
+    /**
+     * Maximum number of chars added to the console in a single run in the UI thread (if more output is pending,
+     * it's added in a new run, so that the UI is still responsive when a lot of output is received).
+     */
+    private static final int MAX_OUTPUT_CHARS_PER_FLUSH = 64 * 1024;
+
+    /**
+     * Output received from the interpreter that still wasn't added to the console (in the order it was received).
+     */
+    private final List<PendingOutput> pendingOutput = new ArrayList<PendingOutput>();
+
+    /**
+     * Whether flushPendingOutput is already scheduled to run in the UI thread (synchronized with pendingOutput).
+     */
+    private boolean flushPendingOutputScheduled;
+
+    private static final class PendingOutput {
+
+        private final boolean stdout;
+        private final FastStringBuffer contents = new FastStringBuffer();
+
+        private PendingOutput(boolean stdout) {
+            this.stdout = stdout;
+        }
+    }
+
+    /**
+     * Adds the given contents to the output to be added to the console (joining with the last pending output if
+     * it's from the same stream).
+     *
+     * Must be called synchronized with pendingOutput.
+     */
+    private void addPendingOutput(String contents, boolean stdout) {
+        if (contents.length() == 0) {
+            return;
+        }
+        PendingOutput last = null;
+        int size = pendingOutput.size();
+        if (size > 0) {
+            last = pendingOutput.get(size - 1);
+            if (last.stdout != stdout || last.contents.length() >= MAX_OUTPUT_CHARS_PER_FLUSH) {
+                last = null;
+            }
+        }
+        if (last == null) {
+            last = new PendingOutput(stdout);
+            pendingOutput.add(last);
+        }
+        last.contents.append(contents);
+    }
+
+    /**
+     * Adds the pending output to the console (must be run in the UI thread).
+     */
+    private final Runnable flushPendingOutput = new Runnable() {
+
+        public void run() {
+            List<PendingOutput> output = new ArrayList<PendingOutput>();
+            boolean reschedule;
+            synchronized (pendingOutput) {
+                int chars = 0;
+                while (pendingOutput.size() > 0 && chars < MAX_OUTPUT_CHARS_PER_FLUSH) {
+                    PendingOutput o = pendingOutput.remove(0);
+                    chars += o.contents.length();
+                    output.add(o);
+                }
+                reschedule = pendingOutput.size() > 0;
+                flushPendingOutputScheduled = reschedule;
+            }
+            if (output.size() > 0) {
+                addOutputToConsole(output);
+            }
+            if (reschedule) {
+                RunInUiThread.async(this);
+            }
+        }
+    };
+
+    private void addOutputToConsole(List<PendingOutput> output) {
+        startDisconnected();
+        PromptContext pc;
+        try {
+            pc = removeUserInput();
+            IScriptConsoleSession consoleSession = this.viewer.getConsoleSession();
+            for (PendingOutput o : output) {
+                String contents = o.contents.toString();
+                if (consoleSession != null) {
+                    if (o.stdout) {
+                        consoleSession.onStdoutContentsReceived(contents);
+                    } else {
+                        consoleSession.onStderrContentsReceived(contents);
+                    }
+                }
+                addToConsoleView(contents, o.stdout, true);
+            }
+            trimStartOfConsole();
+            if (pc.removedPrompt) {
+                appendInvitation(false);
+            }
+        } finally {
+            stopDisconnected();
+        }
+
+        if (pc.removedPrompt) {
+            appendText(pc.userInput);
+            this.viewer.setCaretOffset(doc.getLength() - pc.cursorOffset, false);
+        }
+    }
+
+    /**
+     * Removes the lines at the start of the console which exceed the maximum number of lines configured.
+     */
+    private void trimStartOfConsole() {
+        int maxLines = getMaximumOutputLines();
+        if (maxLines <= 0) {
+            return;
+        }
+        int linesToRemove = doc.getNumberOfLines() - maxLines;
+        if (linesToRemove <= 0) {
+            return;
+        }
+        try {
+            int length = doc.getLineOffset(linesToRemove);
+            //remove from the partitioner before changing the document (as the styles are asked for right away).
+            IDocumentPartitioner partitioner = this.doc.getDocumentPartitioner();
+            if (partitioner instanceof ScriptConsolePartitioner) {
+                ((ScriptConsolePartitioner) partitioner).removeStart(length);
+            }
+            doc.replace(0, length, "");
+        } catch (BadLocationException e) {
+            Log.log(e);
+        }
+    }
+
+    private int getMaximumOutputLines() {
+        if (SharedCorePlugin.inTestMode()) {
+            return ScriptConsoleUIConstants.DEFAULT_INTERACTIVE_CONSOLE_MAXIMUM_OUTPUT_LINES;
+        }
+        return InteractiveConsolePlugin.getDefault().getPreferenceStore()
+                .getInt(ScriptConsoleUIConstants.INTERACTIVE_CONSOLE_MAXIMUM_OUTPUT_LINES);
+    }
+
     private class PromptContext {
         public boolean removedPrompt;
         // offset from the end of the document.
@@ -93,6 +93,7 @@ MSG_JYTHON_INVALID_REQUEST = '@@JYTHON_INVALID_REQUEST'
 MSG_CHANGE_DIR = '@@CHANGE_DIR:'
 MSG_OK = '@@MSG_OK_END@@'
 MSG_IMPORTS = '@@IMPORTS:'
+MSG_IMPORTS_BATCH = '@@IMPORTS_BATCH:'
 MSG_PYTHONPATH = '@@PYTHONPATH_END@@'
 MSG_CHANGE_PYTHONPATH = '@@CHANGE_PYTHONPATH:'
 MSG_JEDI = '@@MSG_JEDI:'
@@ -157,6 +158,20 @@ class Processor:
         Format the completions suggestions in the following format:
         @@COMPLETIONS(modFile(token,description),(token,description),(token,description))END@@
         '''
+        return '%s%s%s' % (MSG_COMPLETIONS, self.formatCompletionContents(defFile, completionsList), MSG_END)
+
+    def formatBatchCompletionMessage(self, contents):
+        '''
+        Format the completions for many modules (each item in contents is the result of formatCompletionContents):
+        @@COMPLETIONS(modFile(token,description))\n(modFile(token,description))END@@
+        '''
+        return '%s%s%s' % (MSG_COMPLETIONS, '\n'.join(contents), MSG_END)
+
+    def formatCompletionContents(self, defFile, completionsList):
+        '''
+        Format the completions suggestions in the following format (without the message prefix/suffix):
+        (modFile(token,description),(token,description),(token,description))
+        '''
         compMsg = []
         compMsg.append('%s' % defFile)
         for tup in completionsList:
@@ -177,7 +192,7 @@ class Processor:
 
             compMsg.append(')')
 
-        return '%s(%s)%s' % (MSG_COMPLETIONS, ''.join(compMsg), MSG_END)
+        return '(%s)' % (''.join(compMsg),)
 
 class Exit(Exception):
     pass
@@ -293,6 +308,25 @@ class CompletionServer:
                                 defFile, comps = _pydev_imports_tipper.GenerateTip(data, log)
                                 self.send(self.getCompletionsMessage(defFile, comps))
 
+                            elif data.startswith(MSG_IMPORTS_BATCH):
+                                data = data[len(MSG_IMPORTS_BATCH):]
+                                data = unquote_plus(data)
+                                contents = []
+                                for mod in data.split('|'):
+                                    try:
+                                        defFile, comps = _pydev_imports_tipper.GenerateTip(mod, log)
+                                        if defFile is not None:
+                                            defFile = str(defFile).replace('\n', ' ')  # newlines separate modules
+                                    except Exit:
+                                        raise
+                                    except:
+                                        s = StringIO.StringIO()
+                                        traceback.print_exc(file=s)
+                                        defFile, comps = None, [('ERROR:', '%s\nLog:%s' % (s.getvalue(), log.GetContents()), '')]
+                                    contents.append(self.processor.formatCompletionContents(defFile, comps))
+                                    log.Clear()
+                                self.send(self.processor.formatBatchCompletionMessage(contents))
+
                             elif data.startswith(MSG_CHANGE_PYTHONPATH):
                                 data = data[len(MSG_CHANGE_PYTHONPATH):]
                                 data = unquote_plus(data)
@@ -0,0 +1,406 @@
+'''
+Binary channel used by the interactive console to talk with PyDev through a single persistent socket (instead of
+doing a new xml-rpc request for each call). It's negotiated through xml-rpc (PyDev calls connectBinaryChannel with
+a port where it's listening), so, if it's not available, xml-rpc is still used.
+
+Each message is a frame: 4 bytes (big endian) with the size of the payload followed by the payload, which is:
+
+    1 byte with the message type (MSG_XXX)
+    4 bytes (big endian) with the request id (each side has its own ids for its requests)
+    the encoded value:
+        MSG_REQUEST: [method name, [args]]
+        MSG_RESPONSE: the value returned
+        MSG_ERROR: a string with the error
+        MSG_STDOUT/MSG_STDERR: a string with the contents written to the stream
+
+The values are encoded as 1 byte with the type (TYPE_XXX) followed by its contents:
+
+    TYPE_NONE, TYPE_TRUE, TYPE_FALSE: no contents
+    TYPE_INT: 4 bytes / TYPE_LONG: 8 bytes / TYPE_DOUBLE: 8 bytes (big endian)
+    TYPE_STRING: 4 bytes with the size followed by the string encoded in utf-8
+    TYPE_LIST: 4 bytes with the number of items followed by the items
+
+Note: keep in sync with ScriptBinaryChannelClient.java.
+'''
+import socket
+import struct
+import sys
+import traceback
+
+from _pydev_imps import _pydev_thread as thread
+from pydev_imports import _queue
+
+IS_PY3K = sys.version_info[0] >= 3
+
+MSG_REQUEST = 1
+MSG_RESPONSE = 2
+MSG_ERROR = 3
+MSG_STDOUT = 4
+MSG_STDERR = 5
+
+TYPE_NONE = ord('N')
+TYPE_TRUE = ord('T')
+TYPE_FALSE = ord('F')
+TYPE_INT = ord('I')
+TYPE_LONG = ord('L')
+TYPE_DOUBLE = ord('D')
+TYPE_STRING = ord('S')
+TYPE_LIST = ord('A')
+
+if IS_PY3K:
+    string_types = (str,)
+    int_types = (int,)
+
+    def _to_unicode(s):
+        if isinstance(s, bytes):
+            return s.decode('utf-8', 'replace')
+        return s
+
+else:
+    string_types = (str, unicode)
+    int_types = (int, long)
+
+    def _to_unicode(s):
+        if isinstance(s, str):
+            return s.decode('utf-8', 'replace')
+        return s
+
+
+#=======================================================================================================================
+# Encoding/decoding
+#=======================================================================================================================
+def encode_value(value, parts):
+    if value is None:
+        parts.append(struct.pack('>B', TYPE_NONE))
+
+    elif value is True:
+        parts.append(struct.pack('>B', TYPE_TRUE))
+
+    elif value is False:
+        parts.append(struct.pack('>B', TYPE_FALSE))
+
+    elif isinstance(value, int_types):
+        if -2147483648 <= value <= 2147483647:
+            parts.append(struct.pack('>Bi', TYPE_INT, value))
+        else:
+            parts.append(struct.pack('>Bq', TYPE_LONG, value))
+
+    elif isinstance(value, float):
+        parts.append(struct.pack('>Bd', TYPE_DOUBLE, value))
+
+    elif isinstance(value, (list, tuple)):
+        parts.append(struct.pack('>Bi', TYPE_LIST, len(value)))
+        for v in value:
+            encode_value(v, parts)
+
+    else:
+        if not isinstance(value, string_types):
+            value = str(value)
+        encoded = _to_unicode(value).encode('utf-8')
+        parts.append(struct.pack('>Bi', TYPE_STRING, len(encoded)))
+        parts.append(encoded)
+
+
+def decode_value(data, i):
+    '''
+    :return: tuple(value, index after the value)
+    '''
+    value_type = struct.unpack('>B', data[i:i + 1])[0]
+    i += 1
+    if value_type == TYPE_NONE:
+        return None, i
+
+    if value_type == TYPE_TRUE:
+        return True, i
+
+    if value_type == TYPE_FALSE:
+        return False, i
+
+    if value_type == TYPE_INT:
+        return struct.unpack('>i', data[i:i + 4])[0], i + 4
+
+    if value_type == TYPE_LONG:
+        return struct.unpack('>q', data[i:i + 8])[0], i + 8
+
+    if value_type == TYPE_DOUBLE:
+        return struct.unpack('>d', data[i:i + 8])[0], i + 8
+
+    if value_type == TYPE_STRING:
+        size = struct.unpack('>i', data[i:i + 4])[0]
+        i += 4
+        value = data[i:i + size].decode('utf-8')
+        if not IS_PY3K:
+            try:
+                value = value.encode('ascii')  # Give a str (as xml-rpc does) when possible.
+            except UnicodeError:
+                pass
+        return value, i + size
+
+    if value_type == TYPE_LIST:
+        size = struct.unpack('>i', data[i:i + 4])[0]
+        i += 4
+        ret = []
+        for _j in range(size):
+            value, i = decode_value(data, i)
+            ret.append(value)
+        return ret, i
+
+    raise ValueError('Unexpected value type: %s' % (value_type,))
+
+
+def encode_message(msg_type, request_id, value):
+    parts = [None]
+    encode_value(value, parts)
+    parts[0] = ''.encode('ascii')
+    payload = parts[0].join(parts[1:])
+    return struct.pack('>iBi', len(payload) + 5, msg_type, request_id) + payload
+
+
+#=======================================================================================================================
+# ChannelStream
+#=======================================================================================================================
+class ChannelStream:
+    '''
+    Replaces sys.stdout/sys.stderr so that the contents are sent through the channel (if the channel is closed the
+    contents are written to the original stream).
+    '''
+
+    def __init__(self, channel, msg_type, original):
+        self._channel = channel
+        self._msg_type = msg_type
+        self._original = original
+        self.encoding = getattr(original, 'encoding', None) or 'utf-8'
+
+    def write(self, s):
+        if not s:
+            return
+        if not self._channel.send_stream(self._msg_type, s):
+            self._original.write(s)
+
+    def writelines(self, lines):
+        for line in lines:
+            self.write(line)
+
+    def flush(self):
+        pass
+
+    def isatty(self):
+        return False
+
+    def __getattr__(self, name):
+        return getattr(self._original, name)
+
+
+#=======================================================================================================================
+# _ServerProxy
+#=======================================================================================================================
+class _ServerProxy:
+    '''
+    Same interface of the xml-rpc server proxy (i.e.: proxy.RequestInput()), but the calls go through the channel.
+    '''
+
+    def __init__(self, channel):
+        self._channel = channel
+
+    def __getattr__(self, name):
+        def call(*args):
+            return self._channel.call(name, args)
+        return call
+
+
+class _PendingCall:
+
+    def __init__(self):
+        self.lock = thread.allocate_lock()
+        self.lock.acquire()  # Released when the response arrives.
+        self.msg_type = None
+        self.value = None
+
+
+#=======================================================================================================================
+# BinaryChannel
+#=======================================================================================================================
+class BinaryChannel:
+
+    def __init__(self, sock, handlers):
+        '''
+        :param handlers: dict(method name -> function) with the functions which may be called from PyDev.
+        '''
+        self._sock = sock
+        self._handlers = handlers
+        self._write_lock = thread.allocate_lock()
+        self._pending_lock = thread.allocate_lock()
+        self._pending = {}
+        self._next_id = 0
+        self._requests = _queue.Queue(0)
+        self.closed = False
+        self._original_streams = None
+
+    def start(self):
+        thread.start_new_thread(self._read_loop, ())
+        thread.start_new_thread(self._process_requests, ())
+
+    def install_streams(self):
+        self._original_streams = (sys.stdout, sys.stderr)
+        sys.stdout = ChannelStream(self, MSG_STDOUT, sys.stdout)
+        sys.stderr = ChannelStream(self, MSG_STDERR, sys.stderr)
+
+    def get_server_proxy(self):
+        return _ServerProxy(self)
+
+    def _send(self, msg):
+        self._write_lock.acquire()
+        try:
+            self._sock.sendall(msg)
+        finally:
+            self._write_lock.release()
+
+    def send_stream(self, msg_type, contents):
+        '''
+        :return: True if it was sent and False otherwise.
+        '''
+        if self.closed:
+            return False
+        try:
+            self._send(encode_message(msg_type, 0, contents))
+            return True
+        except:
+            self._on_close()
+            return False
+
+    def call(self, method, args):
+        '''
+        Calls a method in PyDev (blocking until the response arrives).
+        '''
+        pending = _PendingCall()
+        self._pending_lock.acquire()
+        try:
+            self._next_id += 1
+            request_id = self._next_id
+            self._pending[request_id] = pending
+        finally:
+            self._pending_lock.release()
+
+        try:
+            self._send(encode_message(MSG_REQUEST, request_id, [method, list(args)]))
+        except:
+            self._pending_lock.acquire()
+            try:
+                del self._pending[request_id]
+            finally:
+                self._pending_lock.release()
+            self._on_close()
+            raise
+
+        pending.lock.acquire()  # Wait for the response (released by the reader or when closed).
+        if pending.msg_type == MSG_RESPONSE:
+            return pending.value
+        raise RuntimeError('Error calling %s: %s' % (method, pending.value))
+
+    def _read_exactly(self, size):
+        parts = []
+        while size > 0:
+            data = self._sock.recv(size)
+            if not data:
+                raise EOFError()
+            parts.append(data)
+            size -= len(data)
+        return data[:0].join(parts)
+
+    def _read_loop(self):
+        try:
+            while True:
+                size = struct.unpack('>i', self._read_exactly(4))[0]
+                payload = self._read_exactly(size)
+                msg_type, request_id = struct.unpack('>Bi', payload[:5])
+                value = decode_value(payload, 5)[0]
+
+                if msg_type == MSG_REQUEST:
+                    self._requests.put((request_id, value[0], value[1]))
+
+                elif msg_type in (MSG_RESPONSE, MSG_ERROR):
+                    self._pending_lock.acquire()
+                    try:
+                        pending = self._pending.pop(request_id, None)
+                    finally:
+                        self._pending_lock.release()
+                    if pending is not None:
+                        pending.msg_type = msg_type
+                        pending.value = value
+                        pending.lock.release()
+        except:
+            pass  # Closed (or some error reading: either way, the channel can't be used anymore).
+        self._on_close()
+
+    def _process_requests(self):
+        # The requests are processed in order (as the xml-rpc server does) in a thread other than the reader so
+        # that the responses to the calls done while processing a request are still read.
+        while True:
+            request = self._requests.get(True)
+            if request is None:
+                return
+            request_id, method, args = request
+            try:
+                handler = self._handlers[method]
+                msg = encode_message(MSG_RESPONSE, request_id, handler(*args))
+            except SystemExit:
+                raise
+            except:
+                exc_type, exc_value = sys.exc_info()[:2]
+                msg = encode_message(MSG_ERROR, request_id, '%s:%s' % (exc_type, exc_value))
+            try:
+                self._send(msg)
+            except:
+                self._on_close()
+                return
+
+    def _on_close(self):
+        if self.closed:
+            return
+        self.closed = True
+        if self._original_streams is not None:
+            if isinstance(sys.stdout, ChannelStream) and sys.stdout._channel is self:
+                sys.stdout = self._original_streams[0]
+            if isinstance(sys.stderr, ChannelStream) and sys.stderr._channel is self:
+                sys.stderr = self._original_streams[1]
+        self._requests.put(None)
+        try:
+            self._sock.close()
+        except:
+            pass
+
+        self._pending_lock.acquire()
+        try:
+            pending = list(self._pending.values())
+            self._pending.clear()
+        finally:
+            self._pending_lock.release()
+        for p in pending:
+            p.msg_type = MSG_ERROR
+            p.value = 'Channel closed.'
+            p.lock.release()
+
+
+def connect_binary_channel(interpreter, host, port, handlers):
+    '''
+    Connects to PyDev in the given port and makes the interpreter use the channel from now on (the stdout/stderr
+    are also redirected to the channel).
+
+    :return: True if the channel was connected.
+    '''
+    try:
+        sock = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+        sock.connect((host, port))
+        try:
+            sock.setsockopt(socket.IPPROTO_TCP, socket.TCP_NODELAY, 1)
+        except:
+            pass  # Not really needed.
+    except:
+        traceback.print_exc()
+        return False
+
+    channel = BinaryChannel(sock, handlers)
+    interpreter.binary_channel = channel
+    channel.install_streams()
+    channel.start()
+    return True
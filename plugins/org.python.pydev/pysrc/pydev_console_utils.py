@@ -99,7 +99,9 @@ class StdIn(BaseStdIn):
     def readline(self, *args, **kwargs):
         #Ok, callback into the client to get the new input
         try:
-            server = xmlrpclib.Server('http://%s:%s' % (self.host, self.client_port))
+            server = getattr(self.interpreter, 'server', None)
+            if server is None:
+                server = xmlrpclib.Server('http://%s:%s' % (self.host, self.client_port))
             requested_input = server.RequestInput()
             if not requested_input:
                 return '\n' #Yes, a readline must return something (otherwise we can get an EOFError on the input() call).
@@ -388,6 +390,10 @@ class BaseInterpreterInterface:
         self.interruptable = True
 
     def get_server(self):
+        binary_channel = getattr(self, 'binary_channel', None)
+        if binary_channel is not None and not binary_channel.closed:
+            return binary_channel.get_server_proxy()
+
         if getattr(self, 'host', None) is not None:
             return xmlrpclib.Server('http://%s:%s' % (self.host, self.client_port))
         else:
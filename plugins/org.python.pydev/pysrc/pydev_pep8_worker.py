@@ -0,0 +1,124 @@
+'''
+Long-lived worker used by PyDev to run pep8/autopep8 with the system interpreter without paying for the interpreter
+startup (and the module import) on each format/analysis: both are run in-process.
+
+Usage: python pydev_pep8_worker.py <dir with pep8.py and autopep8.py>
+
+The protocol is on stdin/stdout (all strings are utf-8):
+
+    ARGS <n>                followed by n lines (one argument per line): sets the arguments used on the next runs.
+    RUN <script> <nbytes>   followed by nbytes with the source to check (pep8.py) or fix (autopep8.py).
+                            Answered with: OUT <nbytes>\n<stdout bytes>ERR <nbytes>\n<stderr bytes>
+    EXIT                    finishes the worker.
+'''
+import os
+import sys
+import traceback
+
+IS_PY3K = sys.version_info[0] >= 3
+
+if sys.platform == 'win32':
+    # The sizes in the protocol are in bytes: the streams can't translate newlines (on Python 2 they do by default).
+    import msvcrt
+    msvcrt.setmode(sys.stdin.fileno(), os.O_BINARY)
+    msvcrt.setmode(sys.stdout.fileno(), os.O_BINARY)
+
+if IS_PY3K:
+    from io import StringIO
+    _stdin = sys.stdin.buffer
+    _stdout = sys.stdout.buffer
+else:
+    from StringIO import StringIO
+    _stdin = sys.stdin
+    _stdout = sys.stdout
+
+
+def _readline():
+    line = _stdin.readline()
+    if not line:
+        return None
+    return line.decode('utf-8').rstrip('\r\n')
+
+
+def _read_bytes(nbytes):
+    contents = _stdin.read(nbytes)
+    if len(contents) != nbytes:
+        return None
+    return contents.decode('utf-8')
+
+
+def _write_block(header, s):
+    if not isinstance(s, bytes):
+        s = s.encode('utf-8')
+    _stdout.write(('%s %s\n' % (header, len(s))).encode('utf-8'))
+    _stdout.write(s)
+
+
+def _run_pep8(pep8, args, source):
+    # Same as: pep8.py <args> - (the report prints the errors to sys.stdout).
+    original_argv = sys.argv
+    sys.argv = ['pep8.py'] + args + ['-']
+    try:
+        pep8style = pep8.StyleGuide(parse_argv=True)
+    finally:
+        sys.argv = original_argv
+    pep8style.input_file(None, lines=source.splitlines(True))
+
+
+def _run_autopep8(autopep8, args, source):
+    # Same as: autopep8.py <args> -
+    options = autopep8.parse_args(args + ['-'], apply_config=True)
+    sys.stdout.write(autopep8.fix_code(source, options))
+
+
+def main(pep8_dir):
+    sys.path.insert(0, pep8_dir)
+    try:
+        import pep8
+        import autopep8
+    except:
+        traceback.print_exc()  # Goes to stderr (shown by PyDev on the error log).
+        return 1
+
+    runners = {'pep8.py': (_run_pep8, pep8), 'autopep8.py': (_run_autopep8, autopep8)}
+    args = []
+    while True:
+        line = _readline()
+        if line is None or line == 'EXIT':
+            return 0
+
+        if line.startswith('ARGS '):
+            args = []
+            for _i in range(int(line[5:])):
+                arg = _readline()
+                if arg is None:
+                    return 0
+                args.append(arg)
+
+        elif line.startswith('RUN '):
+            script, nbytes = line[4:].rsplit(' ', 1)
+            source = _read_bytes(int(nbytes))
+            if source is None:
+                return 0
+
+            out = StringIO()
+            err = StringIO()
+            original_stdout, original_stderr = sys.stdout, sys.stderr
+            sys.stdout, sys.stderr = out, err
+            try:
+                runner, module = runners[script]
+                runner(module, args, source)
+            except SystemExit:
+                pass  # i.e.: invalid arguments (the error is already in stderr).
+            except:
+                err.write(traceback.format_exc())
+            finally:
+                sys.stdout, sys.stderr = original_stdout, original_stderr
+
+            _write_block('OUT', out.getvalue())
+            _write_block('ERR', err.getvalue())
+            _stdout.flush()
+
+
+if __name__ == '__main__':
+    sys.exit(main(sys.argv[1]))
@@ -0,0 +1,211 @@
+'''
+Long-lived worker used by PyDev to run pylint on many files without paying for the interpreter startup (and the
+astroid warm-up) on each file: pylint is run in-process, so, the astroid cache is reused among runs.
+
+The astroid cache is never invalidated by astroid itself, so, before each run it's cleared if any file it has
+cached changed (otherwise the old AST of an edited file -- and of the modules which import it -- would be used).
+
+Usage: python pydev_pylint_worker.py <location of lint.py>
+
+The protocol is line-based (utf-8) on stdin/stdout:
+
+    ARGS <n>        followed by n lines (one argument per line): sets the arguments passed to pylint on the next runs.
+    LINT <path>     runs pylint on the given path and writes its output followed by: @@PYDEV_PYLINT_END@@ <path>
+    EXIT            finishes the worker.
+'''
+import os
+import sys
+import traceback
+
+IS_PY3K = sys.version_info[0] >= 3
+
+END_MARKER = '@@PYDEV_PYLINT_END@@'
+
+try:
+    from StringIO import StringIO
+except ImportError:
+    from io import StringIO
+
+
+def _setup_pylint(lint_location):
+    # lint.py is in the pylint package, so, the dir which contains the package must be in the pythonpath.
+    lint_location = os.path.abspath(lint_location)
+    pylint_dir = os.path.dirname(lint_location)
+    if os.path.basename(pylint_dir) == 'pylint':
+        package_parent = os.path.dirname(pylint_dir)
+        if package_parent not in sys.path:
+            sys.path.insert(0, package_parent)
+
+    from pylint import lint
+    return lint
+
+
+def _accepts_exit_argument(lint):
+    try:
+        from inspect import getfullargspec as getargspec
+    except ImportError:
+        from inspect import getargspec
+    try:
+        return 'exit' in getargspec(lint.Run.__init__)[0]
+    except:
+        return False
+
+
+if IS_PY3K:
+    _stdin = sys.stdin.buffer
+    _stdout = sys.stdout.buffer
+
+    def _readline():
+        line = _stdin.readline()
+        if not line:
+            return None
+        return line.decode('utf-8').rstrip('\r\n')
+
+    def _write(s):
+        _stdout.write(s.encode('utf-8'))
+        _stdout.flush()
+
+else:
+    _stdin = sys.stdin
+    _stdout = sys.stdout
+
+    def _readline():
+        line = _stdin.readline()
+        if not line:
+            return None
+        return line.rstrip('\r\n')
+
+    def _write(s):
+        if isinstance(s, unicode):
+            s = s.encode('utf-8')
+        _stdout.write(s)
+        _stdout.flush()
+
+
+def _get_astroid_manager():
+    try:
+        from astroid import MANAGER
+    except ImportError:
+        try:
+            from logilab.astng import MANAGER  # Older versions of pylint.
+        except ImportError:
+            return None
+    return MANAGER
+
+
+def _file_stamp(path):
+    try:
+        st = os.stat(path)
+    except OSError:
+        return None
+    return (st.st_mtime, st.st_size)
+
+
+class _AstroidCacheInvalidator(object):
+    '''
+    Keeps the stamp of the files of the modules in the astroid cache (gotten after the run which cached them).
+    '''
+
+    def __init__(self):
+        self._manager = None
+        self._stamps = {}
+
+    def _get_cache(self):
+        if self._manager is None:
+            self._manager = _get_astroid_manager()
+            if self._manager is None:
+                return None
+        cache = getattr(self._manager, 'astroid_cache', None)
+        if cache is None:
+            cache = getattr(self._manager, 'astng_cache', None)
+        return cache
+
+    def before_lint(self):
+        '''
+        Clears the cache if some cached file changed. Everything is cleared (and not only the changed module)
+        because the modules which import it may have inferred values from the old AST.
+        '''
+        for path, stamp in self._stamps.items():
+            if _file_stamp(path) != stamp:
+                self.clear()
+                return True
+        return False
+
+    def after_lint(self):
+        cache = self._get_cache()
+        if cache is None:
+            return
+        stamps = self._stamps
+        for module in list(cache.values()):
+            path = getattr(module, 'file', None)
+            if path and path not in stamps:
+                stamps[path] = _file_stamp(path)
+
+    def clear(self):
+        self._stamps.clear()
+        cache = self._get_cache()
+        if cache is None:
+            return
+        clear_cache = getattr(self._manager, 'clear_cache', None)
+        if clear_cache is not None:
+            clear_cache()  # Also clears the inference caches and bootstraps the builtins again.
+        else:
+            # The modules without a file (i.e.: builtins) are kept.
+            for name, module in list(cache.items()):
+                if getattr(module, 'file', None):
+                    del cache[name]
+
+
+def _run_pylint(lint, accepts_exit, args, path):
+    buf = StringIO()
+    original_stdout = sys.stdout
+    sys.stdout = buf  # The reporter writes to sys.stdout (gotten when it's created).
+    try:
+        if accepts_exit:
+            lint.Run(list(args) + [path], exit=False)
+        else:
+            lint.Run(list(args) + [path])  # Older versions always call sys.exit.
+    except SystemExit:
+        pass
+    except:
+        buf.write(traceback.format_exc())  # PyDev logs the output if it has a traceback.
+    finally:
+        sys.stdout = original_stdout
+    return buf.getvalue()
+
+
+def main(lint_location):
+    try:
+        lint = _setup_pylint(lint_location)
+    except:
+        traceback.print_exc()  # Goes to stderr (shown by PyDev on the error log).
+        return 1
+
+    accepts_exit = _accepts_exit_argument(lint)
+    invalidator = _AstroidCacheInvalidator()
+    args = []
+    while True:
+        line = _readline()
+        if line is None or line == 'EXIT':
+            return 0
+
+        if line.startswith('ARGS '):
+            args = []
+            for _i in range(int(line[5:])):
+                arg = _readline()
+                if arg is None:
+                    return 0
+                args.append(arg)
+
+        elif line.startswith('LINT '):
+            path = line[5:]
+            invalidator.before_lint()
+            output = _run_pylint(lint, accepts_exit, args, path)
+            invalidator.after_lint()
+            if output and not output.endswith('\n'):
+                output += '\n'
+            _write('%s%s %s\n' % (output, END_MARKER, path))
+
+
+if __name__ == '__main__':
+    sys.exit(main(sys.argv[1]))
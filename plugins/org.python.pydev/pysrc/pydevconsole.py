@@ -289,23 +289,37 @@ def start_server(host, port, interpreter):
     # Tell UMD the proper default namespace
     _set_globals_function(interpreter.getNamespace)
 
-    server.register_function(interpreter.execLine)
-    server.register_function(interpreter.execMultipleLines)
-    server.register_function(interpreter.getCompletions)
-    server.register_function(interpreter.getFrame)
-    server.register_function(interpreter.getVariable)
-    server.register_function(interpreter.changeVariable)
-    server.register_function(interpreter.getDescription)
-    server.register_function(interpreter.close)
-    server.register_function(interpreter.interrupt)
-    server.register_function(handshake)
-    server.register_function(interpreter.connectToDebugger)
-    server.register_function(interpreter.hello)
-    server.register_function(interpreter.getArray)
-    server.register_function(interpreter.evaluate)
-
-    # Functions for GUI main loop integration
-    server.register_function(interpreter.enableGui)
+    functions = {
+        'execLine': interpreter.execLine,
+        'execMultipleLines': interpreter.execMultipleLines,
+        'getCompletions': interpreter.getCompletions,
+        'getFrame': interpreter.getFrame,
+        'getVariable': interpreter.getVariable,
+        'changeVariable': interpreter.changeVariable,
+        'getDescription': interpreter.getDescription,
+        'close': interpreter.close,
+        'interrupt': interpreter.interrupt,
+        'handshake': handshake,
+        'connectToDebugger': interpreter.connectToDebugger,
+        'hello': interpreter.hello,
+        'getArray': interpreter.getArray,
+        'evaluate': interpreter.evaluate,
+
+        # Functions for GUI main loop integration
+        'enableGui': interpreter.enableGui,
+    }
+
+    def connectBinaryChannel(channel_port):
+        # Called by PyDev to make the next calls (and stdout/stderr) go through a persistent socket (the xml-rpc
+        # server is still kept alive, so, if it fails, PyDev keeps on using xml-rpc).
+        import pydev_console_binary_channel
+        return pydev_console_binary_channel.connect_binary_channel(
+            interpreter, interpreter.host or '127.0.0.1', channel_port, functions)
+
+    functions['connectBinaryChannel'] = connectBinaryChannel
+
+    for name, function in functions.items():
+        server.register_function(function, name)
 
     if port == 0:
         (h, port) = server.socket.getsockname()
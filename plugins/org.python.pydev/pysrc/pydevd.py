@@ -33,6 +33,8 @@ from pydevd_comm import  CMD_CHANGE_VARIABLE, \
                          CMD_RUN_TO_LINE, \
                          CMD_RELOAD_CODE, \
                          CMD_VERSION, \
+                         CAPABILITY_BINARY, \
+                         BINARY_PROTOCOL_AVAILABLE, \
                          CMD_CONSOLE_EXEC, \
                          CMD_ADD_EXCEPTION_BREAK, \
                          CMD_REMOVE_EXCEPTION_BREAK, \
@@ -711,15 +713,18 @@ class PyDB:
                     breakpoints_by = 'LINE'
 
                     splitted = text.split('\t')
-                    if len(splitted) == 1:
-                        _local_version = splitted
+                    _local_version = splitted[0]
 
-                    elif len(splitted) == 2:
+                    if len(splitted) == 2:
                         _local_version, ide_os = splitted
 
                     elif len(splitted) == 3:
                         _local_version, ide_os, breakpoints_by = splitted
 
+                    # The capabilities of the IDE are added to its version (i.e.: 1.1;binary).
+                    ide_capabilities = _local_version.split(';')[1:]
+                    binary_protocol = BINARY_PROTOCOL_AVAILABLE and CAPABILITY_BINARY in ide_capabilities
+
                     if breakpoints_by == 'ID':
                         self._set_breakpoints_with_id = True
                     else:
@@ -727,7 +732,10 @@ class PyDB:
 
                     pydevd_file_utils.set_ide_os(ide_os)
 
-                    cmd = self.cmdFactory.makeVersionMessage(seq)
+                    cmd = self.cmdFactory.makeVersionMessage(seq, binary_protocol)
+                    if binary_protocol:
+                        # Note: the version message is also sent as a binary frame (the IDE reads both formats).
+                        self.writer.setBinaryProtocol(True)
 
                 elif cmd_id == CMD_LIST_THREADS:
                     # response is a list of threads
@@ -54,6 +54,21 @@ each command has a format:
 900 series: errors
     901      ERROR                    either      -                           This is reserved for unexpected errors.
 
+Binary protocol:
+    If the version sent by the debugger has the 'binary' capability (i.e.: 1.1;binary), the daemon answers with the
+    same capability in its version and starts sending binary frames (the debugger still sends text commands).
+
+    Each frame is: 0xFF, cmd id (int32), sequence-num (int32), payload kind (byte), payload length (int32), payload
+    (all integers are big-endian). The kind PAYLOAD_TEXT has the same text sent in the text protocol (without being
+    urlencoded) and the kind PAYLOAD_VARIABLES has a list of variables (the number of variables as an int32 and then
+    for each variable: the flags as a byte, then name, type and value -- each as an int32 length, -1 for None,
+    followed by the utf-8 bytes). The first byte of a frame (0xFF) can't start a text command, so, the debugger
+    can read both.
+
+    The kind PAYLOAD_THREADS has a list of threads (the number of threads as an int32 and then the name and id of
+    each thread) and the kind PAYLOAD_STACK has the stack of a suspended thread (thread id, stop reason and message,
+    then the number of frames as an int32 and for each frame: id, name, file and the line as an int32).
+
     * JAVA - remote debugger, the java end
     * PYDB - pydevd, the python end
 '''
@@ -195,6 +210,19 @@ MAX_IO_MSG_SIZE = 1000  #if the io is too big, we'll not send all (could make th
 
 VERSION_STRING = "@@BUILD_NUMBER@@"
 
+CAPABILITY_BINARY = 'binary'
+BINARY_FRAME_MARKER = 0xFF
+PAYLOAD_TEXT = 0
+PAYLOAD_VARIABLES = 1
+PAYLOAD_THREADS = 2
+PAYLOAD_STACK = 3
+
+try:
+    import struct
+    BINARY_PROTOCOL_AVAILABLE = True
+except:
+    BINARY_PROTOCOL_AVAILABLE = False
+
 from _pydev_filesystem_encoding import getfilesystemencoding
 file_system_encoding = getfilesystemencoding()
 
@@ -377,6 +405,7 @@ class WriterThread(PyDBDaemonThread):
         self.sock = sock
         self.setName("pydevd.Writer")
         self.cmdQueue = _queue.Queue()
+        self.binaryProtocol = False
         if pydevd_vm_type.GetVmType() == 'python':
             self.timeout = 0
         else:
@@ -387,6 +416,10 @@ class WriterThread(PyDBDaemonThread):
         if not self.killReceived: #we don't take new data after everybody die
             self.cmdQueue.put(cmd)
 
+    def setBinaryProtocol(self, binaryProtocol):
+        """ if True, the commands are written as binary frames (see: NetCommand.getBinaryOutgoing) """
+        self.binaryProtocol = binaryProtocol
+
     def OnRun(self):
         """ just loop and write responses """
 
@@ -417,19 +450,34 @@ class WriterThread(PyDBDaemonThread):
                     #when liberating the thread here, we could have errors because we were shutting down
                     #but the thread was still not liberated
                     return
-                out = cmd.getOutgoing()
+                binaryProtocol = self.binaryProtocol
+                try:
+                    if binaryProtocol:
+                        out = cmd.getBinaryOutgoing()
+                    else:
+                        out = cmd.getOutgoing()
+                except:
+                    #i.e.: the text for a list of variables is only created at this point.
+                    cmd = NetCommandFactory().makeErrorMessage(cmd.seq, GetExceptionTracebackStr())
+                    if binaryProtocol:
+                        out = cmd.getBinaryOutgoing()
+                    else:
+                        out = cmd.getOutgoing()
 
                 if DebugInfoHolder.DEBUG_TRACE_LEVEL >= 1:
                     out_message = 'sending cmd --> '
-                    out_message += "%20s" % ID_TO_MEANING.get(out[:3], 'UNKNOWN')
+                    out_message += "%20s" % ID_TO_MEANING.get(str(cmd.id), 'UNKNOWN')
                     out_message += ' '
-                    out_message += unquote(unquote(out)).replace('\n', ' ')
+                    if binaryProtocol:
+                        out_message += unquote(cmd.getText()).replace('\n', ' ')
+                    else:
+                        out_message += unquote(unquote(out)).replace('\n', ' ')
                     try:
                         sys.stderr.write('%s\n' % (out_message,))
                     except:
                         pass
 
-                if IS_PY3K:
+                if IS_PY3K and not binaryProtocol:
                     out = bytearray(out, 'utf-8')
                 self.sock.send(out) #TODO: this does not guarantee that all message are sent (and jython does not have a send all)
                 if cmd.id == CMD_EXIT:
@@ -501,29 +549,148 @@ class NetCommand:
     """
     next_seq = 0 # sequence numbers
 
-    def __init__(self, id, seq, text):
+    def __init__(self, id, seq, text, records=None, kind=PAYLOAD_VARIABLES):
         """ smart handling of paramaters
         if sequence is 0, new sequence will be generated
-        if text has carriage returns they'll be replaced"""
+        if text has carriage returns they'll be replaced
+        if records is given, the text is only created if needed (in the binary protocol the records are sent
+        directly). The records are a list of variables (see pydevd_xml.varToRecord) for PAYLOAD_VARIABLES, a list
+        of threads (see NetCommandFactory.threadToRecord) for PAYLOAD_THREADS or a stack (see
+        NetCommandFactory.makeThreadSuspendRecord) for PAYLOAD_STACK."""
         self.id = id
         if (seq == 0): seq = self.getNextSeq()
         self.seq = seq
         self.text = text
-        self.outgoing = self.makeMessage(id, seq, text)
+        self.records = records
+        self.kind = kind
+        if records is None:
+            self.outgoing = self.makeMessage(id, seq, text)
+        else:
+            self.outgoing = None
 
     def getNextSeq(self):
         """ returns next sequence number """
         NetCommand.next_seq += 2
         return NetCommand.next_seq
 
+    def getText(self):
+        """ returns the text of the message (the xml for the records if records were given) """
+        if self.text is None:
+            if self.kind == PAYLOAD_THREADS:
+                self.text = '<xml>' + ''.join([threadRecordToXML(record) for record in self.records]) + '</xml>'
+            elif self.kind == PAYLOAD_STACK:
+                self.text = stackRecordToXML(self.records)
+            else:
+                self.text = '<xml>' + ''.join([pydevd_vars.recordToXML(record) for record in self.records]) + '</xml>'
+        return self.text
+
     def getOutgoing(self):
         """ returns the outgoing message"""
+        if self.outgoing is None:
+            self.outgoing = self.makeMessage(self.id, self.seq, self.getText())
         return self.outgoing
 
     def makeMessage(self, cmd, seq, payload):
         encoded = quote(to_string(payload), '/<>_=" \t')
         return str(cmd) + '\t' + str(seq) + '\t' + encoded + "\n"
 
+    def getBinaryOutgoing(self):
+        """ returns the outgoing message as a binary frame """
+        if self.records is not None:
+            kind = self.kind
+            if kind == PAYLOAD_THREADS:
+                payload = encodeThreads(self.records)
+            elif kind == PAYLOAD_STACK:
+                payload = encodeStack(self.records)
+            else:
+                payload = encodeRecords(self.records)
+        else:
+            kind = PAYLOAD_TEXT
+            payload = toUtf8(to_string(self.text))
+        return struct.pack('>BiiBi', BINARY_FRAME_MARKER, int(self.id), self.seq, kind, len(payload)) + payload
+
+
+#=======================================================================================================================
+# Binary protocol utilities
+#=======================================================================================================================
+def toUtf8(s):
+    """ returns the utf-8 bytes for the given string (which may already be bytes) """
+    if IS_PY3K:
+        if isinstance(s, bytes):
+            return s
+        return s.encode('utf-8', 'replace')
+    try:
+        if isinstance(s, unicode):
+            return s.encode('utf-8', 'replace')
+    except TypeError: #in java, unicode is a function
+        pass
+    return s
+
+
+def _packString(s):
+    if s is None:
+        return struct.pack('>i', -1)
+    s = toUtf8(to_string(s))
+    return struct.pack('>i', len(s)) + s
+
+
+def encodeRecords(records):
+    """ encodes a list of records (see pydevd_xml.varToRecord) for a PAYLOAD_VARIABLES """
+    parts = [struct.pack('>i', len(records))]
+    for name, typeName, value, flags in records:
+        parts.append(struct.pack('>B', flags))
+        parts.append(_packString(name))
+        parts.append(_packString(typeName))
+        parts.append(_packString(value))
+    return toUtf8('').join(parts)
+
+
+def encodeThreads(records):
+    """ encodes a list of threads (see NetCommandFactory.threadToRecord) for a PAYLOAD_THREADS """
+    parts = [struct.pack('>i', len(records))]
+    for name, thread_id in records:
+        parts.append(_packString(name))
+        parts.append(_packString(thread_id))
+    return toUtf8('').join(parts)
+
+
+def encodeStack(record):
+    """ encodes a stack (see NetCommandFactory.makeThreadSuspendRecord) for a PAYLOAD_STACK """
+    thread_id, stop_reason, message, frames = record
+    parts = [_packString(thread_id), _packString(stop_reason), _packString(message), struct.pack('>i', len(frames))]
+    for frame_id, name, filename, line in frames:
+        parts.append(_packString(frame_id))
+        parts.append(_packString(name))
+        parts.append(_packString(filename))
+        parts.append(struct.pack('>i', line))
+    return toUtf8('').join(parts)
+
+
+def threadRecordToXML(record):
+    """ the xml of a thread in the text protocol """
+    name, thread_id = record
+    return '<thread name="%s" id="%s" />' % (quote(name), thread_id) #quoted, so, it's also valid in the xml
+
+
+def stackRecordToXML(record):
+    """ the xml of a stack in the text protocol
+    <xml>
+        <thread id="id" stop_reason="reason" message="message">
+            <frame id="id" name="functionName " file="file" line="line"></frame>
+        </thread>
+    </xml>
+    """
+    thread_id, stop_reason, message, frames = record
+    cmdTextList = ["<xml>"]
+    cmdTextList.append('<thread id="%s" stop_reason="%s" message="%s">' % (
+        thread_id, stop_reason, pydevd_vars.makeValidXmlValue(message)))
+    for frame_id, name, filename, line in frames:
+        cmdTextList.append('<frame id="%s" name="%s" ' % (frame_id, pydevd_vars.makeValidXmlValue(name)))
+        cmdTextList.append('file="%s" line="%s">' % (quote(filename, '/>_= \t'), line))
+        cmdTextList.append("</frame>")
+    cmdTextList.append("</thread></xml>")
+    return ''.join(cmdTextList)
+
 #=======================================================================================================================
 # NetCommandFactory
 #=======================================================================================================================
@@ -534,9 +701,11 @@ class NetCommandFactory:
 
     def threadToXML(self, thread):
         """ thread information as XML """
-        name = pydevd_vars.makeValidXmlValue(thread.getName())
-        cmdText = '<thread name="%s" id="%s" />' % (quote(name), GetThreadId(thread))
-        return cmdText
+        return threadRecordToXML(self.threadToRecord(thread))
+
+    def threadToRecord(self, thread):
+        """ thread information as (name, id) """
+        return (thread.getName(), GetThreadId(thread))
 
     def makeErrorMessage(self, seq, text):
         cmd = NetCommand(CMD_ERROR, seq, text)
@@ -545,26 +714,18 @@ class NetCommandFactory:
         return cmd
 
     def makeThreadCreatedMessage(self, thread):
-        cmdText = "<xml>" + self.threadToXML(thread) + "</xml>"
-        return NetCommand(CMD_THREAD_CREATE, 0, cmdText)
+        return NetCommand(CMD_THREAD_CREATE, 0, None, [self.threadToRecord(thread)], PAYLOAD_THREADS)
 
 
     def makeCustomFrameCreatedMessage(self, frameId, frameDescription):
-        frameDescription = pydevd_vars.makeValidXmlValue(frameDescription)
-        cmdText = '<xml><thread name="%s" id="%s"/></xml>' % (frameDescription, frameId)
-        return NetCommand(CMD_THREAD_CREATE, 0, cmdText)
+        return NetCommand(CMD_THREAD_CREATE, 0, None, [(frameDescription, frameId)], PAYLOAD_THREADS)
 
 
     def makeListThreadsMessage(self, seq):
-        """ returns thread listing as XML """
+        """ returns thread listing (as XML in the text protocol) """
         try:
-            t = threading.enumerate()
-            cmdText = "<xml>"
-            for i in t:
-                if t.isAlive():
-                    cmdText += self.threadToXML(i)
-            cmdText += "</xml>"
-            return NetCommand(CMD_RETURN, seq, cmdText)
+            records = [self.threadToRecord(i) for i in threading.enumerate() if i.isAlive()]
+            return NetCommand(CMD_RETURN, seq, None, records, PAYLOAD_THREADS)
         except:
             return self.makeErrorMessage(seq, GetExceptionTracebackStr())
 
@@ -594,8 +755,10 @@ class NetCommandFactory:
 
         return net
 
-    def makeVersionMessage(self, seq):
+    def makeVersionMessage(self, seq, binaryProtocol=False):
         try:
+            if binaryProtocol:
+                return NetCommand(CMD_VERSION, seq, VERSION_STRING + ';' + CAPABILITY_BINARY)
             return NetCommand(CMD_VERSION, seq, VERSION_STRING)
         except:
             return self.makeErrorMessage(seq, GetExceptionTracebackStr())
@@ -606,27 +769,20 @@ class NetCommandFactory:
         except:
             return self.makeErrorMessage(0, GetExceptionTracebackStr())
 
-    def makeThreadSuspendStr(self, thread_id, frame, stop_reason, message):
-        """ <xml>
-            <thread id="id" stop_reason="reason">
-                    <frame id="id" name="functionName " file="file" line="line">
-                    <var variable stuffff....
-                </frame>
-            </thread>
+    def makeThreadSuspendRecord(self, thread_id, frame, stop_reason, message):
+        """ returns the stack of the suspended thread as (thread_id, stop_reason, message, frames), where each frame
+        is (frame_id, name, file, line)
         """
-        cmdTextList = ["<xml>"]
-
         if message:
-            message = pydevd_vars.makeValidXmlValue(str(message))
-
-        cmdTextList.append('<thread id="%s" stop_reason="%s" message="%s">' % (thread_id, stop_reason, message))
+            message = str(message)
+        else:
+            message = ''
 
+        frames = []
         curFrame = frame
         try:
             while curFrame:
-                #print cmdText
                 myId = str(id(curFrame))
-                #print "id is ", myId
 
                 if curFrame.f_code is None:
                     break #Iron Python sometimes does not have it!
@@ -635,8 +791,6 @@ class NetCommandFactory:
                 if myName is None:
                     break #Iron Python sometimes does not have it!
 
-                #print "name is ", myName
-
                 filename, base = pydevd_file_utils.GetFilenameAndBase(curFrame)
 
                 myFile = pydevd_file_utils.NormFileToClient(filename)
@@ -645,30 +799,27 @@ class NetCommandFactory:
                     # convert it to utf8
                     myFile = myFile.decode(file_system_encoding).encode("utf-8")
 
-                #print "file is ", myFile
-                #myFile = inspect.getsourcefile(curFrame) or inspect.getfile(frame)
-
-                myLine = str(curFrame.f_lineno)
-                #print "line is ", myLine
-
                 #the variables are all gotten 'on-demand'
-                #variables = pydevd_vars.frameVarsToXML(curFrame.f_locals)
-
-                variables = ''
-                cmdTextList.append('<frame id="%s" name="%s" ' % (myId , pydevd_vars.makeValidXmlValue(myName)))
-                cmdTextList.append('file="%s" line="%s">"' % (quote(myFile, '/>_= \t'), myLine))
-                cmdTextList.append(variables)
-                cmdTextList.append("</frame>")
+                frames.append((myId, myName, myFile, curFrame.f_lineno))
                 curFrame = curFrame.f_back
         except :
             traceback.print_exc()
 
-        cmdTextList.append("</thread></xml>")
-        return ''.join(cmdTextList)
+        return (str(thread_id), str(stop_reason), message, frames)
+
+    def makeThreadSuspendStr(self, thread_id, frame, stop_reason, message):
+        """ <xml>
+            <thread id="id" stop_reason="reason">
+                    <frame id="id" name="functionName " file="file" line="line">
+                </frame>
+            </thread>
+        """
+        return stackRecordToXML(self.makeThreadSuspendRecord(thread_id, frame, stop_reason, message))
 
     def makeThreadSuspendMessage(self, thread_id, frame, stop_reason, message):
         try:
-            return NetCommand(CMD_THREAD_SUSPEND, 0, self.makeThreadSuspendStr(thread_id, frame, stop_reason, message))
+            record = self.makeThreadSuspendRecord(thread_id, frame, stop_reason, message)
+            return NetCommand(CMD_THREAD_SUSPEND, 0, None, record, PAYLOAD_STACK)
         except:
             return self.makeErrorMessage(0, GetExceptionTracebackStr())
 
@@ -684,6 +835,9 @@ class NetCommandFactory:
         except Exception:
             return self.makeErrorMessage(seq, GetExceptionTracebackStr())
 
+    def makeGetVariableRecordsMessage(self, seq, records):
+        return NetCommand(CMD_GET_VARIABLE, seq, None, records)
+
 
     def makeGetArrayMessage(self, seq, payload):
         try:
@@ -697,6 +851,9 @@ class NetCommandFactory:
         except Exception:
             return self.makeErrorMessage(seq, GetExceptionTracebackStr())
 
+    def makeGetFrameRecordsMessage(self, seq, records):
+        return NetCommand(CMD_GET_FRAME, seq, None, records)
+
 
     def makeEvaluateExpressionMessage(self, seq, payload):
         try:
@@ -928,7 +1085,6 @@ class InternalGetVariable(InternalThreadCommand):
     def doIt(self, dbg):
         """ Converts request into python variable """
         try:
-            xml = "<xml>"
             valDict = pydevd_vars.resolveCompoundVariable(self.thread_id, self.frame_id, self.scope, self.attributes)
             if valDict is None:
                 valDict = {}
@@ -942,11 +1098,8 @@ class InternalGetVariable(InternalThreadCommand):
                 else:
                     keys = sorted(keys, cmp=compare_object_attrs) #Jython 2.1 does not have it (and all must be compared as strings).
 
-            for k in keys:
-                xml += pydevd_vars.varToXML(valDict[k], to_string(k))
-
-            xml += "</xml>"
-            cmd = dbg.cmdFactory.makeGetVariableMessage(self.sequence, xml)
+            records = [pydevd_vars.varToRecord(valDict[k], to_string(k)) for k in keys]
+            cmd = dbg.cmdFactory.makeGetVariableRecordsMessage(self.sequence, records)
             dbg.writer.addCommand(cmd)
         except Exception:
             cmd = dbg.cmdFactory.makeErrorMessage(self.sequence, "Error resolving variables " + GetExceptionTracebackStr())
@@ -1033,11 +1186,9 @@ class InternalGetFrame(InternalThreadCommand):
         try:
             frame = pydevd_vars.findFrame(self.thread_id, self.frame_id)
             if frame is not None:
-                xml = "<xml>"
-                xml += pydevd_vars.frameVarsToXML(frame.f_locals)
+                records = pydevd_vars.frameVarsToRecords(frame.f_locals)
                 del frame
-                xml += "</xml>"
-                cmd = dbg.cmdFactory.makeGetFrameMessage(self.sequence, xml)
+                cmd = dbg.cmdFactory.makeGetFrameRecordsMessage(self.sequence, records)
                 dbg.writer.addCommand(cmd)
             else:
                 #pydevd_vars.dumpFrames(self.thread_id)
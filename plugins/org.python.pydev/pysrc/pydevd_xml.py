@@ -144,7 +144,12 @@ def frameVarsToXML(frame_f_locals):
     """ dumps frame variables to XML
     <var name="var_name" scope="local" type="type" value="value"/>
     """
-    xml = ""
+    return ''.join([recordToXML(record) for record in frameVarsToRecords(frame_f_locals)])
+
+
+def frameVarsToRecords(frame_f_locals):
+    """ dumps frame variables to a list of records (see: varToRecord) """
+    records = []
 
     keys = frame_f_locals.keys()
     if hasattr(keys, 'sort'):
@@ -155,16 +160,24 @@ def frameVarsToXML(frame_f_locals):
     for k in keys:
         try:
             v = frame_f_locals[k]
-            xml += varToXML(v, str(k))
+            records.append(varToRecord(v, str(k)))
         except Exception:
             traceback.print_exc()
             pydev_log.error("Unexpected error, recovered safely.\n")
 
-    return xml
+    return records
 
 
-def varToXML(val, name, doTrim=True, additionalInXml=''):
-    """ single variable or dictionary to xml representation """
+#Flags of a variable record.
+VAR_IS_CONTAINER = 1
+VAR_IS_ERROR_ON_EVAL = 2
+
+
+def varToRecord(val, name, doTrim=True):
+    """ single variable or dictionary to a (name, typeName, value, flags) tuple
+
+    The flags are a combination of VAR_IS_CONTAINER and VAR_IS_ERROR_ON_EVAL.
+    """
 
     is_exception_on_eval = isinstance(val, ExceptionOnEvaluate)
 
@@ -207,12 +220,6 @@ def varToXML(val, name, doTrim=True, additionalInXml=''):
         except:
             value = 'Unable to get repr for %s' % v.__class__
 
-    try:
-        name = quote(name, '/>_= ') #TODO: Fix PY-5834 without using quote
-    except:
-        pass
-    xml = '<var name="%s" type="%s"' % (makeValidXmlValue(name), makeValidXmlValue(typeName))
-
     if value:
         #cannot be too big... communication may not handle it.
         if len(value) > MAXIMUM_VARIABLE_REPRESENTATION_SIZE and doTrim:
@@ -230,20 +237,47 @@ def varToXML(val, name, doTrim=True, additionalInXml=''):
         except TypeError: #in java, unicode is a function
             pass
 
+    if is_exception_on_eval:
+        flags = VAR_IS_ERROR_ON_EVAL
+    else:
+        if resolver is not None:
+            flags = VAR_IS_CONTAINER
+        else:
+            flags = 0
+
+    return (name, typeName, value, flags)
+
+
+def recordToXML(record, additionalInXml=''):
+    """ a record (see: varToRecord) to xml representation """
+    name, typeName, value, flags = record
+
+    try:
+        name = quote(name, '/>_= ') #TODO: Fix PY-5834 without using quote
+    except:
+        pass
+    xml = '<var name="%s" type="%s"' % (makeValidXmlValue(name), makeValidXmlValue(typeName))
+
+    if value:
         xmlValue = ' value="%s"' % (makeValidXmlValue(quote(value, '/>_= ')))
     else:
         xmlValue = ''
 
-    if is_exception_on_eval:
+    if flags & VAR_IS_ERROR_ON_EVAL:
         xmlCont = ' isErrorOnEval="True"'
     else:
-        if resolver is not None:
+        if flags & VAR_IS_CONTAINER:
             xmlCont = ' isContainer="True"'
         else:
             xmlCont = ''
 
     return ''.join((xml, xmlValue, xmlCont, additionalInXml, ' />\n'))
 
+
+def varToXML(val, name, doTrim=True, additionalInXml=''):
+    """ single variable or dictionary to xml representation """
+    return recordToXML(varToRecord(val, name, doTrim), additionalInXml)
+
 if USE_PSYCO_OPTIMIZATION:
     try:
         import psyco
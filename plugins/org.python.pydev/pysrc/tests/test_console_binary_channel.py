@@ -0,0 +1,116 @@
+# coding: utf-8
+'''
+Tests for pydev_console_binary_channel (the test plays the role of PyDev in the other side of the socket).
+'''
+import os
+import socket
+import struct
+import sys
+import unittest
+
+sys.path.insert(0, os.path.dirname(os.path.dirname(os.path.abspath(__file__))))
+
+import pydev_console_binary_channel as channel_module
+from pydev_console_binary_channel import encode_message, decode_value, connect_binary_channel, \
+    MSG_REQUEST, MSG_RESPONSE, MSG_ERROR, MSG_STDOUT, MSG_STDERR
+
+
+class _Interpreter:
+    pass
+
+
+class Test(unittest.TestCase):
+
+    def read_exactly(self, sock, size):
+        parts = []
+        while size > 0:
+            data = sock.recv(size)
+            if not data:
+                raise EOFError()
+            parts.append(data)
+            size -= len(data)
+        return data[:0].join(parts)
+
+    def read_message(self, sock):
+        size = struct.unpack('>i', self.read_exactly(sock, 4))[0]
+        payload = self.read_exactly(sock, size)
+        msg_type, request_id = struct.unpack('>Bi', payload[:5])
+        return msg_type, request_id, decode_value(payload, 5)[0]
+
+    def test_encode_decode(self):
+        for value in (
+            None, True, False, 0, -1, 2 ** 31 - 1, -2 ** 31, 2 ** 40, -2 ** 40, 1.5, '', 'abc', u'áé',
+            [], [1, 'a', [None, True, [2.5]]]):
+            msg = encode_message(MSG_RESPONSE, 10, value)
+            size, msg_type, request_id = struct.unpack('>iBi', msg[:9])
+            self.assertEqual(len(msg) - 4, size)
+            self.assertEqual(MSG_RESPONSE, msg_type)
+            self.assertEqual(10, request_id)
+            decoded, i = decode_value(msg, 9)
+            self.assertEqual(len(msg), i)
+            self.assertEqual(value, decoded)
+
+        # Tuples are encoded as lists.
+        self.assertEqual([1, 'a'], decode_value(encode_message(MSG_RESPONSE, 1, (1, 'a')), 9)[0])
+
+    def test_channel(self):
+        server_socket = socket.socket(socket.AF_INET, socket.SOCK_STREAM)
+        server_socket.bind(('127.0.0.1', 0))
+        server_socket.listen(1)
+        port = server_socket.getsockname()[1]
+
+        interpreter = _Interpreter()
+        calls = []
+
+        def execLine(line):
+            calls.append(line)
+            # Calls back into PyDev while processing the request.
+            return interpreter.binary_channel.get_server_proxy().RequestInput()
+
+        def fail():
+            raise ValueError('expected failure')
+
+        original_stdout, original_stderr = sys.stdout, sys.stderr
+        self.assertTrue(connect_binary_channel(interpreter, '127.0.0.1', port, {'execLine': execLine, 'fail': fail}))
+        sock = server_socket.accept()[0]
+        server_socket.close()
+        try:
+            self.assertTrue(isinstance(sys.stdout, channel_module.ChannelStream))
+            sys.stdout.write('out')
+            sys.stderr.write('err')
+            self.assertEqual((MSG_STDOUT, 0, 'out'), self.read_message(sock))
+            self.assertEqual((MSG_STDERR, 0, 'err'), self.read_message(sock))
+
+            sock.sendall(encode_message(MSG_REQUEST, 1, ['execLine', ['a = 10']]))
+            msg_type, request_id, value = self.read_message(sock)
+            self.assertEqual(MSG_REQUEST, msg_type)
+            self.assertEqual(['RequestInput', []], value)
+            sock.sendall(encode_message(MSG_RESPONSE, request_id, 'input'))
+            self.assertEqual((MSG_RESPONSE, 1, 'input'), self.read_message(sock))
+            self.assertEqual(['a = 10'], calls)
+
+            sock.sendall(encode_message(MSG_REQUEST, 2, ['fail', []]))
+            msg_type, request_id, value = self.read_message(sock)
+            self.assertEqual((MSG_ERROR, 2), (msg_type, request_id))
+            self.assertTrue('expected failure' in value, value)
+
+            sock.sendall(encode_message(MSG_REQUEST, 3, ['unknown', []]))
+            self.assertEqual((MSG_ERROR, 3), self.read_message(sock)[:2])
+        finally:
+            sock.close()
+
+        # When closed, the original streams are restored.
+        import time
+        initial_time = time.time()
+        while not interpreter.binary_channel.closed and time.time() - initial_time < 5:
+            time.sleep(.05)
+        self.assertTrue(interpreter.binary_channel.closed)
+        self.assertTrue(sys.stdout is original_stdout)
+        self.assertTrue(sys.stderr is original_stderr)
+
+
+if __name__ == '__main__':
+    if sys.platform.find('java') == -1:
+        unittest.main()
+    else:
+        sys.stdout.write('Not running python tests in platform: %s\n' % (sys.platform,))
@@ -0,0 +1,111 @@
+'''
+Tests for pydev_pep8_worker (with fake pep8/autopep8 modules, so, the tests don't depend on their versions).
+'''
+import os
+import shutil
+import subprocess
+import sys
+import tempfile
+import unittest
+
+WORKER = os.path.join(os.path.dirname(os.path.dirname(os.path.abspath(__file__))), 'pydev_pep8_worker.py')
+
+FAKE_PEP8 = '''
+import sys
+runs = []
+class StyleGuide(object):
+    def __init__(self, parse_argv=False):
+        self.args = sys.argv[1:]
+        if '--bad' in self.args:
+            sys.stderr.write('pep8: error: no such option: --bad\\n')
+            sys.exit(2)
+    def input_file(self, filename, lines=None):
+        runs.append(filename)
+        if lines and lines[0].startswith('error'):
+            raise ValueError('error in pep8')
+        print('stdin:1:1: E000 args=%s lines=%s runs=%s' % (self.args, len(lines), len(runs)))
+'''
+
+FAKE_AUTOPEP8 = '''
+def parse_args(args, apply_config=False):
+    return args
+def fix_code(source, options):
+    return source.upper()
+'''
+
+
+class Test(unittest.TestCase):
+
+    def setUp(self):
+        self.tempdir = tempfile.mkdtemp()
+        for name, contents in (('pep8.py', FAKE_PEP8), ('autopep8.py', FAKE_AUTOPEP8)):
+            f = open(os.path.join(self.tempdir, name), 'w')
+            try:
+                f.write(contents)
+            finally:
+                f.close()
+
+    def tearDown(self):
+        shutil.rmtree(self.tempdir)
+
+    def run_worker(self, commands):
+        process = subprocess.Popen(
+            [sys.executable, '-u', WORKER, self.tempdir],
+            stdin=subprocess.PIPE, stdout=subprocess.PIPE, stderr=subprocess.PIPE)
+        stdout, stderr = process.communicate(commands)
+        self.assertEqual(0, process.returncode, stderr)
+        return self.parse_blocks(stdout)
+
+    def parse_blocks(self, stdout):
+        blocks = []
+        while stdout:
+            header, stdout = stdout.split(b'\n', 1)
+            name, nbytes = header.decode('utf-8').split(' ')
+            blocks.append((name, stdout[:int(nbytes)].decode('utf-8')))
+            stdout = stdout[int(nbytes):]
+        return blocks
+
+    def run_command(self, script, source):
+        source = source.encode('utf-8')
+        return ('RUN %s %s\n' % (script, len(source))).encode('utf-8') + source
+
+    def test_worker(self):
+        commands = b''.join([
+            b'ARGS 1\n--ignore=E1\n',
+            self.run_command('pep8.py', u'a=1\nb=2\n'),
+            self.run_command('pep8.py', u'error\n'),
+            self.run_command('autopep8.py', u'a = "\xe7\xe3o"\n'),
+            b'ARGS 1\n--bad\n',
+            self.run_command('pep8.py', u'a=1\n'),
+            b'ARGS 0\n',
+            self.run_command('pep8.py', u'a=1\n'),
+            b'EXIT\n',
+        ])
+        blocks = self.run_worker(commands)
+        self.assertEqual(10, len(blocks))
+        self.assertEqual(['OUT', 'ERR'] * 5, [b[0] for b in blocks])
+
+        self.assertEqual("stdin:1:1: E000 args=['--ignore=E1', '-'] lines=2 runs=1\n", blocks[0][1])
+        self.assertEqual('', blocks[1][1])
+
+        self.assertEqual('', blocks[2][1])
+        self.assertTrue('ValueError: error in pep8' in blocks[3][1], blocks[3][1])
+
+        self.assertEqual(u'A = "\xc7\xc3O"\n', blocks[4][1])
+        self.assertEqual('', blocks[5][1])
+
+        self.assertEqual('', blocks[6][1])
+        self.assertEqual('pep8: error: no such option: --bad\n', blocks[7][1])
+
+        # Same process (so, the same module with the runs).
+        self.assertEqual("stdin:1:1: E000 args=['-'] lines=1 runs=3\n", blocks[8][1])
+
+    def test_finish_on_eof(self):
+        self.assertEqual([], self.run_worker(b''))
+
+
+if __name__ == '__main__':
+    if sys.platform.find('java') == -1:
+        unittest.main()
+    else:
+        sys.stdout.write('Not running python tests in platform: %s\n' % (sys.platform,))
@@ -0,0 +1,222 @@
+'''
+Tests for pydev_pylint_worker (with a fake pylint package, so, pylint doesn't need to be installed -- the test with
+the real pylint is only run if it's available).
+'''
+import os
+import shutil
+import subprocess
+import sys
+import tempfile
+import unittest
+
+WORKER = os.path.join(os.path.dirname(os.path.dirname(os.path.abspath(__file__))), 'pydev_pylint_worker.py')
+
+FAKE_LINT = '''
+import sys
+runs = []
+class Run(object):
+    def __init__(self, args, reporter=None, exit=True):
+        runs.append(args[-1])
+        if args[-1].endswith('error.py'):
+            raise ValueError('error in pylint')
+        print('************* Module %s' % (args[-1],))
+        print('W:  3, 0: Unused import os (unused-import) args=%s runs=%s' % (args[:-1], len(runs)))
+        if exit:
+            sys.exit(2)
+'''
+
+# Caches the contents of the linted files in the (fake) astroid cache, as astroid does with the ASTs.
+FAKE_CACHING_LINT = '''
+import astroid
+class Module(object):
+    def __init__(self, path):
+        self.file = path
+        f = open(path)
+        try:
+            self.contents = f.read()
+        finally:
+            f.close()
+class Run(object):
+    def __init__(self, args, reporter=None, exit=True):
+        path = args[-1]
+        cache = astroid.MANAGER.astroid_cache
+        if path not in cache:
+            cache[path] = Module(path)
+        print('contents=%r cached=%s' % (cache[path].contents, len(cache)))
+'''
+
+FAKE_ASTROID = '''
+class Manager(object):
+    def __init__(self):
+        self.astroid_cache = {}
+MANAGER = Manager()
+'''
+
+
+def write_file(path, contents):
+    f = open(path, 'w')
+    try:
+        f.write(contents)
+    finally:
+        f.close()
+
+
+def run_worker(test, lint_location, commands):
+    process = subprocess.Popen(
+        [sys.executable, '-u', WORKER, lint_location],
+        stdin=subprocess.PIPE, stdout=subprocess.PIPE, stderr=subprocess.PIPE)
+    stdout, stderr = process.communicate(commands.encode('utf-8'))
+    test.assertEqual(0, process.returncode, stderr)
+    return stdout.decode('utf-8')
+
+
+class Test(unittest.TestCase):
+
+    def setUp(self):
+        self.tempdir = tempfile.mkdtemp()
+        self.lint_location = self.create_fake_pylint(FAKE_LINT)
+
+    def tearDown(self):
+        shutil.rmtree(self.tempdir)
+
+    def create_fake_pylint(self, lint_contents):
+        pylint_dir = os.path.join(self.tempdir, 'pylint')
+        if not os.path.exists(pylint_dir):
+            os.mkdir(pylint_dir)
+        write_file(os.path.join(pylint_dir, '__init__.py'), '')
+        write_file(os.path.join(pylint_dir, 'lint.py'), lint_contents)
+        return os.path.join(pylint_dir, 'lint.py')
+
+    def run_worker(self, commands):
+        return run_worker(self, self.lint_location, commands)
+
+    def test_worker(self):
+        output = self.run_worker(
+            'ARGS 1\n--disable=C\nLINT /tmp/a.py\nLINT /tmp/error.py\nARGS 0\nLINT /tmp/b.py\nEXIT\n')
+
+        results = output.split('@@PYDEV_PYLINT_END@@ ')
+        self.assertEqual(4, len(results))
+
+        self.assertTrue(results[0].startswith('************* Module /tmp/a.py\n'), results[0])
+        self.assertTrue("args=['--disable=C'] runs=1" in results[0], results[0])
+
+        self.assertTrue(results[1].startswith('/tmp/a.py\n'), results[1])
+        self.assertTrue('Traceback (most recent call last):' in results[1], results[1])
+        self.assertTrue('ValueError: error in pylint' in results[1], results[1])
+
+        # Same process (so, the same module with the runs).
+        self.assertTrue(results[2].startswith('/tmp/error.py\n'), results[2])
+        self.assertTrue("args=[] runs=3" in results[2], results[2])
+
+        self.assertEqual('/tmp/b.py\n', results[3])
+
+    def test_finish_on_eof(self):
+        self.assertEqual('', self.run_worker(''))
+
+    def test_astroid_cache_cleared_on_change(self):
+        self.lint_location = self.create_fake_pylint(FAKE_CACHING_LINT)
+        astroid_dir = os.path.join(self.tempdir, 'astroid')
+        os.mkdir(astroid_dir)
+        write_file(os.path.join(astroid_dir, '__init__.py'), FAKE_ASTROID)
+
+        mod1 = os.path.join(self.tempdir, 'mod1.py')
+        mod2 = os.path.join(self.tempdir, 'mod2.py')
+        write_file(mod1, 'a = 1')
+        write_file(mod2, 'b = 1')
+
+        # The same worker is used while the files are changed.
+        process = subprocess.Popen(
+            [sys.executable, '-u', WORKER, self.lint_location],
+            stdin=subprocess.PIPE, stdout=subprocess.PIPE, stderr=subprocess.PIPE)
+        try:
+            def lint(path):
+                process.stdin.write(('LINT %s\n' % (path,)).encode('utf-8'))
+                process.stdin.flush()
+                output = process.stdout.readline().decode('utf-8')
+                self.assertEqual('@@PYDEV_PYLINT_END@@ %s\n' % (path,), process.stdout.readline().decode('utf-8'))
+                return output.strip()
+
+            self.assertEqual("contents='a = 1' cached=1", lint(mod1))
+            self.assertEqual("contents='b = 1' cached=2", lint(mod2))
+            self.assertEqual("contents='a = 1' cached=2", lint(mod1))  # Unchanged: the cache is kept.
+
+            write_file(mod2, 'b = 22')
+            # A change in any cached file clears the whole cache.
+            self.assertEqual("contents='a = 1' cached=1", lint(mod1))
+            self.assertEqual("contents='b = 22' cached=2", lint(mod2))
+        finally:
+            process.stdin.write('EXIT\n'.encode('utf-8'))
+            process.stdin.flush()
+            process.communicate()
+
+
+try:
+    from pylint import lint as _real_lint
+except ImportError:
+    _real_lint = None
+
+
+@unittest.skipIf(_real_lint is None, 'pylint is not installed.')
+class TestRealPylint(unittest.TestCase):
+
+    def setUp(self):
+        self.tempdir = tempfile.mkdtemp()
+
+    def tearDown(self):
+        shutil.rmtree(self.tempdir)
+
+    def test_edit_and_lint_again(self):
+        mod1 = os.path.join(self.tempdir, 'pylint_worker_mod1.py')
+        mod2 = os.path.join(self.tempdir, 'pylint_worker_mod2.py')
+        write_file(mod1, 'import os\n')
+        write_file(mod2, 'from pylint_worker_mod1 import foo\nprint(foo)\n')
+
+        lint_location = _real_lint.__file__
+        if lint_location.endswith(('.pyc', '.pyo')):
+            lint_location = lint_location[:-1]
+        # pylint 2 has the lint module as a package.
+        if os.path.basename(lint_location) == '__init__.py':
+            lint_location = os.path.dirname(lint_location) + '.py'
+
+        process = subprocess.Popen(
+            [sys.executable, '-u', WORKER, lint_location],
+            stdin=subprocess.PIPE, stdout=subprocess.PIPE, stderr=subprocess.PIPE)
+        try:
+            def lint(path, first=False):
+                commands = 'LINT %s\n' % (path,)
+                if first:
+                    commands = 'ARGS 3\n--disable=all\n--enable=unused-import,no-name-in-module\n--reports=n\n' + \
+                        commands
+                process.stdin.write(commands.encode('utf-8'))
+                process.stdin.flush()
+                lines = []
+                while True:
+                    line = process.stdout.readline().decode('utf-8')
+                    self.assertTrue(line, 'Worker finished unexpectedly.')
+                    if line.startswith('@@PYDEV_PYLINT_END@@ '):
+                        return ''.join(lines)
+                    lines.append(line)
+
+            output = lint(mod1, first=True)
+            self.assertTrue('unused-import' in output or 'W0611' in output, output)
+            output = lint(mod2)
+            self.assertTrue('no-name-in-module' in output or 'E0611' in output, output)
+
+            write_file(mod1, 'import os\nfoo = os.sep\n')
+
+            # Both the edited module and the one which imports it must see the change.
+            output = lint(mod1)
+            self.assertFalse('unused-import' in output or 'W0611' in output, output)
+            output = lint(mod2)
+            self.assertFalse('no-name-in-module' in output or 'E0611' in output, output)
+        finally:
+            process.stdin.write('EXIT\n'.encode('utf-8'))
+            process.stdin.flush()
+            process.communicate()
+
+
+if __name__ == '__main__':
+    if sys.platform.find('java') == -1:
+        unittest.main()
+    else:
+        sys.stdout.write('Not running python tests in platform: %s\n' % (sys.platform,))
@@ -70,6 +70,13 @@ if sys.platform.find('java') == -1:
             l.append(('De,f)2', 'de,s,c,ription2', ''))
             msg = t.processor.formatCompletionMessage(None, l)
             self.assertEquals('@@COMPLETIONS(None,(Def,desc%2C%2Cr%2C%2Ci%28%29ption, ),(Def%281,descriptio%28n1, ),(De%2Cf%292,de%2Cs%2Cc%2Cription2, ))END@@', msg)
+
+            contents = [
+                t.processor.formatCompletionContents(None, [('Def', 'description', 'args')]),
+                t.processor.formatCompletionContents('file.py', [('Def1', 'description1', 'args1')]),
+            ]
+            msg = t.processor.formatBatchCompletionMessage(contents)
+            self.assertEquals('@@COMPLETIONS(None,(Def,description,args))\n(file.py,(Def1,description1,args1))END@@', msg)
     
         def createConnections(self, p1=50002):
             '''
@@ -132,6 +139,16 @@ if sys.platform.find('java') == -1:
                 send(socket, "@@IMPORTS:%s\nEND@@" % msg)
                 found = self.readMsg()
                 self.assert_('sort' in found, 'Could not find sort in: %s' % (found,))
+
+                #now, test many modules in a single request
+                msg = quote_plus('%s.list|%s.dict|invalid_module_name' % (BUILTIN_MOD, BUILTIN_MOD))
+                send(socket, "@@IMPORTS_BATCH:%s\nEND@@" % msg)
+                found = self.readMsg()
+                self.assert_(found.startswith('@@COMPLETIONS'), found)
+                found = found[len('@@COMPLETIONS'):found.rfind('END@@')].split('\n')
+                self.assertEqual(3, len(found), found)
+                self.assert_('sort' in found[0], 'Could not find sort in: %s' % (found[0],))
+                self.assert_('setdefault' in found[1], 'Could not find setdefault in: %s' % (found[1],))
     
                 #now, test search
                 msg = quote_plus('inspect.ismodule')
@@ -38,9 +38,11 @@ import org.python.pydev.core.IPythonPathNature;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.PyCodeCompletionVisitor;
 import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
+import org.python.pydev.logging.DebugSettings;
 import org.python.pydev.plugin.nature.PythonNature;
 import org.python.pydev.shared_core.callbacks.ICallback0;
 import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.utils.ParallelUtils;
 import org.python.pydev.utils.PyFileListing;
 
 /**
@@ -267,7 +269,9 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
     }
 
     /**
-     * Default implementation. Visits each resource once at a time. May be overridden if a better implementation is needed.
+     * Default implementation. If the parallel full build is enabled, the documents are loaded and the thread-safe
+     * visitors are called in multiple threads (see: PyDevParallelFullBuild), otherwise, visits each resource once
+     * at a time. May be overridden if a better implementation is needed.
      *
      * @param resourcesToParse list of resources from project that are python files.
      * @param monitor
@@ -275,6 +279,24 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
      */
     public void buildResources(List<IFile> resourcesToParse, IProgressMonitor monitor,
             List<PyDevBuilderVisitor> visitors) {
+        if (resourcesToParse.size() == 0) {
+            return;
+        }
+        VisitorsTimings timings = new VisitorsTimings(visitors);
+        if (PyDevBuilderPrefPage.useParallelFullBuild() && ParallelUtils.USE_PARALLEL_INDEXING
+                && resourcesToParse.size() > 1) {
+            new PyDevParallelFullBuild(resourcesToParse, monitor, visitors, timings).build();
+        } else {
+            buildResourcesSequentially(resourcesToParse, monitor, visitors, timings);
+        }
+        Log.logInfo(timings.getSummary(resourcesToParse.size()));
+        if (DebugSettings.DEBUG_ANALYSIS_REQUESTS) {
+            Log.toLogFile(this, timings.getBreakdown(resourcesToParse.size()));
+        }
+    }
+
+    private void buildResourcesSequentially(List<IFile> resourcesToParse, IProgressMonitor monitor,
+            List<PyDevBuilderVisitor> visitors, VisitorsTimings timings) {
 
         // we have 100 units here
         double inc = (visitors.size() * 100) / (double) resourcesToParse.size();
@@ -329,11 +351,12 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
 
                 PyDevBuilderVisitor.setModuleNameInCache(memo, r, moduleName);
 
-                for (Iterator<PyDevBuilderVisitor> it = visitors.iterator(); it.hasNext()
-                        && monitor.isCanceled() == false;) {
+                int visitorsSize = visitors.size();
+                for (int j = 0; j < visitorsSize && monitor.isCanceled() == false; j++) {
 
+                    long start = System.nanoTime();
                     try {
-                        PyDevBuilderVisitor visitor = it.next();
+                        PyDevBuilderVisitor visitor = visitors.get(j);
                         visitor.memo = memo; //setting the memo must be the first thing.
 
                         long currentTimeMillis = System.currentTimeMillis();
@@ -346,6 +369,8 @@ public class PyDevBuilder extends IncrementalProjectBuilder {
                         visitor.visitAddedResource(r, doc, monitor);
                     } catch (Exception e) {
                         Log.log(e);
+                    } finally {
+                        timings.add(j, System.nanoTime() - start);
                     }
                 }
 
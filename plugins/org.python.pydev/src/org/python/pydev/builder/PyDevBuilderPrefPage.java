@@ -68,6 +68,9 @@ public class PyDevBuilderPrefPage extends FieldEditorPreferencePage implements I
 
     public static final int DEFAULT_PYC_DELETE_HANDLING = PYC_ALWAYS_DELETE;
 
+    public static final String USE_PARALLEL_FULL_BUILD = "USE_PARALLEL_FULL_BUILD";
+    public static final boolean DEFAULT_USE_PARALLEL_FULL_BUILD = true;
+
     private static final String[][] ENTRIES_AND_VALUES = new String[][] {
             { "Delete any orphaned .pyc file.", Integer.toString(PYC_ALWAYS_DELETE) },
             { "Only delete .pyc when .py delete is detected.", Integer.toString(PYC_DELETE_WHEN_PY_IS_DELETED) },
@@ -137,6 +140,9 @@ public class PyDevBuilderPrefPage extends FieldEditorPreferencePage implements I
         addField(new ComboFieldEditor(PYC_DELETE_HANDLING, "How to handle .pyc/$py.class deletion?",
                 ENTRIES_AND_VALUES, p));
 
+        addField(new BooleanFieldEditor(USE_PARALLEL_FULL_BUILD,
+                "Use multiple threads on a full build (load/parse files in parallel)?", p));
+
     }
 
     /* (non-Javadoc)
@@ -200,4 +206,8 @@ public class PyDevBuilderPrefPage extends FieldEditorPreferencePage implements I
         return PydevPrefs.getPreferences().getInt(PYC_DELETE_HANDLING);
     }
 
+    public static boolean useParallelFullBuild() {
+        return PydevPrefs.getPreferences().getBoolean(USE_PARALLEL_FULL_BUILD);
+    }
+
 }
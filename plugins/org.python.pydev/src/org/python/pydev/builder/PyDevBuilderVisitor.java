@@ -18,6 +18,7 @@ import java.util.Map;
 import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.IDocument;
@@ -26,6 +27,7 @@ import org.python.pydev.core.IModule;
 import org.python.pydev.core.IModulesManager;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.MisconfigurationException;
+import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.ProjectModulesManager;
 import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
 import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
@@ -109,6 +111,71 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
      */
     public VisitorMemo memo;
 
+    /**
+     * Memo used when the visitor is called from the worker threads of a parallel build (in which case the same
+     * visitor visits different resources at the same time, each with its own memo).
+     */
+    private final ThreadLocal<VisitorMemo> threadMemo = new ThreadLocal<VisitorMemo>();
+
+    /**
+     * @return the memo for the resource being visited in the current thread.
+     */
+    protected VisitorMemo getMemo() {
+        VisitorMemo m = threadMemo.get();
+        if (m != null) {
+            return m;
+        }
+        return memo;
+    }
+
+    /**
+     * Sets the memo to be used for the resource visited in the current thread (null to go back to the memo
+     * field).
+     */
+    /*default*/void setThreadMemo(VisitorMemo memo) {
+        if (memo == null) {
+            threadMemo.remove();
+        } else {
+            threadMemo.set(memo);
+        }
+    }
+
+    /**
+     * Subclasses may override to return true if they can be called from different threads at the same time
+     * (in which case they'll run in the worker threads in a parallel full build).
+     *
+     * Note that a thread-safe visitor must not keep state related to the resource being visited in fields
+     * and must access the memo through getMemo() (never through the memo field).
+     */
+    public boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Key in the memo with the list of marker changes which must be applied later on in the builder thread (set by
+     * the parallel full build in the memo of the resources visited in its worker threads).
+     */
+    public static final String DEFERRED_MARKER_CHANGES = "DEFERRED_MARKER_CHANGES"; //$NON-NLS-1$
+
+    /**
+     * Changes the markers of the resource being visited: when it's visited in a worker thread of a parallel full
+     * build, the change is only kept in the memo (and is applied later on in the builder thread, in the workspace
+     * operation of the chunk being built), otherwise, it's applied right away.
+     */
+    protected void changeMarkers(IWorkspaceRunnable change) {
+        @SuppressWarnings("unchecked")
+        List<IWorkspaceRunnable> deferred = (List<IWorkspaceRunnable>) getMemo().get(DEFERRED_MARKER_CHANGES);
+        if (deferred != null) {
+            deferred.add(change);
+            return;
+        }
+        try {
+            change.run(null);
+        } catch (CoreException e) {
+            Log.log(e);
+        }
+    }
+
     /**
      * Constant indicating value in memory to represent a full build.
      */
@@ -124,7 +191,7 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
      * @return whether we are doing a full build right now.
      */
     protected boolean isFullBuild() {
-        Boolean b = (Boolean) memo.get(IS_FULL_BUILD);
+        Boolean b = (Boolean) getMemo().get(IS_FULL_BUILD);
         if (b == null) {
             return false; // we surely will have it set when it is a full build. (the other way around may not be true).
         }
@@ -136,7 +203,7 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
      * or -1 if the document creation time is not available.
      */
     protected long getDocumentTime() {
-        Long b = (Long) memo.get(DOCUMENT_TIME);
+        Long b = (Long) getMemo().get(DOCUMENT_TIME);
         if (b == null) {
             return -1;
         }
@@ -155,7 +222,7 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
      */
     protected SourceModule getSourceModule(IResource resource, IDocument document, IPythonNature nature)
             throws MisconfigurationException {
-        SourceModule module = (SourceModule) memo.get(MODULE_CACHE + resource.getModificationStamp());
+        SourceModule module = (SourceModule) getMemo().get(MODULE_CACHE + resource.getModificationStamp());
         if (module == null) {
             module = createSoureModule(resource, document, getModuleName(resource, nature));
             setModuleInCache(resource, module);
@@ -167,7 +234,7 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
      * @param module this is the module to set in the cache
      */
     protected void setModuleInCache(IResource resource, IModule module) {
-        memo.put(MODULE_CACHE + resource.getModificationStamp(), module);
+        getMemo().put(MODULE_CACHE + resource.getModificationStamp(), module);
     }
 
     /**
@@ -201,6 +268,7 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
      * @throws MisconfigurationException
      */
     public String getModuleName(IResource resource, IPythonNature nature) throws MisconfigurationException {
+        VisitorMemo memo = getMemo();
         String moduleName = (String) memo.get(getModuleNameCacheKey(resource));
         if (moduleName == null) {
             moduleName = nature.resolveModule(resource);
@@ -226,6 +294,7 @@ public abstract class PyDevBuilderVisitor implements Comparable<PyDevBuilderVisi
 
     public boolean isResourceInPythonpathProjectSources(IResource resource, IPythonNature nature, boolean addExternal)
             throws CoreException, MisconfigurationException {
+        VisitorMemo memo = getMemo();
         Boolean isInProjectPythonpath = (Boolean) memo.get(MODULE_IN_PROJECT_PYTHONPATH + addExternal);
         if (isInProjectPythonpath == null) {
 
@@ -0,0 +1,260 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.FileUtilsFileBuffer;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
+import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallback;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.utils.ParallelUtils;
+
+/**
+ * Full build which loads the documents and calls the thread-safe visitors in the worker threads of the
+ * indexing pool (so, that's also where the parse is done -- by the syntax checker).
+ *
+ * The other visitors are still called in the builder thread, one resource at a time in the order of the
+ * resources (after the thread-safe visitors were called for the resource).
+ *
+ * The resources are processed in chunks and each chunk is processed in a single workspace operation
+ * (so, the changes in the markers of a chunk are batched in a single resource change notification). The thread-safe
+ * visitors don't change the markers in the workers: the changes are kept in the memo (see:
+ * PyDevBuilderVisitor.changeMarkers) and are applied in the builder thread, inside that operation.
+ */
+final class PyDevParallelFullBuild {
+
+    private static final int CHUNK_SIZE = 64;
+
+    /**
+     * A resource whose document was loaded (and which was already visited by the thread-safe visitors).
+     */
+    private static final class LoadedResource {
+
+        private final IFile resource;
+        private final IPythonNature nature;
+        private final VisitorMemo memo;
+        private final ICallback0<IDocument> doc;
+
+        private LoadedResource(IFile resource, IPythonNature nature, VisitorMemo memo, ICallback0<IDocument> doc) {
+            this.resource = resource;
+            this.nature = nature;
+            this.memo = memo;
+            this.doc = doc;
+        }
+    }
+
+    private final List<IFile> resourcesToParse;
+    private final List<PyDevBuilderVisitor> visitors;
+    private final IProgressMonitor monitor;
+    private final IProgressMonitor workersMonitor;
+    private final VisitorsTimings timings;
+
+    private final AtomicBoolean loggedMisconfiguration = new AtomicBoolean(false);
+
+    /**
+     * Updated in the builder thread after each resource (and read by the workers of the next chunk).
+     */
+    private volatile Object memoSharedProjectState;
+
+    //Only accessed in the builder thread.
+    private final FastStringBuffer bufferToCreateString = new FastStringBuffer();
+    private final double inc;
+    private double total;
+    private int visited;
+    private long lastProgressTime;
+
+    PyDevParallelFullBuild(List<IFile> resourcesToParse, IProgressMonitor monitor,
+            List<PyDevBuilderVisitor> visitors, VisitorsTimings timings) {
+        this.resourcesToParse = resourcesToParse;
+        this.visitors = visitors;
+        this.monitor = monitor;
+        this.workersMonitor = ParallelUtils.createCancelOnlyMonitor(monitor);
+        this.timings = timings;
+
+        // we have 100 units per visitor here
+        this.inc = (visitors.size() * 100) / (double) resourcesToParse.size();
+    }
+
+    void build() {
+        IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        int size = resourcesToParse.size();
+        for (int start = 0; start < size && monitor.isCanceled() == false; start += CHUNK_SIZE) {
+            final List<IFile> chunk = resourcesToParse.subList(start, Math.min(start + CHUNK_SIZE, size));
+            try {
+                workspace.run(new IWorkspaceRunnable() {
+
+                    public void run(IProgressMonitor m) throws CoreException {
+                        buildChunk(chunk);
+                    }
+                }, null, IWorkspace.AVOID_UPDATE, null);
+            } catch (CoreException e) {
+                Log.log(e);
+            }
+        }
+    }
+
+    private void buildChunk(List<IFile> chunk) {
+        List<LoadedResource> loaded = ParallelUtils.map(chunk, new ICallback<LoadedResource, IFile>() {
+
+            public LoadedResource call(IFile r) {
+                return load(r);
+            }
+        }, workersMonitor);
+
+        int size = loaded.size();
+        for (int i = 0; i < size; i++) {
+            visited += 1;
+            total += inc;
+            LoadedResource loadedResource = loaded.get(i);
+            if (loadedResource == null) {
+                continue;
+            }
+            long currentTimeMillis = System.currentTimeMillis();
+            if (currentTimeMillis - lastProgressTime > 300) {
+                PyDevBuilder.communicateProgress(monitor, resourcesToParse.size(), visited,
+                        loadedResource.resource, null, bufferToCreateString);
+                lastProgressTime = currentTimeMillis;
+            }
+            try {
+                if (monitor.isCanceled() == false) {
+                    visitInBuilderThread(loadedResource);
+                }
+            } finally {
+                loadedResource.nature.endRequests();
+            }
+
+            if (total > 1) {
+                monitor.worked((int) total);
+                total -= (int) total;
+            }
+        }
+    }
+
+    /**
+     * Called in a worker thread: loads the document and calls the thread-safe visitors.
+     *
+     * @return the loaded resource (in which case the caller must call endRequests() in its nature) or null
+     * if it should not be visited.
+     */
+    private LoadedResource load(IFile r) {
+        PythonPathHelper.markAsPyDevFileIfDetected(r);
+
+        IPythonNature nature = PythonNature.getPythonNature(r);
+        if (nature == null) {
+            return null;
+        }
+        if (!nature.startRequests()) {
+            return null;
+        }
+        boolean ok = false;
+        try {
+            String moduleName;
+            try {
+                //we visit external because we must index them
+                moduleName = nature.resolveModuleOnlyInProjectSources(r, true);
+                if (moduleName == null) {
+                    return null; // we only analyze resources that are in the pythonpath
+                }
+            } catch (Exception e1) {
+                if (loggedMisconfiguration.compareAndSet(false, true)) {
+                    Log.log(e1); //No point in logging it over and over again.
+                }
+                return null;
+            }
+
+            //create new memo for each resource
+            VisitorMemo memo = new VisitorMemo();
+            memo.setSharedProjectState(memoSharedProjectState);
+            memo.put(PyDevBuilderVisitor.IS_FULL_BUILD, true); //mark it as full build
+            memo.put(PyDevBuilderVisitor.DEFERRED_MARKER_CHANGES, new ArrayList<IWorkspaceRunnable>());
+
+            ICallback0<IDocument> doc = FileUtilsFileBuffer.getDocOnCallbackFromResource(r);
+            doc.call(); //load it in this thread (it's cached in the callback).
+            memo.put(PyDevBuilderVisitor.DOCUMENT_TIME, System.currentTimeMillis());
+
+            PyDevBuilderVisitor.setModuleNameInCache(memo, r, moduleName);
+
+            int size = visitors.size();
+            for (int i = 0; i < size && workersMonitor.isCanceled() == false; i++) {
+                PyDevBuilderVisitor visitor = visitors.get(i);
+                if (!visitor.isThreadSafe()) {
+                    continue;
+                }
+                visitor.setThreadMemo(memo);
+                long start = System.nanoTime();
+                try {
+                    //on a full build, all visits are as some add...
+                    visitor.visitAddedResource(r, doc, workersMonitor);
+                } catch (Exception e) {
+                    Log.log(e);
+                } finally {
+                    timings.add(i, System.nanoTime() - start);
+                    visitor.setThreadMemo(null);
+                }
+            }
+            ok = true;
+            return new LoadedResource(r, nature, memo, doc);
+        } finally {
+            if (!ok) {
+                nature.endRequests();
+            }
+        }
+    }
+
+    /**
+     * Called in the builder thread: applies the marker changes of the thread-safe visitors and calls the visitors
+     * which are not thread-safe.
+     */
+    private void visitInBuilderThread(LoadedResource loadedResource) {
+        @SuppressWarnings("unchecked")
+        List<IWorkspaceRunnable> markerChanges = (List<IWorkspaceRunnable>) loadedResource.memo
+                .remove(PyDevBuilderVisitor.DEFERRED_MARKER_CHANGES);
+        if (markerChanges != null) {
+            for (IWorkspaceRunnable change : markerChanges) {
+                try {
+                    change.run(monitor);
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+            }
+        }
+
+        int size = visitors.size();
+        for (int i = 0; i < size && monitor.isCanceled() == false; i++) {
+            PyDevBuilderVisitor visitor = visitors.get(i);
+            if (visitor.isThreadSafe()) {
+                continue;
+            }
+            long start = System.nanoTime();
+            try {
+                visitor.memo = loadedResource.memo; //setting the memo must be the first thing.
+
+                //on a full build, all visits are as some add...
+                visitor.visitAddedResource(loadedResource.resource, loadedResource.doc, monitor);
+            } catch (Exception e) {
+                Log.log(e);
+            } finally {
+                timings.add(i, System.nanoTime() - start);
+            }
+        }
+        memoSharedProjectState = loadedResource.memo.getSharedProjectState();
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Keeps the time spent in each visitor during a full build (may be updated from multiple threads).
+ */
+final class VisitorsTimings {
+
+    private final List<PyDevBuilderVisitor> visitors;
+
+    private final AtomicLongArray nanos;
+
+    private final long startNanos = System.nanoTime();
+
+    VisitorsTimings(List<PyDevBuilderVisitor> visitors) {
+        this.visitors = visitors;
+        this.nanos = new AtomicLongArray(visitors.size());
+    }
+
+    /**
+     * @param visitorIndex the index of the visitor in the visitors passed in the constructor.
+     */
+    void add(int visitorIndex, long elapsedNanos) {
+        nanos.addAndGet(visitorIndex, elapsedNanos);
+    }
+
+    /**
+     * @return a single line with the total time of the build.
+     */
+    String getSummary(int totalResources) {
+        return appendSummary(new FastStringBuffer(60), totalResources).toString();
+    }
+
+    private FastStringBuffer appendSummary(FastStringBuffer buf, int totalResources) {
+        return buf.append("Full build of ").append(totalResources).append(" resources took: ")
+                .append((System.nanoTime() - startNanos) / 1000000).append("ms");
+    }
+
+    /**
+     * @return a string with the total time of the build and the time spent in each visitor (note that
+     * on a parallel build the time of a visitor is the sum of the time spent in all the threads, so, it
+     * may be higher than the total time).
+     */
+    String getBreakdown(int totalResources) {
+        FastStringBuffer buf = new FastStringBuffer(60 * (visitors.size() + 1));
+        appendSummary(buf, totalResources);
+
+        int size = visitors.size();
+        for (int i = 0; i < size; i++) {
+            buf.append("\n    ").append(visitors.get(i).getClass().getSimpleName()).append(": ")
+                    .append(nanos.get(i) / 1000000).append("ms");
+        }
+        return buf.toString();
+    }
+}
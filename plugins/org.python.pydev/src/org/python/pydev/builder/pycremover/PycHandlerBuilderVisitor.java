@@ -96,6 +96,14 @@ public class PycHandlerBuilderVisitor extends PyDevBuilderVisitor {
         pycDeleteHandling = PyDevBuilderPrefPage.getPycDeleteHandling();
     }
 
+    /**
+     * The files are deleted in a job (and pycDeleteHandling is only set when the visiting starts).
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void visitChangedResource(IResource resource, ICallback0<IDocument> document, IProgressMonitor monitor) {
         //Ignore: for pyc files we only care about their addition.
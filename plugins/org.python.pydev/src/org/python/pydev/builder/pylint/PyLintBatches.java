@@ -0,0 +1,351 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pylint;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.ui.console.IOConsoleOutputStream;
+import org.python.pydev.builder.pylint.PyLintVisitor.PyLintThread;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_ui.utils.PyMarkerUtils;
+import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
+
+/**
+ * Groups the files to be analyzed by pylint in batches per project. Each project has a job which runs its
+ * batches through a long-lived pylint worker (see: PyLintWorker).
+ *
+ * At most PyLintPrefPage.getMaxPyLintDelta() batches run at the same time and a file which changes again
+ * while it's waiting (or while its batch is running) has its previous analysis discarded.
+ */
+final class PyLintBatches {
+
+    /**
+     * Time to wait for more files to be added before starting a batch.
+     */
+    private static final long BATCH_DELAY = 500;
+
+    private static final long RETRY_DELAY = 300;
+
+    private static final int MAX_BATCH_SIZE = 50;
+
+    /**
+     * A worker which wasn't used for this time is disposed.
+     */
+    private static final long WORKER_IDLE_TIMEOUT = 10 * 60 * 1000;
+
+    private static final Map<IProject, ProjectBatchJob> jobs = new HashMap<IProject, ProjectBatchJob>();
+
+    private static final AtomicInteger runningBatches = new AtomicInteger();
+
+    private static final class PendingLint {
+
+        private final IFile file;
+        private final ICallback0<IDocument> document;
+        private final IPath location;
+        private final long modificationStamp;
+
+        private PendingLint(IFile file, ICallback0<IDocument> document, IPath location) {
+            this.file = file;
+            this.document = document;
+            this.location = location;
+            this.modificationStamp = file.getModificationStamp();
+        }
+    }
+
+    private static final class ProjectBatchJob extends Job {
+
+        private final IProject project;
+
+        /**
+         * Files waiting to be analyzed (a new request for the same file replaces the previous one).
+         * Synchronized on itself.
+         */
+        private final LinkedHashMap<IFile, PendingLint> pending = new LinkedHashMap<IFile, PendingLint>();
+
+        /**
+         * Only accessed in the job (or after it's canceled when disposing).
+         */
+        private volatile PyLintWorker worker;
+
+        private ProjectBatchJob(IProject project) {
+            super("PyLint: " + project.getName());
+            this.project = project;
+            setPriority(Job.BUILD);
+            setSystem(true);
+        }
+
+        private void add(PendingLint lint) {
+            synchronized (pending) {
+                pending.remove(lint.file); //re-add so that it goes to the end.
+                pending.put(lint.file, lint);
+            }
+            if (getState() == Job.SLEEPING) {
+                wakeUp(BATCH_DELAY); //it may be sleeping until the idle check.
+            } else {
+                schedule(BATCH_DELAY);
+            }
+        }
+
+        /**
+         * @return whether a newer request for the file was added after the given one or the file changed.
+         */
+        private boolean isObsolete(PendingLint lint) {
+            synchronized (pending) {
+                if (pending.containsKey(lint.file)) {
+                    return true;
+                }
+            }
+            return !lint.file.exists() || lint.file.getModificationStamp() != lint.modificationStamp;
+        }
+
+        @Override
+        protected IStatus run(IProgressMonitor monitor) {
+            List<PendingLint> batch = new ArrayList<PendingLint>();
+            synchronized (pending) {
+                if (pending.size() == 0) {
+                    disposeWorkerIfIdle();
+                    return Status.OK_STATUS;
+                }
+            }
+            if (runningBatches.incrementAndGet() > Math.max(1, PyLintPrefPage.getMaxPyLintDelta())) {
+                runningBatches.decrementAndGet();
+                schedule(RETRY_DELAY);
+                return Status.OK_STATUS;
+            }
+            try {
+                synchronized (pending) {
+                    Iterator<PendingLint> it = pending.values().iterator();
+                    while (it.hasNext() && batch.size() < MAX_BATCH_SIZE) {
+                        batch.add(it.next());
+                        it.remove();
+                    }
+                }
+                runBatch(batch, monitor);
+            } finally {
+                runningBatches.decrementAndGet();
+            }
+
+            synchronized (pending) {
+                //Still something to do: go on. Otherwise, check later if the worker should be disposed.
+                schedule(pending.size() > 0 ? 0 : WORKER_IDLE_TIMEOUT);
+            }
+            return Status.OK_STATUS;
+        }
+
+        private void runBatch(List<PendingLint> batch, IProgressMonitor monitor) {
+            IOConsoleOutputStream out = null;
+            try {
+                out = PyLintVisitor.getConsoleOutputStream();
+            } catch (Exception e) {
+                Log.log(e);
+            }
+
+            PyLintWorker worker;
+            try {
+                worker = getWorker(out);
+                if (worker == null) {
+                    return;
+                }
+            } catch (Exception e) {
+                //Couldn't start the worker: use the one-shot process for this batch.
+                Log.log(e);
+                worker = null;
+            }
+
+            String[] args = PyLintVisitor.getUserArgs();
+            final List<Tuple<PendingLint, ArrayList<MarkerInfo>>> results = new ArrayList<Tuple<PendingLint, ArrayList<MarkerInfo>>>(
+                    batch.size());
+
+            for (PendingLint lint : batch) {
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                if (isObsolete(lint)) {
+                    continue;
+                }
+                String target = FileUtils.getFileAbsolutePath(new File(lint.location.toOSString()));
+                try {
+                    IDocument doc = lint.document.call();
+                    ArrayList<Object[]> markers;
+                    if (worker != null) {
+                        try {
+                            markers = lintInWorker(worker, args, target, doc, out);
+                        } catch (IOException e) {
+                            //The worker died or timed out: the remainder of the batch is linted with the
+                            //one-shot process (a new worker is started in the next batch).
+                            disposeWorker();
+                            worker = null;
+                            if (monitor.isCanceled()) {
+                                return;
+                            }
+                            Log.log(e);
+                            markers = lintInProcess(lint, doc, out);
+                        }
+                    } else {
+                        markers = lintInProcess(lint, doc, out);
+                    }
+                    results.add(new Tuple<PendingLint, ArrayList<MarkerInfo>>(lint, PyLintVisitor
+                            .createMarkerInfos(doc, markers)));
+                } catch (Exception e) {
+                    disposeWorker();
+                    if (!monitor.isCanceled()) {
+                        Log.log(e);
+                    }
+                    return;
+                }
+            }
+
+            if (results.size() > 0) {
+                //Add the markers of the whole batch in a single workspace operation.
+                try {
+                    ResourcesPlugin.getWorkspace().run(new IWorkspaceRunnable() {
+
+                        public void run(IProgressMonitor monitor) throws CoreException {
+                            for (Tuple<PendingLint, ArrayList<MarkerInfo>> result : results) {
+                                if (isObsolete(result.o1)) {
+                                    continue; //changed while the batch was running: its results are stale.
+                                }
+                                PyMarkerUtils.replaceMarkers(result.o2, result.o1.file,
+                                        PyLintVisitor.PYLINT_PROBLEM_MARKER, true, monitor);
+                            }
+                        }
+                    }, null, 0, monitor);
+                } catch (CoreException e) {
+                    Log.log(e);
+                }
+            }
+        }
+
+        private ArrayList<Object[]> lintInWorker(PyLintWorker worker, String[] args, String target,
+                IDocument doc, IOConsoleOutputStream out) throws IOException {
+            PyLintVisitor.write("PyLint: Linting in worker:", out, target);
+            Tuple<String, String> outTup = worker.lint(args, target);
+            PyLintVisitor.write("PyLint: The stdout of the worker is:", out, outTup.o1);
+            if (outTup.o2.length() > 0) {
+                PyLintVisitor.write("PyLint: The stderr of the worker is:", out, outTup.o2);
+            }
+
+            ArrayList<Object[]> markers = new ArrayList<Object[]>();
+            PyLintVisitor.addMarkersFromOutput(outTup.o1, outTup.o2, doc, markers);
+            return markers;
+        }
+
+        /**
+         * Lints the file with a new pylint process (as done when the worker is not used).
+         */
+        private ArrayList<Object[]> lintInProcess(PendingLint lint, IDocument doc, IOConsoleOutputStream out)
+                throws Exception {
+            PyLintThread oneShot = new PyLintThread(lint.file, lint.document, lint.location);
+            oneShot.passPyLint(lint.file, out, doc);
+            return new ArrayList<Object[]>(oneShot.markers);
+        }
+
+        /**
+         * @return the worker for the current configuration (creating a new one if needed) or null if pylint
+         * can't be run for the project.
+         */
+        private PyLintWorker getWorker(IOConsoleOutputStream out) throws Exception {
+            PythonNature nature = PythonNature.getPythonNature(project);
+            if (nature == null) {
+                Log.log(new RuntimeException("PyLint ERROR: Nature not configured for: " + project));
+                return null;
+            }
+            String interpreter = nature.getProjectInterpreter().getExecutableOrJar();
+            String script = FileUtils.getFileAbsolutePath(new File(PyLintPrefPage.getPyLintLocation()));
+            File workingDir = project.getLocation().toFile();
+
+            String key = PyLintWorker.createKey(interpreter, script, workingDir);
+            PyLintWorker current = this.worker;
+            if (current != null && current.key.equals(key) && current.isAlive()) {
+                return current;
+            }
+            disposeWorker();
+            current = PyLintWorker.create(interpreter, script, workingDir, nature);
+            PyLintVisitor.write("PyLint: Started worker:", out, current.commandLine);
+            this.worker = current;
+            return current;
+        }
+
+        private void disposeWorkerIfIdle() {
+            PyLintWorker current = this.worker;
+            if (current != null
+                    && System.currentTimeMillis() - current.getLastUsed() >= WORKER_IDLE_TIMEOUT - RETRY_DELAY) {
+                disposeWorker();
+            }
+        }
+
+        private void disposeWorker() {
+            PyLintWorker current = this.worker;
+            this.worker = null;
+            if (current != null) {
+                current.dispose();
+            }
+        }
+    }
+
+    private PyLintBatches() {
+    }
+
+    /**
+     * Schedules the given file to be analyzed by pylint in the next batch of its project.
+     */
+    static void add(IFile file, ICallback0<IDocument> document, IPath location) {
+        IProject project = file.getProject();
+        ProjectBatchJob job;
+        synchronized (jobs) {
+            job = jobs.get(project);
+            if (job == null) {
+                job = new ProjectBatchJob(project);
+                jobs.put(project, job);
+            }
+        }
+        job.add(new PendingLint(file, document, location));
+    }
+
+    /**
+     * Cancels the pending batches and stops the workers (called when the plugin is stopped).
+     */
+    static void shutdown() {
+        ArrayList<ProjectBatchJob> toDispose;
+        synchronized (jobs) {
+            toDispose = new ArrayList<ProjectBatchJob>(jobs.values());
+            jobs.clear();
+        }
+        for (ProjectBatchJob job : toDispose) {
+            job.cancel();
+            try {
+                job.disposeWorker();
+            } catch (Exception e) {
+                Log.log(e);
+            }
+        }
+        PyLintWorker.shutdown();
+    }
+}
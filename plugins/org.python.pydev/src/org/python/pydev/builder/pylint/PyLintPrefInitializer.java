@@ -32,6 +32,7 @@ public class PyLintPrefInitializer extends AbstractPreferenceInitializer {
         node.putBoolean(PyLintPrefPage.USE_CONSOLE, PyLintPrefPage.DEFAULT_USE_CONSOLE);
         node.put(PyLintPrefPage.PYLINT_ARGS, PyLintPrefPage.DEFAULT_PYLINT_ARGS);
         node.putInt(PyLintPrefPage.MAX_PYLINT_DELTA, PyLintPrefPage.DEFAULT_MAX_PYLINT_DELTA);
+        node.putBoolean(PyLintPrefPage.USE_PYLINT_WORKER, PyLintPrefPage.DEFAULT_USE_PYLINT_WORKER);
 
     }
 
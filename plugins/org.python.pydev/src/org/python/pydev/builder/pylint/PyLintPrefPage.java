@@ -95,6 +95,10 @@ public class PyLintPrefPage extends FieldEditorPreferencePage implements IWorkbe
 
     public static final int DEFAULT_MAX_PYLINT_DELTA = 4;
 
+    public static final String USE_PYLINT_WORKER = "USE_PYLINT_WORKER";
+
+    public static final boolean DEFAULT_USE_PYLINT_WORKER = true;
+
     public PyLintPrefPage() {
         super(FLAT);
         setPreferenceStore(PydevPlugin.getDefault().getPreferenceStore());
@@ -113,6 +117,8 @@ public class PyLintPrefPage extends FieldEditorPreferencePage implements IWorkbe
         addField(new BooleanFieldEditor(USE_PYLINT, "Use PyLint?", p));
         addField(new BooleanFieldEditor(USE_CONSOLE, "Redirect PyLint output to console?", p));
         addField(new IntegerFieldEditor(MAX_PYLINT_DELTA, "Max simultaneous processes for PyLint?", p));
+        addField(new BooleanFieldEditor(USE_PYLINT_WORKER,
+                "Reuse a PyLint process to analyze files in batches (only when the location is lint.py)?", p));
         FileFieldEditor fileField = new FileFieldEditor(PYLINT_FILE_LOCATION, "Location of the pylint executable:",
                 true, p);
         addField(fileField);
@@ -248,6 +254,17 @@ public class PyLintPrefPage extends FieldEditorPreferencePage implements IWorkbe
         return PydevPrefs.getPreferences().getInt(MAX_PYLINT_DELTA);
     }
 
+    /**
+     * The worker runs pylint in-process, so, it can only be used when the location is the lint.py script.
+     */
+    public static boolean usePyLintWorker() {
+        if (!PydevPrefs.getPreferences().getBoolean(USE_PYLINT_WORKER)) {
+            return false;
+        }
+        String location = getPyLintLocation();
+        return location.endsWith(".py") || location.endsWith(".pyw");
+    }
+
     public static int wSeverity() {
         return PydevPrefs.getPreferences().getInt(SEVERITY_WARNINGS);
     }
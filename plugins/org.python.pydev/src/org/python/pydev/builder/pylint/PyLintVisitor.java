@@ -15,6 +15,7 @@ import java.io.File;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.StringTokenizer;
@@ -117,21 +118,8 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
                         @Override
                         protected IStatus run(IProgressMonitor monitor) {
 
-                            ArrayList<MarkerInfo> lst = new ArrayList<PyMarkerUtils.MarkerInfo>();
-
-                            for (Iterator<Object[]> iter = markers.iterator(); iter.hasNext();) {
-                                Object[] el = iter.next();
-
-                                String tok = (String) el[0];
-                                int priority = ((Integer) el[1]).intValue();
-                                String id = (String) el[2];
-                                int line = ((Integer) el[3]).intValue();
-
-                                lst.add(new PyMarkerUtils.MarkerInfo(doc, "ID:" + id + " " + tok,
-                                        PYLINT_PROBLEM_MARKER, priority, false, false, line, 0, line, 0, null));
-                            }
-
-                            PyMarkerUtils.replaceMarkers(lst, resource, PYLINT_PROBLEM_MARKER, true, monitor);
+                            PyMarkerUtils.replaceMarkers(createMarkerInfos(doc, markers), resource,
+                                    PYLINT_PROBLEM_MARKER, true, monitor);
 
                             return PydevPlugin.makeStatus(Status.OK, "", null);
                         }
@@ -155,25 +143,6 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
             }
         }
 
-        private IOConsoleOutputStream getConsoleOutputStream() throws MalformedURLException {
-            if (PyLintPrefPage.useConsole()) {
-                return MessageConsoles.getConsoleOutputStream("PyLint", UIConstants.PY_LINT_ICON);
-            } else {
-                return null;
-            }
-        }
-
-        /**
-         * @param tok
-         * @param type
-         * @param priority
-         * @param id
-         * @param line
-         */
-        private void addToMarkers(String tok, int priority, String id, int line) {
-            markers.add(new Object[] { tok, priority, id, line });
-        }
-
         /**
          * @param resource
          * @param out 
@@ -184,7 +153,7 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
          * @throws MisconfigurationException 
          * @throws PythonNatureWithoutProjectException 
          */
-        private void passPyLint(IResource resource, IOConsoleOutputStream out, IDocument doc) throws CoreException,
+        void passPyLint(IResource resource, IOConsoleOutputStream out, IDocument doc) throws CoreException,
                 MisconfigurationException, PythonNatureWithoutProjectException {
             String script = FileUtils.getFileAbsolutePath(new File(PyLintPrefPage.getPyLintLocation()));
             String target = FileUtils.getFileAbsolutePath(new File(location.toOSString()));
@@ -198,12 +167,7 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
                 cmdList.add(script);
             }
             //user args
-            String userArgs = StringUtils.replaceNewLines(
-                    PyLintPrefPage.getPyLintArgs(), " ");
-            StringTokenizer tokenizer2 = new StringTokenizer(userArgs);
-            while (tokenizer2.hasMoreTokens()) {
-                cmdList.add(tokenizer2.nextToken());
-            }
+            cmdList.addAll(Arrays.asList(getUserArgs()));
             // target file to be linted
             cmdList.add(target);
             String[] cmdArray = cmdList.toArray(new String[0]);
@@ -237,144 +201,194 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
             write("PyLint: The stdout of the command line is:", out, output);
             write("PyLint: The stderr of the command line is:", out, errors);
 
-            StringTokenizer tokenizer = new StringTokenizer(output, "\r\n");
-
-            boolean useW = PyLintPrefPage.useWarnings();
-            boolean useE = PyLintPrefPage.useErrors();
-            boolean useF = PyLintPrefPage.useFatal();
-            boolean useC = PyLintPrefPage.useCodingStandard();
-            boolean useR = PyLintPrefPage.useRefactorTips();
-
-            //Set up local values for severity
-            int wSeverity = PyLintPrefPage.wSeverity();
-            int eSeverity = PyLintPrefPage.eSeverity();
-            int fSeverity = PyLintPrefPage.fSeverity();
-            int cSeverity = PyLintPrefPage.cSeverity();
-            int rSeverity = PyLintPrefPage.rSeverity();
-
-            //System.out.println(output);
-            if (output.indexOf("Traceback (most recent call last):") != -1) {
-                Throwable e = new RuntimeException("PyLint ERROR: \n" + output);
-                Log.log(e);
-                return;
-            }
-            if (errors.indexOf("Traceback (most recent call last):") != -1) {
-                Throwable e = new RuntimeException("PyLint ERROR: \n" + errors);
-                Log.log(e);
-                return;
-            }
-            while (tokenizer.hasMoreTokens()) {
-                String tok = tokenizer.nextToken();
+            addMarkersFromOutput(output, errors, doc, markers);
+        }
+    }
 
-                try {
-                    boolean found = false;
-                    int priority = 0;
-
-                    //W0611:  3: Unused import finalize
-                    //F0001:  0: Unable to load module test.test2 (list index out of range)
-                    //C0321: 25:fdfd: More than one statement on a single line
-                    int indexOfDoublePoints = tok.indexOf(":");
-                    if (indexOfDoublePoints != -1) {
-
-                        if (tok.startsWith("C") && useC) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_WARNING;
-                            priority = cSeverity;
-                        } else if (tok.startsWith("R") && useR) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_WARNING;
-                            priority = rSeverity;
-                        } else if (tok.startsWith("W") && useW) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_WARNING;
-                            priority = wSeverity;
-                        } else if (tok.startsWith("E") && useE) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_ERROR;
-                            priority = eSeverity;
-                        } else if (tok.startsWith("F") && useF) {
-                            found = true;
-                            //priority = IMarker.SEVERITY_ERROR;
-                            priority = fSeverity;
-                        } else {
-                            continue;
-                        }
+    static IOConsoleOutputStream getConsoleOutputStream() throws MalformedURLException {
+        if (PyLintPrefPage.useConsole()) {
+            return MessageConsoles.getConsoleOutputStream("PyLint", UIConstants.PY_LINT_ICON);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * @return the arguments the user configured to be passed to pylint.
+     */
+    static String[] getUserArgs() {
+        String userArgs = StringUtils.replaceNewLines(PyLintPrefPage.getPyLintArgs(), " ");
+        StringTokenizer tokenizer = new StringTokenizer(userArgs);
+        ArrayList<String> args = new ArrayList<String>();
+        while (tokenizer.hasMoreTokens()) {
+            args.add(tokenizer.nextToken());
+        }
+        return args.toArray(new String[args.size()]);
+    }
+
+    private static Pattern PYLINT_MATCH_PATTERN = Pattern
+            .compile("\\A[CRWEF]:\\s*(\\d+)(,\\s*\\d+)?:(.*)\\((.*)\\)\\s*\\Z");
+
+    /**
+     * Parses the output of pylint for a file and adds the markers found to the passed list (as arrays with
+     * the message, priority, id and line).
+     *
+     * Shared by the threads which run a pylint process per file and by the batches run in the pylint worker.
+     */
+    static void addMarkersFromOutput(String output, String errors, IDocument doc, List<Object[]> markers) {
+        StringTokenizer tokenizer = new StringTokenizer(output, "\r\n");
+
+        boolean useW = PyLintPrefPage.useWarnings();
+        boolean useE = PyLintPrefPage.useErrors();
+        boolean useF = PyLintPrefPage.useFatal();
+        boolean useC = PyLintPrefPage.useCodingStandard();
+        boolean useR = PyLintPrefPage.useRefactorTips();
+
+        //Set up local values for severity
+        int wSeverity = PyLintPrefPage.wSeverity();
+        int eSeverity = PyLintPrefPage.eSeverity();
+        int fSeverity = PyLintPrefPage.fSeverity();
+        int cSeverity = PyLintPrefPage.cSeverity();
+        int rSeverity = PyLintPrefPage.rSeverity();
+
+        //System.out.println(output);
+        if (output.indexOf("Traceback (most recent call last):") != -1) {
+            Throwable e = new RuntimeException("PyLint ERROR: \n" + output);
+            Log.log(e);
+            return;
+        }
+        if (errors.indexOf("Traceback (most recent call last):") != -1) {
+            Throwable e = new RuntimeException("PyLint ERROR: \n" + errors);
+            Log.log(e);
+            return;
+        }
+        while (tokenizer.hasMoreTokens()) {
+            String tok = tokenizer.nextToken();
 
+            try {
+                boolean found = false;
+                int priority = 0;
+
+                //W0611:  3: Unused import finalize
+                //F0001:  0: Unable to load module test.test2 (list index out of range)
+                //C0321: 25:fdfd: More than one statement on a single line
+                int indexOfDoublePoints = tok.indexOf(":");
+                if (indexOfDoublePoints != -1) {
+
+                    if (tok.startsWith("C") && useC) {
+                        found = true;
+                        //priority = IMarker.SEVERITY_WARNING;
+                        priority = cSeverity;
+                    } else if (tok.startsWith("R") && useR) {
+                        found = true;
+                        //priority = IMarker.SEVERITY_WARNING;
+                        priority = rSeverity;
+                    } else if (tok.startsWith("W") && useW) {
+                        found = true;
+                        //priority = IMarker.SEVERITY_WARNING;
+                        priority = wSeverity;
+                    } else if (tok.startsWith("E") && useE) {
+                        found = true;
+                        //priority = IMarker.SEVERITY_ERROR;
+                        priority = eSeverity;
+                    } else if (tok.startsWith("F") && useF) {
+                        found = true;
+                        //priority = IMarker.SEVERITY_ERROR;
+                        priority = fSeverity;
                     } else {
                         continue;
                     }
 
-                    try {
-                        if (found) {
-                            int line = -1;
-                            String id = "";
-                            if (tok.indexOf(':') == 1) {
-                                // PyLint >= 1.0 has symbolic id at end of line, enclosed in parentheses
-                                Pattern p = PYLINT_MATCH_PATTERN;
-                                Matcher m = p.matcher(tok);
-                                if (m.matches()) {
-                                    line = Integer.parseInt(tok.substring(m.start(1), m.end(1)));
-                                    id = tok.substring(m.start(4), m.end(4)).trim();
-                                    tok = tok.substring(m.start(3), m.end(3)).trim();
-                                } else {
-                                    continue;
-                                }
-                            } else {
-                                // PyLint < 1.0 has 'Axxxx' alphanumeric id before first colon
-                                id = tok.substring(0, tok.indexOf(":")).trim();
+                } else {
+                    continue;
+                }
 
-                                int i = tok.indexOf(":");
-                                if (i == -1) {
-                                    continue;
-                                }
+                try {
+                    if (found) {
+                        int line = -1;
+                        String id = "";
+                        if (tok.indexOf(':') == 1) {
+                            // PyLint >= 1.0 has symbolic id at end of line, enclosed in parentheses
+                            Pattern p = PYLINT_MATCH_PATTERN;
+                            Matcher m = p.matcher(tok);
+                            if (m.matches()) {
+                                line = Integer.parseInt(tok.substring(m.start(1), m.end(1)));
+                                id = tok.substring(m.start(4), m.end(4)).trim();
+                                tok = tok.substring(m.start(3), m.end(3)).trim();
+                            } else {
+                                continue;
+                            }
+                        } else {
+                            // PyLint < 1.0 has 'Axxxx' alphanumeric id before first colon
+                            id = tok.substring(0, tok.indexOf(":")).trim();
 
-                                tok = tok.substring(i + 1);
+                            int i = tok.indexOf(":");
+                            if (i == -1) {
+                                continue;
+                            }
 
-                                i = tok.indexOf(":");
-                                if (i == -1) {
-                                    continue;
-                                }
+                            tok = tok.substring(i + 1);
 
-                                final String substring = tok.substring(0, i).trim();
-                                //On PyLint 0.24 it started giving line,col (and not only the line).
-                                line = Integer.parseInt(StringUtils.split(substring, ',').get(0));
+                            i = tok.indexOf(":");
+                            if (i == -1) {
+                                continue;
+                            }
 
-                                i = tok.indexOf(":");
-                                if (i == -1) {
-                                    continue;
-                                }
+                            final String substring = tok.substring(0, i).trim();
+                            //On PyLint 0.24 it started giving line,col (and not only the line).
+                            line = Integer.parseInt(StringUtils.split(substring, ',').get(0));
 
-                                tok = tok.substring(i + 1);
+                            i = tok.indexOf(":");
+                            if (i == -1) {
+                                continue;
                             }
-                            IRegion region = null;
-                            try {
-                                region = doc.getLineInformation(line - 1);
-                            } catch (Exception e) {
-                                region = doc.getLineInformation(line);
-                            }
-                            String lineContents = doc.get(region.getOffset(), region.getLength());
 
-                            int pos = -1;
-                            if ((pos = lineContents.indexOf("IGNORE:")) != -1) {
-                                String lintW = lineContents.substring(pos + "IGNORE:".length());
-                                if (lintW.startsWith(id)) {
-                                    continue;
-                                }
+                            tok = tok.substring(i + 1);
+                        }
+                        IRegion region = null;
+                        try {
+                            region = doc.getLineInformation(line - 1);
+                        } catch (Exception e) {
+                            region = doc.getLineInformation(line);
+                        }
+                        String lineContents = doc.get(region.getOffset(), region.getLength());
+
+                        int pos = -1;
+                        if ((pos = lineContents.indexOf("IGNORE:")) != -1) {
+                            String lintW = lineContents.substring(pos + "IGNORE:".length());
+                            if (lintW.startsWith(id)) {
+                                continue;
                             }
-                            addToMarkers(tok, priority, id, line - 1);
                         }
-                    } catch (RuntimeException e2) {
-                        Log.log(e2);
+                        markers.add(new Object[] { tok, priority, id, line - 1 });
                     }
-                } catch (Exception e1) {
-                    Log.log(e1);
+                } catch (RuntimeException e2) {
+                    Log.log(e2);
                 }
+            } catch (Exception e1) {
+                Log.log(e1);
             }
         }
+    }
+
+    /**
+     * @return the marker infos for the markers gotten from addMarkersFromOutput.
+     */
+    static ArrayList<MarkerInfo> createMarkerInfos(IDocument doc, List<Object[]> markers) {
+        ArrayList<MarkerInfo> lst = new ArrayList<PyMarkerUtils.MarkerInfo>();
 
-        private static Pattern PYLINT_MATCH_PATTERN = Pattern
-                .compile("\\A[CRWEF]:\\s*(\\d+)(,\\s*\\d+)?:(.*)\\((.*)\\)\\s*\\Z");
+        for (Iterator<Object[]> iter = markers.iterator(); iter.hasNext();) {
+            Object[] el = iter.next();
 
+            String tok = (String) el[0];
+            int priority = ((Integer) el[1]).intValue();
+            String id = (String) el[2];
+            int line = ((Integer) el[3]).intValue();
+
+            lst.add(new PyMarkerUtils.MarkerInfo(doc, "ID:" + id + " " + tok,
+                    PYLINT_PROBLEM_MARKER, priority, false, false, line, 0, line, 0, null));
+        }
+        return lst;
     }
 
     @Override
@@ -411,8 +425,12 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
             IFile file = (IFile) resource;
             IPath location = file.getRawLocation();
             if (location != null) {
-                PyLintThread thread = new PyLintThread(resource, document, location);
-                thread.start();
+                if (PyLintPrefPage.usePyLintWorker()) {
+                    PyLintBatches.add(file, document, location);
+                } else {
+                    PyLintThread thread = new PyLintThread(resource, document, location);
+                    thread.start();
+                }
             }
         }
     }
@@ -441,6 +459,13 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
         }
     }
 
+    /**
+     * Stops the pylint workers (and cancels the batches waiting to be analyzed).
+     */
+    public static void shutdownWorkers() {
+        PyLintBatches.shutdown();
+    }
+
     @Override
     public void visitRemovedResource(IResource resource, ICallback0<IDocument> document, IProgressMonitor monitor) {
     }
@@ -450,6 +475,10 @@ public class PyLintVisitor extends PyDevBuilderVisitor {
      */
     @Override
     public int maxResourcesToVisit() {
+        if (PyLintPrefPage.usePyLintWorker()) {
+            //The files are batched and the number of simultaneous workers is bounded.
+            return MAX_TO_VISIT_INFINITE;
+        }
         int i = PyLintPrefPage.getMaxPyLintDelta();
         if (i < 0) {
             i = 0;
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder.pylint;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.eclipse.core.runtime.CoreException;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.plugin.PydevPlugin;
+import org.python.pydev.runners.SimplePythonRunner;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.io.ThreadStreamReader;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.structure.Tuple;
+
+/**
+ * A python process (running pydev_pylint_worker.py) which runs pylint in-process for each file it receives, so,
+ * the interpreter startup and the astroid warm-up are only paid once (and the astroid cache is reused).
+ *
+ * Not thread-safe: only one thread may use it at a time (it's owned by the batch job of a project).
+ */
+final class PyLintWorker {
+
+    private static final String END_MARKER = "@@PYDEV_PYLINT_END@@ ";
+
+    private static final String ENCODING = "utf-8";
+
+    /**
+     * If linting a file takes more than this time, the worker is killed.
+     */
+    static long TIMEOUT_MILLIS = 2 * 60 * 1000;
+
+    private static final Object lock = new Object();
+
+    /**
+     * Used for the timeouts (created on demand and stopped on shutdown).
+     */
+    private static Timer timeoutTimer;
+
+    /**
+     * Identifies the configuration used to create the worker (if it changes a new worker must be created).
+     */
+    final String key;
+
+    final String commandLine;
+
+    private final Process process;
+
+    private final BufferedReader reader;
+
+    private final Writer writer;
+
+    private final ThreadStreamReader stderrReader;
+
+    private String[] lastArgs;
+
+    private long lastUsed = System.currentTimeMillis();
+
+    private volatile boolean timedOut;
+
+    private PyLintWorker(String key, Process process, String commandLine) throws IOException {
+        this.key = key;
+        this.process = process;
+        this.commandLine = commandLine;
+        this.reader = new BufferedReader(new InputStreamReader(process.getInputStream(), ENCODING));
+        this.writer = new OutputStreamWriter(process.getOutputStream(), ENCODING);
+        this.stderrReader = new ThreadStreamReader(process.getErrorStream(), true, ENCODING);
+        this.stderrReader.setName("PyLint worker stderr reader");
+        this.stderrReader.start();
+    }
+
+    static String createKey(String interpreter, String pylintScript, File workingDir) {
+        return interpreter + "|" + pylintScript + "|" + workingDir;
+    }
+
+    /**
+     * Starts the worker process with the environment (pythonpath) of the given nature.
+     */
+    static PyLintWorker create(String interpreter, String pylintScript, File workingDir, IPythonNature nature)
+            throws CoreException, IOException {
+        String workerScript = FileUtils.getFileAbsolutePath(PydevPlugin
+                .getScriptWithinPySrc("pydev_pylint_worker.py"));
+        String[] cmdArray = SimplePythonRunner.preparePythonCallParameters(interpreter, workerScript,
+                new String[] { pylintScript });
+
+        Tuple<Process, String> run = new SimplePythonRunner().run(cmdArray, workingDir, nature, null);
+        return new PyLintWorker(createKey(interpreter, pylintScript, workingDir), run.o1, run.o2);
+    }
+
+    /**
+     * Runs pylint with the given arguments in the given file.
+     *
+     * @return a tuple with the output of pylint for the file and what the worker wrote to stderr since the last
+     * run.
+     * @throws IOException if the communication with the process failed or timed out (it should be disposed in
+     * this case).
+     */
+    Tuple<String, String> lint(String[] args, String target) throws IOException {
+        lastUsed = System.currentTimeMillis();
+        TimerTask killOnTimeout = new TimerTask() {
+
+            @Override
+            public void run() {
+                timedOut = true;
+                process.destroy();
+            }
+        };
+        synchronized (lock) {
+            if (timeoutTimer == null) {
+                timeoutTimer = new Timer("PyLint worker timeout", true);
+            }
+            timeoutTimer.schedule(killOnTimeout, TIMEOUT_MILLIS);
+        }
+        FastStringBuffer buf = new FastStringBuffer(100 + target.length());
+        try {
+            if (!Arrays.equals(args, lastArgs)) {
+                buf.append("ARGS ").append(args.length).append('\n');
+                for (String arg : args) {
+                    buf.append(arg).append('\n');
+                }
+                lastArgs = args;
+            }
+            buf.append("LINT ").append(target).append('\n');
+            writer.write(buf.toString());
+            writer.flush();
+
+            buf.clear();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith(END_MARKER)) {
+                    lastUsed = System.currentTimeMillis();
+                    return new Tuple<String, String>(buf.toString(), stderrReader.getAndClearContents());
+                }
+                buf.append(line).append('\n');
+            }
+        } catch (IOException e) {
+            if (timedOut) {
+                throw new IOException("PyLint worker timed out linting " + target, e);
+            }
+            throw e;
+        } finally {
+            killOnTimeout.cancel();
+        }
+        if (timedOut) {
+            throw new IOException("PyLint worker timed out linting " + target);
+        }
+        throw new IOException("PyLint worker finished unexpectedly. Output:\n" + buf + "\nStderr:\n"
+                + stderrReader.getContents());
+    }
+
+    long getLastUsed() {
+        return lastUsed;
+    }
+
+    boolean isAlive() {
+        try {
+            process.exitValue();
+            return false;
+        } catch (IllegalThreadStateException e) {
+            return true;
+        }
+    }
+
+    void dispose() {
+        try {
+            writer.write("EXIT\n");
+            writer.flush();
+        } catch (IOException e) {
+            //Ignore (the process may already be dead).
+        }
+        process.destroy();
+        stderrReader.stopGettingOutput();
+    }
+
+    /**
+     * Stops the timer used for the timeouts (called when the plugin is stopped, after the workers are disposed).
+     */
+    static void shutdown() {
+        synchronized (lock) {
+            if (timeoutTimer != null) {
+                timeoutTimer.cancel();
+                timeoutTimer = null;
+            }
+        }
+    }
+}
@@ -6,10 +6,15 @@
  */
 package org.python.pydev.builder.syntaxchecker;
 
+import java.util.Map;
+
+import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.IDocument;
+import org.eclipse.ui.texteditor.MarkerUtilities;
 import org.python.pydev.builder.PyDevBuilderPrefPage;
 import org.python.pydev.builder.PyDevBuilderVisitor;
 import org.python.pydev.core.MisconfigurationException;
@@ -27,8 +32,18 @@ import org.python.pydev.shared_core.callbacks.ICallback0;
  */
 public class PySyntaxChecker extends PyDevBuilderVisitor {
 
+    /**
+     * The module is parsed/cached in the memo of the resource and only the error markers of the resource are changed
+     * (through changeMarkers).
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
-    public void visitChangedResource(IResource resource, ICallback0<IDocument> document, IProgressMonitor monitor) {
+    public void visitChangedResource(final IResource resource, ICallback0<IDocument> document,
+            IProgressMonitor monitor) {
         PythonNature nature = getPythonNature(resource);
         if (nature == null) {
             return;
@@ -57,17 +72,26 @@ public class PySyntaxChecker extends PyDevBuilderVisitor {
             return;
         }
         Throwable parseError = mod.parseError;
+        final Map<String, Object> errorMarker = parseError != null ? PyParser.createParserErrorMarkerAttributes(
+                parseError, doc) : null;
 
-        try {
-            PyParser.deleteErrorMarkers(resource);
-        } catch (CoreException e) {
-            Log.log(e);
-        }
+        changeMarkers(new IWorkspaceRunnable() {
 
-        if (parseError != null) {
-            PyParser.createParserErrorMarkers(parseError, resource, doc);
-        }
+            public void run(IProgressMonitor monitor) throws CoreException {
+                if (!resource.exists()) {
+                    return;
+                }
+                try {
+                    PyParser.deleteErrorMarkers(resource);
+                } catch (CoreException e) {
+                    Log.log(e);
+                }
 
+                if (errorMarker != null) {
+                    MarkerUtilities.createMarker(resource, errorMarker, IMarker.PROBLEM);
+                }
+            }
+        });
     }
 
     @Override
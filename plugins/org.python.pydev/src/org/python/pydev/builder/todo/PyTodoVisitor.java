@@ -18,6 +18,8 @@ import java.util.Map;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
@@ -35,18 +37,33 @@ import org.python.pydev.shared_ui.utils.PyMarkerUtils.MarkerInfo;
  */
 public class PyTodoVisitor extends PyDevBuilderVisitor {
 
+    /**
+     * Only works with the document/memo passed for the resource and with the markers of the resource (changed
+     * through changeMarkers).
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     /*
      * (non-Javadoc)
      *
      * @see org.python.pydev.builder.PyDevBuilderVisitor#visitResource(org.eclipse.core.resources.IResource)
      */
     @Override
-    public void visitChangedResource(IResource resource, ICallback0<IDocument> document, IProgressMonitor monitor) {
+    public void visitChangedResource(final IResource resource, ICallback0<IDocument> document,
+            final IProgressMonitor monitor) {
         if (document != null) {
             List<String> todoTags = PyTodoPrefPage.getTodoTags();
             try {
                 if (!isResourceInPythonpathProjectSources(resource, this.getPythonNature(resource), false)) {
-                    PyMarkerUtils.removeMarkers(resource, IMarker.TASK);
+                    changeMarkers(new IWorkspaceRunnable() {
+
+                        public void run(IProgressMonitor m) throws CoreException {
+                            PyMarkerUtils.removeMarkers(resource, IMarker.TASK);
+                        }
+                    });
                     return;
                 }
             } catch (Exception e1) {
@@ -55,8 +72,13 @@ public class PyTodoVisitor extends PyDevBuilderVisitor {
             }
 
             try {
-                PyMarkerUtils.replaceMarkers(computeTodoMarkers(document.call(), todoTags), resource, IMarker.TASK,
-                        false, monitor);
+                final List<MarkerInfo> todoMarkers = computeTodoMarkers(document.call(), todoTags);
+                changeMarkers(new IWorkspaceRunnable() {
+
+                    public void run(IProgressMonitor m) throws CoreException {
+                        PyMarkerUtils.replaceMarkers(todoMarkers, resource, IMarker.TASK, false, monitor);
+                    }
+                });
                 //timer.printDiff("Total time to put markers: "+lst.size());
             } catch (Exception e) {
                 Log.log(e);
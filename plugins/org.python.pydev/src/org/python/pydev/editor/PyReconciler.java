@@ -107,7 +107,7 @@ public class PyReconciler implements IReconcilingStrategy, IReconcilingStrategyE
                 //retain that object locked (the annotation model is used on lots of places, so, retaining the lock
                 //on it on a minimum priority thread is not a good thing.
                 thread.setPriority(Thread.NORM_PRIORITY);
-                Iterator<SpellingAnnotation> iter;
+                Iterator<?> iter;
 
                 synchronized (fLockObject) {
                     iter = fAnnotationModel.getAnnotationIterator();
@@ -133,7 +133,7 @@ public class PyReconciler implements IReconcilingStrategy, IReconcilingStrategyE
                             fAnnotationModel.removeAnnotation(annotationsToRemove[i]);
                         }
                         for (iter = fAddAnnotations.keySet().iterator(); iter.hasNext();) {
-                            Annotation annotation = iter.next();
+                            Annotation annotation = (Annotation) iter.next();
                             fAnnotationModel.addAnnotation(annotation, fAddAnnotations.get(annotation));
                         }
                     }
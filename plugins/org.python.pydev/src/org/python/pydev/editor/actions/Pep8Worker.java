@@ -0,0 +1,340 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.actions;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import org.eclipse.core.runtime.CoreException;
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.core.log.Log;
+import org.python.pydev.plugin.PydevPlugin;
+import org.python.pydev.runners.SimplePythonRunner;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.io.ThreadStreamReader;
+import org.python.pydev.shared_core.string.FastStringBuffer;
+import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_core.threaded_objects_pool.ThreadedObjectsPool;
+
+/**
+ * A python process (running pydev_pep8_worker.py) which runs pep8.py/autopep8.py in-process for each source it
+ * receives, so, the interpreter startup (and the import of the modules) is only paid once (and not on each
+ * format/analysis).
+ *
+ * The idle workers are kept in a pool (keyed by the interpreter) and are disposed if they're not used for some
+ * time. A worker which fails (crashes or times out) is disposed and a new one is started on the next request -- if
+ * it keeps on failing, the workers aren't used for that interpreter for some time (and clients fall back to running
+ * the script in a new process).
+ */
+final class Pep8Worker {
+
+    /**
+     * Set to false to always run the script in a new process.
+     */
+    static boolean USE_PEP8_WORKER = true;
+
+    /**
+     * If a run takes more than this time, the worker is killed.
+     */
+    static long TIMEOUT_MILLIS = 20 * 1000;
+
+    /**
+     * If a worker is not used for this time, it's disposed.
+     */
+    static long IDLE_TIMEOUT_MILLIS = 10 * 60 * 1000;
+
+    private static final int MAX_CONSECUTIVE_FAILURES = 3;
+
+    private static final long DISABLED_AFTER_FAILURES_MILLIS = 5 * 60 * 1000;
+
+    private static final String ENCODING = "utf-8";
+
+    private static final ThreadedObjectsPool<Pep8Worker> idleWorkers = new ThreadedObjectsPool<>(Math.max(2,
+            Runtime.getRuntime().availableProcessors()));
+
+    private static final Set<Pep8Worker> liveWorkers = new HashSet<Pep8Worker>();
+
+    private static final Map<String, Integer> consecutiveFailures = new HashMap<String, Integer>();
+
+    private static final Map<String, Long> disabledUntil = new HashMap<String, Long>();
+
+    private static final Object lock = new Object();
+
+    private static boolean shutdown = false;
+
+    /**
+     * Used for the run timeouts and for the idle timeouts.
+     */
+    private static Timer timeoutTimer;
+
+    private final Process process;
+
+    private final InputStream in;
+
+    private final OutputStream out;
+
+    private final ThreadStreamReader stderrReader;
+
+    private String[] lastArgs;
+
+    private volatile boolean timedOut;
+
+    private TimerTask disposeOnIdle;
+
+    private Pep8Worker(Process process) {
+        this.process = process;
+        this.in = new BufferedInputStream(process.getInputStream());
+        this.out = process.getOutputStream();
+        this.stderrReader = new ThreadStreamReader(process.getErrorStream(), true, ENCODING);
+        this.stderrReader.setName("Pep8 worker stderr reader");
+        this.stderrReader.start();
+    }
+
+    /**
+     * Runs the given script (pep8.py or autopep8.py) with the given arguments passing the contents as the input.
+     *
+     * @return a tuple with the stdout and stderr of the run or null if it was not possible to run it in a worker
+     * (in which case the client should run it in a new process).
+     */
+    static Tuple<String, String> run(String interpreter, File script, IPythonNature nature, String[] args,
+            String contents) {
+        if (!USE_PEP8_WORKER) {
+            return null;
+        }
+        File pep8Dir = script.getParentFile();
+        String key = interpreter + "|" + FileUtils.getFileAbsolutePath(pep8Dir);
+        synchronized (lock) {
+            Long until = disabledUntil.get(key);
+            if (shutdown || (until != null && until > System.currentTimeMillis())) {
+                return null;
+            }
+        }
+
+        Pep8Worker worker = idleWorkers.getObject(key);
+        try {
+            if (worker == null) {
+                worker = create(interpreter, pep8Dir, nature);
+            } else {
+                worker.cancelDisposeOnIdle();
+            }
+            Tuple<String, String> output = worker.run(script.getName(), args, contents);
+            synchronized (lock) {
+                consecutiveFailures.remove(key);
+            }
+            for (Pep8Worker removed : idleWorkers.putObject(key, worker)) {
+                removed.dispose();
+            }
+            worker.scheduleDisposeOnIdle();
+            return output;
+
+        } catch (Exception e) {
+            if (worker != null) {
+                worker.dispose();
+            }
+            onFailure(key, e);
+            return null;
+        }
+    }
+
+    private static void onFailure(String key, Exception e) {
+        synchronized (lock) {
+            if (shutdown) {
+                return;
+            }
+            Integer failures = consecutiveFailures.get(key);
+            failures = failures == null ? 1 : failures + 1;
+            if (failures >= MAX_CONSECUTIVE_FAILURES) {
+                consecutiveFailures.remove(key);
+                disabledUntil.put(key, System.currentTimeMillis() + DISABLED_AFTER_FAILURES_MILLIS);
+                Log.log("Pep8 worker failed " + failures + " times in a row (a new process will be used on each "
+                        + "run for some time).", e);
+            } else {
+                consecutiveFailures.put(key, failures);
+                Log.log(e);
+            }
+        }
+    }
+
+    private static Pep8Worker create(String interpreter, File pep8Dir, IPythonNature nature)
+            throws CoreException, IOException {
+        String workerScript = FileUtils.getFileAbsolutePath(PydevPlugin.getScriptWithinPySrc("pydev_pep8_worker.py"));
+        String[] cmdArray = SimplePythonRunner.preparePythonCallParameters(interpreter, workerScript,
+                new String[] { FileUtils.getFileAbsolutePath(pep8Dir) });
+
+        Tuple<Process, String> run = new SimplePythonRunner().run(cmdArray, pep8Dir, nature, null);
+        Pep8Worker worker = new Pep8Worker(run.o1);
+        synchronized (lock) {
+            if (!shutdown) {
+                liveWorkers.add(worker);
+                if (timeoutTimer == null) {
+                    timeoutTimer = new Timer("Pep8 worker timeout", true);
+                }
+                return worker;
+            }
+        }
+        worker.dispose();
+        throw new IOException("Pep8 workers already shutdown.");
+    }
+
+    /**
+     * Disposes this worker if it's still idle in the pool after IDLE_TIMEOUT_MILLIS.
+     */
+    private void scheduleDisposeOnIdle() {
+        TimerTask task = new TimerTask() {
+
+            @Override
+            public void run() {
+                //if it's not in the pool, it's being used (or was already disposed).
+                if (idleWorkers.removeObject(Pep8Worker.this)) {
+                    dispose();
+                }
+            }
+        };
+        synchronized (lock) {
+            if (timeoutTimer != null) {
+                disposeOnIdle = task;
+                timeoutTimer.schedule(task, IDLE_TIMEOUT_MILLIS);
+            }
+        }
+    }
+
+    private void cancelDisposeOnIdle() {
+        synchronized (lock) {
+            if (disposeOnIdle != null) {
+                disposeOnIdle.cancel();
+                disposeOnIdle = null;
+            }
+        }
+    }
+
+    /**
+     * @throws IOException if the communication with the process failed or timed out (it should be disposed in
+     * this case).
+     */
+    private Tuple<String, String> run(String script, String[] args, String contents) throws IOException {
+        TimerTask killOnTimeout = new TimerTask() {
+
+            @Override
+            public void run() {
+                timedOut = true;
+                process.destroy();
+            }
+        };
+        synchronized (lock) {
+            if (timeoutTimer == null) {
+                throw new IOException("Pep8 workers already shutdown.");
+            }
+            timeoutTimer.schedule(killOnTimeout, TIMEOUT_MILLIS);
+        }
+        try {
+            FastStringBuffer buf = new FastStringBuffer(100);
+            if (!Arrays.equals(args, lastArgs)) {
+                buf.append("ARGS ").append(args.length).append('\n');
+                for (String arg : args) {
+                    buf.append(arg).append('\n');
+                }
+                lastArgs = args;
+            }
+            byte[] bytes = contents.getBytes(ENCODING);
+            buf.append("RUN ").append(script).append(' ').append(bytes.length).append('\n');
+            out.write(buf.toString().getBytes(ENCODING));
+            out.write(bytes);
+            out.flush();
+
+            String stdout = readBlock("OUT");
+            String stderr = readBlock("ERR");
+            return new Tuple<String, String>(stdout, stderr);
+
+        } catch (IOException e) {
+            if (timedOut) {
+                throw new IOException("Pep8 worker timed out running " + script, e);
+            }
+            throw new IOException("Pep8 worker finished unexpectedly. Stderr:\n" + stderrReader.getContents(), e);
+        } finally {
+            killOnTimeout.cancel();
+        }
+    }
+
+    /**
+     * Reads a block written as: <header> <nbytes>\n<bytes>
+     */
+    private String readBlock(String header) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream(20);
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                throw new IOException("Unexpected end of stream.");
+            }
+            line.write(c);
+        }
+        String headerLine = line.toString(ENCODING).trim();
+        if (!headerLine.startsWith(header + " ")) {
+            throw new IOException("Expected: " + header + ". Found: " + headerLine);
+        }
+        int len;
+        try {
+            len = Integer.parseInt(headerLine.substring(header.length() + 1));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid header: " + headerLine, e);
+        }
+        byte[] bytes = new byte[len];
+        int read = 0;
+        while (read < len) {
+            int r = in.read(bytes, read, len - read);
+            if (r == -1) {
+                throw new IOException("Unexpected end of stream.");
+            }
+            read += r;
+        }
+        return new String(bytes, ENCODING);
+    }
+
+    private void dispose() {
+        synchronized (lock) {
+            liveWorkers.remove(this);
+        }
+        try {
+            out.write("EXIT\n".getBytes(ENCODING));
+            out.flush();
+        } catch (IOException e) {
+            //Ignore (the process may already be dead).
+        }
+        process.destroy();
+        stderrReader.stopGettingOutput();
+    }
+
+    /**
+     * Stops all the workers (called when the plugin is stopped).
+     */
+    static void shutdown() {
+        List<Pep8Worker> toDispose;
+        synchronized (lock) {
+            shutdown = true;
+            toDispose = new ArrayList<Pep8Worker>(liveWorkers);
+            if (timeoutTimer != null) {
+                timeoutTimer.cancel();
+                timeoutTimer = null;
+            }
+        }
+        for (Pep8Worker worker : toDispose) {
+            worker.dispose();
+        }
+    }
+}
@@ -411,6 +411,13 @@ public class PyFormatStd extends PyAction implements IFormatter {
         }
     }
 
+    /**
+     * Stops the workers used to run pep8/autopep8 (called when the plugin is stopped).
+     */
+    public static void shutdownPep8Workers() {
+        Pep8Worker.shutdown();
+    }
+
     /**
      * @param fileContents the contents to be passed in the stdin.
      * @param parameters the parameters to pass. Note that a '-' is always added to the parameters to signal we'll pass the file as the input in stdin.
@@ -442,6 +449,21 @@ public class PyFormatStd extends PyAction implements IFormatter {
             return defaultReturn;
         }
         String[] parseArguments = ProcessUtils.parseArguments(parameters);
+        SystemPythonNature nature = new SystemPythonNature(pythonInterpreterManager, defaultInterpreterInfo);
+
+        //Try to run it in a long-lived worker (and if that's not possible, start a new process for it).
+        Tuple<String, String> workerOutput = Pep8Worker.run(defaultInterpreterInfo.getExecutableOrJar(),
+                autopep8File, nature, parseArguments, fileContents);
+        if (workerOutput != null) {
+            if (workerOutput.o2.length() > 0) {
+                Log.log(workerOutput.o2);
+            }
+            if (workerOutput.o1.length() > 0) {
+                return workerOutput.o1;
+            }
+            return defaultReturn;
+        }
+
         List<String> lst = new ArrayList<>(Arrays.asList(parseArguments));
         lst.add("-");
 
@@ -456,7 +478,6 @@ public class PyFormatStd extends PyAction implements IFormatter {
         }
         final String encodingUsed = pythonFileEncoding;
 
-        SystemPythonNature nature = new SystemPythonNature(pythonInterpreterManager, defaultInterpreterInfo);
         ICallback<String[], String[]> updateEnv = new ICallback<String[], String[]>() {
 
             @Override
@@ -173,9 +173,9 @@ public class CodeFoldingSetter implements IModelListener, IPropertyListener, IPy
                 ArrayList<PyProjectionAnnotation> existing = new ArrayList<PyProjectionAnnotation>();
 
                 //get the existing annotations
-                Iterator<PyProjectionAnnotation> iter = model.getAnnotationIterator();
+                Iterator<?> iter = model.getAnnotationIterator();
                 while (iter != null && iter.hasNext()) {
-                    PyProjectionAnnotation element = iter.next();
+                    PyProjectionAnnotation element = (PyProjectionAnnotation) iter.next();
                     existing.add(element);
                 }
 
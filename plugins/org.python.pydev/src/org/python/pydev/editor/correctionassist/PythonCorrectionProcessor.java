@@ -203,7 +203,7 @@ public class PythonCorrectionProcessor implements IQuickAssistProcessor {
             ICompletionProposal[] spellProps = null;
 
             IAnnotationModel annotationModel = editor.getPySourceViewer().getAnnotationModel();
-            Iterator<Object> it = annotationModel.getAnnotationIterator();
+            Iterator<?> it = annotationModel.getAnnotationIterator();
             while (it.hasNext()) {
                 Object annotation = it.next();
                 if (annotation instanceof SpellingAnnotation) {
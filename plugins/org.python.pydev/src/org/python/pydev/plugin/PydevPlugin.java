@@ -38,11 +38,13 @@ import org.eclipse.swt.graphics.Color;
 import org.eclipse.ui.plugin.AbstractUIPlugin;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
+import org.python.pydev.builder.pylint.PyLintVisitor;
 import org.python.pydev.core.IInterpreterInfo;
 import org.python.pydev.core.IInterpreterManager;
 import org.python.pydev.core.IPythonNature;
 import org.python.pydev.core.MisconfigurationException;
 import org.python.pydev.core.log.Log;
+import org.python.pydev.editor.actions.PyFormatStd;
 import org.python.pydev.editor.codecompletion.revisited.SyncSystemModulesManagerScheduler;
 import org.python.pydev.editor.codecompletion.shell.AbstractShell;
 import org.python.pydev.plugin.nature.PythonNature;
@@ -291,6 +293,8 @@ public class PydevPlugin extends AbstractUIPlugin {
         try {
             //stop the running shells
             AbstractShell.shutdownAllShells();
+            PyLintVisitor.shutdownWorkers();
+            PyFormatStd.shutdownPep8Workers();
 
             //save the natures (code completion stuff) -- and only the ones initialized
             //(no point in getting the ones not initialized)
@@ -560,6 +564,14 @@ public class PydevPlugin extends AbstractUIPlugin {
     //Default for using in tests (could be private)
     /*default*/static File location;
 
+    /**
+     * Sets the location where the workspace metadata files are saved when there's no platform running (i.e.: in
+     * headless tests or benchmarks).
+     */
+    public static void setStateLocationWithoutPlatform(File stateLocation) {
+        location = stateLocation;
+    }
+
     /**
      * Loads from the workspace metadata a given object (given the filename)
      */
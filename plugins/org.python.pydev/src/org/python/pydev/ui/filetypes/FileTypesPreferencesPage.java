@@ -15,6 +15,7 @@ import org.eclipse.jface.util.PropertyChangeEvent;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
+import org.python.pydev.editor.codecompletion.revisited.ZipContentsCache;
 import org.python.pydev.plugin.PydevPlugin;
 import org.python.pydev.plugin.preferences.PydevPrefs;
 import org.python.pydev.shared_core.SharedCorePlugin;
@@ -102,6 +103,10 @@ public class FileTypesPreferencesPage extends FieldEditorPreferencePage implemen
             this.dottedValidSourceFiles = null;
             this.pythondValidSourceFiles = null;
             this.pythonValidInitFiles = null;
+            if (VALID_SOURCE_FILES.equals(event.getProperty())) {
+                //the modules found in the zips depend on the valid source files.
+                ZipContentsCache.clear();
+            }
         }
 
         //return new String[] { "*.py", "*.pyw" };
@@ -24,9 +24,12 @@ import org.eclipse.core.runtime.IProgressMonitor;
 import org.eclipse.core.runtime.NullProgressMonitor;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.PythonPathHelper;
+import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.LinkedListWarningOnSlowOperations;
+import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.shared_core.utils.ParallelUtils;
 import org.python.pydev.ui.filetypes.FileTypesPreferencesPage;
 
 /**
@@ -116,6 +119,7 @@ public class PyFileListing {
                 try {
                     File canonicalizedDir = file.getCanonicalFile();
                     if (!canonicalizedDir.equals(file)) {
+                        result.foundLinkedFolder = true;
                         if (canonicalFolders.contains(canonicalizedDir)) {
                             return result;
                         }
@@ -164,6 +168,13 @@ public class PyFileListing {
                     if (!checkHasInit || hasInit || level == 0) {
                         result.foldersFound.add(file);
 
+                        if (level == 0 && addSubFolders && ParallelUtils.USE_PARALLEL_INDEXING
+                                && !result.foundLinkedFolder && foldersLater.size() > 1) {
+                            getSubFoldersInParallel(result, foldersLater, filter, monitor, checkHasInit,
+                                    currModuleRep, canonicalFolders);
+                            foldersLater.clear();
+                        }
+
                         for (File folder : foldersLater) {
 
                             if (monitor.isCanceled()) {
@@ -191,6 +202,54 @@ public class PyFileListing {
         return result;
     }
 
+    /**
+     * Lists each one of the passed folders (which are in the first level) in parallel and merges the results in the
+     * same order in which they'd be found in a sequential listing.
+     */
+    private static void getSubFoldersInParallel(PyFileListing result, List<File> folders, final FileFilter filter,
+            IProgressMonitor monitor, final boolean checkHasInit, final String currModuleRep,
+            Set<File> canonicalFolders) {
+        final Set<File> initialCanonicalFolders = new HashSet<File>(canonicalFolders);
+        final IProgressMonitor workerMonitor = ParallelUtils.createCancelOnlyMonitor(monitor);
+
+        List<Tuple<PyFileListing, Set<File>>> listings = ParallelUtils.map(new ArrayList<File>(folders),
+                new ICallback<Tuple<PyFileListing, Set<File>>, File>() {
+
+                    public Tuple<PyFileListing, Set<File>> call(File folder) {
+                        if (!folder.isDirectory()) {
+                            return null;
+                        }
+                        Set<File> subCanonicalFolders = new HashSet<File>(initialCanonicalFolders);
+                        PyFileListing listing = getPyFilesBelow(new PyFileListing(), folder, filter, workerMonitor,
+                                true, 1, checkHasInit, currModuleRep, subCanonicalFolders);
+                        return new Tuple<PyFileListing, Set<File>>(listing, subCanonicalFolders);
+                    }
+                }, workerMonitor);
+
+        int i = 0;
+        for (File folder : folders) {
+            Tuple<PyFileListing, Set<File>> found = listings.get(i);
+            i++;
+            if (monitor.isCanceled()) {
+                break;
+            }
+            if (found == null) {
+                continue;
+            }
+            if (found.o1.foundLinkedFolder) {
+                //A linked folder may have to be skipped because it was already found in a previous folder, so,
+                //redo it sequentially with the folders found so far (links should be rare).
+                getPyFilesBelow(result, folder, filter, monitor, true, 1, checkHasInit, currModuleRep,
+                        canonicalFolders);
+            } else {
+                result.pyFileInfos.addAll(found.o1.pyFileInfos);
+                result.foldersFound.addAll(found.o1.foldersFound);
+                canonicalFolders.addAll(found.o2);
+            }
+            monitor.worked(1);
+        }
+    }
+
     private static PyFileListing getPyFilesBelow(File file, FileFilter filter, IProgressMonitor monitor,
             boolean addSubFolders, boolean checkHasInit) {
         PyFileListing result = new PyFileListing();
@@ -280,6 +339,11 @@ public class PyFileListing {
      */
     private List<File> foldersFound = new ArrayList<File>();
 
+    /**
+     * Whether some folder found is a link (i.e.: its canonical path is not the same path used in the listing).
+     */
+    private boolean foundLinkedFolder;
+
     public PyFileListing() {
     }
 
@@ -0,0 +1,239 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.pydev.core.log.Log;
+import org.python.pydev.parser.ASTSerializer;
+import org.python.pydev.parser.jython.SimpleNode;
+
+/**
+ * A cache of parsed ASTs on disk (used so that modules which are removed from the in-memory cache of the modules
+ * manager don't need to be reparsed when they're requested again -- i.e.: library modules).
+ *
+ * Entries are keyed by a hash of the contents of the module (along with the grammar version, the format of the
+ * serializer and whether the AST was compacted -- see CompactAstVisitor), so, there's no need to invalidate an
+ * entry when a file changes (it just won't be found anymore).
+ *
+ * The size of the directory is bounded: when it gets above the maximum size, the least recently used entries
+ * (based on their last modified time, which is updated on each access) are removed.
+ *
+ * @author Fabio
+ */
+public final class ASTDiskCache {
+
+    public static final String DIR_NAME_FOR_AST_CACHE = "ast_cache";
+
+    public static final long DEFAULT_MAX_SIZE = 128L * 1024L * 1024L;
+
+    private static final String EXTENSION = ".ast";
+
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final File dir;
+
+    private final long maxSize;
+
+    /**
+     * The current size of the files in the cache (-1 until it's computed by listing the directory).
+     */
+    private final AtomicLong currentSize = new AtomicLong(-1);
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final Object evictionLock = new Object();
+
+    public ASTDiskCache(File dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @param compacted whether the AST to be gotten is a compacted one (full and compacted ASTs are kept apart).
+     * @return the cached AST for the given contents or null if it's not available.
+     */
+    public SimpleNode get(String contents, int grammarVersion, boolean compacted) {
+        File file = getFile(contents, grammarVersion, compacted);
+        if (!file.isFile()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        SimpleNode ast;
+        try {
+            ast = ASTSerializer.fromBytes(Files.readAllBytes(file.toPath()));
+        } catch (IOException e) {
+            //Corrupted or written with a different version of the AST classes: just remove it.
+            remove(file);
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        file.setLastModified(System.currentTimeMillis()); //Used as the LRU order.
+        return ast;
+    }
+
+    /**
+     * Adds the AST for the given contents to the cache (the file is written to a temporary file which is then
+     * renamed, so, readers never see a partially written entry).
+     *
+     * @param compacted whether the passed AST was compacted.
+     */
+    public void put(String contents, int grammarVersion, boolean compacted, SimpleNode ast) {
+        File file = getFile(contents, grammarVersion, compacted);
+        if (file.isFile()) {
+            return;
+        }
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        File tempFile = new File(dir, file.getName() + "." + Thread.currentThread().getId() + TEMP_EXTENSION);
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile))) {
+                ASTSerializer.write(ast, out);
+            }
+            long size = tempFile.length();
+            Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            if (currentSize.get() != -1) {
+                currentSize.addAndGet(size);
+            }
+        } catch (IOException e) {
+            Log.log(e);
+            tempFile.delete();
+            return;
+        }
+        evictIfNeeded();
+    }
+
+    /**
+     * Removes all the entries in the cache.
+     */
+    public void clear() {
+        synchronized (evictionLock) {
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    if (f.isFile()) {
+                        f.delete();
+                    }
+                }
+            }
+            currentSize.set(0);
+        }
+    }
+
+    private void remove(File file) {
+        long size = file.length();
+        if (file.delete() && currentSize.get() != -1) {
+            currentSize.addAndGet(-size);
+        }
+    }
+
+    /**
+     * Removes the least recently used files until the cache is at 80% of the max size.
+     */
+    private void evictIfNeeded() {
+        long size = currentSize.get();
+        if (size != -1 && size <= maxSize) {
+            return;
+        }
+        synchronized (evictionLock) {
+            File[] files = dir.listFiles();
+            if (files == null) {
+                return;
+            }
+            final long[] lastModified = new long[files.length];
+            long total = 0;
+            Integer[] indexes = new Integer[files.length];
+            for (int i = 0; i < files.length; i++) {
+                File f = files[i];
+                indexes[i] = i;
+                lastModified[i] = f.lastModified();
+                if (f.getName().endsWith(EXTENSION)) {
+                    total += f.length();
+                }
+            }
+            currentSize.set(total);
+            if (total <= maxSize) {
+                return;
+            }
+            Arrays.sort(indexes, new Comparator<Integer>() {
+
+                @Override
+                public int compare(Integer o1, Integer o2) {
+                    long l1 = lastModified[o1];
+                    long l2 = lastModified[o2];
+                    return l1 < l2 ? -1 : (l1 == l2 ? 0 : 1);
+                }
+            });
+
+            long target = (maxSize / 10) * 8;
+            for (int i = 0; i < indexes.length && total > target; i++) {
+                File f = files[indexes[i]];
+                if (f.getName().endsWith(EXTENSION)) {
+                    long len = f.length();
+                    if (f.delete()) {
+                        total -= len;
+                    }
+                }
+            }
+            currentSize.set(total);
+        }
+    }
+
+    /*default*/File getFile(String contents, int grammarVersion, boolean compacted) {
+        return new File(dir, getKey(contents) + "_" + grammarVersion + "_" + ASTSerializer.FORMAT_VERSION
+                + (compacted ? "_c" : "_f") + EXTENSION);
+    }
+
+    /**
+     * Note: we don't use StringUtils.md5 because it keeps the strings in a cache (and we don't want to keep the
+     * whole contents of the modules alive).
+     */
+    private static String getKey(String contents) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(contents.getBytes(StandardCharsets.UTF_8));
+            char[] chars = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                int b = digest[i] & 0xFF;
+                chars[i * 2] = Character.forDigit(b >>> 4, 16);
+                chars[i * 2 + 1] = Character.forDigit(b & 0xF, 16);
+            }
+            return new String(chars);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "ASTDiskCache [dir=" + dir + ", hits=" + hits.get() + ", misses=" + misses.get() + "]";
+    }
+}
@@ -60,6 +60,7 @@ import org.python.pydev.parser.jython.ast.NameTok;
 import org.python.pydev.parser.jython.ast.aliasType;
 import org.python.pydev.parser.jython.ast.exprType;
 import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.parser.visitors.CompactAstVisitor;
 import org.python.pydev.parser.visitors.NodeUtils;
 import org.python.pydev.plugin.PydevPlugin;
 import org.python.pydev.shared_core.cache.LRUMap;
@@ -90,6 +91,12 @@ public abstract class ModulesManager implements IModulesManager {
 
     private final static boolean DEBUG_ZIP = false;
 
+    /**
+     * Whether the ASTs of the modules created (and cached) by the modules manager should be compacted (see
+     * CompactAstVisitor). Those ASTs are only used for code-completion/analysis (the editor has its own AST).
+     */
+    public static final boolean COMPACT_CACHED_ASTS = true;
+
     static {
         OnExpectedOutOfMemory.clearCacheOnOutOfMemory.registerListener(new ICallbackListener<Object>() {
 
@@ -858,97 +865,116 @@ public abstract class ModulesManager implements IModulesManager {
         }
 
         if (n instanceof EmptyModule) {
-            EmptyModule e = (EmptyModule) n;
-            if (e.f != null) {
-
-                if (!e.f.exists()) {
-                    //if the file does not exist anymore, just remove it.
+            //Only one thread should create a given module (the others wait and get it from the cache).
+            ModulesKey creationKey = new ModulesKey(name, null);
+            Object creationLock = cache.acquireCreationLock(creationKey, this);
+            try {
+                synchronized (creationLock) {
                     keyForCacheAccess.name = name;
-                    keyForCacheAccess.file = e.f;
-                    doRemoveSingleModule(keyForCacheAccess);
-                    n = null;
-
-                } else {
-                    //file exists
-                    n = checkOverride(name, nature, n);
+                    keyForCacheAccess.file = null;
+                    AbstractModule current = cache.getObj(keyForCacheAccess, this);
+                    if (current != null && !(current instanceof EmptyModule)) {
+                        //Created by another thread while we were waiting.
+                        n = current;
+                    }
 
                     if (n instanceof EmptyModule) {
-                        //ok, handle case where the file is actually from a zip file...
-                        if (e instanceof EmptyModuleForZip) {
-                            EmptyModuleForZip emptyModuleForZip = (EmptyModuleForZip) e;
-
-                            if (emptyModuleForZip.pathInZip.endsWith(".class") || !emptyModuleForZip.isFile) {
-                                //handle java class... (if it's a class or a folder in a jar)
-                                try {
-                                    n = JythonModulesManagerUtils.createModuleFromJar(emptyModuleForZip);
-                                    n = decorateModule(n, nature);
-                                } catch (Throwable e1) {
-                                    Log.log("Unable to create module from jar (note: JDT is required for Jython development): "
-                                            + emptyModuleForZip + " project: "
-                                            + (nature != null ? nature.getProject() : "null"), e1);
-                                    n = null;
-                                }
+                        EmptyModule e = (EmptyModule) n;
+                        if (e.f != null) {
 
-                            } else if (FileTypesPreferencesPage.isValidDll(emptyModuleForZip.pathInZip)) {
-                                //.pyd
-                                n = new CompiledModule(name, this);
-                                n = decorateModule(n, nature);
-
-                            } else if (PythonPathHelper.isValidSourceFile(emptyModuleForZip.pathInZip)) {
-                                //handle python file from zip... we have to create it getting the contents from the zip file
-                                try {
-                                    IDocument doc = FileUtilsFileBuffer.getDocFromZip(emptyModuleForZip.f,
-                                            emptyModuleForZip.pathInZip);
-                                    //NOTE: The nature (and so the grammar to be used) must be defined by this modules
-                                    //manager (and not by the initial caller)!!
-                                    n = AbstractModule.createModuleFromDoc(name, emptyModuleForZip.f, doc,
-                                            this.getNature(), false);
-                                    SourceModule zipModule = (SourceModule) n;
-                                    zipModule.zipFilePath = emptyModuleForZip.pathInZip;
-                                    n = decorateModule(n, nature);
-                                } catch (Exception exc1) {
-                                    Log.log(exc1);
-                                    n = null;
-                                }
-                            }
-
-                        } else {
-                            //regular case... just go on and create it.
-                            try {
-                                //NOTE: The nature (and so the grammar to be used) must be defined by this modules
-                                //manager (and not by the initial caller)!!
-                                n = AbstractModule.createModule(name, e.f, this.getNature(), true);
-                                n = decorateModule(n, nature);
-                            } catch (IOException exc) {
+                            if (!e.f.exists()) {
+                                //if the file does not exist anymore, just remove it.
                                 keyForCacheAccess.name = name;
                                 keyForCacheAccess.file = e.f;
                                 doRemoveSingleModule(keyForCacheAccess);
                                 n = null;
-                            } catch (MisconfigurationException exc) {
-                                Log.log(exc);
-                                n = null;
+
+                            } else {
+                                //file exists
+                                n = checkOverride(name, nature, n);
+
+                                if (n instanceof EmptyModule) {
+                                    //ok, handle case where the file is actually from a zip file...
+                                    if (e instanceof EmptyModuleForZip) {
+                                        EmptyModuleForZip emptyModuleForZip = (EmptyModuleForZip) e;
+
+                                        if (emptyModuleForZip.pathInZip.endsWith(".class") || !emptyModuleForZip.isFile) {
+                                            //handle java class... (if it's a class or a folder in a jar)
+                                            try {
+                                                n = JythonModulesManagerUtils.createModuleFromJar(emptyModuleForZip);
+                                                n = decorateModule(n, nature);
+                                            } catch (Throwable e1) {
+                                                Log.log("Unable to create module from jar (note: JDT is required for Jython development): "
+                                                        + emptyModuleForZip + " project: "
+                                                        + (nature != null ? nature.getProject() : "null"), e1);
+                                                n = null;
+                                            }
+
+                                        } else if (FileTypesPreferencesPage.isValidDll(emptyModuleForZip.pathInZip)) {
+                                            //.pyd
+                                            n = new CompiledModule(name, this);
+                                            n = decorateModule(n, nature);
+
+                                        } else if (PythonPathHelper.isValidSourceFile(emptyModuleForZip.pathInZip)) {
+                                            //handle python file from zip... we have to create it getting the contents from the zip file
+                                            try {
+                                                IDocument doc = FileUtilsFileBuffer.getDocFromZip(emptyModuleForZip.f,
+                                                        emptyModuleForZip.pathInZip);
+                                                //NOTE: The nature (and so the grammar to be used) must be defined by this modules
+                                                //manager (and not by the initial caller)!!
+                                                n = AbstractModule.createModuleFromDoc(name, emptyModuleForZip.f, doc,
+                                                        this.getNature(), false, COMPACT_CACHED_ASTS);
+                                                SourceModule zipModule = (SourceModule) n;
+                                                zipModule.zipFilePath = emptyModuleForZip.pathInZip;
+                                                n = decorateModule(n, nature);
+                                            } catch (Exception exc1) {
+                                                Log.log(exc1);
+                                                n = null;
+                                            }
+                                        }
+
+                                    } else {
+                                        //regular case... just go on and create it.
+                                        try {
+                                            //NOTE: The nature (and so the grammar to be used) must be defined by this modules
+                                            //manager (and not by the initial caller)!!
+                                            n = createModuleFromFile(name, e.f);
+                                            n = decorateModule(n, nature);
+                                        } catch (IOException exc) {
+                                            keyForCacheAccess.name = name;
+                                            keyForCacheAccess.file = e.f;
+                                            doRemoveSingleModule(keyForCacheAccess);
+                                            n = null;
+                                        } catch (MisconfigurationException exc) {
+                                            Log.log(exc);
+                                            n = null;
+                                        }
+                                    }
+                                }
+
                             }
-                        }
-                    }
 
-                }
+                        } else { //ok, it does not have a file associated, so, we treat it as a builtin (this can happen in java jars)
+                            n = checkOverride(name, nature, n);
+                            if (n instanceof EmptyModule) {
+                                if (acceptCompiledModule) {
+                                    n = new CompiledModule(name, this);
+                                    n = decorateModule(n, nature);
+                                } else {
+                                    return null;
+                                }
+                            }
+                        }
 
-            } else { //ok, it does not have a file associated, so, we treat it as a builtin (this can happen in java jars)
-                n = checkOverride(name, nature, n);
-                if (n instanceof EmptyModule) {
-                    if (acceptCompiledModule) {
-                        n = new CompiledModule(name, this);
-                        n = decorateModule(n, nature);
-                    } else {
-                        return null;
+                        if (n != null) {
+                            doAddSingleModule(createModulesKey(name, e.f), n);
+                        } else {
+                            Log.log(("The module " + name + " could not be found nor created!"));
+                        }
                     }
                 }
-            }
-
-            if (n != null) {
-                doAddSingleModule(createModulesKey(name, e.f), n);
-            } else {
-                Log.log(("The module " + name + " could not be found nor created!"));
+            } finally {
+                cache.releaseCreationLock(creationKey, this, creationLock);
             }
         }
 
@@ -1068,6 +1094,48 @@ public abstract class ModulesManager implements IModulesManager {
         return n;
     }
 
+    /**
+     * Creates the module for the given file (for source modules, the AST disk cache is checked before parsing the
+     * file -- and the parsed AST is added to it afterwards).
+     * 
+     * NOTE: The nature (and so the grammar to be used) must be defined by this modules manager.
+     */
+    private AbstractModule createModuleFromFile(String name, File f) throws IOException, MisconfigurationException {
+        if (!PythonPathHelper.isValidSourceFile(f.getName())) {
+            return AbstractModule.createModule(name, f, this.getNature(), true);
+        }
+        IPythonNature thisNature = this.getNature();
+        IDocument doc = FileUtilsFileBuffer.getDocFromFile(f);
+        ASTDiskCache astDiskCache = getAstDiskCache();
+        if (astDiskCache == null) {
+            return AbstractModule.createModuleFromDoc(name, f, doc, thisNature, true, COMPACT_CACHED_ASTS);
+        }
+        int grammarVersion = thisNature.getGrammarVersion();
+        String contents = doc.get();
+
+        SimpleNode ast = astDiskCache.get(contents, grammarVersion, COMPACT_CACHED_ASTS);
+        if (ast != null) {
+            if (COMPACT_CACHED_ASTS) {
+                //The deserialized AST has a new String for each name (so, intern them as in a parsed AST).
+                CompactAstVisitor.compact(ast);
+            }
+            return (AbstractModule) AbstractModule.createModule(ast, f, name);
+        }
+        SourceModule module = AbstractModule.createModuleFromDoc(name, f, doc, thisNature, true, COMPACT_CACHED_ASTS);
+        if (module != null && module.parseError == null && module.getAst() != null) {
+            astDiskCache.put(contents, grammarVersion, COMPACT_CACHED_ASTS, module.getAst());
+        }
+        return module;
+    }
+
+    /**
+     * @return the cache to be used to keep the ASTs of the modules on disk (or null if this manager shouldn't
+     * use one). Subclasses may override (i.e.: the system modules manager keeps one in the interpreter metadata).
+     */
+    protected ASTDiskCache getAstDiskCache() {
+        return null;
+    }
+
     /**
      * Hook called to give clients a chance to override the module created (still experimenting, so, it's not public).
      */
@@ -1095,6 +1163,14 @@ public abstract class ModulesManager implements IModulesManager {
         ModulesManager.cache.clear();
     }
 
+    /**
+     * @return the statistics for the global modules cache (hits, misses, evictions and estimated memory) for
+     * diagnostic purposes.
+     */
+    public static String getCacheStatistics() {
+        return ModulesManager.cache.getStatistics();
+    }
+
     /**
      * @see org.python.pydev.core.IProjectModulesManager#isInPythonPath(org.eclipse.core.resources.IResource, org.eclipse.core.resources.IProject)
      */
@@ -6,71 +6,357 @@
  */
 package org.python.pydev.editor.codecompletion.revisited;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
 import org.python.pydev.core.ModulesKey;
+import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
-import org.python.pydev.shared_core.cache.LRUCache;
+import org.python.pydev.editor.codecompletion.revisited.modules.CompiledModule;
+import org.python.pydev.editor.codecompletion.revisited.modules.SourceModule;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.VisitorBase;
+import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.structure.Tuple;
 
 /**
- * This is a 'global' cache implementation, that can have at most n objects in
- * the memory at any time.
+ * This is a 'global' cache implementation, that keeps the modules in memory while the estimated
+ * memory used by them is below a given threshold.
+ *
+ * The cache is split in segments (each with its own lock and its own LRU order), so, requests for different
+ * modules don't contend on a single lock. When the estimated memory is above the threshold, the least recently
+ * used entries of each segment are removed (so, the eviction is an approximation of a global LRU).
  */
 final class ModulesManagerCache {
+
+    /**
+     * Defines the maximum amount of memory (estimated) that the modules in the cache may use (for all the managers).
+     */
+    private static final long MAX_ESTIMATED_MEMORY = 64L * 1024L * 1024L;
+
+    /**
+     * Minimum size we consider for any entry (i.e.: the entry, key and an empty module).
+     */
+    private static final int MIN_ENTRY_MEMORY = 256;
+
     /**
-     * Defines the maximum amount of modules that can be in the memory at any time (for all the managers)
+     * Compiled modules are usually small (their tokens are kept as a list of tokens).
      */
-    private static final int MAX_NUMBER_OF_MODULES = 400;
+    private static final int COMPILED_MODULE_MEMORY = 8 * 1024;
 
     /**
-     * The access to the cache is synchronized
+     * Rough estimate on the memory used for each node in the AST (node + positions + specials lists).
      */
-    private LRUCache<Tuple<ModulesKey, ModulesManager>, AbstractModule> internalCache;
-    private final Object lock = new Object();
+    private static final int MEMORY_PER_AST_NODE = 72;
+
+    private static final int MEMORY_PER_SPECIAL = 40;
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private static final class CacheEntry {
+        final AbstractModule module;
+        final int estimatedMemory;
+
+        CacheEntry(AbstractModule module, int estimatedMemory) {
+            this.module = module;
+            this.estimatedMemory = estimatedMemory;
+        }
+    }
+
+    /**
+     * Each segment is accessed while synchronized on the segment itself.
+     */
+    private static final class Segment extends LinkedHashMap<Tuple<ModulesKey, ModulesManager>, CacheEntry> {
+
+        private static final long serialVersionUID = 1L;
+
+        Segment() {
+            super(16, 0.75f, true); //access order
+        }
+    }
+
+    private final Segment[] segments;
+    private final long maxEstimatedMemory;
+    private final AtomicLong estimatedMemory = new AtomicLong();
+    private final AtomicInteger nextSegmentToEvict = new AtomicInteger();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Lock used so that only one thread creates a given module (see: acquireCreationLock). It's kept while some
+     * thread still uses it (otherwise a thread waiting for it and a thread arriving after it was released would
+     * create the module at the same time).
+     */
+    private static final class CreationLock {
+        private int users;
+    }
+
+    /**
+     * Locks used so that only one thread creates a given module (accessed while synchronized on it).
+     */
+    private final HashMap<Tuple<ModulesKey, ModulesManager>, CreationLock> creationLocks = new HashMap<Tuple<ModulesKey, ModulesManager>, CreationLock>();
 
     ModulesManagerCache() {
-        internalCache = new LRUCache<Tuple<ModulesKey, ModulesManager>, AbstractModule>(MAX_NUMBER_OF_MODULES);
+        this(MAX_ESTIMATED_MEMORY, DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Constructor to be used in tests (with 1 segment the eviction follows the LRU order strictly).
+     */
+    ModulesManagerCache(long maxEstimatedMemory, int numberOfSegments) {
+        this.maxEstimatedMemory = maxEstimatedMemory;
+        segments = new Segment[numberOfSegments];
+        for (int i = 0; i < numberOfSegments; i++) {
+            segments[i] = new Segment();
+        }
+    }
+
+    private Segment getSegment(Tuple<ModulesKey, ModulesManager> keyTuple) {
+        int h = keyTuple.o1.hashCode() ^ System.identityHashCode(keyTuple.o2);
+        h ^= (h >>> 16);
+        return segments[(h & 0x7fffffff) % segments.length];
     }
 
     /**
      * Overridden so that if we do not find the key, we have the chance to create it.
      */
     public AbstractModule getObj(ModulesKey key, ModulesManager modulesManager) {
+        Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
+        Segment segment = getSegment(keyTuple);
+
+        synchronized (segment) {
+            CacheEntry entry = segment.get(keyTuple);
+            if (entry != null) {
+                hits.incrementAndGet();
+                return entry.module;
+            }
+        }
+        misses.incrementAndGet();
+
+        //Only lock the modules keys on a miss (and keep the lock order: modulesKeysLock -> segment).
         synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-
-            synchronized (lock) {
-                AbstractModule obj = internalCache.getObj(keyTuple);
-                if (obj == null && modulesManager.modulesKeys.containsKey(key)) {
-                    key = modulesManager.modulesKeys.get(key); //get the 'real' key
-                    obj = AbstractModule.createEmptyModule(key);
-                    internalCache.add(keyTuple, obj);
+            ModulesKey realKey = modulesManager.modulesKeys.get(key); //get the 'real' key
+            if (realKey == null) {
+                return null;
+            }
+            Tuple<ModulesKey, ModulesManager> realKeyTuple = new Tuple<ModulesKey, ModulesManager>(realKey,
+                    modulesManager);
+            AbstractModule obj;
+            synchronized (segment) {
+                CacheEntry entry = segment.get(realKeyTuple);
+                if (entry != null) {
+                    //Some other thread created it in the meanwhile.
+                    return entry.module;
                 }
-                return obj;
+                obj = AbstractModule.createEmptyModule(realKey);
+                putInSegment(segment, realKeyTuple, new CacheEntry(obj, MIN_ENTRY_MEMORY));
             }
+            evictIfNeeded();
+            return obj;
         }
     }
 
     public void remove(ModulesKey key, ModulesManager modulesManager) {
-        synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-            synchronized (lock) {
-                internalCache.remove(keyTuple);
+        Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
+        Segment segment = getSegment(keyTuple);
+        synchronized (segment) {
+            CacheEntry removed = segment.remove(keyTuple);
+            if (removed != null) {
+                estimatedMemory.addAndGet(-removed.estimatedMemory);
             }
         }
     }
 
     public void add(ModulesKey key, AbstractModule n, ModulesManager modulesManager) {
-        synchronized (modulesManager.modulesKeysLock) {
-            Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
-            synchronized (lock) {
-                internalCache.add(keyTuple, n);
-            }
+        Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
+        Segment segment = getSegment(keyTuple);
+        CacheEntry entry = new CacheEntry(n, estimateMemory(n)); //Computed outside of the lock.
+        synchronized (segment) {
+            putInSegment(segment, keyTuple, entry);
         }
+        evictIfNeeded();
     }
 
     public void clear() {
-        synchronized (lock) {
-            internalCache.clear();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                for (CacheEntry entry : segment.values()) {
+                    estimatedMemory.addAndGet(-entry.estimatedMemory);
+                }
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Must be called while synchronized on the segment.
+     */
+    private void putInSegment(Segment segment, Tuple<ModulesKey, ModulesManager> keyTuple, CacheEntry entry) {
+        CacheEntry old = segment.put(keyTuple, entry);
+        long delta = entry.estimatedMemory;
+        if (old != null) {
+            delta -= old.estimatedMemory;
+        }
+        estimatedMemory.addAndGet(delta);
+    }
+
+    /**
+     * Removes the least recently used entries (going through the segments in a round-robin fashion) until the
+     * estimated memory is below the threshold.
+     */
+    private void evictIfNeeded() {
+        int emptySegmentsInARow = 0;
+        while (estimatedMemory.get() > maxEstimatedMemory && emptySegmentsInARow < segments.length) {
+            int i = (nextSegmentToEvict.getAndIncrement() & 0x7fffffff) % segments.length;
+            Segment segment = segments[i];
+            synchronized (segment) {
+                Iterator<CacheEntry> it = segment.values().iterator();
+                if (!it.hasNext()) {
+                    emptySegmentsInARow += 1;
+                    continue;
+                }
+                emptySegmentsInARow = 0;
+                CacheEntry eldest = it.next();
+                it.remove();
+                estimatedMemory.addAndGet(-eldest.estimatedMemory);
+                evictions.incrementAndGet();
+            }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Visitor which counts the nodes (and special tokens) in an AST.
+     */
+    private static final class NodesCounterVisitor extends VisitorBase {
+
+        private int nodes;
+        private int specials;
+
+        @Override
+        protected Object unhandled_node(SimpleNode node) throws Exception {
+            nodes += 1;
+            List<Object> specialsBefore = node.specialsBefore;
+            if (specialsBefore != null) {
+                specials += specialsBefore.size();
+            }
+            List<Object> specialsAfter = node.specialsAfter;
+            if (specialsAfter != null) {
+                specials += specialsAfter.size();
+            }
+            return null;
+        }
+
+        @Override
+        public void traverse(SimpleNode node) throws Exception {
+            node.traverse(this);
+        }
+    }
+
+    /**
+     * @return the estimated memory used by the given module.
+     */
+    private static int estimateMemory(AbstractModule module) {
+        if (module instanceof SourceModule) {
+            SimpleNode ast = ((SourceModule) module).getAst();
+            if (ast != null) {
+                NodesCounterVisitor visitor = new NodesCounterVisitor();
+                try {
+                    ast.accept(visitor);
+                } catch (Exception e) {
+                    Log.log(e);
+                }
+                long estimate = MIN_ENTRY_MEMORY + ((long) visitor.nodes * MEMORY_PER_AST_NODE)
+                        + ((long) visitor.specials * MEMORY_PER_SPECIAL);
+                return (int) Math.min(estimate, Integer.MAX_VALUE);
+            }
+        } else if (module instanceof CompiledModule) {
+            return COMPILED_MODULE_MEMORY;
+        }
+        return MIN_ENTRY_MEMORY;
+    }
+
+    /**
+     * Provides a lock which should be used while a module is being created from an empty module, so that only
+     * one thread creates it (the others should wait for the lock and then check the cache again).
+     *
+     * Note: releaseCreationLock must always be called afterwards (in a finally block).
+     */
+    public Object acquireCreationLock(ModulesKey key, ModulesManager modulesManager) {
+        Tuple<ModulesKey, ModulesManager> keyTuple = new Tuple<ModulesKey, ModulesManager>(key, modulesManager);
+        synchronized (creationLocks) {
+            CreationLock lock = creationLocks.get(keyTuple);
+            if (lock == null) {
+                lock = new CreationLock();
+                creationLocks.put(keyTuple, lock);
+            }
+            lock.users += 1;
+            return lock;
+        }
+    }
+
+    public void releaseCreationLock(ModulesKey key, ModulesManager modulesManager, Object lock) {
+        synchronized (creationLocks) {
+            CreationLock creationLock = (CreationLock) lock;
+            creationLock.users -= 1;
+            if (creationLock.users == 0) {
+                creationLocks.remove(new Tuple<ModulesKey, ModulesManager>(key, modulesManager));
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public long getEstimatedMemory() {
+        return estimatedMemory.get();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * @return a string with the statistics of the cache (for diagnostic purposes).
+     */
+    public String getStatistics() {
+        long h = hits.get();
+        long m = misses.get();
+        long total = h + m;
+        FastStringBuffer buf = new FastStringBuffer(150);
+        buf.append("Modules cache: entries: ").append(size());
+        buf.append(" estimated memory (KB): ").append(estimatedMemory.get() / 1024);
+        buf.append(" hits: ").append(h);
+        buf.append(" misses: ").append(m);
+        buf.append(" evictions: ").append(evictions.get());
+        if (total > 0) {
+            buf.append(" hit rate: ").append((int) ((h * 100) / total)).append('%');
+        }
+        return buf.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getStatistics();
+    }
+}
@@ -55,10 +55,12 @@ import org.python.pydev.editor.codecompletion.revisited.ModulesFoundStructure.Zi
 import org.python.pydev.plugin.PyStructureConfigHelpers;
 import org.python.pydev.plugin.nature.IPythonPathHelper;
 import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallback;
 import org.python.pydev.shared_core.io.FileUtils;
 import org.python.pydev.shared_core.string.FastStringBuffer;
 import org.python.pydev.shared_core.string.StringUtils;
 import org.python.pydev.shared_core.structure.OrderedMap;
+import org.python.pydev.shared_core.utils.ParallelUtils;
 import org.python.pydev.ui.filetypes.FileTypesPreferencesPage;
 import org.python.pydev.utils.PyFileListing;
 import org.python.pydev.utils.PyFileListing.PyFileInfo;
@@ -136,11 +138,20 @@ public final class PythonPathHelper implements IPythonPathHelper {
      * @param root the zip file to analyze
      * @param monitor the monitor, to keep track of what is happening
      * @return a list with the name of the found modules in the jar
+     *
+     * Note: the contents are cached (keyed by the zip path, size and modification time), so, unchanged zips are not
+     * read again (and the returned ZipContents must not be changed).
      */
     protected static ModulesFoundStructure.ZipContents getFromZip(File root, IProgressMonitor monitor) {
 
         String fileName = root.getName();
         if (root.isFile() && FileTypesPreferencesPage.isValidZipFile(fileName)) { //ok, it may be a jar file, so let's get its contents and get the available modules
+            long size = root.length();
+            long lastModified = root.lastModified();
+            ModulesFoundStructure.ZipContents cached = ZipContentsCache.get(root, size, lastModified);
+            if (cached != null) {
+                return cached;
+            }
 
             //the major difference from handling jars from regular python files is that we don't have to check for __init__.py files
             ModulesFoundStructure.ZipContents zipContents = new ModulesFoundStructure.ZipContents(root);
@@ -198,6 +209,9 @@ public final class PythonPathHelper implements IPythonPathHelper {
                 //now, on to actually filling the structure if we have a zip file (just add the ones that are actually under
                 //the pythonpath)
                 zipContents.consolidatePythonpathInfo(monitor);
+                if (!monitor.isCanceled()) {
+                    ZipContentsCache.put(root, size, lastModified, zipContents);
+                }
 
                 return zipContents;
 
@@ -656,13 +670,11 @@ public final class PythonPathHelper implements IPythonPathHelper {
                     continue;
                 }
                 ModulesFoundStructure modulesFoundStructure = new ModulesFoundStructure();
+                List<File> zips = new ArrayList<File>();
                 for (IPath moduleOrZip : modulesAndZips) {
                     File moduleOrZipFile = moduleOrZip.toFile();
                     if (FileTypesPreferencesPage.isValidZipFile(moduleOrZip.toOSString())) {
-                        ModulesFoundStructure.ZipContents zipContents = getFromZip(moduleOrZipFile, monitor);
-                        if (zipContents != null) {
-                            modulesFoundStructure.zipContents.add(zipContents);
-                        }
+                        zips.add(moduleOrZipFile);
                     } else {
                         String qualifiedName = finder.resolveModule(project, moduleOrZip, searchPaths);
                         if (qualifiedName != null && !qualifiedName.isEmpty()) {
@@ -670,6 +682,20 @@ public final class PythonPathHelper implements IPythonPathHelper {
                         }
                     }
                 }
+                //the zips which are not cached are listed in parallel.
+                final IProgressMonitor workerMonitor = ParallelUtils.createCancelOnlyMonitor(monitor);
+                List<ModulesFoundStructure.ZipContents> zipsContents = ParallelUtils.map(zips,
+                        new ICallback<ModulesFoundStructure.ZipContents, File>() {
+
+                            public ModulesFoundStructure.ZipContents call(File zip) {
+                                return getFromZip(zip, workerMonitor);
+                            }
+                        }, workerMonitor);
+                for (ModulesFoundStructure.ZipContents zipContents : zipsContents) {
+                    if (zipContents != null) {
+                        modulesFoundStructure.zipContents.add(zipContents);
+                    }
+                }
                 return modulesFoundStructure;
             }
         }
@@ -679,19 +705,31 @@ public final class PythonPathHelper implements IPythonPathHelper {
         ModulesFoundStructure ret = new ModulesFoundStructure();
 
         List<String> pythonpathList = getPythonpath();
-        FastStringBuffer tempBuf = new FastStringBuffer();
-        for (Iterator<String> iter = pythonpathList.iterator(); iter.hasNext();) {
-            String element = iter.next();
 
+        //the slow part is getting the files: each entry in the pythonpath is listed in parallel (and the results
+        //are merged in the pythonpath order afterwards). Zips which didn't change are gotten from the cache.
+        final IProgressMonitor workerMonitor = ParallelUtils.createCancelOnlyMonitor(monitor);
+        List<Object> found = ParallelUtils.map(pythonpathList, new ICallback<Object, String>() {
+
+            public Object call(String element) {
+                File root = new File(element);
+                PyFileListing below = getModulesBelow(root, workerMonitor);
+                if (below != null) {
+                    return below;
+                }
+                //ok, it was null, so, maybe this is not a folder, but zip file with java classes...
+                return getFromZip(root, workerMonitor);
+            }
+        }, workerMonitor);
+
+        FastStringBuffer tempBuf = new FastStringBuffer();
+        for (Object o : found) {
             if (monitor.isCanceled()) {
                 break;
             }
 
-            //the slow part is getting the files... not much we can do (I think).
-            File root = new File(element);
-            PyFileListing below = getModulesBelow(root, monitor);
-            if (below != null) {
-
+            if (o instanceof PyFileListing) {
+                PyFileListing below = (PyFileListing) o;
                 Iterator<PyFileInfo> e1 = below.getFoundPyFileInfos().iterator();
                 while (e1.hasNext()) {
                     PyFileInfo pyFileInfo = e1.next();
@@ -702,11 +740,8 @@ public final class PythonPathHelper implements IPythonPathHelper {
                     }
                 }
 
-            } else { //ok, it was null, so, maybe this is not a folder, but zip file with java classes...
-                ModulesFoundStructure.ZipContents zipContents = getFromZip(root, monitor);
-                if (zipContents != null) {
-                    ret.zipContents.add(zipContents);
-                }
+            } else if (o instanceof ModulesFoundStructure.ZipContents) {
+                ret.zipContents.add((ModulesFoundStructure.ZipContents) o);
             }
         }
         return ret;
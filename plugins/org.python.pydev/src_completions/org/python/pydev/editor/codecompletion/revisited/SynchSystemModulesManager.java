@@ -32,6 +32,7 @@ import org.eclipse.swt.graphics.Image;
 import org.python.pydev.core.ExtensionHelper;
 import org.python.pydev.core.IInterpreterInfo;
 import org.python.pydev.core.IInterpreterManager;
+import org.python.pydev.core.ISystemModulesManager;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.plugin.PydevPlugin;
 import org.python.pydev.plugin.preferences.PydevPrefs;
@@ -388,6 +389,13 @@ public class SynchSystemModulesManager {
             }
             long initial = System.currentTimeMillis();
             builder.syncInfoToPythonPath(monitor, info);
+            ISystemModulesManager modulesManager = info.getModulesManager();
+            if (modulesManager instanceof SystemModulesManager) {
+                int removed = ((SystemModulesManager) modulesManager).removeStaleCompiledModulesCache();
+                if (DEBUG) {
+                    System.out.println("Removed " + removed + " stale compiled modules from the cache.");
+                }
+            }
             if (DEBUG) {
                 System.out.println("End Synchronizing PYTHONPATH info (" + (System.currentTimeMillis() - initial)
                         / 1000.0 + " secs.)");
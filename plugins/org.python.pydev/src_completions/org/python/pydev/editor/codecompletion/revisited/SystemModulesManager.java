@@ -59,6 +59,11 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
 
     private static final String DIR_NAME_FOR_COMPILED_CACHE = "shell";
 
+    /**
+     * Whether the ASTs of the (source) system modules should be kept in a cache on disk.
+     */
+    public static boolean USE_AST_DISK_CACHE = true;
+
     /**
      * The system modules manager may have a nature if we create a SystemASTManager
      */
@@ -390,6 +395,26 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
         return info.getIoDirectory();
     }
 
+    private transient volatile ASTDiskCache astDiskCache;
+
+    @Override
+    protected ASTDiskCache getAstDiskCache() {
+        if (!USE_AST_DISK_CACHE) {
+            return null;
+        }
+        ASTDiskCache cache = astDiskCache;
+        if (cache == null) {
+            File ioDirectory = getIoDirectory();
+            if (ioDirectory == null) {
+                return null;
+            }
+            cache = new ASTDiskCache(new File(ioDirectory, ASTDiskCache.DIR_NAME_FOR_AST_CACHE),
+                    ASTDiskCache.DEFAULT_MAX_SIZE);
+            astDiskCache = cache;
+        }
+        return cache;
+    }
+
     /**
      * @param keysFound
      */
@@ -432,6 +457,34 @@ public final class SystemModulesManager extends ModulesManagerWithBuild implemen
         super.changePythonPath(pythonpath, project, monitor);
     }
 
+    /**
+     * Removes the cached information on compiled modules which is no longer valid (i.e.: the related .so/.pyd or
+     * the interpreter itself changed). Called when the interpreter is synchronized.
+     *
+     * @return the number of cache files removed.
+     */
+    public int removeStaleCompiledModulesCache() {
+        int removed = 0;
+        File ioDirectory = getIoDirectory();
+        if (ioDirectory != null) {
+            File d = new File(ioDirectory, DIR_NAME_FOR_COMPILED_CACHE);
+            File[] files = d.listFiles();
+            if (files != null) {
+                for (File f : files) {
+                    if (f.isFile() && !CompiledModule.isCacheFileUpToDate(f, this)) {
+                        try {
+                            FileUtils.deleteFile(f);
+                            removed++;
+                        } catch (IOException e) {
+                            Log.log(e);
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
     /**
      * Gets the directory where compiled modules should be saved.
      */
@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import java.io.File;
+
+import org.python.pydev.editor.codecompletion.revisited.ModulesFoundStructure.ZipContents;
+import org.python.pydev.shared_core.cache.LRUMap;
+import org.python.pydev.shared_core.io.FileUtils;
+
+/**
+ * Keeps the contents found in the zip files (.zip, .egg, .jar) in the pythonpath so that an archive which didn't
+ * change (same path, size and modification time) doesn't have to be opened and listed again when the pythonpath is
+ * re-scanned (i.e.: when the interpreter is synchronized).
+ *
+ * Note: the cached contents are shared among all the clients, so, a ZipContents gotten from the cache must not be
+ * changed.
+ */
+public final class ZipContentsCache {
+
+    public static final boolean DEBUG = false;
+
+    /**
+     * Max number of archives kept.
+     */
+    private static final int MAX_CACHED_ZIPS = 2000;
+
+    private static final class CachedZipContents {
+
+        private final long size;
+        private final long lastModified;
+        private final ZipContents zipContents;
+
+        private CachedZipContents(long size, long lastModified, ZipContents zipContents) {
+            this.size = size;
+            this.lastModified = lastModified;
+            this.zipContents = zipContents;
+        }
+    }
+
+    private static final LRUMap<String, CachedZipContents> cache = new LRUMap<String, CachedZipContents>(
+            MAX_CACHED_ZIPS);
+
+    private static final Object lock = new Object();
+
+    private ZipContentsCache() {
+    }
+
+    /**
+     * @return the contents previously found for the given zip or null if the zip is not in the cache or if it
+     * changed since its contents were added.
+     */
+    public static ZipContents get(File zipFile, long size, long lastModified) {
+        String key = FileUtils.getFileAbsolutePath(zipFile);
+        synchronized (lock) {
+            CachedZipContents cached = cache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.size != size || cached.lastModified != lastModified) {
+                cache.remove(key);
+                return null;
+            }
+            if (DEBUG) {
+                System.out.println("Zip contents gotten from cache: " + key);
+            }
+            return cached.zipContents;
+        }
+    }
+
+    /**
+     * Adds the (completely computed) contents for the given zip. The size and last modified must be the ones
+     * gotten before the zip was opened (so that a change while it's being read makes the entry invalid).
+     */
+    public static void put(File zipFile, long size, long lastModified, ZipContents zipContents) {
+        String key = FileUtils.getFileAbsolutePath(zipFile);
+        synchronized (lock) {
+            cache.put(key, new CachedZipContents(size, lastModified, zipContents));
+        }
+    }
+
+    public static void clear() {
+        synchronized (lock) {
+            cache.clear();
+        }
+    }
+}
@@ -286,16 +286,27 @@ public abstract class AbstractModule implements IModule {
      */
     public static SourceModule createModuleFromDoc(String name, File f, IDocument doc, IGrammarVersionProvider nature,
             boolean checkForPath) throws MisconfigurationException {
+        return createModuleFromDoc(name, f, doc, nature, checkForPath, false);
+    }
+
+    /** 
+     * Same as createModuleFromDoc, but allows creating the module with a compacted AST (which uses less memory but
+     * can't be used for pretty-printing -- see CompactAstVisitor).
+     * @throws MisconfigurationException 
+     */
+    public static SourceModule createModuleFromDoc(String name, File f, IDocument doc, IGrammarVersionProvider nature,
+            boolean checkForPath, boolean compactTree) throws MisconfigurationException {
         //for doc, we are only interested in python files.
 
         if (f != null) {
             if (!checkForPath || PythonPathHelper.isValidSourceFile(f.getName())) {
-                ParseOutput obj = PyParser.reparseDocument(new PyParser.ParserInfo(doc, nature, name,
-                        f));
+                ParseOutput obj = PyParser.reparseDocument(new PyParser.ParserInfo(doc, nature.getGrammarVersion(),
+                        name, f, true, compactTree));
                 return new SourceModule(name, f, (SimpleNode) obj.ast, obj.error);
             }
         } else {
-            ParseOutput obj = PyParser.reparseDocument(new PyParser.ParserInfo(doc, nature, name, f));
+            ParseOutput obj = PyParser.reparseDocument(new PyParser.ParserInfo(doc, nature.getGrammarVersion(),
+                    name, f, true, compactTree));
             return new SourceModule(name, f, (SimpleNode) obj.ast, obj.error);
         }
         return null;
@@ -52,6 +52,7 @@ import org.python.pydev.core.concurrency.IRunnableWithMonitor;
 import org.python.pydev.core.concurrency.RunnableAsJobsPoolThread;
 import org.python.pydev.core.log.Log;
 import org.python.pydev.editor.codecompletion.revisited.CompletionStateFactory;
+import org.python.pydev.editor.codecompletion.revisited.SystemModulesManager;
 import org.python.pydev.editor.codecompletion.revisited.visitors.Definition;
 import org.python.pydev.editor.codecompletion.shell.AbstractShell;
 import org.python.pydev.shared_core.cache.LRUCache;
@@ -67,6 +68,17 @@ public class CompiledModule extends AbstractModule {
 
     public static final boolean TRACE_COMPILED_MODULES = false;
 
+    /**
+     * Written at the start of the files with the cached tokens (files in another format are discarded).
+     */
+    private static final String CACHE_FORMAT_VERSION = "compiled_module_cache_v2";
+
+    /**
+     * When the tokens for a class of this module are requested to the shell, other classes of this module which
+     * weren't introspected yet are requested in the same round trip (up to this number of classes in a request).
+     */
+    public static int INNER_TOKENS_BATCH_SIZE = 20;
+
     private Map<String, Map<String, IToken>> cache = new HashMap<String, Map<String, IToken>>();
 
     private static final Definition[] EMPTY_DEFINITION = new Definition[0];
@@ -201,12 +213,79 @@ public class CompiledModule extends AbstractModule {
         return null;
     }
 
+    /**
+     * @return the file whose modification time and size are used to know if the cache is still valid: the file
+     * of the module itself or, if it's a builtin (without a file), the interpreter executable.
+     */
+    private static File getStampFile(File moduleFile, ISystemModulesManager systemModulesManager) {
+        if (moduleFile != null) {
+            return moduleFile;
+        }
+        if (systemModulesManager instanceof SystemModulesManager) {
+            SystemModulesManager m = (SystemModulesManager) systemModulesManager;
+            if (m.getInfo() != null) {
+                String executableOrJar = m.getInfo().getExecutableOrJar();
+                if (executableOrJar != null) {
+                    return new File(executableOrJar);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the modification time and size of the given stamp file (or 0 if not available).
+     */
+    private static long[] getStamp(File stampFile) {
+        if (stampFile == null) {
+            return new long[] { 0, 0 };
+        }
+        return new long[] { stampFile.lastModified(), stampFile.length() };
+    }
+
+    /**
+     * Reads the header of the cache.
+     *
+     * @return a tuple with whether the contents are still valid and the file of the module.
+     */
+    private static Tuple<Boolean, File> readCacheHeader(ObjectInputStream stream,
+            ISystemModulesManager systemModulesManager) throws IOException, ClassNotFoundException {
+        if (!CACHE_FORMAT_VERSION.equals(stream.readObject())) {
+            return new Tuple<Boolean, File>(false, null);
+        }
+        @SuppressWarnings("unused")
+        Object _name = stream.readObject(); //we already have the name set (so, it's only there for completeness).
+        File file = (File) stream.readObject();
+        long modified = stream.readLong();
+        long size = stream.readLong();
+
+        long[] stamp = getStamp(getStampFile(file, systemModulesManager));
+        return new Tuple<Boolean, File>(stamp[0] == modified && stamp[1] == size, file);
+    }
+
+    /**
+     * @return whether the given cache file is still valid (i.e.: it has the current format and the module
+     * file -- such as the .so/.pyd -- didn't change since it was created).
+     */
+    public static boolean isCacheFileUpToDate(File cacheFile, ISystemModulesManager systemModulesManager) {
+        try (FileInputStream fin = new FileInputStream(cacheFile)) {
+            try (InputStream in = new BufferedInputStream(new GZIPInputStream(fin))) {
+                try (ObjectInputStream stream = new ObjectInputStream(in)) {
+                    return readCacheHeader(stream, systemModulesManager).o1;
+                }
+            }
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
     /**
      * Updates the file with the cache to have the given information.
      */
     private static void updateCache(final String name, IModulesManager manager, final Tuple<File, IToken[]> info) {
         try {
             if (info != null && info.o2 != null && info.o2.length > 10) { //Don't cache anything less than 10 tokens.
+                ISystemModulesManager systemModulesManagerForStamp = manager.getSystemModulesManager();
                 File f = getCacheFile(name, manager);
 
                 //Only cache modules that are in the system modules manager.
@@ -233,37 +312,13 @@ public class CompiledModule extends AbstractModule {
 
                 if (f != null) {
                     final File cacheFile = f;
+                    final long[] stamp = getStamp(getStampFile(info.o1, systemModulesManagerForStamp));
                     IRunnableWithMonitor runnable = new IRunnableWithMonitor() {
 
                         @Override
                         public void run() {
-                            try (OutputStream out = new FileOutputStream(cacheFile)) {
-                                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
-                                    try (BufferedOutputStream buf = new BufferedOutputStream(gzip)) {
-                                        try (ObjectOutputStream stream = new ObjectOutputStream(buf)) {
-                                            stream.writeObject(name);
-                                            stream.writeObject(info.o1);
-
-                                            IToken[] toks = info.o2;
-                                            int size = toks.length;
-                                            stream.writeInt(size);
-
-                                            //Write in 2 batches (leave the docstring in a separate batch as it's usually
-                                            //the big part of the info -- that way we can partially read it without reading
-                                            //the docstrings later on).
-                                            for (int i = 0; i < size; i++) {
-                                                IToken tok = toks[i];
-                                                stream.writeObject(tok.getRepresentation());
-                                                stream.writeInt(tok.getType());
-                                                stream.writeObject(tok.getArgs());
-                                                stream.writeObject(tok.getParentPackage());
-                                            }
-                                            for (int i = 0; i < size; i++) {
-                                                stream.writeObject(toks[i].getDocStr());
-                                            }
-                                        }
-                                    }
-                                }
+                            try {
+                                writeCache(cacheFile, name, info, stamp);
                             } catch (Exception e) {
                                 Log.log(e);
                             }
@@ -281,11 +336,51 @@ public class CompiledModule extends AbstractModule {
         }
     }
 
+    /**
+     * Writes the given tokens to the cache file (the stamp is the modification time and size of the module file
+     * -- or of the interpreter for builtins -- when the tokens were gotten).
+     */
+    /*default*/static void writeCache(File cacheFile, String name, Tuple<File, IToken[]> info, long[] stamp)
+            throws IOException {
+        try (OutputStream out = new FileOutputStream(cacheFile)) {
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                try (BufferedOutputStream buf = new BufferedOutputStream(gzip)) {
+                    try (ObjectOutputStream stream = new ObjectOutputStream(buf)) {
+                        stream.writeObject(CACHE_FORMAT_VERSION);
+                        stream.writeObject(name);
+                        stream.writeObject(info.o1);
+                        stream.writeLong(stamp[0]);
+                        stream.writeLong(stamp[1]);
+
+                        IToken[] toks = info.o2;
+                        int size = toks.length;
+                        stream.writeInt(size);
+
+                        //Write in 2 batches (leave the docstring in a separate batch as it's usually
+                        //the big part of the info -- that way we can partially read it without reading
+                        //the docstrings later on).
+                        for (int i = 0; i < size; i++) {
+                            IToken tok = toks[i];
+                            stream.writeObject(tok.getRepresentation());
+                            stream.writeInt(tok.getType());
+                            stream.writeObject(tok.getArgs());
+                            stream.writeObject(tok.getParentPackage());
+                        }
+                        for (int i = 0; i < size; i++) {
+                            stream.writeObject(toks[i].getDocStr());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     /**
      * Gets cached information for the given name. Could be a dotted or non-dotted name.
      */
-    private static Tuple<File, IToken[]> getCached(String name, IModulesManager manager) {
-        File f = getCacheFile(name, manager.getSystemModulesManager());
+    /*default*/static Tuple<File, IToken[]> getCached(String name, IModulesManager manager) {
+        ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
+        File f = getCacheFile(name, systemModulesManager);
 
         if (f != null && f.exists()) {
             try {
@@ -295,26 +390,35 @@ public class CompiledModule extends AbstractModule {
                     try (InputStream in = new BufferedInputStream(new GZIPInputStream(fin))) {
                         try (ObjectInputStream stream = new ObjectInputStream(in)) {
                             ObjectsInternPool.ObjectsPoolMap map = new ObjectsInternPool.ObjectsPoolMap();
-                            @SuppressWarnings("unused")
-                            Object _name = stream.readObject(); //we already have the name set (so, it's only there for completeness). 
-                            file = (File) stream.readObject();
-                            int size = stream.readInt();
-
-                            toks = new IToken[size];
-                            for (int i = 0; i < size; i++) {
-                                //Note intern (we probably have many empty strings -- or the same for parentPackage)
-                                String rep = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                int type = stream.readInt();
-                                String args = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                String parentPackage = ObjectsInternPool.internLocal(map, (String) stream.readObject());
-                                toks[i] = new CompiledToken(rep, "", args, parentPackage, type);
-                            }
-                            for (int i = 0; i < size; i++) {
-                                toks[i].setDocStr(ObjectsInternPool.internLocal(map, (String) stream.readObject()));
+                            Tuple<Boolean, File> header = readCacheHeader(stream, systemModulesManager);
+                            if (!header.o1) {
+                                //Old format or the module changed: it'll be requested to the shell again.
+                                toks = null;
+                            } else {
+                                file = header.o2;
+                                int size = stream.readInt();
+
+                                toks = new IToken[size];
+                                for (int i = 0; i < size; i++) {
+                                    //Note intern (we probably have many empty strings -- or the same for parentPackage)
+                                    String rep = ObjectsInternPool.internLocal(map, (String) stream.readObject());
+                                    int type = stream.readInt();
+                                    String args = ObjectsInternPool.internLocal(map, (String) stream.readObject());
+                                    String parentPackage = ObjectsInternPool.internLocal(map,
+                                            (String) stream.readObject());
+                                    toks[i] = new CompiledToken(rep, "", args, parentPackage, type);
+                                }
+                                for (int i = 0; i < size; i++) {
+                                    toks[i].setDocStr(ObjectsInternPool.internLocal(map, (String) stream.readObject()));
+                                }
                             }
                         }
                     }
                 }
+                if (toks == null) {
+                    FileUtils.deleteFile(f);
+                    return null;
+                }
                 return new Tuple<File, IToken[]>(file, toks);
             } catch (Exception e) {
                 Log.log("Unable to read contents from: " + f, e); //Unable to read: just log it
@@ -323,26 +427,84 @@ public class CompiledModule extends AbstractModule {
         return null;
     }
 
-    private static IToken[] createInnerFromServer(ICodeCompletionASTManager manager, final IPythonNature nature,
-            String act,
-            String tokenToCompletion) throws Exception, MisconfigurationException, PythonNatureWithoutProjectException {
-        IToken[] toks;
+    /**
+     * Gets the tokens for the given activation tokens from the shell (in a single request).
+     *
+     * @return a list with the tokens for each of the given activation tokens.
+     */
+    private List<IToken[]> createInnerFromServer(ICodeCompletionASTManager manager, final IPythonNature nature,
+            List<String> activationTokens, List<String> tokensToCompletion) throws Exception,
+            MisconfigurationException, PythonNatureWithoutProjectException {
         AbstractShell shell = AbstractShell.getServerShell(nature, AbstractShell.getShellId());
-        List<String[]> completions = shell.getImportCompletions(tokenToCompletion,
-                getCompletePythonpath(manager.getModulesManager(), nature)).o2;
+        List<String> pythonpath = getCompletePythonpath(manager.getModulesManager(), nature);
+        List<Tuple<String, List<String[]>>> completions;
+        if (tokensToCompletion.size() == 1) {
+            completions = new ArrayList<Tuple<String, List<String[]>>>(1);
+            completions.add(shell.getImportCompletions(tokensToCompletion.get(0), pythonpath));
+        } else {
+            completions = shell.getImportCompletions(tokensToCompletion, pythonpath);
+        }
 
-        List<IToken> lst = new ArrayList<IToken>();
+        List<IToken[]> ret = new ArrayList<IToken[]>(completions.size());
+        for (int i = 0; i < completions.size(); i++) {
+            String act = name + '.' + activationTokens.get(i);
+            List<IToken> lst = new ArrayList<IToken>();
 
-        for (Iterator<String[]> iter = completions.iterator(); iter.hasNext();) {
-            String[] element = iter.next();
-            if (element.length >= 4) {//it might be a server error
-                IToken t = new CompiledToken(element[0], element[1], element[2], act,
-                        Integer.parseInt(element[3]));
-                lst.add(t);
+            for (Iterator<String[]> iter = completions.get(i).o2.iterator(); iter.hasNext();) {
+                String[] element = iter.next();
+                if (element.length >= 4) {//it might be a server error
+                    IToken t = new CompiledToken(element[0], element[1], element[2], act,
+                            Integer.parseInt(element[3]));
+                    lst.add(t);
+                }
             }
+            ret.add(lst.toArray(new CompiledToken[0]));
+        }
+        return ret;
+    }
+
+    /**
+     * @return the name to be requested to the shell to get the tokens for the given activation token.
+     */
+    private String getTokenToCompletion(String activationToken) {
+        if (isPythonBuiltin) {
+            String replacement = BUILTIN_REPLACEMENTS.get(activationToken);
+            if (replacement != null) {
+                return name + '.' + replacement;
+            }
+        }
+        return name + '.' + activationToken;
+    }
+
+    /**
+     * Adds to the given lists the classes of this module which still weren't introspected (neither in the memory nor
+     * in the disk cache), so that they're requested along with the token actually requested.
+     */
+    private void addClassesToBatch(List<String> activationTokens, List<String> tokensToCompletion,
+            IModulesManager manager) {
+        if (tokens == null) {
+            return;
+        }
+        ISystemModulesManager systemModulesManager = manager.getSystemModulesManager();
+        for (IToken token : tokens.values()) {
+            if (activationTokens.size() >= INNER_TOKENS_BATCH_SIZE) {
+                break;
+            }
+            if (token.getType() != IToken.TYPE_CLASS) {
+                continue;
+            }
+            String activationToken = token.getRepresentation();
+            if (cache.containsKey(activationToken) || activationTokens.contains(activationToken)) {
+                continue;
+            }
+            String tokenToCompletion = getTokenToCompletion(activationToken);
+            File cacheFile = getCacheFile(tokenToCompletion, systemModulesManager);
+            if (cacheFile != null && cacheFile.exists()) {
+                continue;
+            }
+            activationTokens.add(activationToken);
+            tokensToCompletion.add(tokenToCompletion);
         }
-        toks = lst.toArray(new CompiledToken[0]);
-        return toks;
     }
 
     private static List<String> getCompletePythonpath(IModulesManager manager, final IPythonNature nature)
@@ -509,14 +671,7 @@ public class CompiledModule extends AbstractModule {
             try {
                 final IPythonNature nature = manager.getNature();
 
-                String act = name + '.' + activationToken;
-                String tokenToCompletion = act;
-                if (isPythonBuiltin) {
-                    String replacement = BUILTIN_REPLACEMENTS.get(activationToken);
-                    if (replacement != null) {
-                        tokenToCompletion = name + '.' + replacement;
-                    }
-                }
+                String tokenToCompletion = getTokenToCompletion(activationToken);
 
                 Tuple<File, IToken[]> cached = getCached(tokenToCompletion, manager.getModulesManager());
                 if (cached != null) {
@@ -528,12 +683,21 @@ public class CompiledModule extends AbstractModule {
                     return cached.o2;
                 }
 
-                toks = createInnerFromServer(manager, nature, act, tokenToCompletion);
+                List<String> activationTokens = new ArrayList<String>();
+                List<String> tokensToCompletion = new ArrayList<String>();
+                activationTokens.add(activationToken);
+                tokensToCompletion.add(tokenToCompletion);
+                addClassesToBatch(activationTokens, tokensToCompletion, manager.getModulesManager());
 
-                //Put it in the cache for the next time.
-                updateCache(tokenToCompletion, manager.getModulesManager(), new Tuple<File, IToken[]>(null, toks));
-                Map<String, IToken> map = asMap(toks);
-                cache.put(activationToken, map);
+                List<IToken[]> found = createInnerFromServer(manager, nature, activationTokens, tokensToCompletion);
+                toks = found.get(0);
+
+                //Put them in the cache for the next time.
+                for (int i = 0; i < found.size(); i++) {
+                    updateCache(tokensToCompletion.get(i), manager.getModulesManager(),
+                            new Tuple<File, IToken[]>(null, found.get(i)));
+                    cache.put(activationTokens.get(i), asMap(found.get(i)));
+                }
             } catch (Exception e) {
                 Log.log("Error while getting info for module:" + this.name + ". Project: "
                         + manager.getNature().getProject(), e);
@@ -20,7 +20,11 @@ import java.net.URLEncoder;
 import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
@@ -49,7 +53,8 @@ import org.python.pydev.shared_core.utils.Timer;
  * This is the shell that 'talks' to the python / jython process (it is intended to be subclassed so that
  * we know how to deal with each).
  *
- * Its methods are synched to prevent concurrent access.
+ * Its methods are synched to prevent concurrent access (to run requests concurrently, the threads other than the
+ * main thread use a pool of shells -- see {@link ShellsContainer}).
  *
  * @author fabioz
  *
@@ -60,10 +65,45 @@ public abstract class AbstractShell {
 
     private static final int MAIN_THREAD_SHELL = 1;
 
-    private static final int OTHER_THREADS_SHELL = 2;
+    /*default*/static final int OTHER_THREADS_SHELL = 2;
+
+    /**
+     * The maximum number of shells (i.e.: server processes) used by the threads other than the main thread (each
+     * shell processes one request at a time).
+     */
+    public static int MAX_OTHER_THREADS_SHELLS = Math.max(1, Math.min(3, Runtime.getRuntime().availableProcessors() - 1));
+
+    /**
+     * Log the metrics whenever this number of requests is done (only if code-completion debugging is on).
+     */
+    private static final int LOG_METRICS_EACH_N_REQUESTS = 100;
+
+    private static final ShellMetrics globalMetrics = new ShellMetrics();
+
+    /**
+     * @return the ids of the shells in the pool used by threads other than the main thread.
+     */
+    /*default*/static int[] getOtherThreadsShellIds() {
+        int[] ret = new int[MAX_OTHER_THREADS_SHELLS];
+        for (int i = 0; i < ret.length; i++) {
+            ret[i] = OTHER_THREADS_SHELL + i;
+        }
+        return ret;
+    }
 
     public static int[] getAllShellIds() {
-        return new int[] { MAIN_THREAD_SHELL, OTHER_THREADS_SHELL };
+        int[] otherIds = getOtherThreadsShellIds();
+        int[] ret = new int[otherIds.length + 1];
+        ret[0] = MAIN_THREAD_SHELL;
+        System.arraycopy(otherIds, 0, ret, 1, otherIds.length);
+        return ret;
+    }
+
+    /**
+     * @return the metrics (queue wait time and latency) for the requests done in all the shells.
+     */
+    public static ShellMetrics getGlobalMetrics() {
+        return globalMetrics;
     }
 
     public static final int getShellId() {
@@ -100,6 +140,20 @@ public abstract class AbstractShell {
      */
     private final Semaphore semaphore = new Semaphore(1);
 
+    /**
+     * The number of requests waiting for this shell or being currently processed.
+     */
+    private final AtomicInteger pendingRequests = new AtomicInteger();
+
+    /**
+     * The threads which got this shell from the pool but still didn't start their request (they're counted as
+     * pending so that concurrent requests choose another shell). Weak so that a thread which never does the request
+     * doesn't keep the shell busy forever.
+     */
+    private final Set<Thread> reservations = Collections.newSetFromMap(new WeakHashMap<Thread, Boolean>());
+
+    private final ShellMetrics metrics = new ShellMetrics();
+
     private final Object ioLock = new Object();
 
     private static void dbg(String string, int priority) {
@@ -662,10 +716,42 @@ public abstract class AbstractShell {
         }
     }
 
+    /**
+     * @return the number of requests waiting for this shell or being currently processed.
+     */
+    /*default*/int getPendingRequests() {
+        synchronized (reservations) {
+            return pendingRequests.get() + reservations.size();
+        }
+    }
+
+    /**
+     * Marks this shell as having a pending request from the current thread (until it does its next request).
+     * Called (with the lock of the shells pool held) when the shell is chosen from the pool.
+     */
+    /*default*/void reserve() {
+        synchronized (reservations) {
+            reservations.add(Thread.currentThread());
+        }
+    }
+
+    /**
+     * @return the metrics (queue wait time and latency) for the requests done in this shell.
+     */
+    public ShellMetrics getMetrics() {
+        return metrics;
+    }
+
     @SuppressWarnings("unused")
     private AutoCloseable acquire(String msg) {
         final Timer timer = new Timer();
+        pendingRequests.incrementAndGet();
+        synchronized (reservations) {
+            reservations.remove(Thread.currentThread());
+        }
+        final long initialNanos = System.nanoTime();
         semaphore.acquire();
+        final long acquiredNanos = System.nanoTime();
         if (DEBUG_SHELL >= 1) {
             String name = Thread.currentThread().getName();
             msg += " (" + name + ")";
@@ -676,14 +762,25 @@ public abstract class AbstractShell {
 
             @Override
             public void close() throws Exception {
+                long latencyNanos = System.nanoTime() - acquiredNanos;
                 if (DEBUG_SHELL >= 1) {
                     timer.printDiff("-- Time to execute: " + s);
                 }
                 semaphore.release();
+                pendingRequests.decrementAndGet();
+                recordMetrics(acquiredNanos - initialNanos, latencyNanos);
             }
         };
     }
 
+    private void recordMetrics(long waitNanos, long latencyNanos) {
+        metrics.record(waitNanos, latencyNanos);
+        globalMetrics.record(waitNanos, latencyNanos);
+        if (DebugSettings.DEBUG_CODE_COMPLETION && globalMetrics.getRequests() % LOG_METRICS_EACH_N_REQUESTS == 0) {
+            dbg("Shell metrics (all shells): " + globalMetrics, 1);
+        }
+    }
+
     private FastStringBuffer writeAndGetResults(String... str) throws CoreException {
 
         try {
@@ -758,6 +855,27 @@ public abstract class AbstractShell {
         return ShellConvert.convertStringToCompletions(read);
     }
 
+    /**
+     * Gets the completions for a list of modules in a single request.
+     *
+     * @return a list with the same size of the passed modules with the file and completions for each module.
+     * @see #getImportCompletions(String, List)
+     */
+    public List<Tuple<String, List<String[]>>> getImportCompletions(List<String> modules, List<String> pythonpath)
+            throws Exception {
+        FastStringBuffer read = null;
+
+        String str = URLEncoder.encode(StringUtils.join("|", modules.toArray(new String[modules.size()])),
+                ENCODING_UTF_8);
+
+        try (AutoCloseable permit = acquire(StringUtils.join("", "getImportCompletions (batch): ",
+                modules.size()))) {
+            internalChangePythonPath(pythonpath);
+            read = this.writeAndGetResults("@@IMPORTS_BATCH:", str, "\nEND@@");
+        }
+        return ShellConvert.convertStringToBatchCompletions(read, modules.size());
+    }
+
     /**
      * @param moduleName the name of the module where the token is defined
      * @param token the token we are looking for
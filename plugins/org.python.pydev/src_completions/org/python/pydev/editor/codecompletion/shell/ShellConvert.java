@@ -88,4 +88,33 @@ import org.python.pydev.shared_core.structure.Tuple;
         }
         return new Tuple<String, List<String[]>>(file, list);
     }
+
+    /**
+     * Converts the contents received for a batch of imports: the contents for each module are separated by a new line
+     * (and each one has the same format of the contents handled in {@link #convertStringToCompletions(FastStringBuffer)}).
+     *
+     * @return a list with the given size (if some module is missing in the contents, an invalid completion is used).
+     */
+    static/*default*/List<Tuple<String, List<String[]>>> convertStringToBatchCompletions(FastStringBuffer read,
+            int expectedSize) throws IOException {
+        List<Tuple<String, List<String[]>>> ret = new ArrayList<Tuple<String, List<String[]>>>(expectedSize);
+        if (read != null) {
+            int len = read.length();
+            int start = 0;
+            while (start <= len && ret.size() < expectedSize) {
+                int end = read.indexOf('\n', start);
+                if (end == -1) {
+                    end = len;
+                }
+                FastStringBuffer contents = new FastStringBuffer(end - start).append(read.getInternalCharsArray(), start,
+                        end - start);
+                ret.add(convertStringToCompletions(contents));
+                start = end + 1;
+            }
+        }
+        while (ret.size() < expectedSize) {
+            ret.add(getInvalidCompletion());
+        }
+        return ret;
+    }
 }
@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.shell;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.python.pydev.shared_core.string.FastStringBuffer;
+
+/**
+ * Keeps the time requests to the shells wait in the queue (i.e.: until the shell is available) and the time
+ * they take to be answered.
+ */
+public final class ShellMetrics {
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * @param waitNanos the time waiting for the shell to become available.
+     * @param latencyNanos the time the request took (after the shell was available).
+     */
+    public void record(long waitNanos, long latencyNanos) {
+        requests.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        totalLatencyNanos.addAndGet(latencyNanos);
+        updateMax(maxWaitNanos, waitNanos);
+        updateMax(maxLatencyNanos, latencyNanos);
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long curr = max.get();
+        while (value > curr) {
+            if (max.compareAndSet(curr, value)) {
+                return;
+            }
+            curr = max.get();
+        }
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public double getAverageWaitMillis() {
+        return average(totalWaitNanos.get());
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1000000.0;
+    }
+
+    public double getAverageLatencyMillis() {
+        return average(totalLatencyNanos.get());
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1000000.0;
+    }
+
+    private double average(long totalNanos) {
+        long count = requests.get();
+        if (count == 0) {
+            return 0;
+        }
+        return totalNanos / 1000000.0 / count;
+    }
+
+    public void clear() {
+        requests.set(0);
+        totalWaitNanos.set(0);
+        maxWaitNanos.set(0);
+        totalLatencyNanos.set(0);
+        maxLatencyNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return new FastStringBuffer(120).append("requests: ").append(getRequests())
+                .append(" wait (avg/max ms): ").append(format(getAverageWaitMillis())).append('/')
+                .append(format(getMaxWaitMillis()))
+                .append(" latency (avg/max ms): ").append(format(getAverageLatencyMillis())).append('/')
+                .append(format(getMaxLatencyMillis())).toString();
+    }
+
+    private static String format(double millis) {
+        return String.format("%.2f", millis);
+    }
+}
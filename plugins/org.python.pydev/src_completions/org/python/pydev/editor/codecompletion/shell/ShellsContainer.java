@@ -25,7 +25,8 @@ public class ShellsContainer {
      * this works as follows:
      * we have the interpreter as that the shell is related to as the 1st key
      *
-     * and then we have the id with the shell type that points to the actual shell
+     * and then we have the id with the shell type that points to the actual shell (the threads other than the
+     * main thread use a pool of shells, so, there may be many ids for those -- see #choosePooledShellId)
      *
      * @see #MAIN_THREAD_SHELL
      * @see #OTHER_THREADS_SHELL
@@ -207,6 +208,10 @@ public class ShellsContainer {
                                 + interpreter.getExecutableOrJar(), AbstractShell.class);
             }
             Map<Integer, AbstractShell> typeToShell = getTypeToShellFromId(interpreter);
+            boolean pooled = id == AbstractShell.OTHER_THREADS_SHELL;
+            if (pooled) {
+                id = choosePooledShellId(typeToShell);
+            }
             pythonShell = typeToShell.get(new Integer(id));
 
             if (pythonShell == null) {
@@ -238,9 +243,46 @@ public class ShellsContainer {
                 //then make it accessible
                 typeToShell.put(new Integer(id), pythonShell);
             }
+            if (pooled) {
+                //Reserve it while still holding the lock (otherwise concurrent requests would see it as idle).
+                pythonShell.reserve();
+            }
 
         }
         return pythonShell;
     }
 
+    /**
+     * Requests from the threads other than the main thread are distributed among a pool of shells: an idle shell is
+     * preferred and a new shell is only started when all the existing ones are busy (and the pool is not full yet).
+     * If all are busy and the pool is full, the shell with less pending requests is used.
+     *
+     * @return the id of the shell to be used.
+     */
+    private static int choosePooledShellId(Map<Integer, AbstractShell> typeToShell) {
+        int[] ids = AbstractShell.getOtherThreadsShellIds();
+        int bestId = ids[0];
+        int bestPending = Integer.MAX_VALUE;
+        for (int poolId : ids) {
+            AbstractShell shell = typeToShell.get(poolId);
+            if (shell == null) {
+                //All the previous ones are busy (otherwise we'd have already returned): create a new one.
+                return poolId;
+            }
+            int pending = shell.getPendingRequests();
+            if (pending == 0) {
+                return poolId;
+            }
+            if (pending < bestPending) {
+                bestPending = pending;
+                bestId = poolId;
+            }
+        }
+        if (DebugSettings.DEBUG_CODE_COMPLETION) {
+            Log.toLogFile("All pooled shells busy. Using shell: " + bestId + " (pending requests: " + bestPending
+                    + ")", AbstractShell.class);
+        }
+        return bestId;
+    }
+
 }
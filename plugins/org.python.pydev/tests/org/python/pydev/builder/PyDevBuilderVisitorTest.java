@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.builder.syntaxchecker.PySyntaxChecker;
+import org.python.pydev.builder.todo.PyTodoVisitor;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+
+public class PyDevBuilderVisitorTest extends TestCase {
+
+    private static final class MemoVisitor extends PyDevBuilderVisitor {
+
+        @Override
+        public void visitChangedResource(IResource resource, ICallback0<IDocument> document,
+                IProgressMonitor monitor) {
+        }
+
+        @Override
+        public void visitRemovedResource(IResource resource, ICallback0<IDocument> document,
+                IProgressMonitor monitor) {
+        }
+
+        public boolean checkFullBuild() {
+            return isFullBuild();
+        }
+    }
+
+    public void testThreadMemo() throws Exception {
+        final MemoVisitor visitor = new MemoVisitor();
+        VisitorMemo memo = new VisitorMemo();
+        memo.put(PyDevBuilderVisitor.IS_FULL_BUILD, false);
+        visitor.memo = memo;
+
+        VisitorMemo threadMemo = new VisitorMemo();
+        threadMemo.put(PyDevBuilderVisitor.IS_FULL_BUILD, true);
+        visitor.setThreadMemo(threadMemo);
+        assertSame(threadMemo, visitor.getMemo());
+        assertTrue(visitor.checkFullBuild());
+
+        //Other threads still see the memo field.
+        final List<Boolean> found = new ArrayList<Boolean>();
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                found.add(visitor.checkFullBuild());
+            }
+        };
+        thread.start();
+        thread.join();
+        assertEquals(Arrays.asList(false), found);
+
+        visitor.setThreadMemo(null);
+        assertSame(memo, visitor.getMemo());
+        assertFalse(visitor.checkFullBuild());
+    }
+
+    public void testDeferredMarkerChanges() throws Exception {
+        MemoVisitor visitor = new MemoVisitor();
+        visitor.memo = new VisitorMemo();
+        final List<String> applied = new ArrayList<String>();
+
+        //Applied right away when the memo doesn't have the deferred changes.
+        visitor.changeMarkers(new IWorkspaceRunnable() {
+
+            public void run(IProgressMonitor monitor) throws CoreException {
+                applied.add("change1");
+            }
+        });
+        assertEquals(Arrays.asList("change1"), applied);
+
+        //Otherwise, only kept in the memo (as in a worker thread of a parallel full build).
+        VisitorMemo threadMemo = new VisitorMemo();
+        List<IWorkspaceRunnable> deferred = new ArrayList<IWorkspaceRunnable>();
+        threadMemo.put(PyDevBuilderVisitor.DEFERRED_MARKER_CHANGES, deferred);
+        visitor.setThreadMemo(threadMemo);
+        try {
+            visitor.changeMarkers(new IWorkspaceRunnable() {
+
+                public void run(IProgressMonitor monitor) throws CoreException {
+                    applied.add("change2");
+                }
+            });
+        } finally {
+            visitor.setThreadMemo(null);
+        }
+        assertEquals(Arrays.asList("change1"), applied);
+        assertEquals(1, deferred.size());
+        deferred.get(0).run(null);
+        assertEquals(Arrays.asList("change1", "change2"), applied);
+    }
+
+    public void testThreadSafeVisitors() throws Exception {
+        assertFalse(new MemoVisitor().isThreadSafe());
+        assertTrue(new PyTodoVisitor().isThreadSafe());
+        assertTrue(new PySyntaxChecker().isThreadSafe());
+    }
+
+    public void testTimingsBreakdown() throws Exception {
+        List<PyDevBuilderVisitor> visitors = new ArrayList<PyDevBuilderVisitor>();
+        visitors.add(new MemoVisitor());
+        visitors.add(new PyTodoVisitor());
+        VisitorsTimings timings = new VisitorsTimings(visitors);
+        timings.add(0, 2000000);
+        timings.add(1, 3000000);
+        timings.add(1, 4000000);
+
+        String summary = timings.getSummary(10);
+        assertTrue(summary, summary.startsWith("Full build of 10 resources took: "));
+        assertEquals(-1, summary.indexOf('\n'));
+
+        String breakdown = timings.getBreakdown(10);
+        assertTrue(breakdown, breakdown.startsWith("Full build of 10 resources took: "));
+        assertTrue(breakdown, breakdown.contains("\n    MemoVisitor: 2ms"));
+        assertTrue(breakdown, breakdown.contains("\n    PyTodoVisitor: 7ms"));
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.builder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.core.resources.IContainer;
+import org.eclipse.core.resources.IFile;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspaceRunnable;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.jface.text.IDocument;
+import org.python.pydev.core.MisconfigurationException;
+import org.python.pydev.editor.codecompletion.revisited.javaintegration.AbstractWorkbenchTestCase;
+import org.python.pydev.plugin.nature.PythonNature;
+import org.python.pydev.shared_core.callbacks.ICallback0;
+
+/**
+ * Checks a parallel full build with more than one chunk of resources.
+ */
+public class PyDevParallelFullBuildTestWorkbench extends AbstractWorkbenchTestCase {
+
+    private static final int MODULES = 150; //more than 2 chunks
+
+    /**
+     * Records the resources visited (and checks the module name and the full build flag in its memo).
+     */
+    private static final class RecordingVisitor extends PyDevBuilderVisitor {
+
+        private final boolean threadSafe;
+        private final List<IResource> visited = Collections.synchronizedList(new ArrayList<IResource>());
+        private final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+        private final Set<Thread> markerChangeThreads = Collections.synchronizedSet(new HashSet<Thread>());
+
+        private RecordingVisitor(boolean threadSafe) {
+            this.threadSafe = threadSafe;
+        }
+
+        @Override
+        public boolean isThreadSafe() {
+            return threadSafe;
+        }
+
+        @Override
+        public void visitChangedResource(IResource resource, ICallback0<IDocument> document,
+                IProgressMonitor monitor) {
+            visited.add(resource);
+            threads.add(Thread.currentThread());
+            if (!isFullBuild()) {
+                errors.add("Not full build: " + resource);
+            }
+            String expected = "pack1.pack2." + resource.getFullPath().removeFileExtension().lastSegment();
+            try {
+                String moduleName = getModuleName(resource, PythonNature.getPythonNature(resource));
+                if (!expected.equals(moduleName)) {
+                    errors.add("Expected module: " + expected + " found: " + moduleName);
+                }
+            } catch (MisconfigurationException e) {
+                errors.add(e.getMessage());
+            }
+            if (document.call() == null) {
+                errors.add("No document: " + resource);
+            }
+            changeMarkers(new IWorkspaceRunnable() {
+
+                public void run(IProgressMonitor monitor) throws CoreException {
+                    markerChangeThreads.add(Thread.currentThread());
+                }
+            });
+        }
+
+        @Override
+        public void visitRemovedResource(IResource resource, ICallback0<IDocument> document,
+                IProgressMonitor monitor) {
+            errors.add("Not expecting remove: " + resource);
+        }
+    }
+
+    public void testParallelBuildWithMultipleChunks() throws Exception {
+        waitForModulesManagerSetup();
+
+        IContainer pack2 = initFile.getParent();
+        List<IFile> resources = new ArrayList<IFile>();
+        try {
+            for (int i = 0; i < MODULES; i++) {
+                IFile file = pack2.getFile(new Path("parallel_mod" + i + ".py"));
+                setFileContents(file, "a" + i + " = " + i + "\n");
+                resources.add(file);
+            }
+
+            RecordingVisitor threadSafe = new RecordingVisitor(true);
+            RecordingVisitor builderThread = new RecordingVisitor(false);
+            List<PyDevBuilderVisitor> visitors = new ArrayList<PyDevBuilderVisitor>();
+            visitors.add(threadSafe);
+            visitors.add(builderThread);
+
+            VisitorsTimings timings = new VisitorsTimings(visitors);
+            new PyDevParallelFullBuild(resources, new NullProgressMonitor(), visitors, timings).build();
+
+            assertEquals(new ArrayList<String>(), threadSafe.errors);
+            assertEquals(new ArrayList<String>(), builderThread.errors);
+
+            //the thread-safe visitors are called once for each resource (in any order) in the workers
+            assertEquals(MODULES, threadSafe.visited.size());
+            assertEquals(new HashSet<IResource>(resources), new HashSet<IResource>(threadSafe.visited));
+            assertFalse(threadSafe.threads.contains(Thread.currentThread()));
+
+            //the marker changes are always applied in the builder thread.
+            assertEquals(Collections.singleton(Thread.currentThread()), threadSafe.markerChangeThreads);
+            assertEquals(Collections.singleton(Thread.currentThread()), builderThread.markerChangeThreads);
+
+            //and the others in the builder thread, in the order of the resources.
+            assertEquals(resources, builderThread.visited);
+            assertEquals(Collections.singleton(Thread.currentThread()), builderThread.threads);
+        } finally {
+            for (IFile file : resources) {
+                file.delete(true, new NullProgressMonitor());
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import java.io.File;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.core.IPythonNature;
+import org.python.pydev.parser.jython.SimpleNode;
+import org.python.pydev.parser.jython.ast.Expr;
+import org.python.pydev.parser.jython.ast.Module;
+import org.python.pydev.parser.jython.ast.Name;
+import org.python.pydev.parser.jython.ast.Pass;
+import org.python.pydev.parser.jython.ast.stmtType;
+import org.python.pydev.shared_core.io.FileUtils;
+
+public class ASTDiskCacheTest extends TestCase {
+
+    private File baseDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = new File(FileUtils.getFileAbsolutePath(new File("astdiskcachetest.temporary_dir")));
+        try {
+            FileUtils.deleteDirectoryTree(baseDir);
+        } catch (Exception e) {
+            //ignore
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        try {
+            FileUtils.deleteDirectoryTree(baseDir);
+        } catch (Exception e) {
+            //ignore
+        }
+        super.tearDown();
+    }
+
+    private static Module createModule(int statements) {
+        stmtType[] body = new stmtType[statements];
+        for (int i = 0; i < statements; i++) {
+            body[i] = new Pass();
+            body[i].beginLine = i + 1;
+            body[i].beginColumn = 1;
+        }
+        return new Module(body);
+    }
+
+    public void testPutAndGet() throws Exception {
+        ASTDiskCache cache = new ASTDiskCache(baseDir, ASTDiskCache.DEFAULT_MAX_SIZE);
+        int version = IPythonNature.GRAMMAR_PYTHON_VERSION_2_7;
+        assertNull(cache.get("pass\n", version, false));
+
+        Module module = createModule(1);
+        cache.put("pass\n", version, false, module);
+        SimpleNode ast = cache.get("pass\n", version, false);
+        assertEquals(module, ast);
+        assertNotSame(module, ast);
+
+        //Different contents or grammar versions don't match.
+        assertNull(cache.get("pass \n", version, false));
+        assertNull(cache.get("pass\n", IPythonNature.GRAMMAR_PYTHON_VERSION_3_0, false));
+        assertEquals(1, cache.getHits());
+        assertEquals(3, cache.getMisses());
+
+        //Full and compacted ASTs are kept apart.
+        assertNull(cache.get("pass\n", version, true));
+        cache.put("pass\n", version, true, module);
+        assertNotNull(cache.get("pass\n", version, true));
+        assertFalse(cache.getFile("pass\n", version, true).equals(cache.getFile("pass\n", version, false)));
+        assertEquals(2, cache.getHits());
+        assertEquals(4, cache.getMisses());
+
+        //A corrupted entry is removed.
+        File file = cache.getFile("pass\n", version, false);
+        FileUtils.writeStrToFile("invalid", file);
+        assertNull(cache.get("pass\n", version, false));
+        assertFalse(file.exists());
+    }
+
+    public void testEviction() throws Exception {
+        int version = IPythonNature.GRAMMAR_PYTHON_VERSION_2_7;
+        ASTDiskCache cache = new ASTDiskCache(baseDir, 3000);
+        Module module = createModule(100);
+        for (int i = 0; i < 10; i++) {
+            module.body[0] = new Expr(new Name("n" + i, Name.Load, false));
+            cache.put("contents" + i, version, false, module);
+            File file = cache.getFile("contents" + i, version, false);
+            assertTrue(file.exists());
+            file.setLastModified(System.currentTimeMillis() - ((10 - i) * 10000)); //older entries first
+        }
+        long total = 0;
+        File[] files = baseDir.listFiles();
+        for (File f : files) {
+            total += f.length();
+        }
+        assertTrue("Expected size to be bounded. Found: " + total, total <= 3000);
+        assertTrue(files.length < 10);
+
+        //The last one must still be there (the first ones were removed).
+        assertNotNull(cache.get("contents9", version, false));
+        assertNull(cache.get("contents0", version, false));
+    }
+}
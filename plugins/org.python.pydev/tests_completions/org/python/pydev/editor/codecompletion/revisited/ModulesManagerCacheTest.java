@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.core.ModulesKey;
+import org.python.pydev.editor.codecompletion.revisited.modules.AbstractModule;
+
+public class ModulesManagerCacheTest extends TestCase {
+
+    private static final int THREADS = 8;
+
+    private ModulesManager modulesManager;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        modulesManager = new ProjectModulesManager();
+    }
+
+    private ModulesKey addKey(String name) {
+        ModulesKey key = new ModulesKey(name, null);
+        synchronized (modulesManager.modulesKeysLock) {
+            modulesManager.modulesKeys.put(key, key);
+        }
+        return key;
+    }
+
+    private static AbstractModule createModule(String name) {
+        return AbstractModule.createEmptyModule(new ModulesKey(name, null));
+    }
+
+    public void testConcurrentGetObjCreatesSingleModule() throws Exception {
+        final ModulesManagerCache cache = new ModulesManagerCache();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int i = 0; i < 50; i++) {
+                final ModulesKey key = addKey("mod" + i);
+                final CountDownLatch start = new CountDownLatch(1);
+                Future<?>[] futures = new Future<?>[THREADS];
+                for (int j = 0; j < THREADS; j++) {
+                    futures[j] = executor.submit(new Callable<AbstractModule>() {
+
+                        public AbstractModule call() throws Exception {
+                            start.await();
+                            return cache.getObj(new ModulesKey(key.name, null), modulesManager);
+                        }
+                    });
+                }
+                start.countDown();
+
+                Object first = futures[0].get(10, TimeUnit.SECONDS);
+                assertNotNull(first);
+                for (Future<?> future : futures) {
+                    assertSame(first, future.get(10, TimeUnit.SECONDS));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(50, cache.size());
+        assertEquals(50 * THREADS, cache.getHits() + cache.getMisses());
+        assertEquals(0, cache.getEvictions());
+    }
+
+    public void testCreationLockIsSharedWhileAcquired() throws Exception {
+        final ModulesManagerCache cache = new ModulesManagerCache();
+        final ModulesKey key = new ModulesKey("mod", null);
+        final AtomicInteger creating = new AtomicInteger();
+        final AtomicInteger maxCreating = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Future<?>[] futures = new Future<?>[THREADS];
+            for (int j = 0; j < THREADS; j++) {
+                futures[j] = executor.submit(new Callable<Object>() {
+
+                    public Object call() throws Exception {
+                        start.await();
+                        for (int i = 0; i < 200; i++) {
+                            Object lock = cache.acquireCreationLock(key, modulesManager);
+                            try {
+                                synchronized (lock) {
+                                    int current = creating.incrementAndGet();
+                                    if (current > maxCreating.get()) {
+                                        maxCreating.set(current);
+                                    }
+                                    Thread.yield();
+                                    creating.decrementAndGet();
+                                }
+                            } finally {
+                                cache.releaseCreationLock(key, modulesManager, lock);
+                            }
+                        }
+                        return null;
+                    }
+                });
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, maxCreating.get());
+
+        //The lock is kept while some thread still uses it.
+        Object lock = cache.acquireCreationLock(key, modulesManager);
+        assertSame(lock, cache.acquireCreationLock(key, modulesManager));
+        cache.releaseCreationLock(key, modulesManager, lock);
+        assertSame(lock, cache.acquireCreationLock(key, modulesManager));
+        cache.releaseCreationLock(key, modulesManager, lock);
+        cache.releaseCreationLock(key, modulesManager, lock);
+
+        //Released by all: a new lock is created afterwards.
+        assertNotSame(lock, cache.acquireCreationLock(key, modulesManager));
+    }
+
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        ModulesManagerCache measure = new ModulesManagerCache();
+        measure.add(new ModulesKey("mod", null), createModule("mod"), modulesManager);
+        long entryMemory = measure.getEstimatedMemory();
+        assertTrue(entryMemory > 0);
+
+        //A single segment so that the order is a strict LRU.
+        ModulesManagerCache cache = new ModulesManagerCache(4 * entryMemory, 1);
+        AbstractModule[] modules = new AbstractModule[5];
+        for (int i = 0; i < 4; i++) {
+            modules[i] = createModule("mod" + i);
+            cache.add(new ModulesKey("mod" + i, null), modules[i], modulesManager);
+        }
+        assertEquals(4, cache.size());
+        assertEquals(4 * entryMemory, cache.getEstimatedMemory());
+        assertEquals(0, cache.getEvictions());
+
+        //Accessing mod0 makes mod1 the least recently used.
+        assertSame(modules[0], cache.getObj(new ModulesKey("mod0", null), modulesManager));
+
+        modules[4] = createModule("mod4");
+        cache.add(new ModulesKey("mod4", null), modules[4], modulesManager);
+        assertEquals(4, cache.size());
+        assertEquals(4 * entryMemory, cache.getEstimatedMemory());
+        assertEquals(1, cache.getEvictions());
+
+        //The keys aren't in the modules manager, so, evicted modules aren't recreated.
+        assertNull(cache.getObj(new ModulesKey("mod1", null), modulesManager));
+        assertSame(modules[0], cache.getObj(new ModulesKey("mod0", null), modulesManager));
+        assertSame(modules[2], cache.getObj(new ModulesKey("mod2", null), modulesManager));
+        assertSame(modules[3], cache.getObj(new ModulesKey("mod3", null), modulesManager));
+        assertSame(modules[4], cache.getObj(new ModulesKey("mod4", null), modulesManager));
+
+        //Now the order is mod0, mod2, mod3, mod4: adding 2 more evicts mod0 and mod2.
+        cache.add(new ModulesKey("mod5", null), createModule("mod5"), modulesManager);
+        cache.add(new ModulesKey("mod6", null), createModule("mod6"), modulesManager);
+        assertEquals(3, cache.getEvictions());
+        assertNull(cache.getObj(new ModulesKey("mod0", null), modulesManager));
+        assertNull(cache.getObj(new ModulesKey("mod2", null), modulesManager));
+        assertSame(modules[3], cache.getObj(new ModulesKey("mod3", null), modulesManager));
+
+        //Replacing an entry doesn't count its memory twice.
+        cache.add(new ModulesKey("mod3", null), createModule("mod3"), modulesManager);
+        assertEquals(4, cache.size());
+        assertEquals(4 * entryMemory, cache.getEstimatedMemory());
+        assertEquals(3, cache.getEvictions());
+
+        cache.remove(new ModulesKey("mod3", null), modulesManager);
+        assertEquals(3 * entryMemory, cache.getEstimatedMemory());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedMemory());
+    }
+
+    public void testMemoryBudgetWithSegments() throws Exception {
+        ModulesManagerCache measure = new ModulesManagerCache();
+        measure.add(new ModulesKey("mod", null), createModule("mod"), modulesManager);
+        long entryMemory = measure.getEstimatedMemory();
+
+        ModulesManagerCache cache = new ModulesManagerCache(100 * entryMemory, 16);
+        for (int i = 0; i < 1000; i++) {
+            cache.add(new ModulesKey("mod" + i, null), createModule("mod" + i), modulesManager);
+            assertTrue(cache.getEstimatedMemory() <= 100 * entryMemory);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(900, cache.getEvictions());
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.python.pydev.editor.codecompletion.revisited.ModulesFoundStructure.ZipContents;
+import org.python.pydev.shared_core.io.FileUtils;
+
+public class ZipContentsCacheTest extends TestCase {
+
+    private File baseDir;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        ZipContentsCache.clear();
+        baseDir = FileUtils.getTempFileAt(new File("."), "data_zip_contents_cache");
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        baseDir.mkdir();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        ZipContentsCache.clear();
+        FileUtils.deleteDirectoryTree(baseDir);
+        super.tearDown();
+    }
+
+    private static void createZip(File file, String... entries) throws Exception {
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(file))) {
+            for (String entry : entries) {
+                out.putNextEntry(new ZipEntry(entry));
+                out.write("a = 10\n".getBytes());
+                out.closeEntry();
+            }
+        }
+    }
+
+    public void testCachedWhileUnchanged() throws Exception {
+        File zip = new File(baseDir, "lib.egg");
+        createZip(zip, "pack/__init__.py", "pack/mod1.py", "notpack/mod2.py", "mod3.py");
+
+        ZipContents contents = PythonPathHelper.getFromZip(zip, new NullProgressMonitor());
+        assertEquals(new HashSet<String>(Arrays.asList("pack/__init__.py", "pack/mod1.py", "mod3.py")),
+                contents.foundFileZipPaths);
+        assertSame(contents, PythonPathHelper.getFromZip(zip, new NullProgressMonitor()));
+
+        //change it (with a different size and time): must be read again.
+        createZip(zip, "pack/__init__.py", "pack/mod1.py", "pack/mod4.py");
+        zip.setLastModified(zip.lastModified() + 2000);
+        ZipContents contents2 = PythonPathHelper.getFromZip(zip, new NullProgressMonitor());
+        assertNotSame(contents, contents2);
+        assertEquals(new HashSet<String>(Arrays.asList("pack/__init__.py", "pack/mod1.py", "pack/mod4.py")),
+                contents2.foundFileZipPaths);
+        assertSame(contents2, PythonPathHelper.getFromZip(zip, new NullProgressMonitor()));
+    }
+
+    public void testCancelledNotCached() throws Exception {
+        File zip = new File(baseDir, "lib.zip");
+        createZip(zip, "mod1.py");
+
+        NullProgressMonitor monitor = new NullProgressMonitor();
+        monitor.setCanceled(true);
+        assertNull(PythonPathHelper.getFromZip(zip, monitor));
+        assertNull(ZipContentsCache.get(zip, zip.length(), zip.lastModified()));
+
+        ZipContents contents = PythonPathHelper.getFromZip(zip, new NullProgressMonitor());
+        assertSame(contents, ZipContentsCache.get(zip, zip.length(), zip.lastModified()));
+        assertNull(ZipContentsCache.get(zip, zip.length() + 1, zip.lastModified()));
+        //the changed entry is removed.
+        assertNull(ZipContentsCache.get(zip, zip.length(), zip.lastModified()));
+    }
+}
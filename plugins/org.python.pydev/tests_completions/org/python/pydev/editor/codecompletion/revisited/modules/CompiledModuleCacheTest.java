@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2005-2013 by Appcelerator, Inc. All Rights Reserved.
+ * Licensed under the terms of the Eclipse Public License (EPL).
+ * Please see the license.txt included with this distribution for details.
+ * Any modifications to this file must keep this entire header intact.
+ */
+package org.python.pydev.editor.codecompletion.revisited.modules;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import junit.framework.TestCase;
+
+import org.python.pydev.core.IToken;
+import org.python.pydev.editor.codecompletion.revisited.SystemModulesManager;
+import org.python.pydev.plugin.PydevTestUtils;
+import org.python.pydev.shared_core.io.FileUtils;
+import org.python.pydev.shared_core.structure.Tuple;
+import org.python.pydev.ui.pythonpathconf.InterpreterInfo;
+
+/**
+ * Checks that the tokens of compiled modules cached in the disk are only reused while the module (or the interpreter
+ * for builtins) didn't change.
+ */
+public class CompiledModuleCacheTest extends TestCase {
+
+    private static final long TIME = 1000000000000L;
+
+    private File baseDir;
+    private File exe;
+    private File moduleFile;
+    private SystemModulesManager manager;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        baseDir = new File(PydevTestUtils.setTestPlatformStateLocation(), "compiled_module_cache_test");
+        if (baseDir.exists()) {
+            FileUtils.deleteDirectoryTree(baseDir);
+        }
+        baseDir.mkdirs();
+
+        exe = new File(baseDir, "python");
+        FileUtils.writeStrToFile("fake interpreter", exe);
+        exe.setLastModified(TIME);
+
+        moduleFile = new File(baseDir, "mymod.so");
+        FileUtils.writeStrToFile("fake module", moduleFile);
+        moduleFile.setLastModified(TIME);
+
+        InterpreterInfo info = new InterpreterInfo("2.7", exe.getAbsolutePath(), new ArrayList<String>());
+        manager = new SystemModulesManager(info);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        FileUtils.deleteDirectoryTree(baseDir);
+        File ioDirectory = manager.getIoDirectory();
+        if (ioDirectory != null && ioDirectory.exists()) {
+            FileUtils.deleteDirectoryTree(ioDirectory);
+        }
+        super.tearDown();
+    }
+
+    private static IToken[] createTokens(String name) {
+        IToken[] toks = new IToken[15];
+        for (int i = 0; i < toks.length; i++) {
+            toks[i] = new CompiledToken("tok" + i, "doc" + i, "(a, b)", name, IToken.TYPE_FUNCTION);
+        }
+        return toks;
+    }
+
+    private File writeCache(String name, File file) throws Exception {
+        File cacheFile = manager.getCompiledModuleCacheFile(name);
+        File stampFile = file != null ? file : exe;
+        CompiledModule.writeCache(cacheFile, name, new Tuple<File, IToken[]>(file, createTokens(name)), new long[] {
+                stampFile.lastModified(), stampFile.length() });
+        return cacheFile;
+    }
+
+    private static void checkTokens(IToken[] toks, String name) {
+        assertEquals(15, toks.length);
+        for (int i = 0; i < toks.length; i++) {
+            assertEquals("tok" + i, toks[i].getRepresentation());
+            assertEquals("doc" + i, toks[i].getDocStr());
+            assertEquals("(a, b)", toks[i].getArgs());
+            assertEquals(name, toks[i].getParentPackage());
+            assertEquals(IToken.TYPE_FUNCTION, toks[i].getType());
+        }
+    }
+
+    public void testCacheReusedWhileModuleUnchanged() throws Exception {
+        File cacheFile = writeCache("mymod", moduleFile);
+        assertTrue(CompiledModule.isCacheFileUpToDate(cacheFile, manager));
+
+        Tuple<File, IToken[]> cached = CompiledModule.getCached("mymod", manager);
+        assertNotNull(cached);
+        assertEquals(moduleFile, cached.o1);
+        checkTokens(cached.o2, "mymod");
+
+        //Gotten from the cache (without going to the shell).
+        CompiledModule module = new CompiledModule("mymod", manager);
+        assertEquals(moduleFile, module.getFile());
+        assertEquals(15, module.getGlobalTokens().length);
+
+        assertEquals(0, manager.removeStaleCompiledModulesCache());
+        assertTrue(cacheFile.exists());
+    }
+
+    public void testCacheRejectedWhenModuleModified() throws Exception {
+        File cacheFile = writeCache("mymod", moduleFile);
+        moduleFile.setLastModified(TIME + 2000);
+
+        assertFalse(CompiledModule.isCacheFileUpToDate(cacheFile, manager));
+        assertNull(CompiledModule.getCached("mymod", manager));
+        assertFalse("An invalid cache must be removed.", cacheFile.exists());
+    }
+
+    public void testCacheRejectedWhenModuleSizeChanged() throws Exception {
+        File cacheFile = writeCache("mymod", moduleFile);
+        FileUtils.writeStrToFile("fake module with another size", moduleFile);
+        moduleFile.setLastModified(TIME);
+
+        assertFalse(CompiledModule.isCacheFileUpToDate(cacheFile, manager));
+        assertEquals(1, manager.removeStaleCompiledModulesCache());
+        assertFalse(cacheFile.exists());
+        assertNull(CompiledModule.getCached("mymod", manager));
+    }
+
+    public void testBuiltinCacheRejectedWhenInterpreterChanged() throws Exception {
+        //Builtins have no file: the stamp is the one from the interpreter.
+        File cacheFile = writeCache("sys", null);
+        assertTrue(CompiledModule.isCacheFileUpToDate(cacheFile, manager));
+        Tuple<File, IToken[]> cached = CompiledModule.getCached("sys", manager);
+        assertNotNull(cached);
+        assertNull(cached.o1);
+        checkTokens(cached.o2, "sys");
+
+        exe.setLastModified(TIME + 2000);
+        assertFalse(CompiledModule.isCacheFileUpToDate(cacheFile, manager));
+        assertNull(CompiledModule.getCached("sys", manager));
+        assertFalse(cacheFile.exists());
+    }
+
+    public void testCacheRejectedWithOtherFormat() throws Exception {
+        //A previous version of the cache (which had no stamp).
+        File cacheFile = manager.getCompiledModuleCacheFile("mymod");
+        try (ObjectOutputStream stream = new ObjectOutputStream(new GZIPOutputStream(new FileOutputStream(
+                cacheFile)))) {
+            stream.writeObject("mymod");
+            stream.writeObject(moduleFile);
+            stream.writeInt(0);
+        }
+        assertFalse(CompiledModule.isCacheFileUpToDate(cacheFile, manager));
+        assertNull(CompiledModule.getCached("mymod", manager));
+        assertFalse(cacheFile.exists());
+
+        //Something which isn't a cache at all.
+        FileUtils.writeStrToFile("not a cache", cacheFile);
+        assertFalse(CompiledModule.isCacheFileUpToDate(cacheFile, manager));
+        assertEquals(1, manager.removeStaleCompiledModulesCache());
+        assertFalse(cacheFile.exists());
+    }
+}
@@ -12,6 +12,7 @@
 package org.python.pydev.editor.codecompletion.shell;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 
 import org.eclipse.core.runtime.CoreException;
@@ -22,6 +23,7 @@ import org.python.pydev.core.TestDependent;
 import org.python.pydev.editor.codecompletion.revisited.CodeCompletionTestsBase;
 import org.python.pydev.shared_core.SharedCorePlugin;
 import org.python.pydev.shared_core.string.StringUtils;
+import org.python.pydev.shared_core.structure.Tuple;
 
 /**
  * These tests should run, however the directory where the tests are run must be correct.
@@ -98,6 +100,23 @@ public class PythonShellTest extends CodeCompletionTestsBase {
 
     }
 
+    public void testGetBatchCompletions() throws Exception {
+        List<Tuple<String, List<String[]>>> completions = shell.getImportCompletions(
+                Arrays.asList("math", "dfjslkfjds", "os.path"), getPythonpath());
+        assertEquals(3, completions.size());
+        assertTrue(completions.get(0).o2.size() >= 29);
+        assertEquals(0, completions.get(1).o2.size());
+        assertTrue(completions.get(2).o2.size() > 10);
+    }
+
+    public void testMetrics() throws Exception {
+        shell.getImportCompletions("math", getPythonpath());
+
+        ShellMetrics metrics = shell.getMetrics();
+        assertTrue(metrics.getRequests() > 0);
+        assertTrue(metrics.getMaxLatencyMillis() >= metrics.getAverageLatencyMillis());
+    }
+
     public void testErrorOnCompletions() throws Exception {
         List<String[]> list = shell.getImportCompletions("dfjslkfjds\n\n", getPythonpath()).o2;
         assertEquals(0, list.size());
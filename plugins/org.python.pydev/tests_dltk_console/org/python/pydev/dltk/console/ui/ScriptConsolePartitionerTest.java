@@ -78,4 +78,40 @@ public class ScriptConsolePartitionerTest extends TestCase {
         assertEquals(48, styleRanges[2].length);
     }
 
+    public void testGetStyleRangesInTheMiddle() throws Exception {
+        ScriptConsolePartitioner partitioner = new ScriptConsolePartitioner();
+        for (int i = 0; i < 100; i++) {
+            partitioner.addRange(new ScriptStyleRange(i * 2, 2, null, null, i % 2 == 0 ? ScriptStyleRange.STDOUT
+                    : ScriptStyleRange.STDERR));
+        }
+        StyleRange[] styleRanges = partitioner.getStyleRanges(51, 4);
+        assertEquals(3, styleRanges.length);
+        assertEquals(50, styleRanges[0].start);
+        assertEquals(52, styleRanges[1].start);
+        assertEquals(54, styleRanges[2].start);
+    }
+
+    public void testRemoveStart() throws Exception {
+        ScriptConsolePartitioner partitioner = new ScriptConsolePartitioner();
+        partitioner.addRange(new ScriptStyleRange(0, 3, null, null, ScriptStyleRange.STDOUT));
+        partitioner.addRange(new ScriptStyleRange(3, 3, null, null, ScriptStyleRange.STDERR));
+        partitioner.addRange(new ScriptStyleRange(6, 3, null, null, ScriptStyleRange.PROMPT));
+
+        partitioner.removeStart(4);
+        StyleRange[] styleRanges = partitioner.getStyleRanges(0, 5);
+        assertEquals(2, styleRanges.length);
+        assertEquals(0, styleRanges[0].start);
+        assertEquals(2, styleRanges[0].length);
+        assertEquals(ScriptStyleRange.STDERR, ((ScriptStyleRange) styleRanges[0]).scriptType);
+        assertEquals(2, styleRanges[1].start);
+        assertEquals(3, styleRanges[1].length);
+
+        partitioner.removeStart(2);
+        styleRanges = partitioner.getStyleRanges(0, 3);
+        assertEquals(1, styleRanges.length);
+        assertEquals(0, styleRanges[0].start);
+        assertEquals(3, styleRanges[0].length);
+        assertEquals(ScriptStyleRange.PROMPT, ((ScriptStyleRange) styleRanges[0]).scriptType);
+    }
+
 }